@@ -0,0 +1,98 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.intellijava.core.model.AudioResponse;
+import com.intellijava.core.utils.AudioHelper;
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * AudioBenchmark measures the speech response: the json with the base64 audio, then the decode.
+ *
+ * The audio sizes are the decoded bytes, a minute of MP3 speech is about 1 MB.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class AudioBenchmark {
+
+	@Param({ "262144", "1048576", "4194304" })
+	private int audioBytes;
+
+	private byte[] speechResponse;
+	private String audioContent;
+
+	/**
+	 * Create the audio payloads once per trial.
+	 */
+	@Setup
+	public void setup() {
+		audioContent = Payloads.audioContent(audioBytes);
+		speechResponse = Payloads.googleSpeech(audioBytes);
+	}
+
+	/**
+	 * Decode the base64 audio.
+	 *
+	 * @return the audio bytes.
+	 */
+	@Benchmark
+	public byte[] decode() {
+		return AudioHelper.decode(audioContent);
+	}
+
+	/**
+	 * Parse the speech response json.
+	 *
+	 * @return the response model.
+	 */
+	@Benchmark
+	public AudioResponse speechResponse() {
+		return ConnHelper.convertSteamToModel(new ByteArrayInputStream(speechResponse), AudioResponse.class);
+	}
+
+	/**
+	 * Parse the speech response json and decode the audio, like RemoteSpeechModel.
+	 *
+	 * @return the audio bytes.
+	 */
+	@Benchmark
+	public byte[] speechResponseAndDecode() {
+		return AudioHelper.decode(speechResponse().getAudioContent());
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *
+ * BenchmarkRunner runs the JMH benchmarks with the gc profiler, so every result reports
+ * the throughput with the allocation rate per operation (gc.alloc.rate.norm).
+ *
+ * Example:
+ * java -jar target/benchmarks.jar Parsing -p chars=8000
+ *
+ * The JMH command line options are accepted as they are.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	/**
+	 * Run the benchmarks.
+	 *
+	 * @param args the JMH command line options.
+	 * @throws Exception if the options are not valid or a benchmark fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * CannedTransport writes the request body like a real transport, then returns a fixed response.
+ *
+ * It keeps the network out of the request path benchmarks, so only the client work is measured:
+ * the input conversion, the json serialization, the response parsing and the result mapping.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+final class CannedTransport implements HttpTransport {
+
+	private static final Map<String, List<String>> HEADERS = Collections.singletonMap("content-type",
+			Collections.singletonList("application/json"));
+
+	private final byte[] response;
+
+	/**
+	 * CannedTransport constructor.
+	 *
+	 * @param response the json response body.
+	 */
+	CannedTransport(byte[] response) {
+		this.response = response;
+	}
+
+	@Override
+	public TransportResponse send(TransportRequest request) throws IOException {
+		request.getBody().writeTo(new CountingOutputStream());
+		return new TransportResponse(200, HEADERS, new ByteArrayInputStream(response));
+	}
+}
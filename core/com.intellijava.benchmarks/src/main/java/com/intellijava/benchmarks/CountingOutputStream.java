@@ -0,0 +1,50 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.io.OutputStream;
+
+/**
+ *
+ * CountingOutputStream discards the written bytes and keeps their count,
+ * so the serialization is measured without the copy to a buffer.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+final class CountingOutputStream extends OutputStream {
+
+	private long count;
+
+	@Override
+	public void write(int b) {
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		count += len;
+	}
+
+	/**
+	 * Gets the written bytes.
+	 *
+	 * @return count
+	 */
+	long getCount() {
+		return count;
+	}
+}
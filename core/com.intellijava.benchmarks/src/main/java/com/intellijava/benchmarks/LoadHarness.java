@@ -0,0 +1,316 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.intellijava.core.controller.RemoteImageModel;
+import com.intellijava.core.controller.RemoteLanguageModel;
+import com.intellijava.core.controller.RemoteSpeechModel;
+import com.intellijava.core.function.Chatbot;
+import com.intellijava.core.metrics.LatencyHistogram;
+import com.intellijava.core.model.SpeechModels;
+import com.intellijava.core.model.SupportedChatModels;
+import com.intellijava.core.model.SupportedImageModels;
+import com.intellijava.core.model.SupportedLangModels;
+import com.intellijava.core.model.input.ChatGPTInput;
+import com.intellijava.core.model.input.ImageModelInput;
+import com.intellijava.core.model.input.LanguageModelInput;
+import com.intellijava.core.model.input.Text2SpeechInput;
+import com.intellijava.core.transport.HttpClientTransport;
+import com.intellijava.core.transport.HttpStatusException;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.RetryingTransport;
+
+/**
+ *
+ * LoadHarness drives a call at a fixed concurrency and reports the throughput and the latency percentiles.
+ *
+ * Each caller thread sends the next call when the previous one completes, so the concurrency
+ * is the number of calls in flight. The calls of the warmup are not reported.
+ *
+ * Run the controllers against the embedded MockProviderServer:
+ * java -cp target/benchmarks.jar com.intellijava.benchmarks.LoadHarness --scenario=chat --concurrency=64
+ *     --duration=20 --latency=200 --rate-limit-rate=0.05 --retry
+ *
+ * Options: --scenario=text|cohere|chat|chat-stream|image|speech, --concurrency, --duration and --warmup
+ * in seconds, --latency, --jitter and --chunk-delay in milliseconds, --error-rate, --rate-limit-rate,
+ * --stream-chunks, --retry to add a RetryingTransport, and --target=url to call a running server
+ * instead of the embedded one.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class LoadHarness {
+
+	private final int concurrency;
+	private final Duration duration;
+	private final Duration warmup;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private LoadHarness(Builder builder) {
+		this.concurrency = builder.concurrency;
+		this.duration = builder.duration;
+		this.warmup = builder.warmup;
+	}
+
+	/**
+	 *
+	 * Builder class for LoadHarness.
+	 *
+	 */
+	public static class Builder {
+		private int concurrency = 16;
+		private Duration duration = Duration.ofSeconds(10);
+		private Duration warmup = Duration.ofSeconds(2);
+
+		/**
+		 * Builder default constructor.
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the calls in flight, default is 16.
+		 *
+		 * @param concurrency the caller threads.
+		 * @return instance of Builder.
+		 */
+		public Builder setConcurrency(int concurrency) {
+			this.concurrency = concurrency;
+			return this;
+		}
+
+		/**
+		 * Sets the measured time after the warmup, default is 10 seconds.
+		 *
+		 * @param duration the measured time.
+		 * @return instance of Builder.
+		 */
+		public Builder setDuration(Duration duration) {
+			this.duration = duration;
+			return this;
+		}
+
+		/**
+		 * Sets the time before the measure, default is 2 seconds.
+		 *
+		 * @param warmup the warmup time.
+		 * @return instance of Builder.
+		 */
+		public Builder setWarmup(Duration warmup) {
+			this.warmup = warmup;
+			return this;
+		}
+
+		/**
+		 * Build the final LoadHarness object.
+		 *
+		 * @return final LoadHarness object.
+		 */
+		public LoadHarness build() {
+			return new LoadHarness(this);
+		}
+	}
+
+	/**
+	 * Run the call from all the caller threads until the end of the duration.
+	 *
+	 * @param call the call to measure, it is called concurrently.
+	 * @return the report of the measured calls.
+	 * @throws InterruptedException if the caller is interrupted.
+	 */
+	public LoadReport run(Callable<?> call) throws InterruptedException {
+
+		long measureStart = System.nanoTime() + warmup.toNanos();
+		long end = measureStart + duration.toNanos();
+
+		LatencyHistogram latency = new LatencyHistogram();
+		LongAdder successes = new LongAdder();
+		LongAdder failures = new LongAdder();
+		ConcurrentHashMap<String, LongAdder> failureTypes = new ConcurrentHashMap<>();
+
+		List<Thread> callers = new ArrayList<>();
+		for (int index = 0; index < concurrency; index++) {
+			Thread caller = new Thread(() -> {
+				long start;
+				while ((start = System.nanoTime()) < end) {
+					boolean failed = false;
+					Throwable error = null;
+					try {
+						call.call();
+					} catch (Exception e) {
+						failed = true;
+						error = e;
+					}
+					long finish = System.nanoTime();
+					if (start < measureStart) {
+						continue;
+					}
+					latency.record(finish - start);
+					if (failed) {
+						failures.increment();
+						failureTypes.computeIfAbsent(typeOf(error), type -> new LongAdder()).increment();
+					} else {
+						successes.increment();
+					}
+				}
+			}, "load-caller-" + index);
+			caller.setDaemon(true);
+			callers.add(caller);
+			caller.start();
+		}
+		for (Thread caller : callers) {
+			caller.join();
+		}
+
+		Map<String, Long> types = new TreeMap<>();
+		failureTypes.forEach((type, calls) -> types.put(type, calls.sum()));
+		return new LoadReport(concurrency, duration.toNanos() / 1e9, successes.sum(), failures.sum(), types, latency);
+	}
+
+	/**
+	 * Name the failure with the status code for the HTTP errors.
+	 */
+	private static String typeOf(Throwable error) {
+		while ((error instanceof CompletionException || error instanceof ExecutionException)
+				&& error.getCause() != null) {
+			error = error.getCause();
+		}
+		if (error instanceof HttpStatusException) {
+			return "HTTP " + ((HttpStatusException) error).getStatusCode();
+		}
+		return error.getClass().getSimpleName();
+	}
+
+	/**
+	 * Run one scenario from the command line and print the report.
+	 *
+	 * @param args the options, see the class description.
+	 * @throws Exception if the server cannot start or the run is interrupted.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				int split = arg.indexOf('=');
+				options.put(split < 0 ? arg.substring(2) : arg.substring(2, split),
+						split < 0 ? "true" : arg.substring(split + 1));
+			}
+		}
+
+		String scenario = options.getOrDefault("scenario", "chat");
+		String target = options.get("target");
+
+		MockProviderServer server = null;
+		if (target == null) {
+			server = new MockProviderServer.Builder()
+					.setLatency(Duration.ofMillis(Long.parseLong(options.getOrDefault("latency", "100"))))
+					.setLatencyJitter(Duration.ofMillis(Long.parseLong(options.getOrDefault("jitter", "0"))))
+					.setErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+					.setRateLimitRate(Double.parseDouble(options.getOrDefault("rate-limit-rate", "0")))
+					.setStreamChunks(Integer.parseInt(options.getOrDefault("stream-chunks", "20")))
+					.setChunkDelay(Duration.ofMillis(Long.parseLong(options.getOrDefault("chunk-delay", "0"))))
+					.build();
+			server.start();
+			target = server.getBaseUrl();
+		}
+
+		HttpTransport transport = options.containsKey("retry")
+				? new RetryingTransport.Builder(HttpClientTransport.getDefault()).build()
+				: null;
+
+		LoadHarness harness = new Builder()
+				.setConcurrency(Integer.parseInt(options.getOrDefault("concurrency", "16")))
+				.setDuration(Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "10"))))
+				.setWarmup(Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "2"))))
+				.build();
+
+		System.out.println("Scenario " + scenario + " on " + target);
+		LoadReport report = harness.run(scenario(scenario, target, transport));
+		System.out.println(report);
+
+		if (server != null) {
+			System.out.println("Server requests=" + server.getRequestCount() + ", errors=" + server.getErrorCount()
+					+ ", rateLimited=" + server.getRateLimitedCount());
+			server.close();
+		}
+	}
+
+	/**
+	 * Create the controller call of the scenario.
+	 */
+	private static Callable<?> scenario(String scenario, String baseUrl, HttpTransport transport) {
+
+		switch (scenario) {
+		case "text": {
+			RemoteLanguageModel model = new RemoteLanguageModel("key", SupportedLangModels.openai, transport);
+			model.setBaseUrl(baseUrl);
+			LanguageModelInput input = new LanguageModelInput.Builder("Write a product description")
+					.setModel("text-davinci-003").setMaxTokens(128).build();
+			return () -> model.generateText(input);
+		}
+		case "cohere": {
+			RemoteLanguageModel model = new RemoteLanguageModel("key", SupportedLangModels.cohere, transport);
+			model.setBaseUrl(baseUrl);
+			LanguageModelInput input = new LanguageModelInput.Builder("Write a product description")
+					.setModel("xlarge").setMaxTokens(128).build();
+			return () -> model.generateText(input);
+		}
+		case "chat":
+		case "chat-stream": {
+			Chatbot bot = new Chatbot("key", SupportedChatModels.openai, transport);
+			bot.setBaseUrl(baseUrl);
+			ChatGPTInput input = Payloads.chatHistory(6, 200);
+			if (scenario.equals("chat")) {
+				return () -> bot.chat(input);
+			}
+			return () -> bot.chatStream(input, (index, token) -> {
+			}).join();
+		}
+		case "image": {
+			RemoteImageModel model = new RemoteImageModel("key", SupportedImageModels.openai, transport);
+			model.setBaseUrl(baseUrl);
+			ImageModelInput input = new ImageModelInput.Builder("a cat on the moon").setNumberOfImages(2)
+					.setImageSize("512x512").build();
+			return () -> model.generateImages(input);
+		}
+		case "speech": {
+			RemoteSpeechModel model = new RemoteSpeechModel("key", SpeechModels.google, transport);
+			model.setBaseUrl(baseUrl + "/v1/");
+			Text2SpeechInput input = new Text2SpeechInput.Builder("Hello from the load harness").build();
+			return () -> model.generateEnglishText(input);
+		}
+		default:
+			throw new IllegalArgumentException("Unknown scenario: " + scenario);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.intellijava.core.metrics.LatencyHistogram;
+
+/**
+ *
+ * LoadReport is the result of one LoadHarness run, the latencies are in milliseconds.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class LoadReport {
+
+	private final int concurrency;
+	private final double seconds;
+	private final long successes;
+	private final long failures;
+	private final Map<String, Long> failureTypes;
+	private final double p50Millis;
+	private final double p90Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+
+	/**
+	 * LoadReport constructor.
+	 *
+	 * @param concurrency the concurrent callers.
+	 * @param seconds the measured time.
+	 * @param successes the successful calls.
+	 * @param failures the failed calls.
+	 * @param failureTypes the failed calls per exception type.
+	 * @param latency the latency of all the measured calls.
+	 */
+	public LoadReport(int concurrency, double seconds, long successes, long failures, Map<String, Long> failureTypes,
+			LatencyHistogram latency) {
+		this.concurrency = concurrency;
+		this.seconds = seconds;
+		this.successes = successes;
+		this.failures = failures;
+		this.failureTypes = Collections.unmodifiableMap(failureTypes);
+		this.p50Millis = latency.getPercentile(0.5) / 1e6;
+		this.p90Millis = latency.getPercentile(0.9) / 1e6;
+		this.p99Millis = latency.getPercentile(0.99) / 1e6;
+		this.maxMillis = latency.getMax() / 1e6;
+	}
+
+	/**
+	 * Gets the concurrent callers.
+	 *
+	 * @return concurrency
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Gets the successful calls.
+	 *
+	 * @return successes
+	 */
+	public long getSuccesses() {
+		return successes;
+	}
+
+	/**
+	 * Gets the failed calls.
+	 *
+	 * @return failures
+	 */
+	public long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Gets the failed calls per exception type.
+	 *
+	 * @return read only map of the exception simple name and calls.
+	 */
+	public Map<String, Long> getFailureTypes() {
+		return failureTypes;
+	}
+
+	/**
+	 * Gets the successful calls per second.
+	 *
+	 * @return throughput
+	 */
+	public double getThroughput() {
+		return successes / seconds;
+	}
+
+	/**
+	 * Gets the median latency.
+	 *
+	 * @return p50Millis
+	 */
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	/**
+	 * Gets the 90th percentile latency.
+	 *
+	 * @return p90Millis
+	 */
+	public double getP90Millis() {
+		return p90Millis;
+	}
+
+	/**
+	 * Gets the 99th percentile latency.
+	 *
+	 * @return p99Millis
+	 */
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	/**
+	 * Gets the longest latency.
+	 *
+	 * @return maxMillis
+	 */
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LoadReport [concurrency=%d, seconds=%.1f, ok=%d, failed=%d, throughput=%.1f/s, "
+				+ "p50=%.1fms, p90=%.1fms, p99=%.1fms, max=%.1fms, failures=%s]", concurrency, seconds, successes,
+				failures, getThroughput(), p50Millis, p90Millis, p99Millis, maxMillis, failureTypes);
+	}
+}
@@ -0,0 +1,476 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ *
+ * MockProviderServer is a local stand-in for the OpenAI, Cohere and Google endpoints.
+ *
+ * It serves the completions, chat, images, generate and text:synthesize paths with the provider
+ * response shapes, so the controllers run end to end without API keys. The latency, the streaming
+ * pace, the server errors and the 429 rate limits are configurable, to measure the client
+ * throughput and the retry behaviour on an isolated box.
+ *
+ * Example:
+ * try (MockProviderServer server = new MockProviderServer.Builder()
+ *         .setLatency(Duration.ofMillis(200)).setRateLimitRate(0.05).build()) {
+ *     server.start();
+ *     Chatbot bot = new Chatbot("key", SupportedChatModels.openai);
+ *     bot.setBaseUrl(server.getBaseUrl());
+ *     ...
+ * }
+ *
+ * Use getSpeechBaseUrl for RemoteSpeechModel.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class MockProviderServer implements AutoCloseable {
+
+	private static final Gson GSON = new Gson();
+	private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	static {
+		// the headers and the body are separate writes, with Nagle the client waits for the delayed ack
+		if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+			System.setProperty(NO_DELAY_PROPERTY, "true");
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Duration latency;
+	private final Duration latencyJitter;
+	private final double errorRate;
+	private final double rateLimitRate;
+	private final Duration retryAfter;
+	private final int streamChunks;
+	private final Duration chunkDelay;
+	private final byte[] chatResponse;
+	private final byte[] languageResponse;
+	private final byte[] cohereResponse;
+	private final byte[] speechResponse;
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder rateLimited = new LongAdder();
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 * @throws IOException if the port is not available.
+	 */
+	private MockProviderServer(Builder builder) throws IOException {
+		this.latency = builder.latency;
+		this.latencyJitter = builder.latencyJitter;
+		this.errorRate = builder.errorRate;
+		this.rateLimitRate = builder.rateLimitRate;
+		this.retryAfter = builder.retryAfter;
+		this.streamChunks = builder.streamChunks;
+		this.chunkDelay = builder.chunkDelay;
+		this.chatResponse = Payloads.openaiChat(1, builder.responseChars);
+		this.languageResponse = Payloads.openaiLanguage(1, builder.responseChars);
+		this.cohereResponse = Payloads.cohereGenerate(builder.responseChars);
+		this.speechResponse = Payloads.googleSpeech(builder.audioBytes);
+
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port),
+				builder.backlog);
+		this.executor = Executors.newCachedThreadPool(task -> {
+			Thread thread = new Thread(task, "mock-provider");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.server.setExecutor(executor);
+		this.server.createContext("/", exchange -> {
+			try {
+				handle(exchange);
+			} finally {
+				exchange.close();
+			}
+		});
+	}
+
+	/**
+	 *
+	 * Builder class for MockProviderServer.
+	 *
+	 */
+	public static class Builder {
+		private int port;
+		private int backlog = 1024;
+		private Duration latency = Duration.ZERO;
+		private Duration latencyJitter = Duration.ZERO;
+		private double errorRate;
+		private double rateLimitRate;
+		private Duration retryAfter = Duration.ofSeconds(1);
+		private int streamChunks = 20;
+		private Duration chunkDelay = Duration.ZERO;
+		private int responseChars = 400;
+		private int audioBytes = 64 * 1024;
+
+		/**
+		 * Builder default constructor.
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the local port, default is 0 for a free port.
+		 *
+		 * @param port the port.
+		 * @return instance of Builder.
+		 */
+		public Builder setPort(int port) {
+			this.port = port;
+			return this;
+		}
+
+		/**
+		 * Sets the accept queue size, default is 1024.
+		 *
+		 * @param backlog the maximum pending connections.
+		 * @return instance of Builder.
+		 */
+		public Builder setBacklog(int backlog) {
+			this.backlog = backlog;
+			return this;
+		}
+
+		/**
+		 * Sets the server time before the response headers, default is zero.
+		 *
+		 * @param latency the fixed latency.
+		 * @return instance of Builder.
+		 */
+		public Builder setLatency(Duration latency) {
+			this.latency = latency;
+			return this;
+		}
+
+		/**
+		 * Sets the random extra latency, from zero to the jitter, default is zero.
+		 *
+		 * @param latencyJitter the maximum extra latency.
+		 * @return instance of Builder.
+		 */
+		public Builder setLatencyJitter(Duration latencyJitter) {
+			this.latencyJitter = latencyJitter;
+			return this;
+		}
+
+		/**
+		 * Sets the ratio of the requests that fail with 500, default is 0.
+		 *
+		 * @param errorRate from 0 to 1.
+		 * @return instance of Builder.
+		 */
+		public Builder setErrorRate(double errorRate) {
+			this.errorRate = errorRate;
+			return this;
+		}
+
+		/**
+		 * Sets the ratio of the requests rejected with 429, default is 0.
+		 *
+		 * @param rateLimitRate from 0 to 1.
+		 * @return instance of Builder.
+		 */
+		public Builder setRateLimitRate(double rateLimitRate) {
+			this.rateLimitRate = rateLimitRate;
+			return this;
+		}
+
+		/**
+		 * Sets the wait hint of the 429 responses, default is 1 second.
+		 *
+		 * @param retryAfter the Retry-After value.
+		 * @return instance of Builder.
+		 */
+		public Builder setRetryAfter(Duration retryAfter) {
+			this.retryAfter = retryAfter;
+			return this;
+		}
+
+		/**
+		 * Sets the number of token events of the streaming responses, default is 20.
+		 *
+		 * @param streamChunks the token events.
+		 * @return instance of Builder.
+		 */
+		public Builder setStreamChunks(int streamChunks) {
+			this.streamChunks = streamChunks;
+			return this;
+		}
+
+		/**
+		 * Sets the pause between the streaming events, default is zero.
+		 *
+		 * @param chunkDelay the time per token.
+		 * @return instance of Builder.
+		 */
+		public Builder setChunkDelay(Duration chunkDelay) {
+			this.chunkDelay = chunkDelay;
+			return this;
+		}
+
+		/**
+		 * Sets the generated text length of the text and chat responses, default is 400.
+		 *
+		 * @param responseChars the text length.
+		 * @return instance of Builder.
+		 */
+		public Builder setResponseChars(int responseChars) {
+			this.responseChars = responseChars;
+			return this;
+		}
+
+		/**
+		 * Sets the decoded audio size of the speech responses, default is 64 KB.
+		 *
+		 * @param audioBytes the audio size.
+		 * @return instance of Builder.
+		 */
+		public Builder setAudioBytes(int audioBytes) {
+			this.audioBytes = audioBytes;
+			return this;
+		}
+
+		/**
+		 * Build the server, call start to accept the requests.
+		 *
+		 * @return final MockProviderServer object.
+		 * @throws IOException if the port is not available.
+		 */
+		public MockProviderServer build() throws IOException {
+			return new MockProviderServer(this);
+		}
+	}
+
+	/**
+	 * Start accepting the requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stop the server and its threads.
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Gets the base url for the OpenAI and Cohere controllers.
+	 *
+	 * @return base url, example: http://127.0.0.1:41234
+	 */
+	public String getBaseUrl() {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+	}
+
+	/**
+	 * Gets the base url for RemoteSpeechModel.
+	 *
+	 * @return speech base url with the version.
+	 */
+	public String getSpeechBaseUrl() {
+		return getBaseUrl() + "/v1/";
+	}
+
+	/**
+	 * Gets the received requests.
+	 *
+	 * @return requests
+	 */
+	public long getRequestCount() {
+		return requests.sum();
+	}
+
+	/**
+	 * Gets the injected 500 errors.
+	 *
+	 * @return errors
+	 */
+	public long getErrorCount() {
+		return errors.sum();
+	}
+
+	/**
+	 * Gets the injected 429 responses.
+	 *
+	 * @return rateLimited
+	 */
+	public long getRateLimitedCount() {
+		return rateLimited.sum();
+	}
+
+	/**
+	 * Answer one request after the latency and the injected failures.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+
+		requests.increment();
+		JsonObject request = readRequest(exchange.getRequestBody());
+
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			sendJson(exchange, 405, error("only POST is supported"));
+			return;
+		}
+
+		if (!pause(latency.plusNanos(latencyJitter.isZero() ? 0
+				: ThreadLocalRandom.current().nextLong(latencyJitter.toNanos())))) {
+			return;
+		}
+
+		double roll = ThreadLocalRandom.current().nextDouble();
+		if (roll < rateLimitRate) {
+			rateLimited.increment();
+			exchange.getResponseHeaders().add("Retry-After",
+					String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+			exchange.getResponseHeaders().add("Retry-After-Ms", String.valueOf(retryAfter.toMillis()));
+			sendJson(exchange, 429, error("Rate limit reached for requests"));
+			return;
+		} else if (roll < rateLimitRate + errorRate) {
+			errors.increment();
+			sendJson(exchange, 500, error("The server had an error while processing your request"));
+			return;
+		}
+
+		boolean stream = request.has("stream") && request.get("stream").getAsBoolean();
+		String path = exchange.getRequestURI().getPath();
+
+		if (path.endsWith("/v1/chat/completions")) {
+			if (stream) {
+				sendEvents(exchange, true);
+			} else {
+				sendJson(exchange, 200, chatResponse);
+			}
+		} else if (path.endsWith("/v1/completions")) {
+			if (stream) {
+				sendEvents(exchange, false);
+			} else {
+				sendJson(exchange, 200, languageResponse);
+			}
+		} else if (path.endsWith("/v1/images/generations")) {
+			int images = request.has("n") ? request.get("n").getAsInt() : 1;
+			sendJson(exchange, 200, Payloads.openaiImages(images));
+		} else if (path.endsWith("/generate")) {
+			sendJson(exchange, 200, cohereResponse);
+		} else if (path.endsWith("/text:synthesize")) {
+			sendJson(exchange, 200, speechResponse);
+		} else {
+			sendJson(exchange, 404, error("Unknown path " + path));
+		}
+	}
+
+	/**
+	 * Send the server sent events of the chat or the text completion, then the usage and [DONE].
+	 */
+	private void sendEvents(HttpExchange exchange, boolean isChat) throws IOException {
+
+		exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream out = exchange.getResponseBody();
+
+		String prefix = isChat ? "{\"id\":\"chatcmpl-mock\",\"object\":\"chat.completion.chunk\",\"model\":\"gpt-3.5-turbo\","
+				: "{\"id\":\"cmpl-mock\",\"object\":\"text_completion\",\"model\":\"text-davinci-003\",";
+		for (int index = 0; index < streamChunks; index++) {
+			String token = GSON.toJson("token" + index + " ");
+			String choice = isChat ? "{\"index\":0,\"delta\":{\"content\":" + token + "}}"
+					: "{\"index\":0,\"text\":" + token + "}";
+			writeEvent(out, prefix + "\"choices\":[" + choice + "]}");
+			if (index + 1 < streamChunks && !pause(chunkDelay)) {
+				return;
+			}
+		}
+
+		String finish = isChat ? "{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}"
+				: "{\"index\":0,\"text\":\"\",\"finish_reason\":\"stop\"}";
+		writeEvent(out, prefix + "\"choices\":[" + finish + "]}");
+		writeEvent(out, prefix + "\"choices\":[],\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":"
+				+ streamChunks + ",\"total_tokens\":" + (12 + streamChunks) + "}}");
+		writeEvent(out, "[DONE]");
+	}
+
+	private static void writeEvent(OutputStream out, String data) throws IOException {
+		out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	private static void sendJson(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+
+	private static byte[] error(String message) {
+		return ("{\"error\":{\"message\":" + GSON.toJson(message) + ",\"type\":\"mock_error\"}}")
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read the json request, or an empty object if the body is not a json object.
+	 */
+	private static JsonObject readRequest(InputStream body) throws IOException {
+		String json = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+		try {
+			JsonElement element = JsonParser.parseString(json);
+			return element.isJsonObject() ? element.getAsJsonObject() : new JsonObject();
+		} catch (RuntimeException e) {
+			return new JsonObject();
+		}
+	}
+
+	/**
+	 * Sleep for the duration.
+	 *
+	 * @return false if the server is stopping.
+	 */
+	private static boolean pause(Duration duration) {
+		if (duration.isZero() || duration.isNegative()) {
+			return true;
+		}
+		try {
+			Thread.sleep(duration.toMillis(), (int) (duration.toNanos() % 1_000_000));
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
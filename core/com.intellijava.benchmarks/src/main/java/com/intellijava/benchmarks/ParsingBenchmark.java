@@ -0,0 +1,92 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.intellijava.core.model.OpenaiChatResponse;
+import com.intellijava.core.model.OpenaiLanguageResponse;
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * ParsingBenchmark measures convertSteamToModel for the OpenAI text and chat responses.
+ *
+ * The sizes go from a short answer to a long generation with several choices.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParsingBenchmark {
+
+	@Param({ "500", "8000", "64000" })
+	private int chars;
+
+	@Param({ "1", "4" })
+	private int choices;
+
+	private byte[] chatResponse;
+	private byte[] languageResponse;
+
+	/**
+	 * Create the response payloads once per trial.
+	 */
+	@Setup
+	public void setup() {
+		chatResponse = Payloads.openaiChat(choices, chars);
+		languageResponse = Payloads.openaiLanguage(choices, chars);
+	}
+
+	/**
+	 * Parse the chat completion response.
+	 *
+	 * @return the response model.
+	 */
+	@Benchmark
+	public OpenaiChatResponse chatResponse() {
+		return ConnHelper.convertSteamToModel(new ByteArrayInputStream(chatResponse), OpenaiChatResponse.class);
+	}
+
+	/**
+	 * Parse the text completion response.
+	 *
+	 * @return the response model.
+	 */
+	@Benchmark
+	public OpenaiLanguageResponse languageResponse() {
+		return ConnHelper.convertSteamToModel(new ByteArrayInputStream(languageResponse),
+				OpenaiLanguageResponse.class);
+	}
+}
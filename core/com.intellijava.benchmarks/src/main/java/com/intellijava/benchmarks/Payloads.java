@@ -0,0 +1,164 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import com.intellijava.core.model.input.ChatGPTInput;
+import com.intellijava.core.model.input.ChatGPTMessage;
+import com.intellijava.core.model.input.ChatGPTMessage.Role;
+
+/**
+ *
+ * Payloads creates the provider responses and the chat histories used by the benchmarks.
+ *
+ * The shapes follow the real OpenAI, Cohere and Google responses, and the random seed is fixed
+ * so every run parses the same bytes.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+final class Payloads {
+
+	private static final String SENTENCE = "The quick response of a remote model depends on the prompt size, "
+			+ "the network and the \\\"json\\\" parsing.\\n";
+
+	private Payloads() {
+	}
+
+	/**
+	 * Create a text of about the requested length, with escaped quotes and new lines.
+	 *
+	 * @param chars the approximate text length.
+	 * @return json escaped text.
+	 */
+	static String text(int chars) {
+		StringBuilder text = new StringBuilder(chars + SENTENCE.length());
+		while (text.length() < chars) {
+			text.append(SENTENCE);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Create a chat input with the system message and the user and assistant turns.
+	 *
+	 * @param messages number of messages after the system message.
+	 * @param chars the length of each message.
+	 * @return ChatGPTInput
+	 */
+	static ChatGPTInput chatHistory(int messages, int chars) {
+		String content = text(chars).replace("\\n", "\n").replace("\\\"", "\"");
+		ChatGPTInput input = new ChatGPTInput.Builder("You are a helpful assistant.")
+				.setModel("gpt-3.5-turbo").setTemperature(0.7f).setMaxTokens(256).build();
+		for (int index = 0; index < messages; index++) {
+			input.addMessage(new ChatGPTMessage(content, index % 2 == 0 ? Role.user : Role.assistant));
+		}
+		return input;
+	}
+
+	/**
+	 * OpenAI chat completion response.
+	 *
+	 * @param choices number of choices.
+	 * @param chars the content length of each choice.
+	 * @return json bytes
+	 */
+	static byte[] openaiChat(int choices, int chars) {
+		StringBuilder json = new StringBuilder("{\"id\":\"chatcmpl-7QyqpwdfhqwajicIEznoc6Q47XAyW\","
+				+ "\"object\":\"chat.completion\",\"created\":1677664795,\"model\":\"gpt-3.5-turbo-0613\",\"choices\":[");
+		String content = text(chars);
+		for (int index = 0; index < choices; index++) {
+			json.append(index == 0 ? "" : ",").append("{\"index\":").append(index)
+					.append(",\"message\":{\"role\":\"assistant\",\"content\":\"").append(content)
+					.append("\"},\"finish_reason\":\"stop\"}");
+		}
+		json.append("],\"usage\":{\"prompt_tokens\":56,\"completion_tokens\":").append(chars / 4 * choices)
+				.append(",\"total_tokens\":").append(56 + chars / 4 * choices).append("}}");
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * OpenAI text completion response.
+	 *
+	 * @param choices number of choices.
+	 * @param chars the text length of each choice.
+	 * @return json bytes
+	 */
+	static byte[] openaiLanguage(int choices, int chars) {
+		StringBuilder json = new StringBuilder("{\"id\":\"cmpl-uqkvlQyYK7bGYrRHQ0eXlWi7\",\"object\":\"text_completion\","
+				+ "\"created\":1589478378,\"model\":\"text-davinci-003\",\"choices\":[");
+		String content = text(chars);
+		for (int index = 0; index < choices; index++) {
+			json.append(index == 0 ? "" : ",").append("{\"text\":\"").append(content).append("\",\"index\":")
+					.append(index).append(",\"logprobs\":null,\"finish_reason\":\"length\"}");
+		}
+		json.append("],\"usage\":{\"prompt_tokens\":5,\"completion_tokens\":").append(chars / 4 * choices)
+				.append(",\"total_tokens\":").append(5 + chars / 4 * choices).append("}}");
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Cohere generate response.
+	 *
+	 * @param chars the generated text length.
+	 * @return json bytes
+	 */
+	static byte[] cohereGenerate(int chars) {
+		return ("{\"id\":\"5b2a7c2e-1a3c-4f1e-9a5e-0c0c1b8a6f3e\",\"generations\":[{\"id\":\"a8e8d3d4\",\"text\":\""
+				+ text(chars) + "\"}],\"prompt\":\"Write a product description\"}").getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * OpenAI image generation response.
+	 *
+	 * @param images number of image urls.
+	 * @return json bytes
+	 */
+	static byte[] openaiImages(int images) {
+		StringBuilder json = new StringBuilder("{\"created\":1589478378,\"data\":[");
+		for (int index = 0; index < images; index++) {
+			json.append(index == 0 ? "" : ",").append("{\"url\":\"https://oaidalleapiprodscus.blob.core.windows.net/"
+					+ "private/org-abc/user-xyz/img-").append(index)
+					.append(".png?st=2023-03-01T12%3A00%3A00Z&se=2023-03-01T14%3A00%3A00Z&sp=r&sig=abcdef\"}");
+		}
+		return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Base64 audio content of random bytes.
+	 *
+	 * @param bytes the decoded audio size.
+	 * @return base64 text
+	 */
+	static String audioContent(int bytes) {
+		byte[] audio = new byte[bytes];
+		new Random(42).nextBytes(audio);
+		return Base64.getEncoder().encodeToString(audio);
+	}
+
+	/**
+	 * Google text to speech response.
+	 *
+	 * @param bytes the decoded audio size.
+	 * @return json bytes
+	 */
+	static byte[] googleSpeech(int bytes) {
+		return ("{\"audioContent\":\"" + audioContent(bytes) + "\"}").getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.intellijava.core.controller.RemoteImageModel;
+import com.intellijava.core.controller.RemoteLanguageModel;
+import com.intellijava.core.controller.RemoteSpeechModel;
+import com.intellijava.core.function.Chatbot;
+import com.intellijava.core.model.SpeechModels;
+import com.intellijava.core.model.SupportedChatModels;
+import com.intellijava.core.model.SupportedImageModels;
+import com.intellijava.core.model.SupportedLangModels;
+import com.intellijava.core.model.input.ChatGPTInput;
+import com.intellijava.core.model.input.ImageModelInput;
+import com.intellijava.core.model.input.LanguageModelInput;
+import com.intellijava.core.model.input.Text2SpeechInput;
+import com.intellijava.core.model.input.Text2SpeechInput.Gender;
+
+/**
+ *
+ * RequestPathBenchmark measures the full call of each controller over a CannedTransport.
+ *
+ * Each call builds the provider request from the input, writes the json body, parses the response
+ * and maps the result, so a regression in any step of the client side shows here.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestPathBenchmark {
+
+	private RemoteLanguageModel openaiLanguage;
+	private RemoteLanguageModel cohereLanguage;
+	private Chatbot chatbot;
+	private RemoteImageModel imageModel;
+	private RemoteSpeechModel speechModel;
+
+	private LanguageModelInput openaiInput;
+	private LanguageModelInput cohereInput;
+	private ChatGPTInput chatInput;
+	private ImageModelInput imageInput;
+	private Text2SpeechInput speechInput;
+
+	/**
+	 * Create the controllers and the inputs once per trial.
+	 */
+	@Setup
+	public void setup() {
+		openaiLanguage = new RemoteLanguageModel("key", SupportedLangModels.openai,
+				new CannedTransport(Payloads.openaiLanguage(1, 1000)));
+		cohereLanguage = new RemoteLanguageModel("key", SupportedLangModels.cohere,
+				new CannedTransport(Payloads.cohereGenerate(1000)));
+		chatbot = new Chatbot("key", SupportedChatModels.openai, new CannedTransport(Payloads.openaiChat(1, 1000)));
+		imageModel = new RemoteImageModel("key", SupportedImageModels.openai,
+				new CannedTransport(Payloads.openaiImages(4)));
+		speechModel = new RemoteSpeechModel("key", SpeechModels.google,
+				new CannedTransport(Payloads.googleSpeech(64 * 1024)));
+
+		String prompt = Payloads.text(600);
+		openaiInput = new LanguageModelInput.Builder(prompt).setModel("text-davinci-003").setTemperature(0.7f)
+				.setMaxTokens(256).build();
+		cohereInput = new LanguageModelInput.Builder(prompt).setModel("xlarge").setTemperature(0.7f)
+				.setMaxTokens(256).build();
+		chatInput = Payloads.chatHistory(20, 400);
+		imageInput = new ImageModelInput.Builder("a cat on the moon, digital art").setNumberOfImages(4)
+				.setImageSize("1024x1024").build();
+		speechInput = new Text2SpeechInput.Builder("Hello, this is a generated voice message.")
+				.setGender(Gender.FEMALE).build();
+	}
+
+	/**
+	 * OpenAI text completion.
+	 *
+	 * @return the generated text.
+	 * @throws IOException never, the transport is local.
+	 */
+	@Benchmark
+	public String openaiLanguage() throws IOException {
+		return openaiLanguage.generateText(openaiInput);
+	}
+
+	/**
+	 * Cohere text generation.
+	 *
+	 * @return the generated text.
+	 * @throws IOException never, the transport is local.
+	 */
+	@Benchmark
+	public String cohereLanguage() throws IOException {
+		return cohereLanguage.generateText(cohereInput);
+	}
+
+	/**
+	 * OpenAI chat with a history of 20 messages.
+	 *
+	 * @return the chat responses.
+	 * @throws IOException never, the transport is local.
+	 */
+	@Benchmark
+	public List<String> chat() throws IOException {
+		return chatbot.chat(chatInput);
+	}
+
+	/**
+	 * OpenAI image generation.
+	 *
+	 * @return the image urls.
+	 * @throws IOException never, the transport is local.
+	 */
+	@Benchmark
+	public List<String> images() throws IOException {
+		return imageModel.generateImages(imageInput);
+	}
+
+	/**
+	 * Google text to speech with 64 KB of audio.
+	 *
+	 * @return the audio bytes.
+	 * @throws IOException never, the transport is local.
+	 */
+	@Benchmark
+	public byte[] speech() throws IOException {
+		return speechModel.generateEnglishText(speechInput);
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.benchmarks;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.intellijava.core.model.OpenaiChatRequest;
+import com.intellijava.core.model.input.ChatGPTInput;
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * SerializationBenchmark measures the json of the chat requests as the history grows.
+ *
+ * convertMapToJson is the map to string path, writeRequestJson is the typed request
+ * written to the transport stream that the wrappers use.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+	@Param({ "2", "20", "100" })
+	private int messages;
+
+	@Param({ "400" })
+	private int messageChars;
+
+	private Map<String, Object> params;
+	private OpenaiChatRequest request;
+
+	/**
+	 * Create the chat history once per trial.
+	 */
+	@Setup
+	public void setup() {
+		ChatGPTInput input = Payloads.chatHistory(messages, messageChars);
+
+		params = new HashMap<>();
+		params.put("model", input.getModel());
+		params.put("messages", input.getMessages());
+		params.put("temperature", input.getTemperature());
+		params.put("max_tokens", input.getMaxTokens());
+
+		request = new OpenaiChatRequest();
+		request.setModel(input.getModel());
+		request.setMessages(input.getMessages());
+		request.setTemperature(input.getTemperature());
+		request.setMaxTokens(input.getMaxTokens());
+	}
+
+	/**
+	 * The chat parameters map to a json string.
+	 *
+	 * @return the json.
+	 */
+	@Benchmark
+	public String convertMapToJson() {
+		return ConnHelper.convertMaptToJson(params);
+	}
+
+	/**
+	 * The typed chat request written to a stream.
+	 *
+	 * @return the written bytes.
+	 * @throws IOException never, the stream discards the bytes.
+	 */
+	@Benchmark
+	public long writeRequestJson() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		ConnHelper.writeJson(request, out);
+		return out.getCount();
+	}
+}
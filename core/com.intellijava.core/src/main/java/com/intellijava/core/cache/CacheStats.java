@@ -0,0 +1,123 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.cache;
+
+/**
+ *
+ * CacheStats is a snapshot of the response cache counters.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class CacheStats {
+
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long expirations;
+	private final int entries;
+	private final long bytes;
+
+	/**
+	 * CacheStats constructor.
+	 *
+	 * @param hits number of found requests.
+	 * @param misses number of missing or expired requests.
+	 * @param evictions number of removed entries to respect the entries or bytes bound.
+	 * @param expirations number of removed entries after the time to live.
+	 * @param entries current number of entries.
+	 * @param bytes current estimated memory of the entries.
+	 */
+	public CacheStats(long hits, long misses, long evictions, long expirations, int entries, long bytes) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.entries = entries;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Gets the number of hits.
+	 *
+	 * @return hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of misses.
+	 *
+	 * @return misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the hit rate.
+	 *
+	 * @return hits divided by the lookups, or 0 without lookups.
+	 */
+	public double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * Gets the number of evictions.
+	 *
+	 * @return evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Gets the number of expirations.
+	 *
+	 * @return expirations
+	 */
+	public long getExpirations() {
+		return expirations;
+	}
+
+	/**
+	 * Gets the current number of entries.
+	 *
+	 * @return entries
+	 */
+	public int getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Gets the current estimated memory of the entries.
+	 *
+	 * @return bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hits=" + hits + ", misses=" + misses + ", hitRate=" + getHitRate()
+				+ ", evictions=" + evictions + ", expirations=" + expirations
+				+ ", entries=" + entries + ", bytes=" + bytes + "]";
+	}
+}
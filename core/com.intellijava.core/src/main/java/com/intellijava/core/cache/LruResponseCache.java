@@ -0,0 +1,235 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * LruResponseCache is an in-memory response cache bounded by the entries and the estimated bytes.
+ *
+ * The least recently used entries are evicted first, and the entries expire after the time to live.
+ * Use the Builder to create the cache.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class LruResponseCache implements ResponseCache {
+
+	/** estimated fixed cost of one entry: the map node, the entry object and the list. */
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final long ttlNanos;
+	private final boolean cacheNonZeroTemperature;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+
+	/**
+	 * Cached outputs with the expiry time and the estimated size.
+	 */
+	private static class Entry {
+		private final List<String> outputs;
+		private final long expiresAt;
+		private final long weight;
+
+		private Entry(List<String> outputs, long expiresAt, long weight) {
+			this.outputs = outputs;
+			this.expiresAt = expiresAt;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private LruResponseCache(Builder builder) {
+		this.maxEntries = builder.maxEntries;
+		this.maxBytes = builder.maxBytes;
+		this.ttlNanos = builder.ttl.toNanos();
+		this.cacheNonZeroTemperature = builder.cacheNonZeroTemperature;
+	}
+
+	/**
+	 *
+	 * Builder class for LruResponseCache.
+	 *
+	 */
+	public static class Builder {
+		private int maxEntries = 1000;
+		private long maxBytes = 16 * 1024 * 1024;
+		private Duration ttl = Duration.ofHours(1);
+		private boolean cacheNonZeroTemperature;
+
+		/**
+		 * Builder default constructor.
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the maximum number of entries, default is 1000.
+		 *
+		 * @param maxEntries maximum cached requests.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum estimated memory of the entries, default is 16 MB.
+		 *
+		 * @param maxBytes maximum estimated bytes.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxBytes(long maxBytes) {
+			this.maxBytes = maxBytes;
+			return this;
+		}
+
+		/**
+		 * Sets the time to live of the entries, default is one hour.
+		 *
+		 * @param ttl the entry lifetime.
+		 * @return instance of Builder.
+		 */
+		public Builder setTtl(Duration ttl) {
+			this.ttl = ttl;
+			return this;
+		}
+
+		/**
+		 * Sets if the requests with non-zero temperature are cached, default is false.
+		 *
+		 * @param cacheNonZeroTemperature true to cache all the requests.
+		 * @return instance of Builder.
+		 */
+		public Builder setCacheNonZeroTemperature(boolean cacheNonZeroTemperature) {
+			this.cacheNonZeroTemperature = cacheNonZeroTemperature;
+			return this;
+		}
+
+		/**
+		 * Build the final LruResponseCache object.
+		 *
+		 * @return final LruResponseCache object.
+		 */
+		public LruResponseCache build() {
+			return new LruResponseCache(this);
+		}
+	}
+
+	@Override
+	public synchronized List<String> get(String key) {
+
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+
+		if (System.nanoTime() - entry.expiresAt >= 0) {
+			entries.remove(key);
+			bytes -= entry.weight;
+			expirations++;
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return entry.outputs;
+	}
+
+	@Override
+	public void put(String key, List<String> outputs) {
+
+		List<String> copy = Collections.unmodifiableList(new ArrayList<>(outputs));
+		long weight = weightOf(key, copy);
+		if (weight > maxBytes) {
+			return;
+		}
+
+		Entry entry = new Entry(copy, System.nanoTime() + ttlNanos, weight);
+
+		synchronized (this) {
+			Entry previous = entries.put(key, entry);
+			if (previous != null) {
+				bytes -= previous.weight;
+			}
+			bytes += weight;
+
+			// remove the least recently used until the bounds are respected
+			Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+			while ((entries.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+				Map.Entry<String, Entry> eldest = iterator.next();
+				iterator.remove();
+				bytes -= eldest.getValue().weight;
+				evictions++;
+			}
+		}
+	}
+
+	@Override
+	public boolean isCacheable(float temperature) {
+		return cacheNonZeroTemperature || temperature == 0;
+	}
+
+	@Override
+	public synchronized CacheStats getStats() {
+		return new CacheStats(hits, misses, evictions, expirations, entries.size(), bytes);
+	}
+
+	/**
+	 * Remove all the entries, the counters are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Estimate the memory of the entry, two bytes per char plus the objects overhead.
+	 *
+	 * @param key the request key.
+	 * @param outputs the model outputs.
+	 * @return estimated bytes.
+	 */
+	private static long weightOf(String key, List<String> outputs) {
+
+		long weight = ENTRY_OVERHEAD + 40 + 2L * key.length();
+		for (String output : outputs) {
+			weight += 40 + (output == null ? 0 : 2L * output.length());
+		}
+
+		return weight;
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * ResponseCache stores the text outputs of the language and chat calls.
+ *
+ * Set it on RemoteLanguageModel or Chatbot to return the identical requests without calling the network.
+ * LruResponseCache is the default in-memory implementation, implement this interface to plug
+ * a shared or a distributed cache.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public interface ResponseCache {
+
+	/**
+	 * Gets the cached outputs.
+	 *
+	 * @param key the request key from createKey.
+	 * @return the outputs or null if missing or expired.
+	 */
+	public List<String> get(String key);
+
+	/**
+	 * Store the outputs of the request.
+	 *
+	 * @param key the request key from createKey.
+	 * @param outputs the model outputs.
+	 */
+	public void put(String key, List<String> outputs);
+
+	/**
+	 * Check if the request with the temperature can be cached.
+	 *
+	 * The non-zero temperature requests are expected to return different outputs.
+	 *
+	 * @param temperature the request temperature.
+	 * @return true to use the cache for the request.
+	 */
+	public default boolean isCacheable(float temperature) {
+		return temperature == 0;
+	}
+
+	/**
+	 * Gets the cache statistics.
+	 *
+	 * @return CacheStats
+	 */
+	public CacheStats getStats();
+
+	/**
+	 * Create the canonical key of the request, a SHA-256 hash of the provider name and
+	 * the request json with the model, the prompt or the messages and the generation parameters.
+	 *
+	 * @param provider the provider name, example: openai.
+	 * @param request the typed request model.
+	 * @return url safe base64 key.
+	 */
+	public static String createKey(String provider, Object request) {
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(provider.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+
+			try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+				ConnHelper.writeJson(request, out);
+			}
+
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -16,15 +16,21 @@
 package com.intellijava.core.controller;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import com.intellijava.core.cache.ResponseCache;
+import com.intellijava.core.metrics.MetricsRecorder;
+import com.intellijava.core.model.OpenaiImageRequest;
 import com.intellijava.core.model.OpenaiImageResponse;
 import com.intellijava.core.model.OpenaiImageResponse.Data;
 import com.intellijava.core.model.SupportedImageModels;
 import com.intellijava.core.model.input.ImageModelInput;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.utils.ConnHelper;
 import com.intellijava.core.wrappers.OpenAIWrapper;
 
 /**
@@ -40,6 +46,7 @@ public class RemoteImageModel {
 	
 	private SupportedImageModels keyType;
 	private OpenAIWrapper openaiWrapper;
+	private volatile SingleFlight singleFlight;
 	
 	/**
 	 * 
@@ -62,7 +69,7 @@ public class RemoteImageModel {
 		List<String> supportedModels = this.getSupportedModels();
 
 		if (supportedModels.contains(keyTypeString)) {
-			this.initiate(keyValue, SupportedImageModels.valueOf(keyTypeString));
+			this.initiate(keyValue, SupportedImageModels.valueOf(keyTypeString), null);
 		} else {
 			String models = String.join(" - ", supportedModels);
 			throw new IllegalArgumentException("The received keyValue not supported. Send any model from: " + models);
@@ -79,7 +86,19 @@ public class RemoteImageModel {
 	 * @param keyType the model type from SupportedImageModels enum.
 	 */
 	public RemoteImageModel(String keyValue, SupportedImageModels keyType) { 
-		initiate(keyValue, keyType);
+		initiate(keyValue, keyType, null);
+	}
+	
+	/**
+	 * 
+	 * Constructor for creating a new RemoteImageModel object with a shared transport.
+	 * 
+	 * @param keyValue the API key.
+	 * @param keyType the model type from SupportedImageModels enum.
+	 * @param transport the transport to send the requests.
+	 */
+	public RemoteImageModel(String keyValue, SupportedImageModels keyType, HttpTransport transport) { 
+		initiate(keyValue, keyType, transport);
 	}
 	
 	/**
@@ -103,17 +122,59 @@ public class RemoteImageModel {
 	 * 
 	 * @param keyValue the API key.
 	 * @param keyType enum of supported models.
+	 * @param transport the transport to send the requests, null for the default shared transport.
 	 */
-	private void initiate(String keyValue, SupportedImageModels keyType) {
+	private void initiate(String keyValue, SupportedImageModels keyType, HttpTransport transport) {
 		// set the model type
 		this.keyType = keyType;
 
 		// generate the related model
 		if (keyType.equals(SupportedImageModels.openai)) {
-			this.openaiWrapper = new OpenAIWrapper(keyValue);
+			this.openaiWrapper = new OpenAIWrapper(keyValue, transport);
 		} 
 	}
 	
+	/**
+	 * Sets the executor to convert the remote responses for the asynchronous calls.
+	 * 
+	 * @param executor the executor or null to use the transport threads.
+	 */
+	public void setExecutor(Executor executor) {
+		if (openaiWrapper != null) openaiWrapper.setExecutor(executor);
+	}
+
+	/**
+	 * Sets the metrics recorder to measure the latency, the status, the payload sizes,
+	 * the retries and the token usage of each call.
+	 * 
+	 * @param metrics the recorder, example: InMemoryMetrics, or null to disable.
+	 */
+	public void setMetrics(MetricsRecorder metrics) {
+		if (openaiWrapper != null) openaiWrapper.setMetrics(metrics);
+	}
+	
+	/**
+	 * Sets the base url of the image provider instead of the config.properties value,
+	 * example: http://localhost:8080 for a local mock server.
+	 * 
+	 * @param baseUrl the provider base url, the endpoint paths are appended to it.
+	 */
+	public void setBaseUrl(String baseUrl) {
+		if (openaiWrapper != null) openaiWrapper.setBaseUrl(baseUrl);
+	}
+	
+	/**
+	 * Sets the single-flight mode, default is false.
+	 * 
+	 * When enabled the concurrent identical image calls share one in-flight request,
+	 * and all the callers receive the same images or the same failure.
+	 * 
+	 * @param enabled true to share the identical in-flight requests.
+	 */
+	public void setSingleFlight(boolean enabled) {
+		this.singleFlight = enabled ? new SingleFlight() : null;
+	}
+	
 	/**
 	 * 
 	 * Generates images from a given text description.
@@ -123,10 +184,23 @@ public class RemoteImageModel {
 	 * @throws IOException if there is a problem with the API connection.
 	 */
 	public List<String> generateImages(ImageModelInput imageInput) throws IOException { 
+		return ConnHelper.await(this.generateImagesAsync(imageInput));
+	}
+	
+	/**
+	 * 
+	 * Generates images from a given text description without blocking the caller thread.
+	 * 
+	 * @param imageInput flexible builder for image model parameters.
+	 * @return future of the generated images URLs, completed exceptionally with IOException
+	 *         if there is a problem with the API connection.
+	 */
+	public CompletableFuture<List<String>> generateImagesAsync(ImageModelInput imageInput) { 
 		
 		if (this.keyType == SupportedImageModels.openai) {
 			return this.generateOpenaiImage(imageInput.getPrompt(), 
-					imageInput.getNumberOfImages(), imageInput.getImageSize());
+					imageInput.getNumberOfImages(), imageInput.getImageSize(), 
+					ConnHelper.deadlineOf(imageInput.getTimeout()));
 		} else {
 			throw new IllegalArgumentException("This version support openai keyType only");
 		}
@@ -140,27 +214,49 @@ public class RemoteImageModel {
 	 * @param prompt text of the required action or the question.
 	 * @param numberOfImages number of the generated images.
 	 * @param imageSize size of the generated images, options are: 256x256, 512x512, or 1024x1024.
-	 * @return list of URLs of the generated images
-	 * @throws IOException if there is a problem with the API connection.
+	 * @param deadline the time to complete the call, or null.
+	 * @return future of the generated images URLs.
 	 * 
 	 */
-	private List<String>  generateOpenaiImage(String prompt, int numberOfImages, String imageSize) throws IOException { 
+	private CompletableFuture<List<String>> generateOpenaiImage(String prompt, int numberOfImages, String imageSize, 
+			Instant deadline) { 
 		
-		List<String> images = new ArrayList<>();
+		OpenaiImageRequest request = new OpenaiImageRequest();
+		request.setPrompt(prompt);
+		request.setN(numberOfImages);
+		request.setSize(imageSize);
 		
-		Map<String, Object> params = new HashMap<>();
-		params.put("prompt", prompt);
-        params.put("n", numberOfImages);
-        params.put("size", imageSize);
-        
-        OpenaiImageResponse resModel = (OpenaiImageResponse) openaiWrapper.generateImages(params);
+		SingleFlight activeSingleFlight = this.singleFlight;
+		if (activeSingleFlight == null) {
+			return this.sendOpenaiImage(request, deadline);
+		}
 		
-		List<Data> responseImages = resModel.getData();
-    	for (Data data: responseImages) {
-    		images.add(data.getUrl().toString());
-    	}
-    	
-		return images;
+		// each caller stops waiting at its own deadline, the shared call ends when the last caller leaves
+		String key = ResponseCache.createKey(this.keyType.name(), request);
+		return activeSingleFlight.execute(key, deadline, () -> this.sendOpenaiImage(request, null));
+	}
+	
+	/**
+	 * 
+	 * Send the image request to OpenAI service.
+	 * 
+	 * @param request the typed image request.
+	 * @param deadline the time to complete the call, or null.
+	 * @return future of the generated images URLs.
+	 */
+	private CompletableFuture<List<String>> sendOpenaiImage(OpenaiImageRequest request, Instant deadline) {
+        
+        CompletableFuture<OpenaiImageResponse> call = openaiWrapper.generateImagesAsync(request, deadline);
+        return ConnHelper.propagateCancel(call, call.thenApply(resModel -> {
+        	
+        	List<String> images = new ArrayList<>();
+        	List<Data> responseImages = resModel.getData();
+        	for (Data data: responseImages) {
+        		images.add(data.getUrl().toString());
+        	}
+        	
+        	return images;
+        }));
 		
 	}
 }
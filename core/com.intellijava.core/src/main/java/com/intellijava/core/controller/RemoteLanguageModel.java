@@ -16,16 +16,31 @@
 package com.intellijava.core.controller;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.intellijava.core.cache.ResponseCache;
+import com.intellijava.core.metrics.MetricsRecorder;
+import com.intellijava.core.model.CohereLanguageRequest;
 import com.intellijava.core.model.CohereLanguageResponse;
 import com.intellijava.core.model.CohereLanguageResponse.Generation;
+import com.intellijava.core.model.OpenaiLanguageRequest;
 import com.intellijava.core.model.OpenaiLanguageResponse;
 import com.intellijava.core.model.OpenaiLanguageResponse.Choice;
+import com.intellijava.core.model.StreamListener;
+import com.intellijava.core.model.StreamResponse;
 import com.intellijava.core.model.SupportedLangModels;
 import com.intellijava.core.model.input.LanguageModelInput;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.utils.ConnHelper;
 import com.intellijava.core.wrappers.CohereAIWrapper;
 import com.intellijava.core.wrappers.OpenAIWrapper;
 
@@ -50,6 +65,10 @@ public class RemoteLanguageModel {
 	private SupportedLangModels keyType;
 	private OpenAIWrapper openaiWrapper;
 	private CohereAIWrapper cohereWrapper;
+	private int maxBatchSize = 20;
+	private volatile TextBatchCoalescer coalescer;
+	private volatile ResponseCache cache;
+	private volatile SingleFlight singleFlight;
 
 	/**
 	 * Constructor for the RemoteLanguageModel class.
@@ -72,7 +91,7 @@ public class RemoteLanguageModel {
 		List<String> supportedModels = this.getSupportedModels();
 
 		if (supportedModels.contains(keyTypeString)) {
-			this.initiate(keyValue, SupportedLangModels.valueOf(keyTypeString));
+			this.initiate(keyValue, SupportedLangModels.valueOf(keyTypeString), null);
 		} else {
 			String models = String.join(" - ", supportedModels);
 			throw new IllegalArgumentException("The received keyValue not supported. Send any model from: " + models);
@@ -92,7 +111,30 @@ public class RemoteLanguageModel {
 	 * 
 	 */
 	public RemoteLanguageModel(String keyValue, SupportedLangModels keyType) {
-		this.initiate(keyValue, keyType);
+		this.initiate(keyValue, keyType, null);
+	}
+	
+	/**
+	 * Constructor for the RemoteLanguageModel class with a shared transport.
+	 *
+	 * Use it to share one connection pool between the models or to send the
+	 * requests through your own transport.
+	 *
+	 * @param keyValue  the API key.
+	 * @param keyType   enum version from the key type (SupportedModels).
+	 * @param transport the transport to send the requests.
+	 */
+	public RemoteLanguageModel(String keyValue, SupportedLangModels keyType, HttpTransport transport) {
+		this.initiate(keyValue, keyType, transport);
+	}
+
+	/**
+	 * Gets the provider of the model.
+	 * 
+	 * @return keyType
+	 */
+	public SupportedLangModels getKeyType() {
+		return keyType;
 	}
 
 	/**
@@ -116,18 +158,84 @@ public class RemoteLanguageModel {
 	 * 
 	 * @param keyValue the API key.
 	 * @param keyType enum version from the key type (SupportedModels).
+	 * @param transport the transport to send the requests, null for the default shared transport.
 	 */
-	private void initiate(String keyValue, SupportedLangModels keyType) {
+	private void initiate(String keyValue, SupportedLangModels keyType, HttpTransport transport) {
 		// set the model type
 		this.keyType = keyType;
 
 		// generate the related model
 		if (keyType.equals(SupportedLangModels.openai)) {
-			this.openaiWrapper = new OpenAIWrapper(keyValue);
+			this.openaiWrapper = new OpenAIWrapper(keyValue, transport);
 		} else if (keyType.equals(SupportedLangModels.cohere)) {
-			this.cohereWrapper = new CohereAIWrapper(keyValue);
+			this.cohereWrapper = new CohereAIWrapper(keyValue, transport);
 		}
 	}
+	
+	/**
+	 * Sets the executor to convert the remote responses for the asynchronous calls.
+	 * 
+	 * @param executor the executor or null to use the transport threads.
+	 */
+	public void setExecutor(Executor executor) {
+		if (openaiWrapper != null) openaiWrapper.setExecutor(executor);
+		if (cohereWrapper != null) cohereWrapper.setExecutor(executor);
+	}
+
+	/**
+	 * Sets the metrics recorder to measure the latency, the status, the payload sizes,
+	 * the retries and the token usage of each call.
+	 * 
+	 * @param metrics the recorder, example: InMemoryMetrics, or null to disable.
+	 */
+	public void setMetrics(MetricsRecorder metrics) {
+		if (openaiWrapper != null) openaiWrapper.setMetrics(metrics);
+		if (cohereWrapper != null) cohereWrapper.setMetrics(metrics);
+	}
+
+	/**
+	 * Sets the base url of the selected provider instead of the config.properties value,
+	 * example: http://localhost:8080 for a local mock server.
+	 * 
+	 * @param baseUrl the provider base url, the endpoint paths are appended to it.
+	 */
+	public void setBaseUrl(String baseUrl) {
+		if (openaiWrapper != null) openaiWrapper.setBaseUrl(baseUrl);
+		if (cohereWrapper != null) cohereWrapper.setBaseUrl(baseUrl);
+	}
+
+	/**
+	 * Sets the response cache for the text calls, the batch calls are not cached.
+	 * 
+	 * The cached outputs are returned as read only lists.
+	 * 
+	 * @param cache the response cache, example: LruResponseCache, or null to disable.
+	 */
+	public void setCache(ResponseCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Gets the response cache.
+	 * 
+	 * @return cache or null if not set.
+	 */
+	public ResponseCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Sets the single-flight mode, default is false.
+	 * 
+	 * When enabled the concurrent identical text calls share one in-flight request,
+	 * and all the callers receive its outputs or its failure.
+	 * The identical calls with non-zero temperature receive the same sample.
+	 * 
+	 * @param enabled true to share the identical in-flight requests.
+	 */
+	public void setSingleFlight(boolean enabled) {
+		this.singleFlight = enabled ? new SingleFlight() : null;
+	}
 
 	/**
 	 * 
@@ -145,19 +253,24 @@ public class RemoteLanguageModel {
 	 * 
 	 */
 	public String generateText(LanguageModelInput langInput) throws IOException {
-
-		if (this.keyType.equals(SupportedLangModels.openai)) {
-			return this.generateOpenaiText(langInput.getModel(), 
-					langInput.getPrompt(), langInput.getTemperature(),
-					langInput.getMaxTokens(), langInput.getNumberOfOutputs()).get(0);
-		} else if (this.keyType.equals(SupportedLangModels.cohere)) {
-			return this.generateCohereText(langInput.getModel(), 
-					langInput.getPrompt(), langInput.getTemperature(),
-					langInput.getMaxTokens(), langInput.getNumberOfOutputs()).get(0);
-		} else {
-			throw new IllegalArgumentException("the keyType not supported");
-		}
-
+		return ConnHelper.await(this.generateTextAsync(langInput));
+	}
+	
+	/**
+	 * 
+	 * Call a remote large model to generate any text without blocking the caller thread.
+	 * 
+	 * @param langInput flexible builder for language model parameters.
+	 * 					
+	 * @return future of the model response, completed exceptionally with IOException
+	 *         if there is an error when connecting to the API.
+	 * @throws IllegalArgumentException if the keyType passed in the constructor is
+	 *                                  not supported.
+	 * 
+	 */
+	public CompletableFuture<String> generateTextAsync(LanguageModelInput langInput) {
+		CompletableFuture<List<String>> outputs = this.generateMultiTextAsync(langInput);
+		return ConnHelper.propagateCancel(outputs, outputs.thenApply(result -> result.get(0)));
 	}
 	
 	/**
@@ -174,21 +287,313 @@ public class RemoteLanguageModel {
 	 * 
 	 */
 	public List<String> generateMultiText(LanguageModelInput langInput) throws IOException {
+		return ConnHelper.await(this.generateMultiTextAsync(langInput));
+	}
+	
+	/**
+	 * 
+	 * Call a remote large model to generate multiple outputs without blocking the caller thread.
+	 * 
+	 * @param langInput flexible builder for language model parameters.
+	 * 
+	 * @return future of the model responses, completed exceptionally with IOException
+	 *         if there is an error when connecting to the API.
+	 * @throws IllegalArgumentException if the keyType passed in the constructor is
+	 *                                  not supported.
+	 * 
+	 */
+	public CompletableFuture<List<String>> generateMultiTextAsync(LanguageModelInput langInput) {
 
-		if (this.keyType.equals(SupportedLangModels.openai)) {
+		ResponseCache activeCache = this.cache;
+		SingleFlight activeSingleFlight = this.singleFlight;
+		boolean cacheable = activeCache != null && activeCache.isCacheable(langInput.getTemperature());
+		
+		Instant deadline = ConnHelper.deadlineOf(langInput.getTimeout());
+		if (!cacheable && activeSingleFlight == null) {
+			return this.sendText(langInput, deadline);
+		}
+		
+		String key = this.getCacheKey(langInput);
+		if (cacheable) {
+			List<String> cached = activeCache.get(key);
+			if (cached != null) {
+				return CompletableFuture.completedFuture(Collections.unmodifiableList(cached));
+			}
+		}
+		
+		// each caller stops waiting at its own deadline, the shared call ends when the last caller leaves
+		CompletableFuture<List<String>> result = activeSingleFlight == null ? this.sendText(langInput, deadline)
+				: activeSingleFlight.execute(key, deadline, () -> this.sendText(langInput, null));
+		
+		if (!cacheable) {
+			return result;
+		}
+		
+		// the first caller and the cache hits receive the same read only outputs
+		return ConnHelper.propagateCancel(result, result.thenApply(outputs -> {
+			List<String> copy = Collections.unmodifiableList(new ArrayList<>(outputs));
+			activeCache.put(key, copy);
+			return copy;
+		}));
+	}
+	
+	/**
+	 * Send the input through the coalescer when enabled, or in its own request.
+	 * 
+	 * @param langInput flexible builder for language model parameters.
+	 * @param deadline the time to complete the request, or null.
+	 * @return future of the model responses.
+	 */
+	private CompletableFuture<List<String>> sendText(LanguageModelInput langInput, Instant deadline) {
+
+		TextBatchCoalescer activeCoalescer = this.coalescer;
+		
+		if (activeCoalescer != null) {
+			return activeCoalescer.submit(langInput, deadline);
+		} else if (this.keyType.equals(SupportedLangModels.openai)) {
 			return this.generateOpenaiText(langInput.getModel(), 
 					langInput.getPrompt(), langInput.getTemperature(),
-					langInput.getMaxTokens(), langInput.getNumberOfOutputs());
+					langInput.getMaxTokens(), langInput.getNumberOfOutputs(), deadline);
 		} else if (this.keyType.equals(SupportedLangModels.cohere)) {
 			return this.generateCohereText(langInput.getModel(), 
 					langInput.getPrompt(), langInput.getTemperature(),
-					langInput.getMaxTokens(), langInput.getNumberOfOutputs());
+					langInput.getMaxTokens(), langInput.getNumberOfOutputs(), deadline);
 		} else {
 			throw new IllegalArgumentException("the keyType not supported");
 		}
 
 	}
 
+	/**
+	 * 
+	 * Call a remote large model to generate the text of many prompts with the fewest requests.
+	 * 
+	 * The inputs with the same model, temperature, max tokens and number of outputs are sent 
+	 * as one multi-prompt request, and the groups larger than the max batch size are split.
+	 * Cohere does not support multiple prompts, so each input is sent in its own request.
+	 * 
+	 * @param langInputs list of language model inputs.
+	 * 
+	 * @return the model responses of each input, in the same order of the inputs.
+	 * @throws IOException              if there is an error when connecting to the API.
+	 * @throws IllegalArgumentException if the keyType passed in the constructor is
+	 *                                  not supported.
+	 * 
+	 */
+	public List<List<String>> generateTextBatch(List<LanguageModelInput> langInputs) throws IOException {
+		return ConnHelper.await(this.generateTextBatchAsync(langInputs));
+	}
+	
+	/**
+	 * 
+	 * Call a remote large model to generate the text of many prompts without blocking the caller thread.
+	 * 
+	 * @param langInputs list of language model inputs.
+	 * 
+	 * @return future of the model responses of each input, in the same order of the inputs.
+	 *         completed exceptionally with IOException if any request failed.
+	 * @throws IllegalArgumentException if the keyType passed in the constructor is
+	 *                                  not supported.
+	 * 
+	 */
+	public CompletableFuture<List<List<String>>> generateTextBatchAsync(List<LanguageModelInput> langInputs) {
+		
+		List<Instant> deadlines = new ArrayList<>(langInputs.size());
+		for (LanguageModelInput langInput : langInputs) {
+			deadlines.add(ConnHelper.deadlineOf(langInput.getTimeout()));
+		}
+		List<CompletableFuture<List<String>>> calls = this.sendBatch(langInputs, deadlines);
+		
+		return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			List<List<String>> results = new ArrayList<>(calls.size());
+			for (CompletableFuture<List<String>> call : calls) {
+				results.add(call.join());
+			}
+			return results;
+		});
+	}
+	
+	/**
+	 * 
+	 * Send the inputs with the fewest requests, and return a future for each input.
+	 * 
+	 * @param langInputs list of language model inputs.
+	 * @param deadlines the deadline of each input, computed when the input was submitted, or null.
+	 * @return future of the model responses of each input, a failed request fails its inputs only.
+	 */
+	private List<CompletableFuture<List<String>>> sendBatch(List<LanguageModelInput> langInputs, 
+			List<Instant> deadlines) {
+		
+		List<CompletableFuture<List<String>>> results = new ArrayList<>(langInputs.size());
+		
+		if (!this.keyType.equals(SupportedLangModels.openai)) {
+			for (LanguageModelInput langInput : langInputs) {
+				results.add(this.generateMultiTextAsync(langInput));
+			}
+			return results;
+		}
+		
+		for (int i = 0; i < langInputs.size(); i++) {
+			results.add(new CompletableFuture<>());
+		}
+		
+		// group the compatible inputs, keeping the first seen order
+		Map<String, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < langInputs.size(); i++) {
+			groups.computeIfAbsent(getBatchKey(langInputs.get(i)), key -> new ArrayList<>()).add(i);
+		}
+		
+		List<List<Integer>> batches = new ArrayList<>();
+		List<CompletableFuture<List<List<String>>>> batchCalls = new ArrayList<>();
+		for (List<Integer> group : groups.values()) {
+			for (int start = 0; start < group.size(); start += maxBatchSize) {
+				List<Integer> batch = group.subList(start, Math.min(start + maxBatchSize, group.size()));
+				Instant deadline = latestOf(deadlines, batch);
+				CompletableFuture<List<List<String>>> call = this.generateOpenaiBatch(langInputs, batch, deadline);
+				call.whenComplete((outputs, error) -> {
+					for (int i = 0; i < batch.size(); i++) {
+						if (error != null) {
+							results.get(batch.get(i)).completeExceptionally(error);
+						} else {
+							results.get(batch.get(i)).complete(outputs.get(i));
+						}
+					}
+				});
+				batches.add(batch);
+				batchCalls.add(call);
+			}
+		}
+		
+		// each input fails at its own deadline, the shared request waits for the latest one
+		for (int i = 0; i < results.size(); i++) {
+			results.set(i, ConnHelper.withDeadline(results.get(i), deadlines.get(i)));
+		}
+		
+		// the request is cancelled when all its inputs are cancelled or timed out
+		for (int b = 0; b < batches.size(); b++) {
+			CompletableFuture<List<List<String>>> call = batchCalls.get(b);
+			AtomicInteger waiting = new AtomicInteger(batches.get(b).size());
+			for (int index : batches.get(b)) {
+				results.get(index).whenComplete((outputs, error) -> {
+					if (error != null && waiting.decrementAndGet() == 0) {
+						call.cancel(true);
+					}
+				});
+			}
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Gets the latest deadline of the batch inputs.
+	 * 
+	 * @param deadlines the deadline of each input.
+	 * @param batch the indexes of the batch inputs.
+	 * @return the latest deadline, or null if any input has no deadline.
+	 */
+	private static Instant latestOf(List<Instant> deadlines, List<Integer> batch) {
+		
+		Instant latest = null;
+		for (int index : batch) {
+			Instant deadline = deadlines.get(index);
+			if (deadline == null) {
+				return null;
+			}
+			latest = latest == null || deadline.isAfter(latest) ? deadline : latest;
+		}
+		return latest;
+	}
+	
+	/**
+	 * Gets the maximum number of prompts in one batch request.
+	 * 
+	 * @return maxBatchSize
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+	
+	/**
+	 * Sets the maximum number of prompts in one batch request, default is 20.
+	 * 
+	 * @param maxBatchSize the maximum prompts per request, larger groups are split.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("The max batch size should be at least 1");
+		}
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * 
+	 * Enable the coalescing of the concurrent text calls into multi-prompt requests.
+	 * 
+	 * The generateText and generateMultiText calls are held for up to maxDelayMillis, or until 
+	 * maxQueued calls are waiting, then sent with the batch flow and each caller receives its own outputs.
+	 * It adds up to maxDelayMillis latency to the calls, in exchange for fewer requests under load.
+	 * 
+	 * @param maxDelayMillis maximum time to hold the first queued call, example: 5.
+	 * @param maxQueued number of queued calls to send without waiting for the delay.
+	 * @throws IllegalArgumentException if the keyType passed in the constructor is
+	 *                                  not "openai".
+	 */
+	public void enableCoalescing(long maxDelayMillis, int maxQueued) {
+		
+		if (!this.keyType.equals(SupportedLangModels.openai)) {
+			throw new IllegalArgumentException("the coalescing supports openai keyType only");
+		} else if (maxDelayMillis < 0 || maxQueued < 1) {
+			throw new IllegalArgumentException("The delay should be positive and the max queued at least 1");
+		}
+		
+		TextBatchCoalescer previous = this.coalescer;
+		this.coalescer = new TextBatchCoalescer(this::sendBatch, maxDelayMillis, maxQueued);
+		if (previous != null) {
+			previous.flush();
+		}
+	}
+	
+	/**
+	 * 
+	 * Disable the coalescing and send the queued calls.
+	 */
+	public void disableCoalescing() {
+		
+		TextBatchCoalescer previous = this.coalescer;
+		this.coalescer = null;
+		if (previous != null) {
+			previous.flush();
+		}
+	}
+
+	/**
+	 * 
+	 * Call a remote large model and receive the text tokens as they are generated.
+	 * 
+	 * This version support openai keyType only, use StreamPublisher as the listener
+	 * to consume the tokens with java.util.concurrent.Flow.
+	 * 
+	 * @param langInput flexible builder for language model parameters.
+	 * @param listener receives the tokens, then the final response with the usage and finish reason.
+	 * 
+	 * @return future of the final response, cancel it to stop the generation.
+	 * @throws IllegalArgumentException if the keyType passed in the constructor is
+	 *                                  not "openai".
+	 * 
+	 */
+	public CompletableFuture<StreamResponse> generateTextStream(LanguageModelInput langInput, StreamListener listener) {
+		
+		if (this.keyType.equals(SupportedLangModels.openai)) {
+			return openaiWrapper.generateTextStream(this.getOpenaiRequest(langInput.getModel(), 
+					langInput.getPrompt(), langInput.getTemperature(),
+					langInput.getMaxTokens(), langInput.getNumberOfOutputs()), listener, 
+					ConnHelper.deadlineOf(langInput.getTimeout()));
+		} else {
+			throw new IllegalArgumentException("the streaming supports openai keyType only");
+		}
+	}
+
 	/**
 	 * Private helper method for generating text from OpenAI GPT-3 model.
 	 *
@@ -199,33 +604,113 @@ public class RemoteLanguageModel {
 	 * @param temperature higher values means more risks and creativity.
 	 * @param maxTokens   maximum size of the model input and output.
 	 * @param numberOfOutputs   number of model outputs.
-	 * @return string model response.
-	 * @throws IOException if there is an error when connecting to the OpenAI API.
+	 * @param deadline    the time to complete the call, or null.
+	 * @return future of the model responses.
 	 * 
 	 */
-	private List<String> generateOpenaiText(String model, String prompt, float temperature, 
-			int maxTokens, int numberOfOutputs)
-			throws IOException {
+	private CompletableFuture<List<String>> generateOpenaiText(String model, String prompt, float temperature, 
+			int maxTokens, int numberOfOutputs, Instant deadline) {
 
-		if (model.equals(""))
-			model = "text-davinci-003";
+		OpenaiLanguageRequest request = this.getOpenaiRequest(model, prompt, temperature, maxTokens, numberOfOutputs);
 
-		Map<String, Object> params = new HashMap<>();
-		params.put("model", model);
-		params.put("prompt", prompt);
-		params.put("temperature", temperature);
-		params.put("max_tokens", maxTokens);
-		params.put("n", numberOfOutputs);
+		CompletableFuture<OpenaiLanguageResponse> call = openaiWrapper.generateTextAsync(request, deadline);
+		return ConnHelper.propagateCancel(call, call.thenApply(resModel -> {
+			
+			List<String> outputs = new ArrayList<>();
+			for (Choice item : resModel.getChoices()) {
+				outputs.add(item.getText());
+			}
+			
+			return outputs;
+		}));
 
-		OpenaiLanguageResponse resModel = (OpenaiLanguageResponse) openaiWrapper.generateText(params);
+	}
 
-		List<String> outputs = new ArrayList<>();
-		for (Choice item : resModel.getChoices()) {
-			outputs.add(item.getText());
+	/**
+	 * 
+	 * Send the batch prompts in one OpenAI completion request and map the choices back to the prompts.
+	 * 
+	 * @param langInputs all the batch inputs.
+	 * @param batch the indexes of the compatible inputs to send.
+	 * @param deadline the time to complete the request, or null.
+	 * @return future of the model responses of each batch input.
+	 */
+	private CompletableFuture<List<List<String>>> generateOpenaiBatch(List<LanguageModelInput> langInputs, 
+			List<Integer> batch, Instant deadline) {
+		
+		LanguageModelInput first = langInputs.get(batch.get(0));
+		OpenaiLanguageRequest request = this.getOpenaiRequest(first.getModel(), null, first.getTemperature(),
+				first.getMaxTokens(), first.getNumberOfOutputs());
+		
+		List<String> prompts = new ArrayList<>(batch.size());
+		for (int index : batch) {
+			prompts.add(langInputs.get(index).getPrompt());
 		}
+		request.setPrompts(prompts);
+		
+		int numberOfOutputs = Math.max(1, first.getNumberOfOutputs());
+		
+		CompletableFuture<OpenaiLanguageResponse> call = openaiWrapper.generateTextAsync(request, deadline);
+		return ConnHelper.propagateCancel(call, call.thenApply(resModel -> {
+			
+			// the choices of the prompt i are from i * n to i * n + n - 1
+			List<String[]> slots = new ArrayList<>(batch.size());
+			for (int i = 0; i < batch.size(); i++) {
+				slots.add(new String[numberOfOutputs]);
+			}
+			for (Choice item : resModel.getChoices()) {
+				slots.get(item.getIndex() / numberOfOutputs)[item.getIndex() % numberOfOutputs] = item.getText();
+			}
+			
+			List<List<String>> outputs = new ArrayList<>(batch.size());
+			for (String[] slot : slots) {
+				outputs.add(Arrays.asList(slot));
+			}
+			
+			return outputs;
+		}));
+	}
+	
+	/**
+	 * Gets the key of the inputs that can share one completion request.
+	 * 
+	 * @param langInput language model input.
+	 * @return the batch key.
+	 */
+	private String getBatchKey(LanguageModelInput langInput) {
+		
+		String model = langInput.getModel();
+		if (model == null || model.equals(""))
+			model = "text-davinci-003";
+		
+		return model + "|" + langInput.getTemperature() + "|" + langInput.getMaxTokens() 
+				+ "|" + langInput.getNumberOfOutputs();
+	}
+	
+	/**
+	 * Prepare the OpenAI completion request.
+	 *
+	 * @param model       the model name, default is text-davinci-003.
+	 * @param prompt      text of the required action or the question.
+	 * @param temperature higher values means more risks and creativity.
+	 * @param maxTokens   maximum size of the model input and output.
+	 * @param numberOfOutputs   number of model outputs.
+	 * @return the typed completion request.
+	 */
+	private OpenaiLanguageRequest getOpenaiRequest(String model, String prompt, float temperature, 
+			int maxTokens, int numberOfOutputs) {
 		
-		return outputs;
+		if (model == null || model.equals(""))
+			model = "text-davinci-003";
 
+		OpenaiLanguageRequest request = new OpenaiLanguageRequest();
+		request.setModel(model);
+		request.setPrompt(prompt);
+		request.setTemperature(temperature);
+		request.setMaxTokens(maxTokens);
+		request.setN(numberOfOutputs);
+		
+		return request;
 	}
 
 	/**
@@ -236,32 +721,71 @@ public class RemoteLanguageModel {
 	 * @param temperature higher values means more risks and creativity.
 	 * @param maxTokens   maximum size of the model input and output.
 	 * @param numberOfOutputs   number of model outputs.
-	 * @return string model response.
-	 * @throws IOException if there is an error when connecting to the API.
+	 * @param deadline    the time to complete the call, or null.
+	 * @return future of the model responses.
 	 * 
 	 */
-	private List<String> generateCohereText(String model, String prompt, float temperature, 
-			int maxTokens, int numberOfOutputs)
-			throws IOException {
+	private CompletableFuture<List<String>> generateCohereText(String model, String prompt, float temperature, 
+			int maxTokens, int numberOfOutputs, Instant deadline) {
 
-		if (model.equals(""))
-			model = "xlarge";
+		CohereLanguageRequest request = this.getCohereRequest(model, prompt, temperature, maxTokens, numberOfOutputs);
 
-		Map<String, Object> params = new HashMap<>();
-		params.put("model", model);
-		params.put("prompt", prompt);
-		params.put("temperature", temperature);
-		params.put("max_tokens", maxTokens);
-		params.put("num_generations", numberOfOutputs);
+		CompletableFuture<CohereLanguageResponse> call = cohereWrapper.generateTextAsync(request, deadline);
+		return ConnHelper.propagateCancel(call, call.thenApply(resModel -> {
+			
+			List<String> outputs = new ArrayList<>();
+			for (Generation item: resModel.getGenerations()) {
+				outputs.add(item.getText());
+			}
+			
+			return outputs;
+		}));
+
+	}
+	
+	/**
+	 * Prepare the Cohere generate request.
+	 *
+	 * @param model       the model name, default is xlarge.
+	 * @param prompt      text of the required action or the question.
+	 * @param temperature higher values means more risks and creativity.
+	 * @param maxTokens   maximum size of the model input and output.
+	 * @param numberOfOutputs   number of model outputs.
+	 * @return the typed generate request.
+	 */
+	private CohereLanguageRequest getCohereRequest(String model, String prompt, float temperature, 
+			int maxTokens, int numberOfOutputs) {
+		
+		if (model == null || model.equals(""))
+			model = "xlarge";
 
-		CohereLanguageResponse resModel = (CohereLanguageResponse) cohereWrapper.generateText(params);
+		CohereLanguageRequest request = new CohereLanguageRequest();
+		request.setModel(model);
+		request.setPrompt(prompt);
+		request.setTemperature(temperature);
+		request.setMaxTokens(maxTokens);
+		request.setNumGenerations(numberOfOutputs);
 		
-		List<String> outputs = new ArrayList<>();
-		for (Generation item: resModel.getGenerations()) {
-			outputs.add(item.getText());
+		return request;
+	}
+	
+	/**
+	 * Gets the cache key of the input from the provider request.
+	 * 
+	 * @param langInput flexible builder for language model parameters.
+	 * @return the canonical request key.
+	 */
+	private String getCacheKey(LanguageModelInput langInput) {
+		
+		Object request;
+		if (this.keyType.equals(SupportedLangModels.openai)) {
+			request = this.getOpenaiRequest(langInput.getModel(), langInput.getPrompt(), 
+					langInput.getTemperature(), langInput.getMaxTokens(), langInput.getNumberOfOutputs());
+		} else {
+			request = this.getCohereRequest(langInput.getModel(), langInput.getPrompt(), 
+					langInput.getTemperature(), langInput.getMaxTokens(), langInput.getNumberOfOutputs());
 		}
 		
-		return outputs;
-
+		return ResponseCache.createKey(this.keyType.name(), request);
 	}
 }
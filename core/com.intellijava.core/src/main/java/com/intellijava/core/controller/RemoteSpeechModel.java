@@ -16,15 +16,22 @@
 package com.intellijava.core.controller;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import com.intellijava.core.metrics.MetricsRecorder;
 import com.intellijava.core.model.AudioResponse;
+import com.intellijava.core.model.BaseRemoteModel;
 import com.intellijava.core.model.SpeechModels;
 import com.intellijava.core.model.input.Text2SpeechInput;
 import com.intellijava.core.model.input.Text2SpeechInput.Gender;
 import com.intellijava.core.utils.AudioHelper;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.utils.ConnHelper;
 import com.intellijava.core.wrappers.GoogleAIWrapper;
 
 /**
@@ -63,7 +70,7 @@ public class RemoteSpeechModel {
 		
 		
 		if (supportedModels.contains(keyTypeString)) {
-			this.initiate(keyValue, SpeechModels.valueOf(keyTypeString));
+			this.initiate(keyValue, SpeechModels.valueOf(keyTypeString), null);
 		} else {
 			String models = String.join(" - ", supportedModels);
 			throw new IllegalArgumentException("The received keyValue not supported. Send any model from: " + models);
@@ -78,7 +85,19 @@ public class RemoteSpeechModel {
 	 * @param keyType The SpeechModels enum value representing the key type.
 	 */
 	public RemoteSpeechModel(String keyValue, SpeechModels keyType) { 
-		this.initiate(keyValue, keyType);
+		this.initiate(keyValue, keyType, null);
+	}
+	
+	/**
+	 * 
+	 * Constructs a new RemoteSpeechModel object with a shared transport.
+	 * 
+	 * @param keyValue The API key value to use.
+	 * @param keyType The SpeechModels enum value representing the key type.
+	 * @param transport the transport to send the requests.
+	 */
+	public RemoteSpeechModel(String keyValue, SpeechModels keyType, HttpTransport transport) { 
+		this.initiate(keyValue, keyType, transport);
 	}
 	
 	/**
@@ -86,11 +105,41 @@ public class RemoteSpeechModel {
 	 * 
 	 * @param keyValue the API key value to use.
 	 * @param keyType the SpeechModels enum value representing the key type.
+	 * @param transport the transport to send the requests, null for the default shared transport.
 	 */
-	private void initiate(String keyValue, SpeechModels keyType) {
+	private void initiate(String keyValue, SpeechModels keyType, HttpTransport transport) {
 		
 		this.keyType = keyType;
-		wrapper = new GoogleAIWrapper(keyValue);
+		wrapper = new GoogleAIWrapper(keyValue, transport);
+	}
+	
+	/**
+	 * Sets the executor to convert the remote responses for the asynchronous calls.
+	 * 
+	 * @param executor the executor or null to use the transport threads.
+	 */
+	public void setExecutor(Executor executor) {
+		wrapper.setExecutor(executor);
+	}
+
+	/**
+	 * Sets the metrics recorder to measure the latency, the status, the payload sizes,
+	 * the retries and the token usage of each call.
+	 * 
+	 * @param metrics the recorder, example: InMemoryMetrics, or null to disable.
+	 */
+	public void setMetrics(MetricsRecorder metrics) {
+		wrapper.setMetrics(metrics);
+	}
+	
+	/**
+	 * Sets the base url of the speech service instead of the config.properties value,
+	 * example: http://localhost:8080/v1/ for a local mock server.
+	 * 
+	 * @param baseUrl the service url with the version, the method path is appended to it.
+	 */
+	public void setBaseUrl(String baseUrl) {
+		wrapper.setBaseUrl(baseUrl);
 	}
 	
 	/**
@@ -121,7 +170,8 @@ public class RemoteSpeechModel {
 	public byte[] generateEnglishText(Text2SpeechInput input) throws IOException {
 		
 		if (this.keyType == SpeechModels.google) {
-			return this.generateGoogleText(input.getText(), input.getGender(), "en-GB");
+			return ConnHelper.await(this.generateGoogleText(input.getText(), input.getGender(), "en-GB", 
+					ConnHelper.deadlineOf(input.getTimeout())));
 		} else {
 			throw new IllegalArgumentException("the keyType not supported");
 		}
@@ -140,7 +190,8 @@ public class RemoteSpeechModel {
 	public byte[] generateMandarinText(Text2SpeechInput input) throws IOException {
 		
 		if (this.keyType == SpeechModels.google) {
-			return this.generateGoogleText(input.getText(), input.getGender(), "cmn-CN");
+			return ConnHelper.await(this.generateGoogleText(input.getText(), input.getGender(), "cmn-CN", 
+					ConnHelper.deadlineOf(input.getTimeout())));
 		} else {
 			throw new IllegalArgumentException("the keyType not supported");
 		}
@@ -158,7 +209,8 @@ public class RemoteSpeechModel {
 	public byte[] generateArabicText(Text2SpeechInput input) throws IOException {
 		
 		if (this.keyType == SpeechModels.google) {
-			return this.generateGoogleText(input.getText(), input.getGender(), "ar-XA");
+			return ConnHelper.await(this.generateGoogleText(input.getText(), input.getGender(), "ar-XA", 
+					ConnHelper.deadlineOf(input.getTimeout())));
 		} else {
 			throw new IllegalArgumentException("the keyType not supported");
 		}
@@ -177,7 +229,8 @@ public class RemoteSpeechModel {
 	public byte[] generateTurkishText(Text2SpeechInput input) throws IOException {
 		
 		if (this.keyType == SpeechModels.google) {
-			return this.generateGoogleText(input.getText(), input.getGender(), "tr-TR");
+			return ConnHelper.await(this.generateGoogleText(input.getText(), input.getGender(), "tr-TR", 
+					ConnHelper.deadlineOf(input.getTimeout())));
 		} else {
 			throw new IllegalArgumentException("the keyType not supported");
 		}
@@ -196,7 +249,27 @@ public class RemoteSpeechModel {
 	public byte[] generateText(Text2SpeechInput input, String langCode) throws IOException {
 		
 		if (this.keyType == SpeechModels.google) {
-			return this.generateGoogleText(input.getText(), input.getGender(), langCode);
+			return ConnHelper.await(this.generateGoogleText(input.getText(), input.getGender(), langCode, 
+					ConnHelper.deadlineOf(input.getTimeout())));
+		} else {
+			throw new IllegalArgumentException("the keyType not supported");
+		}
+	}
+	
+	
+	/**
+	 * Generates speech using advanced audio models without blocking the caller thread.
+	 * 
+	 * @param input SpeechInput object containing the text and gender to use.
+	 * @param langCode the language code, make sure to use the right code for the model engine. 
+	 * @return future of the decoded audio content, completed exceptionally with IOException
+	 *         in case of communication error.
+	 */
+	public CompletableFuture<byte[]> generateTextAsync(Text2SpeechInput input, String langCode) {
+		
+		if (this.keyType == SpeechModels.google) {
+			return this.generateGoogleText(input.getText(), input.getGender(), langCode, 
+					ConnHelper.deadlineOf(input.getTimeout()));
 		} else {
 			throw new IllegalArgumentException("the keyType not supported");
 		}
@@ -215,7 +288,8 @@ public class RemoteSpeechModel {
 	public byte[] generateGermanText(Text2SpeechInput input) throws IOException {
 		
 		if (this.keyType == SpeechModels.google) {
-			return this.generateGoogleText(input.getText(), input.getGender(), "de-de");
+			return ConnHelper.await(this.generateGoogleText(input.getText(), input.getGender(), "de-de", 
+					ConnHelper.deadlineOf(input.getTimeout())));
 		} else {
 			throw new IllegalArgumentException("the keyType not supported");
 		}
@@ -227,11 +301,11 @@ public class RemoteSpeechModel {
 	 * @param text text to generate the speech.
 	 * @param gender gender to use (male or female).
 	 * @param language en-gb.
-	 * @return
-	 * @throws IOException in case of communication error.
+	 * @param deadline the time to complete the call, or null.
+	 * @return future of the decoded audio content.
 	 */
-	private byte[] generateGoogleText(String text, Gender gender, String language) throws IOException {
-		byte[] decodedAudio = null;
+	private CompletableFuture<byte[]> generateGoogleText(String text, Gender gender, String language, 
+			Instant deadline) {
 		
 		Map<String, Object> params = new HashMap<>();
 		params.put("text", text);
@@ -288,9 +362,10 @@ public class RemoteSpeechModel {
 	        throw new IllegalArgumentException("Unsupported language code: " + language);
 	    }
 		
-		AudioResponse resModel = (AudioResponse) wrapper.generateSpeech(params);
-		decodedAudio = AudioHelper.decode(resModel.getAudioContent());
-		
-		return decodedAudio;
+		CompletableFuture<BaseRemoteModel> call = wrapper.generateSpeechAsync(params, deadline);
+		return ConnHelper.propagateCancel(call, call.thenApply(response -> {
+			AudioResponse resModel = (AudioResponse) response;
+			return AudioHelper.decode(resModel.getAudioContent());
+		}));
 	}
 }
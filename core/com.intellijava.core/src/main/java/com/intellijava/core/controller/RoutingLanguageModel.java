@@ -0,0 +1,453 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.controller;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.intellijava.core.model.input.LanguageModelInput;
+import com.intellijava.core.transport.HttpStatusException;
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ * RoutingLanguageModel spreads the language calls over several providers and keys, and fails over
+ * to the next route when a call fails or exceeds the maximum latency.
+ *
+ * Each route is a RemoteLanguageModel with a weight, and optionally the model name to use for this
+ * provider, example: text-davinci-003 for openai and xlarge for cohere. The routes are selected by
+ * smooth weighted round robin, and a route that keeps failing is skipped for the eject duration.
+ * The LanguageModelInput parameters are translated to each provider request by its RemoteLanguageModel,
+ * and the input model name is not sent to the routes: a route without a model name uses the default
+ * model of its provider. The input timeout is the total time of the call, each route receives the time left.
+ * Cancelling the returned future cancels the route call in flight, and no other route is called.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class RoutingLanguageModel {
+
+	private final List<Route> routes;
+	private final long maxLatencyNanos;
+	private final int maxAttempts;
+	private final int maxFailures;
+	private final long ejectNanos;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private RoutingLanguageModel(Builder builder) {
+		if (builder.routes.isEmpty()) {
+			throw new IllegalArgumentException("Add at least one route");
+		}
+		this.routes = new ArrayList<>(builder.routes);
+		this.maxLatencyNanos = builder.maxLatency.toNanos();
+		this.maxAttempts = builder.maxAttempts > 0 ? builder.maxAttempts : routes.size();
+		this.maxFailures = builder.maxFailures;
+		this.ejectNanos = builder.ejectDuration.toNanos();
+	}
+
+	/**
+	 *
+	 * Builder class for RoutingLanguageModel.
+	 *
+	 */
+	public static class Builder {
+		private List<Route> routes = new ArrayList<>();
+		private Duration maxLatency = Duration.ofSeconds(60);
+		private int maxAttempts;
+		private int maxFailures = 3;
+		private Duration ejectDuration = Duration.ofSeconds(30);
+
+		/**
+		 * Builder default constructor.
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Add a route that uses the default model of its provider.
+		 *
+		 * @param model  the provider model with its key.
+		 * @param weight the share of the calls, relative to the other routes.
+		 * @return instance of Builder.
+		 */
+		public Builder addRoute(RemoteLanguageModel model, int weight) {
+			return this.addRoute(model, weight, null);
+		}
+
+		/**
+		 * Add a route with the model name to use for this provider.
+		 *
+		 * @param model     the provider model with its key.
+		 * @param weight    the share of the calls, relative to the other routes.
+		 * @param modelName the model name for this route, null for the default model of the provider.
+		 * @return instance of Builder.
+		 */
+		public Builder addRoute(RemoteLanguageModel model, int weight, String modelName) {
+			if (weight < 1) {
+				throw new IllegalArgumentException("The route weight should be at least 1");
+			}
+			this.routes.add(new Route(model, weight, modelName));
+			return this;
+		}
+
+		/**
+		 * Sets the maximum time of one call before failing over, default is 60 seconds.
+		 *
+		 * @param maxLatency the call latency limit.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxLatency(Duration maxLatency) {
+			this.maxLatency = maxLatency;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum routes to try for one call, default is the number of routes.
+		 *
+		 * @param maxAttempts maximum attempts.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		/**
+		 * Sets the consecutive failures to skip a route, default is 3.
+		 *
+		 * @param maxFailures the failures before the eject.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxFailures(int maxFailures) {
+			this.maxFailures = maxFailures;
+			return this;
+		}
+
+		/**
+		 * Sets the time to skip a failing route, default is 30 seconds.
+		 *
+		 * @param ejectDuration the eject duration.
+		 * @return instance of Builder.
+		 */
+		public Builder setEjectDuration(Duration ejectDuration) {
+			this.ejectDuration = ejectDuration;
+			return this;
+		}
+
+		/**
+		 * Build the final RoutingLanguageModel object.
+		 *
+		 * @return final RoutingLanguageModel object.
+		 */
+		public RoutingLanguageModel build() {
+			return new RoutingLanguageModel(this);
+		}
+	}
+
+	/**
+	 * One provider route with its weight and health.
+	 */
+	private static class Route {
+		private final RemoteLanguageModel model;
+		private final int weight;
+		private final String modelName;
+		/** the smooth weighted round robin counter. */
+		private int current;
+		private int failures;
+		private long ejectedUntil;
+
+		private Route(RemoteLanguageModel model, int weight, String modelName) {
+			this.model = model;
+			this.weight = weight;
+			this.modelName = modelName;
+		}
+
+		private boolean isEjected(long now) {
+			return failures > 0 && now - ejectedUntil < 0;
+		}
+	}
+
+	/**
+	 *
+	 * Call the next route to generate any text.
+	 *
+	 * @param langInput flexible builder for language model parameters.
+	 * @return the model response.
+	 * @throws IOException if all the attempted routes failed.
+	 */
+	public String generateText(LanguageModelInput langInput) throws IOException {
+		return ConnHelper.await(this.generateTextAsync(langInput));
+	}
+
+	/**
+	 *
+	 * Call the next route to generate any text without blocking the caller thread.
+	 *
+	 * @param langInput flexible builder for language model parameters.
+	 * @return future of the model response, completed exceptionally with IOException
+	 *         if all the attempted routes failed.
+	 */
+	public CompletableFuture<String> generateTextAsync(LanguageModelInput langInput) {
+		CompletableFuture<List<String>> call = this.generateMultiTextAsync(langInput);
+		return ConnHelper.propagateCancel(call, call.thenApply(outputs -> outputs.get(0)));
+	}
+
+	/**
+	 *
+	 * Call the next route to generate multiple outputs.
+	 *
+	 * @param langInput flexible builder for language model parameters.
+	 * @return list of model responses.
+	 * @throws IOException if all the attempted routes failed.
+	 */
+	public List<String> generateMultiText(LanguageModelInput langInput) throws IOException {
+		return ConnHelper.await(this.generateMultiTextAsync(langInput));
+	}
+
+	/**
+	 *
+	 * Call the next route to generate multiple outputs without blocking the caller thread.
+	 *
+	 * @param langInput flexible builder for language model parameters.
+	 * @return future of the model responses, completed exceptionally with IOException
+	 *         if all the attempted routes failed.
+	 */
+	public CompletableFuture<List<String>> generateMultiTextAsync(LanguageModelInput langInput) {
+		Failover failover = new Failover(langInput, ConnHelper.deadlineOf(langInput.getTimeout()));
+		failover.attempt(null);
+		return failover.result;
+	}
+
+	/**
+	 * The route attempts of one call.
+	 *
+	 * Cancelling the result cancels the route call in flight, and no other route is called.
+	 */
+	private class Failover {
+		private final LanguageModelInput langInput;
+		private final Instant deadline;
+		private final List<Route> attempted = new ArrayList<>();
+		private final CompletableFuture<List<String>> result = new CompletableFuture<>();
+		/** the route call in flight. */
+		private volatile CompletableFuture<List<String>> pending;
+
+		/**
+		 * Failover constructor.
+		 *
+		 * @param langInput flexible builder for language model parameters.
+		 * @param deadline the deadline of the whole call, or null.
+		 */
+		private Failover(LanguageModelInput langInput, Instant deadline) {
+			this.langInput = langInput;
+			this.deadline = deadline;
+			result.whenComplete((outputs, error) -> {
+				CompletableFuture<List<String>> current = pending;
+				if (error != null && current != null) {
+					current.cancel(true);
+				}
+			});
+		}
+
+		/**
+		 * Call the next route that is not attempted, and fail over when the call fails.
+		 *
+		 * @param lastError the error of the previous attempt.
+		 */
+		private void attempt(Throwable lastError) {
+
+			if (result.isDone()) {
+				return;
+			}
+			if (deadline != null && !Instant.now().isBefore(deadline)) {
+				result.completeExceptionally(lastError != null ? lastError
+						: new HttpTimeoutException("The call deadline exceeded"));
+				return;
+			}
+
+			Route route = attempted.size() < maxAttempts ? select(attempted) : null;
+			if (route == null) {
+				result.completeExceptionally(lastError);
+				return;
+			}
+			attempted.add(route);
+
+			CompletableFuture<List<String>> call;
+			try {
+				call = route.model.generateMultiTextAsync(translate(langInput, route, deadline));
+			} catch (RuntimeException e) {
+				call = CompletableFuture.failedFuture(e);
+			}
+			pending = call;
+			if (result.isDone()) {
+				// cancelled while calling the route
+				call.cancel(true);
+				return;
+			}
+
+			call.orTimeout(maxLatencyNanos, TimeUnit.NANOSECONDS)
+					.whenComplete((outputs, error) -> this.onResult(route, outputs, error));
+		}
+
+		/**
+		 * Complete the result, or call the next route when the error can succeed on another route.
+		 */
+		private void onResult(Route route, List<String> outputs, Throwable error) {
+
+			if (error == null) {
+				RoutingLanguageModel.this.onResult(route, true);
+				result.complete(outputs);
+				return;
+			}
+
+			// unwrap without throwing, a throw in the callback would leave the result incomplete
+			Throwable cause = ConnHelper.unwrap(error);
+			if (cause instanceof TimeoutException) {
+				cause = new HttpTimeoutException("The route exceeded the maximum latency: "
+						+ route.model.getKeyType());
+			}
+
+			if (result.isDone() || !isFailover(cause)) {
+				result.completeExceptionally(cause);
+				return;
+			}
+
+			RoutingLanguageModel.this.onResult(route, false);
+			this.attempt(cause);
+		}
+	}
+
+	/**
+	 * Select the route by smooth weighted round robin, the ejected routes are used only when
+	 * all the remaining routes are ejected.
+	 *
+	 * @param attempted the routes to skip.
+	 * @return the route or null if all the routes are attempted.
+	 */
+	private synchronized Route select(List<Route> attempted) {
+
+		long now = System.nanoTime();
+		Route selected = this.select(attempted, now, true);
+		if (selected == null) {
+			selected = this.select(attempted, now, false);
+		}
+		return selected;
+	}
+
+	private Route select(List<Route> attempted, long now, boolean skipEjected) {
+
+		Route selected = null;
+		int weights = 0;
+		for (Route route : routes) {
+			if (attempted.contains(route) || (skipEjected && route.isEjected(now))) {
+				continue;
+			}
+			route.current += route.weight;
+			weights += route.weight;
+			if (selected == null || route.current > selected.current) {
+				selected = route;
+			}
+		}
+
+		if (selected != null) {
+			selected.current -= weights;
+		}
+		return selected;
+	}
+
+	/**
+	 * Update the route health after a call.
+	 *
+	 * @param route the called route.
+	 * @param success true if the call returned the outputs.
+	 */
+	private synchronized void onResult(Route route, boolean success) {
+		if (success) {
+			route.failures = 0;
+		} else if (++route.failures >= maxFailures) {
+			route.ejectedUntil = System.nanoTime() + ejectNanos;
+		}
+	}
+
+	/**
+	 * Copy the input with the model name of the route and the time left to the call deadline.
+	 *
+	 * @param langInput the received input.
+	 * @param route the selected route.
+	 * @param deadline the deadline of the whole call, or null.
+	 * @return the route input.
+	 */
+	private LanguageModelInput translate(LanguageModelInput langInput, Route route, Instant deadline) {
+		LanguageModelInput routeInput = new LanguageModelInput(route.modelName, langInput.getPrompt(),
+				langInput.getTemperature(), langInput.getMaxTokens(), langInput.getNumberOfOutputs());
+		if (deadline != null) {
+			routeInput.setTimeout(Duration.between(Instant.now(), deadline));
+		}
+		return routeInput;
+	}
+
+	/**
+	 * Check if the error can succeed on another route, the invalid requests fail on all the routes
+	 * and the cancelled calls are not retried.
+	 *
+	 * @param error the unwrapped call error.
+	 * @return true to try the next route.
+	 */
+	private static boolean isFailover(Throwable error) {
+		if (error instanceof HttpStatusException) {
+			return ((HttpStatusException) error).getStatusCode() != 400;
+		}
+		return !(error instanceof CancellationException);
+	}
+
+	/**
+	 * Gets the number of routes that are not ejected.
+	 *
+	 * @return healthy routes count.
+	 */
+	public synchronized int getHealthyRoutes() {
+		long now = System.nanoTime();
+		int healthy = 0;
+		for (Route route : routes) {
+			healthy += route.isEjected(now) ? 0 : 1;
+		}
+		return healthy;
+	}
+
+	/**
+	 * Gets the route models in the order they were added.
+	 *
+	 * @return unmodifiable list of models.
+	 */
+	public List<RemoteLanguageModel> getModels() {
+		List<RemoteLanguageModel> models = new ArrayList<>();
+		for (Route route : routes) {
+			models.add(route.model);
+		}
+		return Collections.unmodifiableList(models);
+	}
+}
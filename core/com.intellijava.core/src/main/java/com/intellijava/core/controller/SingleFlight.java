@@ -0,0 +1,127 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.controller;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * SingleFlight shares one in-flight call between the concurrent identical requests.
+ *
+ * The first caller sends the request, the callers with the same key until it completes
+ * receive the same outputs or the same failure. Each caller stops waiting at its own deadline or
+ * when it cancels, and the shared call is cancelled when the last caller leaves, so it runs
+ * until the latest caller deadline at most.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class SingleFlight {
+
+	private final Map<String, Flight> inFlight = new HashMap<>();
+
+	/**
+	 * The shared call of one key and its waiting callers.
+	 */
+	private static class Flight {
+		private final CompletableFuture<List<String>> shared = new CompletableFuture<>();
+		private int waiters;
+	}
+
+	/**
+	 * Join the in-flight call of the key or start it.
+	 *
+	 * The shared request is sent without a deadline, a later caller can have a later deadline than
+	 * the first one, and the call is cancelled when the last caller leaves.
+	 *
+	 * @param key the canonical request key.
+	 * @param deadline the time this caller stops waiting, or null.
+	 * @param call sends the request.
+	 * @return future of the outputs, each caller receives its own list copy.
+	 */
+	CompletableFuture<List<String>> execute(String key, Instant deadline,
+			Supplier<CompletableFuture<List<String>>> call) {
+
+		Flight flight;
+		boolean isFirst;
+		synchronized (this) {
+			flight = inFlight.get(key);
+			isFirst = flight == null;
+			if (isFirst) {
+				flight = new Flight();
+				inFlight.put(key, flight);
+			}
+			flight.waiters++;
+		}
+
+		if (isFirst) {
+			this.start(key, flight, call);
+		}
+
+		// a dependent future, so one caller cancel does not cancel the others
+		CompletableFuture<List<String>> waiter = ConnHelper.withDeadline(
+				flight.shared.thenApply(outputs -> new ArrayList<>(outputs)), deadline);
+		Flight joined = flight;
+		waiter.whenComplete((outputs, error) -> this.leave(key, joined));
+		return waiter;
+	}
+
+	private void start(String key, Flight flight, Supplier<CompletableFuture<List<String>>> call) {
+		CompletableFuture<List<String>> sent;
+		try {
+			sent = call.get();
+		} catch (RuntimeException e) {
+			sent = CompletableFuture.failedFuture(e);
+		}
+		// the shared future fails when the last caller leaves, it cancels the call
+		ConnHelper.propagateCancel(sent, flight.shared);
+
+		sent.whenComplete((outputs, error) -> {
+			this.remove(key, flight);
+			if (error != null) {
+				flight.shared.completeExceptionally(error);
+			} else {
+				flight.shared.complete(outputs);
+			}
+		});
+	}
+
+	/**
+	 * Count the caller out, and cancel the shared call when no caller waits for it.
+	 */
+	private void leave(String key, Flight flight) {
+		synchronized (this) {
+			if (--flight.waiters > 0 || flight.shared.isDone()) {
+				return;
+			}
+			this.remove(key, flight);
+		}
+		flight.shared.cancel(true);
+	}
+
+	private synchronized void remove(String key, Flight flight) {
+		inFlight.remove(key, flight);
+	}
+
+}
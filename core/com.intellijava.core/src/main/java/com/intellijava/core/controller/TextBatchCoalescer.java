@@ -0,0 +1,175 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.controller;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import com.intellijava.core.model.input.LanguageModelInput;
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * TextBatchCoalescer holds the concurrent text calls for a short delay and sends them as one batch.
+ *
+ * The queue is flushed when the delay of the first queued call ends or when the max queued calls is reached.
+ * The timed flush sends the batch from a flush thread, so a blocking transport does not hold the shared timer.
+ * Each call keeps the deadline computed when it was submitted, also while it is queued. A call cancelled
+ * or timed out before the flush is not sent, and after the flush it leaves the batch request, which is
+ * cancelled when all its calls left.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class TextBatchCoalescer {
+
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "intellijava-coalescer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final ExecutorService FLUSHER = Executors.newCachedThreadPool(task -> {
+		Thread thread = new Thread(task, "intellijava-coalescer-flush");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final BiFunction<List<LanguageModelInput>, List<Instant>, List<CompletableFuture<List<String>>>> batchCall;
+	private final long maxDelayMillis;
+	private final int maxQueued;
+
+	private List<LanguageModelInput> inputs = new ArrayList<>();
+	private List<CompletableFuture<List<String>>> callers = new ArrayList<>();
+	private List<Instant> deadlines = new ArrayList<>();
+	private ScheduledFuture<?> flushTask;
+
+	/**
+	 * TextBatchCoalescer constructor.
+	 *
+	 * @param batchCall sends the inputs with their deadlines and returns a future for each input.
+	 * @param maxDelayMillis maximum time to hold the first queued call.
+	 * @param maxQueued number of queued calls to flush without waiting.
+	 */
+	TextBatchCoalescer(
+			BiFunction<List<LanguageModelInput>, List<Instant>, List<CompletableFuture<List<String>>>> batchCall,
+			long maxDelayMillis, int maxQueued) {
+		this.batchCall = batchCall;
+		this.maxDelayMillis = maxDelayMillis;
+		this.maxQueued = maxQueued;
+	}
+
+	/**
+	 * Queue the input to the next batch.
+	 *
+	 * @param langInput language model input.
+	 * @param deadline the time to complete the call, or null.
+	 * @return future of the input outputs.
+	 */
+	CompletableFuture<List<String>> submit(LanguageModelInput langInput, Instant deadline) {
+
+		CompletableFuture<List<String>> caller = new CompletableFuture<>();
+		ConnHelper.failAtDeadline(caller, deadline, "The call deadline exceeded");
+		boolean full;
+
+		synchronized (this) {
+			inputs.add(langInput);
+			callers.add(caller);
+			deadlines.add(deadline);
+
+			full = inputs.size() >= maxQueued;
+			if (!full && inputs.size() == 1) {
+				flushTask = SCHEDULER.schedule(() -> FLUSHER.execute(this::flush), maxDelayMillis,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+
+		if (full) {
+			flush();
+		}
+
+		return caller;
+	}
+
+	/**
+	 * Send the queued calls as one batch and pipe each result to its caller.
+	 */
+	void flush() {
+
+		List<LanguageModelInput> batchInputs;
+		List<CompletableFuture<List<String>>> batchCallers;
+		List<Instant> batchDeadlines;
+
+		synchronized (this) {
+			if (inputs.isEmpty()) {
+				return;
+			}
+			if (flushTask != null) {
+				flushTask.cancel(false);
+				flushTask = null;
+			}
+
+			batchInputs = new ArrayList<>();
+			batchCallers = new ArrayList<>();
+			batchDeadlines = new ArrayList<>();
+			for (int i = 0; i < callers.size(); i++) {
+				// the calls cancelled or timed out in the queue are not sent
+				if (!callers.get(i).isDone()) {
+					batchInputs.add(inputs.get(i));
+					batchCallers.add(callers.get(i));
+					batchDeadlines.add(deadlines.get(i));
+				}
+			}
+			inputs = new ArrayList<>();
+			callers = new ArrayList<>();
+			deadlines = new ArrayList<>();
+		}
+
+		if (batchInputs.isEmpty()) {
+			return;
+		}
+
+		List<CompletableFuture<List<String>>> results;
+		try {
+			results = batchCall.apply(batchInputs, batchDeadlines);
+		} catch (RuntimeException e) {
+			batchCallers.forEach(caller -> caller.completeExceptionally(e));
+			return;
+		}
+
+		for (int i = 0; i < batchCallers.size(); i++) {
+			CompletableFuture<List<String>> caller = batchCallers.get(i);
+			CompletableFuture<List<String>> result = results.get(i);
+			result.whenComplete((outputs, error) -> {
+				if (error != null) {
+					caller.completeExceptionally(error);
+				} else {
+					caller.complete(outputs);
+				}
+			});
+			// the caller leaves the batch request when it is cancelled or times out
+			ConnHelper.propagateCancel(result, caller);
+		}
+	}
+}
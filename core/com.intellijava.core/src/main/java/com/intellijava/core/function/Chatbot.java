@@ -1,16 +1,25 @@
 package com.intellijava.core.function;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import com.intellijava.core.cache.ResponseCache;
+import com.intellijava.core.metrics.MetricsRecorder;
+import com.intellijava.core.model.OpenaiChatRequest;
 import com.intellijava.core.model.OpenaiChatResponse;
 import com.intellijava.core.model.OpenaiChatResponse.Choice;
+import com.intellijava.core.model.StreamListener;
+import com.intellijava.core.model.StreamResponse;
 import com.intellijava.core.model.SupportedChatModels;
 import com.intellijava.core.model.input.ChatGPTInput;
 import com.intellijava.core.model.input.ChatModelInput;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.utils.ConnHelper;
 import com.intellijava.core.wrappers.OpenAIWrapper;
 
 /**
@@ -24,6 +33,7 @@ public class Chatbot {
 	
 	private SupportedChatModels keyType;
 	private OpenAIWrapper openaiWrapper;
+	private volatile ResponseCache cache;
 
 	/**
 	 * 
@@ -47,7 +57,7 @@ public class Chatbot {
 		List<String> supportedModels = this.getSupportedModels();
 
 		if (supportedModels.contains(keyTypeString)) {
-			this.initiate(keyValue, SupportedChatModels.valueOf(keyTypeString));
+			this.initiate(keyValue, SupportedChatModels.valueOf(keyTypeString), null);
 		} else {
 			String models = String.join(" - ", supportedModels);
 			throw new IllegalArgumentException("The received keyValue not supported. Send any model from: " + models);
@@ -66,7 +76,21 @@ public class Chatbot {
 	 * 
 	 */
 	public Chatbot(String keyValue, SupportedChatModels keyType) {
-		this.initiate(keyValue, keyType);
+		this.initiate(keyValue, keyType, null);
+	}
+	
+	/**
+	 * Constructor for the Chatbot class with a shared transport.
+	 *
+	 * Use it to share one connection pool between the models or to send the
+	 * requests through your own transport.
+	 *
+	 * @param keyValue  the API key.
+	 * @param keyType   enum version from the key type (SupportedModels).
+	 * @param transport the transport to send the requests.
+	 */
+	public Chatbot(String keyValue, SupportedChatModels keyType, HttpTransport transport) {
+		this.initiate(keyValue, keyType, transport);
 	}
 	
 	/**
@@ -90,17 +114,67 @@ public class Chatbot {
 	 * 
 	 * @param keyValue the API key.
 	 * @param keyType enum version from the key type (SupportedModels).
+	 * @param transport the transport to send the requests, null for the default shared transport.
 	 */
-	private void initiate(String keyValue, SupportedChatModels keyType) {
+	private void initiate(String keyValue, SupportedChatModels keyType, HttpTransport transport) {
 		// set the model type
 		this.keyType = keyType;
 
 		// generate the related model
 		if (keyType.equals(SupportedChatModels.openai)) {
-			this.openaiWrapper = new OpenAIWrapper(keyValue);
+			this.openaiWrapper = new OpenAIWrapper(keyValue, transport);
 		}
 	}
 	
+	/**
+	 * Sets the executor to convert the remote responses for the asynchronous calls.
+	 * 
+	 * @param executor the executor or null to use the transport threads.
+	 */
+	public void setExecutor(Executor executor) {
+		if (openaiWrapper != null) openaiWrapper.setExecutor(executor);
+	}
+
+	/**
+	 * Sets the metrics recorder to measure the latency, the status, the payload sizes,
+	 * the retries and the token usage of each call.
+	 * 
+	 * @param metrics the recorder, example: InMemoryMetrics, or null to disable.
+	 */
+	public void setMetrics(MetricsRecorder metrics) {
+		if (openaiWrapper != null) openaiWrapper.setMetrics(metrics);
+	}
+	
+	/**
+	 * Sets the base url of the chat provider instead of the config.properties value,
+	 * example: http://localhost:8080 for a local mock server.
+	 * 
+	 * @param baseUrl the provider base url, the endpoint paths are appended to it.
+	 */
+	public void setBaseUrl(String baseUrl) {
+		if (openaiWrapper != null) openaiWrapper.setBaseUrl(baseUrl);
+	}
+	
+	/**
+	 * Sets the response cache for the chat calls, the key includes the full messages history.
+	 * 
+	 * The cached outputs are returned as read only lists.
+	 * 
+	 * @param cache the response cache, example: LruResponseCache, or null to disable.
+	 */
+	public void setCache(ResponseCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Gets the response cache.
+	 * 
+	 * @return cache or null if not set.
+	 */
+	public ResponseCache getCache() {
+		return cache;
+	}
+	
 	/**
 	 * 
 	 * Call a chat model to generate response based on the received messages history.
@@ -115,6 +189,20 @@ public class Chatbot {
 	 * 
 	 */
 	public List<String> chat(ChatModelInput modelInput) throws IOException {
+		return ConnHelper.await(this.chatAsync(modelInput));
+	}
+	
+	/**
+	 * 
+	 * Call a chat model to generate response without blocking the caller thread.
+	 * 
+	 * @param modelInput language model parameters.
+	 * 					
+	 * @return future of the model response, completed exceptionally with IOException
+	 *         if there is an error when connecting to the chat model.
+	 * 
+	 */
+	public CompletableFuture<List<String>> chatAsync(ChatModelInput modelInput) {
 
 		if (this.keyType.equals(SupportedChatModels.openai)) {
 			return this.chatGPT((ChatGPTInput) modelInput);
@@ -124,41 +212,109 @@ public class Chatbot {
 	}
 	
 	
+	/**
+	 * 
+	 * Call a chat model and receive the response tokens as they are generated.
+	 * 
+	 * Use StreamPublisher as the listener to consume the tokens with java.util.concurrent.Flow.
+	 * 
+	 * @param modelInput language model parameters.
+	 * @param listener receives the tokens, then the final response with the usage and finish reason.
+	 * 
+	 * @return future of the final response, cancel it to stop the generation.
+	 * 
+	 */
+	public CompletableFuture<StreamResponse> chatStream(ChatModelInput modelInput, StreamListener listener) {
+		
+		if (this.keyType.equals(SupportedChatModels.openai)) {
+			ChatGPTInput chatInput = (ChatGPTInput) modelInput;
+			return openaiWrapper.generateChatTextStream(this.getChatGPTRequest(chatInput), listener, 
+					ConnHelper.deadlineOf(chatInput.getTimeout()));
+		} else {
+			throw new IllegalArgumentException("the keyType not supported");
+		}
+	}
+	
 	/**
 	 * 
 	 * Call a chatGPT to generate response based on the received messages history.
 	 * 
 	 * @param modelInput for chatGPT.
 	 * 
-	 * @return string for the model response.
+	 * @return future of the model response.
+	 */
+	private CompletableFuture<List<String>> chatGPT(ChatGPTInput modelInput) {
+		
+		OpenaiChatRequest request = this.getChatGPTRequest(modelInput);
+		Instant deadline = ConnHelper.deadlineOf(modelInput.getTimeout());
+		ResponseCache activeCache = this.cache;
+		
+		if (activeCache == null || !activeCache.isCacheable(modelInput.getTemperature())) {
+			return this.sendChatGPT(request, deadline);
+		}
+		
+		String key = ResponseCache.createKey(this.keyType.name(), request);
+		List<String> cached = activeCache.get(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(Collections.unmodifiableList(cached));
+		}
+		
+		// the first caller and the cache hits receive the same read only outputs
+		return this.sendChatGPT(request, deadline).thenApply(outputs -> {
+			List<String> copy = Collections.unmodifiableList(new ArrayList<>(outputs));
+			activeCache.put(key, copy);
+			return copy;
+		});
+	}
+	
+	/**
+	 * 
+	 * Send the chatGPT request.
 	 * 
-	 * @throws IOException if there is an error when connecting to the chatGPT.
+	 * @param request the typed chat request.
+	 * @param deadline the time to complete the call, or null.
+	 * @return future of the model responses.
 	 */
-	private List<String> chatGPT(ChatGPTInput modelInput) throws IOException {
+	private CompletableFuture<List<String>> sendChatGPT(OpenaiChatRequest request, Instant deadline) {
 		
-		Map<String, Object> params = new HashMap<>();
-		params.put("model", modelInput.getModel());
-		params.put("messages", modelInput.getMessages());
+		CompletableFuture<OpenaiChatResponse> call = openaiWrapper.generateChatTextAsync(request, deadline);
+		return ConnHelper.propagateCancel(call, call.thenApply(resModel -> {
+			
+			List<String> outputs = new ArrayList<>();
+			for (Choice item : resModel.getChoices()) {
+				outputs.add(item.getMessage().getContent());
+			}
+			
+			return outputs;
+		}));
+	}
+	
+	/**
+	 * 
+	 * Prepare the chatGPT API request from the model input, the messages list is referenced without a copy.
+	 * 
+	 * @param modelInput for chatGPT.
+	 * 
+	 * @return the typed chat request.
+	 */
+	private OpenaiChatRequest getChatGPTRequest(ChatGPTInput modelInput) {
+		
+		OpenaiChatRequest request = new OpenaiChatRequest();
+		request.setModel(modelInput.getModel());
+		request.setMessages(modelInput.getMessages());
 		if (modelInput.getNumberOfOutputs() >= 0) { 
-			params.put("n", modelInput.getNumberOfOutputs());
+			request.setN(modelInput.getNumberOfOutputs());
 		}
 		
 		if (modelInput.getTemperature() >= 0) {
-			params.put("temperature", modelInput.getTemperature());
+			request.setTemperature(modelInput.getTemperature());
 		}
 		
 		if (modelInput.getMaxTokens() >= 1) {
-			params.put("max_tokens", modelInput.getMaxTokens());
-		}
-		
-		OpenaiChatResponse resModel = (OpenaiChatResponse) openaiWrapper.generateChatText(params);
-		
-		List<String> outputs = new ArrayList<>();
-		for (Choice item : resModel.getChoices()) {
-			outputs.add(item.getMessage().getContent());
+			request.setMaxTokens(modelInput.getMaxTokens());
 		}
 		
-		return outputs;
+		return request;
 	}
 	
 
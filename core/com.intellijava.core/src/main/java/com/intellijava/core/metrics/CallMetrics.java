@@ -0,0 +1,370 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.metrics;
+
+import java.util.Arrays;
+
+/**
+ *
+ * CallMetrics holds the measures of one remote model call.
+ *
+ * Use the Builder to create the measures.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class CallMetrics {
+
+	private final String provider;
+	private final String endpoint;
+	private final String model;
+	private final boolean streaming;
+	private final int statusCode;
+	private final Throwable error;
+	private final long durationNanos;
+	private final long timeToFirstByteNanos;
+	private final long[] phaseNanos;
+	private final long bytesSent;
+	private final long bytesReceived;
+	private final int retries;
+	private final long promptTokens;
+	private final long completionTokens;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private CallMetrics(Builder builder) {
+		this.provider = builder.provider;
+		this.endpoint = builder.endpoint;
+		this.model = builder.model;
+		this.streaming = builder.streaming;
+		this.statusCode = builder.statusCode;
+		this.error = builder.error;
+		this.durationNanos = builder.durationNanos;
+		this.timeToFirstByteNanos = builder.timeToFirstByteNanos;
+		this.phaseNanos = builder.phaseNanos.clone();
+		this.bytesSent = builder.bytesSent;
+		this.bytesReceived = builder.bytesReceived;
+		this.retries = builder.retries;
+		this.promptTokens = builder.promptTokens;
+		this.completionTokens = builder.completionTokens;
+	}
+
+	/**
+	 *
+	 * Builder class for CallMetrics.
+	 *
+	 */
+	public static class Builder {
+		private String provider;
+		private String endpoint;
+		private String model;
+		private boolean streaming;
+		private int statusCode;
+		private Throwable error;
+		private long durationNanos;
+		private long timeToFirstByteNanos = -1;
+		private final long[] phaseNanos = new long[CallPhase.values().length];
+		private long bytesSent;
+		private long bytesReceived;
+		private int retries;
+		private long promptTokens = -1;
+		private long completionTokens = -1;
+
+		/**
+		 * Builder constructor with the called provider.
+		 *
+		 * @param provider the provider host, example: api.openai.com
+		 * @param endpoint the endpoint url without the query.
+		 */
+		public Builder(String provider, String endpoint) {
+			this.provider = provider;
+			this.endpoint = endpoint;
+			Arrays.fill(phaseNanos, -1);
+		}
+
+		/**
+		 * Sets the model name.
+		 *
+		 * @param model the model name or null if unknown.
+		 * @return instance of Builder.
+		 */
+		public Builder setModel(String model) {
+			this.model = model;
+			return this;
+		}
+
+		/**
+		 * Sets the streaming mode.
+		 *
+		 * @param streaming true for the streaming calls.
+		 * @return instance of Builder.
+		 */
+		public Builder setStreaming(boolean streaming) {
+			this.streaming = streaming;
+			return this;
+		}
+
+		/**
+		 * Sets the HTTP status code.
+		 *
+		 * @param statusCode the status code, 0 when no response is received.
+		 * @return instance of Builder.
+		 */
+		public Builder setStatusCode(int statusCode) {
+			this.statusCode = statusCode;
+			return this;
+		}
+
+		/**
+		 * Sets the call failure.
+		 *
+		 * @param error the failure or null for the successful calls.
+		 * @return instance of Builder.
+		 */
+		public Builder setError(Throwable error) {
+			this.error = error;
+			return this;
+		}
+
+		/**
+		 * Sets the call duration, until the response is converted or the stream is read.
+		 *
+		 * @param durationNanos the duration in nanoseconds.
+		 * @return instance of Builder.
+		 */
+		public Builder setDurationNanos(long durationNanos) {
+			this.durationNanos = durationNanos;
+			return this;
+		}
+
+		/**
+		 * Sets the time from the call start to the first response byte.
+		 *
+		 * @param timeToFirstByteNanos the time in nanoseconds, -1 if no response is read.
+		 * @return instance of Builder.
+		 */
+		public Builder setTimeToFirstByteNanos(long timeToFirstByteNanos) {
+			this.timeToFirstByteNanos = timeToFirstByteNanos;
+			return this;
+		}
+
+		/**
+		 * Sets the duration of one phase of the call.
+		 *
+		 * @param phase the call phase.
+		 * @param nanos the phase duration in nanoseconds, -1 if not measured.
+		 * @return instance of Builder.
+		 */
+		public Builder setPhaseNanos(CallPhase phase, long nanos) {
+			this.phaseNanos[phase.ordinal()] = nanos;
+			return this;
+		}
+
+		/**
+		 * Sets the written request bytes, of all the attempts.
+		 *
+		 * @param bytesSent the request bytes.
+		 * @return instance of Builder.
+		 */
+		public Builder setBytesSent(long bytesSent) {
+			this.bytesSent = bytesSent;
+			return this;
+		}
+
+		/**
+		 * Sets the read response bytes, after the decompression.
+		 *
+		 * @param bytesReceived the response bytes.
+		 * @return instance of Builder.
+		 */
+		public Builder setBytesReceived(long bytesReceived) {
+			this.bytesReceived = bytesReceived;
+			return this;
+		}
+
+		/**
+		 * Sets the retries before the final response.
+		 *
+		 * @param retries the attempts minus one.
+		 * @return instance of Builder.
+		 */
+		public Builder setRetries(int retries) {
+			this.retries = retries;
+			return this;
+		}
+
+		/**
+		 * Sets the prompt and completion tokens reported by the provider.
+		 *
+		 * @param promptTokens the prompt tokens, -1 if unknown.
+		 * @param completionTokens the completion tokens, -1 if unknown.
+		 * @return instance of Builder.
+		 */
+		public Builder setTokens(long promptTokens, long completionTokens) {
+			this.promptTokens = promptTokens;
+			this.completionTokens = completionTokens;
+			return this;
+		}
+
+		/**
+		 * Build the final CallMetrics object.
+		 *
+		 * @return final CallMetrics object.
+		 */
+		public CallMetrics build() {
+			return new CallMetrics(this);
+		}
+	}
+
+	/**
+	 * Gets the provider host.
+	 *
+	 * @return provider
+	 */
+	public String getProvider() {
+		return provider;
+	}
+
+	/**
+	 * Gets the endpoint url without the query.
+	 *
+	 * @return endpoint
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Gets the model name.
+	 *
+	 * @return model or null if unknown.
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * Check if the call is streaming.
+	 *
+	 * @return true for the streaming calls.
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * Gets the HTTP status code.
+	 *
+	 * @return statusCode, 0 when no response is received.
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Gets the call failure.
+	 *
+	 * @return error or null for the successful calls.
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * Check if the call failed.
+	 *
+	 * @return true if the call completed with an error.
+	 */
+	public boolean isFailed() {
+		return error != null;
+	}
+
+	/**
+	 * Gets the call duration.
+	 *
+	 * @return durationNanos
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	/**
+	 * Gets the time from the call start to the first response byte.
+	 *
+	 * @return timeToFirstByteNanos or -1 if no response is read.
+	 */
+	public long getTimeToFirstByteNanos() {
+		return timeToFirstByteNanos;
+	}
+
+	/**
+	 * Gets the duration of one phase of the call.
+	 *
+	 * @param phase the call phase.
+	 * @return the phase duration in nanoseconds, or -1 if not measured.
+	 */
+	public long getPhaseNanos(CallPhase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * Gets the written request bytes.
+	 *
+	 * @return bytesSent
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Gets the read response bytes.
+	 *
+	 * @return bytesReceived
+	 */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * Gets the retries before the final response.
+	 *
+	 * @return retries
+	 */
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * Gets the prompt tokens.
+	 *
+	 * @return promptTokens or -1 if unknown.
+	 */
+	public long getPromptTokens() {
+		return promptTokens;
+	}
+
+	/**
+	 * Gets the completion tokens.
+	 *
+	 * @return completionTokens or -1 if unknown.
+	 */
+	public long getCompletionTokens() {
+		return completionTokens;
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.metrics;
+
+/**
+ *
+ * CallPhase is a phase of the remote model call, the phases are of the last attempt.
+ *
+ * The DNS, the connect and the TLS handshake are not exposed by HttpClient and they are part of SEND.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public enum CallPhase {
+	/** the json serialization of the request body, including the compression. */
+	SERIALIZE,
+	/** the connection acquisition, or the new connection, and the request write. */
+	SEND,
+	/** from the request written to the response headers, the server time. */
+	WAIT,
+	/** from the response headers to the last body byte, or the end of the stream. */
+	DOWNLOAD,
+	/** the conversion of the response body to the model, including the decompression. */
+	PARSE
+}
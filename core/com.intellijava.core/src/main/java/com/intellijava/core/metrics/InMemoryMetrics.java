@@ -0,0 +1,129 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.metrics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * InMemoryMetrics aggregates the calls per provider and model without locks.
+ *
+ * The counters are LongAdder and the latencies are kept in a LatencyHistogram, so recording
+ * a call does not block the other calls. Use getSnapshots for the percentiles and the totals.
+ *
+ * Example:
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * chatbot.setMetrics(metrics);
+ * ...
+ * metrics.getSnapshots().forEach(System.out::println);
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class InMemoryMetrics implements MetricsRecorder {
+
+	private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+
+	/**
+	 * InMemoryMetrics default constructor.
+	 */
+	public InMemoryMetrics() {
+	}
+
+	/**
+	 * The counters of one provider and model.
+	 */
+	private static class Series {
+		private final String provider;
+		private final String model;
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final EnumMap<CallPhase, LatencyHistogram> phases = new EnumMap<>(CallPhase.class);
+		private final ConcurrentHashMap<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder bytesSent = new LongAdder();
+		private final LongAdder bytesReceived = new LongAdder();
+		private final LongAdder retries = new LongAdder();
+		private final LongAdder promptTokens = new LongAdder();
+		private final LongAdder completionTokens = new LongAdder();
+
+		private Series(String provider, String model) {
+			this.provider = provider;
+			this.model = model;
+			for (CallPhase phase : CallPhase.values()) {
+				phases.put(phase, new LatencyHistogram());
+			}
+		}
+	}
+
+	@Override
+	public void record(CallMetrics call) {
+
+		String model = call.getModel() == null ? "" : call.getModel();
+		Series target = series.computeIfAbsent(call.getProvider() + "|" + model,
+				key -> new Series(call.getProvider(), model));
+
+		target.latency.record(call.getDurationNanos());
+		for (CallPhase phase : CallPhase.values()) {
+			if (call.getPhaseNanos(phase) >= 0) {
+				target.phases.get(phase).record(call.getPhaseNanos(phase));
+			}
+		}
+		target.statusCodes.computeIfAbsent(call.getStatusCode(), code -> new LongAdder()).increment();
+		if (call.isFailed()) {
+			target.errors.increment();
+		}
+		target.bytesSent.add(call.getBytesSent());
+		target.bytesReceived.add(call.getBytesReceived());
+		target.retries.add(call.getRetries());
+		if (call.getPromptTokens() > 0) {
+			target.promptTokens.add(call.getPromptTokens());
+		}
+		if (call.getCompletionTokens() > 0) {
+			target.completionTokens.add(call.getCompletionTokens());
+		}
+	}
+
+	/**
+	 * Gets the snapshot of each provider and model.
+	 *
+	 * @return list of MetricsSnapshot.
+	 */
+	public List<MetricsSnapshot> getSnapshots() {
+		List<MetricsSnapshot> snapshots = new ArrayList<>();
+		for (Series target : series.values()) {
+			Map<Integer, Long> statusCodes = new TreeMap<>();
+			target.statusCodes.forEach((code, calls) -> statusCodes.put(code, calls.sum()));
+			snapshots.add(new MetricsSnapshot(target.provider, target.model, target.latency.getCount(),
+					target.errors.sum(), statusCodes, target.latency, target.phases, target.bytesSent.sum(),
+					target.bytesReceived.sum(), target.retries.sum(), target.promptTokens.sum(),
+					target.completionTokens.sum()));
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Clear the recorded calls.
+	 */
+	public void reset() {
+		series.clear();
+	}
+}
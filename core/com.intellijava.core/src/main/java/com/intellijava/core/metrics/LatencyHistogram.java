@@ -0,0 +1,156 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * LatencyHistogram counts the durations in log-linear buckets without locks.
+ *
+ * Each power of two of microseconds is split into 16 buckets, so the percentiles are within
+ * about 3% of the recorded values, from one microsecond to days, in a fixed array of counters.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class LatencyHistogram {
+
+	/** the buckets per power of two, as a bit count. */
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalMicros = new LongAdder();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	/**
+	 * LatencyHistogram default constructor.
+	 */
+	public LatencyHistogram() {
+	}
+
+	/**
+	 * Record one duration.
+	 *
+	 * @param nanos the duration in nanoseconds.
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		counts.incrementAndGet(indexOf(micros));
+		count.increment();
+		totalMicros.add(micros);
+		maxMicros.accumulateAndGet(micros, Math::max);
+	}
+
+	/**
+	 * Gets the recorded durations count.
+	 *
+	 * @return count
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the mean duration.
+	 *
+	 * @return mean in nanoseconds, or 0 without records.
+	 */
+	public long getMean() {
+		long records = count.sum();
+		return records == 0 ? 0 : totalMicros.sum() / records * 1000;
+	}
+
+	/**
+	 * Gets the longest duration.
+	 *
+	 * @return max in nanoseconds.
+	 */
+	public long getMax() {
+		return maxMicros.get() * 1000;
+	}
+
+	/**
+	 * Gets the duration at the percentile, from the bucket middle.
+	 *
+	 * @param percentile percentile from 0 to 1, example: 0.99
+	 * @return the duration in nanoseconds, or 0 without records.
+	 */
+	public long getPercentile(double percentile) {
+
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(middleOf(i), maxMicros.get()) * 1000;
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Clear the records.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		totalMicros.reset();
+		maxMicros.set(0);
+	}
+
+	/**
+	 * Gets the bucket of the value, the values under 16 have a bucket each.
+	 */
+	private static int indexOf(long micros) {
+		if (micros < SUB_COUNT) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/**
+	 * Gets the middle value of the bucket.
+	 */
+	private static long middleOf(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int exponent = index / SUB_COUNT + SUB_BITS - 1;
+		long width = 1L << (exponent - SUB_BITS);
+		long lower = (SUB_COUNT + index % SUB_COUNT) * width;
+		return lower + width / 2;
+	}
+}
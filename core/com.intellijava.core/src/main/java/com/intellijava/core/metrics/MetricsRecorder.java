@@ -0,0 +1,38 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.metrics;
+
+/**
+ *
+ * MetricsRecorder receives the measures of each remote model call.
+ *
+ * Set it on the wrappers or the controllers with setMetrics to record the latency, the status,
+ * the payload sizes, the retries and the token usage of every call. InMemoryMetrics is the default
+ * lock-free implementation, implement this interface to forward the calls to a metrics library.
+ * The method is called in the thread that completes the call, so it should return quickly.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public interface MetricsRecorder {
+
+	/**
+	 * Record one completed call.
+	 *
+	 * @param call the call measures.
+	 */
+	public void record(CallMetrics call);
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ *
+ * MetricsSnapshot is a snapshot of the recorded calls of one provider and model.
+ *
+ * The latencies are in milliseconds. The phases show where the time goes: the pooling and the
+ * connections in SEND, the provider in WAIT, the payload size in DOWNLOAD and the parsing in PARSE.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class MetricsSnapshot {
+
+	private final String provider;
+	private final String model;
+	private final long calls;
+	private final long errors;
+	private final Map<Integer, Long> statusCodes;
+	private final double meanMillis;
+	private final double p50Millis;
+	private final double p90Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+	private final Map<CallPhase, Double> phaseMeanMillis;
+	private final Map<CallPhase, Double> phaseP99Millis;
+	private final long bytesSent;
+	private final long bytesReceived;
+	private final long retries;
+	private final long promptTokens;
+	private final long completionTokens;
+
+	/**
+	 * MetricsSnapshot constructor.
+	 *
+	 * @param provider the provider host.
+	 * @param model the model name, or empty if unknown.
+	 * @param calls number of the recorded calls.
+	 * @param errors number of the failed calls.
+	 * @param statusCodes number of the calls per status code, 0 for the calls without a response.
+	 * @param latency the latency histogram of the calls.
+	 * @param phases the latency histogram of each call phase.
+	 * @param bytesSent the total request bytes.
+	 * @param bytesReceived the total response bytes.
+	 * @param retries the total retries.
+	 * @param promptTokens the total reported prompt tokens.
+	 * @param completionTokens the total reported completion tokens.
+	 */
+	public MetricsSnapshot(String provider, String model, long calls, long errors, Map<Integer, Long> statusCodes,
+			LatencyHistogram latency, Map<CallPhase, LatencyHistogram> phases, long bytesSent, long bytesReceived, long retries, long promptTokens,
+			long completionTokens) {
+		this.provider = provider;
+		this.model = model;
+		this.calls = calls;
+		this.errors = errors;
+		this.statusCodes = Collections.unmodifiableMap(statusCodes);
+		this.meanMillis = latency.getMean() / 1e6;
+		this.p50Millis = latency.getPercentile(0.5) / 1e6;
+		this.p90Millis = latency.getPercentile(0.9) / 1e6;
+		this.p99Millis = latency.getPercentile(0.99) / 1e6;
+		this.maxMillis = latency.getMax() / 1e6;
+		Map<CallPhase, Double> means = new EnumMap<>(CallPhase.class);
+		Map<CallPhase, Double> tails = new EnumMap<>(CallPhase.class);
+		phases.forEach((phase, histogram) -> {
+			if (histogram.getCount() > 0) {
+				means.put(phase, histogram.getMean() / 1e6);
+				tails.put(phase, histogram.getPercentile(0.99) / 1e6);
+			}
+		});
+		this.phaseMeanMillis = Collections.unmodifiableMap(means);
+		this.phaseP99Millis = Collections.unmodifiableMap(tails);
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+		this.retries = retries;
+		this.promptTokens = promptTokens;
+		this.completionTokens = completionTokens;
+	}
+
+	/**
+	 * Gets the provider host.
+	 *
+	 * @return provider
+	 */
+	public String getProvider() {
+		return provider;
+	}
+
+	/**
+	 * Gets the model name.
+	 *
+	 * @return model or empty if unknown.
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * Gets the number of the recorded calls.
+	 *
+	 * @return calls
+	 */
+	public long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * Gets the number of the failed calls.
+	 *
+	 * @return errors
+	 */
+	public long getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Gets the number of the calls per status code.
+	 *
+	 * @return read only map of status code and calls.
+	 */
+	public Map<Integer, Long> getStatusCodes() {
+		return statusCodes;
+	}
+
+	/**
+	 * Gets the mean latency.
+	 *
+	 * @return meanMillis
+	 */
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	/**
+	 * Gets the median latency.
+	 *
+	 * @return p50Millis
+	 */
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	/**
+	 * Gets the 90th percentile latency.
+	 *
+	 * @return p90Millis
+	 */
+	public double getP90Millis() {
+		return p90Millis;
+	}
+
+	/**
+	 * Gets the 99th percentile latency.
+	 *
+	 * @return p99Millis
+	 */
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	/**
+	 * Gets the longest latency.
+	 *
+	 * @return maxMillis
+	 */
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	/**
+	 * Gets the mean latency of each measured phase.
+	 *
+	 * @return read only map of phase and mean milliseconds.
+	 */
+	public Map<CallPhase, Double> getPhaseMeanMillis() {
+		return phaseMeanMillis;
+	}
+
+	/**
+	 * Gets the 99th percentile latency of each measured phase.
+	 *
+	 * @return read only map of phase and p99 milliseconds.
+	 */
+	public Map<CallPhase, Double> getPhaseP99Millis() {
+		return phaseP99Millis;
+	}
+
+	/**
+	 * Gets the total request bytes.
+	 *
+	 * @return bytesSent
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Gets the total response bytes.
+	 *
+	 * @return bytesReceived
+	 */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * Gets the total retries.
+	 *
+	 * @return retries
+	 */
+	public long getRetries() {
+		return retries;
+	}
+
+	/**
+	 * Gets the total reported prompt tokens.
+	 *
+	 * @return promptTokens
+	 */
+	public long getPromptTokens() {
+		return promptTokens;
+	}
+
+	/**
+	 * Gets the total reported completion tokens.
+	 *
+	 * @return completionTokens
+	 */
+	public long getCompletionTokens() {
+		return completionTokens;
+	}
+
+	@Override
+	public String toString() {
+		return "MetricsSnapshot [" + provider + (model.isEmpty() ? "" : " " + model) + ", calls=" + calls
+				+ ", errors=" + errors + ", status=" + statusCodes
+				+ String.format(", p50=%.1fms, p90=%.1fms, p99=%.1fms, max=%.1fms", p50Millis, p90Millis,
+						p99Millis, maxMillis)
+				+ ", phases=" + phaseMillis()
+				+ ", sent=" + bytesSent + ", received=" + bytesReceived + ", retries=" + retries
+				+ ", promptTokens=" + promptTokens + ", completionTokens=" + completionTokens + "]";
+	}
+
+	/**
+	 * Format the mean phases in milliseconds.
+	 */
+	private String phaseMillis() {
+		StringBuilder text = new StringBuilder("{");
+		phaseMeanMillis.forEach((phase, millis) -> text.append(text.length() > 1 ? ", " : "")
+				.append(phase).append(String.format("=%.2fms", millis)));
+		return text.append('}').toString();
+	}
+}
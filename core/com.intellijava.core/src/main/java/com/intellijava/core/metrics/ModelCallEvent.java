@@ -0,0 +1,146 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ *
+ * ModelCallEvent is the Java Flight Recorder event of one remote model call.
+ *
+ * The wrappers emit it for every call when the event is enabled in the recording, so the provider
+ * latency can be compared with the GC and the CPU in the same recording. When JFR is not recording
+ * the event is not collected. Enable it with:
+ * java -XX:StartFlightRecording:settings=profile,+com.intellijava.ModelCall#enabled=true
+ * or jcmd PID JFR.start, the event is enabled by default in the recordings that include all events.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+@Name("com.intellijava.ModelCall")
+@Label("Remote Model Call")
+@Category({ "IntelliJava", "Remote Models" })
+@Description("A call to a remote model, from the request to the converted response or the end of the stream")
+@StackTrace(false)
+public class ModelCallEvent extends Event {
+
+	@Label("Provider")
+	private String provider;
+
+	@Label("Endpoint")
+	private String endpoint;
+
+	@Label("Model")
+	private String model;
+
+	@Label("Streaming")
+	private boolean streaming;
+
+	@Label("Status Code")
+	@Description("The HTTP status code, 0 when no response is received")
+	private int statusCode;
+
+	@Label("Error")
+	private String error;
+
+	@Label("Request Size")
+	@DataAmount
+	private long requestBytes;
+
+	@Label("Response Size")
+	@DataAmount
+	private long responseBytes;
+
+	@Label("Prompt Tokens")
+	private long promptTokens;
+
+	@Label("Completion Tokens")
+	private long completionTokens;
+
+	@Label("Retries")
+	private int retries;
+
+	@Label("Time To First Byte")
+	@Timespan(Timespan.NANOSECONDS)
+	private long timeToFirstByte;
+
+	@Label("Serialize Time")
+	@Timespan(Timespan.NANOSECONDS)
+	private long serializeTime;
+
+	@Label("Send Time")
+	@Description("The connection acquisition and the request write")
+	@Timespan(Timespan.NANOSECONDS)
+	private long sendTime;
+
+	@Label("Wait Time")
+	@Description("From the request written to the response headers")
+	@Timespan(Timespan.NANOSECONDS)
+	private long waitTime;
+
+	@Label("Download Time")
+	@Timespan(Timespan.NANOSECONDS)
+	private long downloadTime;
+
+	@Label("Parse Time")
+	@Timespan(Timespan.NANOSECONDS)
+	private long parseTime;
+
+	/**
+	 * ModelCallEvent default constructor.
+	 */
+	public ModelCallEvent() {
+	}
+
+	/**
+	 * Copy the call measures to the event fields.
+	 *
+	 * @param call the call measures.
+	 */
+	public void setCall(CallMetrics call) {
+		this.provider = call.getProvider();
+		this.endpoint = call.getEndpoint();
+		this.model = call.getModel();
+		this.streaming = call.isStreaming();
+		this.statusCode = call.getStatusCode();
+		this.error = call.getError() == null ? null : call.getError().toString();
+		this.requestBytes = call.getBytesSent();
+		this.responseBytes = call.getBytesReceived();
+		this.promptTokens = call.getPromptTokens();
+		this.completionTokens = call.getCompletionTokens();
+		this.retries = call.getRetries();
+		this.timeToFirstByte = timespan(call.getTimeToFirstByteNanos());
+		this.serializeTime = timespan(call.getPhaseNanos(CallPhase.SERIALIZE));
+		this.sendTime = timespan(call.getPhaseNanos(CallPhase.SEND));
+		this.waitTime = timespan(call.getPhaseNanos(CallPhase.WAIT));
+		this.downloadTime = timespan(call.getPhaseNanos(CallPhase.DOWNLOAD));
+		this.parseTime = timespan(call.getPhaseNanos(CallPhase.PARSE));
+	}
+
+	/**
+	 * JFR shows the missing timespans as N/A.
+	 */
+	private static long timespan(long nanos) {
+		return nanos < 0 ? Long.MIN_VALUE : nanos;
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ *
+ * CohereLanguageRequest is the typed body of the Cohere generate API.
+ *
+ * @author github.com/Barqawiz
+ */
+public class CohereLanguageRequest {
+
+	private String model;
+	private String prompt;
+	private Float temperature;
+	@SerializedName("max_tokens")
+	private Integer maxTokens;
+	@SerializedName("num_generations")
+	private Integer numGenerations;
+
+	/**
+	 * CohereLanguageRequest default constructor.
+	 */
+	public CohereLanguageRequest() {
+	}
+
+	/**
+	 * Gets the model name.
+	 *
+	 * @return model
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * Sets the model name.
+	 *
+	 * @param model the model name, either medium or xlarge.
+	 */
+	public void setModel(String model) {
+		this.model = model;
+	}
+
+	/**
+	 * Gets the prompt.
+	 *
+	 * @return prompt
+	 */
+	public String getPrompt() {
+		return prompt;
+	}
+
+	/**
+	 * Sets the prompt.
+	 *
+	 * @param prompt text of the required action or the question.
+	 */
+	public void setPrompt(String prompt) {
+		this.prompt = prompt;
+	}
+
+	/**
+	 * Gets the temperature.
+	 *
+	 * @return temperature
+	 */
+	public Float getTemperature() {
+		return temperature;
+	}
+
+	/**
+	 * Sets the temperature.
+	 *
+	 * @param temperature higher values means more risks and creativity.
+	 */
+	public void setTemperature(Float temperature) {
+		this.temperature = temperature;
+	}
+
+	/**
+	 * Gets the maxTokens.
+	 *
+	 * @return maxTokens
+	 */
+	public Integer getMaxTokens() {
+		return maxTokens;
+	}
+
+	/**
+	 * Sets the maxTokens.
+	 *
+	 * @param maxTokens maximum size of the model input and output.
+	 */
+	public void setMaxTokens(Integer maxTokens) {
+		this.maxTokens = maxTokens;
+	}
+
+	/**
+	 * Gets the number of generations.
+	 *
+	 * @return numGenerations
+	 */
+	public Integer getNumGenerations() {
+		return numGenerations;
+	}
+
+	/**
+	 * Sets the number of generations.
+	 *
+	 * @param numGenerations number of model outputs.
+	 */
+	public void setNumGenerations(Integer numGenerations) {
+		this.numGenerations = numGenerations;
+	}
+}
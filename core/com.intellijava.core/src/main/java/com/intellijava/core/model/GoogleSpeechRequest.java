@@ -0,0 +1,169 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.model;
+
+/**
+ *
+ * GoogleSpeechRequest is the typed body of the Google text:synthesize API.
+ *
+ * @author github.com/Barqawiz
+ */
+public class GoogleSpeechRequest {
+
+	private Input input;
+	private Voice voice;
+	private AudioConfig audioConfig;
+
+	/**
+	 * GoogleSpeechRequest constructor with the synthesize details, the audio encoding is MP3.
+	 *
+	 * @param text the text to convert to speech.
+	 * @param languageCode the language code, example: en-GB.
+	 * @param name the voice name, example: en-GB-Standard-A.
+	 * @param ssmlGender FEMALE or MALE.
+	 */
+	public GoogleSpeechRequest(String text, String languageCode, String name, String ssmlGender) {
+		this.input = new Input(text);
+		this.voice = new Voice(languageCode, name, ssmlGender);
+		this.audioConfig = new AudioConfig("MP3");
+	}
+
+	/**
+	 * Input is a nested class for the text input.
+	 */
+	public static class Input {
+		private String text;
+
+		/**
+		 * Input constructor.
+		 *
+		 * @param text the text to convert to speech.
+		 */
+		public Input(String text) {
+			this.text = text;
+		}
+
+		/**
+		 * Gets the text.
+		 *
+		 * @return text
+		 */
+		public String getText() {
+			return text;
+		}
+	}
+
+	/**
+	 * Voice is a nested class for the voice selection.
+	 */
+	public static class Voice {
+		private String languageCode;
+		private String name;
+		private String ssmlGender;
+
+		/**
+		 * Voice constructor.
+		 *
+		 * @param languageCode the language code.
+		 * @param name the voice name.
+		 * @param ssmlGender FEMALE or MALE.
+		 */
+		public Voice(String languageCode, String name, String ssmlGender) {
+			this.languageCode = languageCode;
+			this.name = name;
+			this.ssmlGender = ssmlGender;
+		}
+
+		/**
+		 * Gets the language code.
+		 *
+		 * @return languageCode
+		 */
+		public String getLanguageCode() {
+			return languageCode;
+		}
+
+		/**
+		 * Gets the voice name.
+		 *
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the voice gender.
+		 *
+		 * @return ssmlGender
+		 */
+		public String getSsmlGender() {
+			return ssmlGender;
+		}
+	}
+
+	/**
+	 * AudioConfig is a nested class for the output audio format.
+	 */
+	public static class AudioConfig {
+		private String audioEncoding;
+
+		/**
+		 * AudioConfig constructor.
+		 *
+		 * @param audioEncoding the audio encoding, example: MP3.
+		 */
+		public AudioConfig(String audioEncoding) {
+			this.audioEncoding = audioEncoding;
+		}
+
+		/**
+		 * Gets the audio encoding.
+		 *
+		 * @return audioEncoding
+		 */
+		public String getAudioEncoding() {
+			return audioEncoding;
+		}
+	}
+
+	/**
+	 * Gets the text input.
+	 *
+	 * @return input
+	 */
+	public Input getInput() {
+		return input;
+	}
+
+	/**
+	 * Gets the voice selection.
+	 *
+	 * @return voice
+	 */
+	public Voice getVoice() {
+		return voice;
+	}
+
+	/**
+	 * Gets the audio configuration.
+	 *
+	 * @return audioConfig
+	 */
+	public AudioConfig getAudioConfig() {
+		return audioConfig;
+	}
+}
@@ -32,6 +32,7 @@ public class OpenaiChatResponse extends BaseRemoteModel {
      */
     public static class Choice {
         private Message message;
+        private Message delta;
         private String finish_reason;
         private int index;
         
@@ -60,6 +61,24 @@ public class OpenaiChatResponse extends BaseRemoteModel {
             this.message = message;
         }
 
+        /**
+         * Gets the partial message of a streaming chunk.
+         * 
+         * @return delta the new text since the previous chunk.
+         */
+        public Message getDelta() {
+            return delta;
+        }
+        
+        /**
+         * Sets the partial message of a streaming chunk.
+         * 
+         * @param delta the new text since the previous chunk.
+         */
+        public void setDelta(Message delta) {
+            this.delta = delta;
+        }
+        
         /**
          * Gets the reason to end the message for validating missing response reasons.
          *  
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.model;
+
+/**
+ *
+ * OpenaiImageRequest is the typed body of the OpenAI image generation API.
+ *
+ * @author github.com/Barqawiz
+ */
+public class OpenaiImageRequest {
+
+	private String prompt;
+	private Integer n;
+	private String size;
+
+	/**
+	 * OpenaiImageRequest default constructor.
+	 */
+	public OpenaiImageRequest() {
+	}
+
+	/**
+	 * Gets the prompt.
+	 *
+	 * @return prompt
+	 */
+	public String getPrompt() {
+		return prompt;
+	}
+
+	/**
+	 * Sets the prompt.
+	 *
+	 * @param prompt text of the required image.
+	 */
+	public void setPrompt(String prompt) {
+		this.prompt = prompt;
+	}
+
+	/**
+	 * Gets the number of images.
+	 *
+	 * @return n
+	 */
+	public Integer getN() {
+		return n;
+	}
+
+	/**
+	 * Sets the number of images.
+	 *
+	 * @param n number of the generated images.
+	 */
+	public void setN(Integer n) {
+		this.n = n;
+	}
+
+	/**
+	 * Gets the image size.
+	 *
+	 * @return size
+	 */
+	public String getSize() {
+		return size;
+	}
+
+	/**
+	 * Sets the image size.
+	 *
+	 * @param size 256x256, 512x512, or 1024x1024.
+	 */
+	public void setSize(String size) {
+		this.size = size;
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.model;
+
+import java.util.List;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ *
+ * OpenaiLanguageRequest is the typed body of the OpenAI completions API.
+ *
+ * The null fields are not sent.
+ *
+ * @author github.com/Barqawiz
+ */
+public class OpenaiLanguageRequest {
+
+	private String model;
+	private Object prompt;
+	private Float temperature;
+	@SerializedName("max_tokens")
+	private Integer maxTokens;
+	private Integer n;
+	private Boolean stream;
+	@SerializedName("stream_options")
+	private StreamOptions streamOptions;
+
+	/**
+	 * OpenaiLanguageRequest default constructor.
+	 */
+	public OpenaiLanguageRequest() {
+	}
+
+	/**
+	 * OpenaiLanguageRequest copy constructor, the copy shares the prompt value with the other request.
+	 *
+	 * @param other the request to copy.
+	 */
+	public OpenaiLanguageRequest(OpenaiLanguageRequest other) {
+		this.model = other.model;
+		this.prompt = other.prompt;
+		this.temperature = other.temperature;
+		this.maxTokens = other.maxTokens;
+		this.n = other.n;
+		this.stream = other.stream;
+		this.streamOptions = other.streamOptions;
+	}
+
+	/**
+	 * StreamOptions is a nested class for the streaming options.
+	 */
+	public static class StreamOptions {
+		@SerializedName("include_usage")
+		private boolean includeUsage;
+
+		/**
+		 * StreamOptions constructor.
+		 *
+		 * @param includeUsage send the usage in the last chunk.
+		 */
+		public StreamOptions(boolean includeUsage) {
+			this.includeUsage = includeUsage;
+		}
+
+		/**
+		 * Check if the usage included in the last chunk.
+		 *
+		 * @return includeUsage
+		 */
+		public boolean isIncludeUsage() {
+			return includeUsage;
+		}
+	}
+
+	/**
+	 * Gets the model name.
+	 *
+	 * @return model
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * Sets the model name.
+	 *
+	 * @param model the model name, example: text-davinci-003.
+	 */
+	public void setModel(String model) {
+		this.model = model;
+	}
+
+	/**
+	 * Gets the prompt.
+	 *
+	 * @return prompt, a string or a list of strings for batch request.
+	 */
+	public Object getPrompt() {
+		return prompt;
+	}
+
+	/**
+	 * Sets the prompt.
+	 *
+	 * @param prompt text of the required action or the question.
+	 */
+	public void setPrompt(String prompt) {
+		this.prompt = prompt;
+	}
+
+	/**
+	 * Sets multiple prompts to complete in one request.
+	 *
+	 * The response choices of the prompt i start from index i * n.
+	 *
+	 * @param prompts list of prompts.
+	 */
+	public void setPrompts(List<String> prompts) {
+		this.prompt = prompts;
+	}
+
+	/**
+	 * Gets the temperature.
+	 *
+	 * @return temperature
+	 */
+	public Float getTemperature() {
+		return temperature;
+	}
+
+	/**
+	 * Sets the temperature.
+	 *
+	 * @param temperature higher values means more risks and creativity.
+	 */
+	public void setTemperature(Float temperature) {
+		this.temperature = temperature;
+	}
+
+	/**
+	 * Gets the maxTokens.
+	 *
+	 * @return maxTokens
+	 */
+	public Integer getMaxTokens() {
+		return maxTokens;
+	}
+
+	/**
+	 * Sets the maxTokens.
+	 *
+	 * @param maxTokens maximum size of the model input and output.
+	 */
+	public void setMaxTokens(Integer maxTokens) {
+		this.maxTokens = maxTokens;
+	}
+
+	/**
+	 * Gets the number of outputs.
+	 *
+	 * @return n
+	 */
+	public Integer getN() {
+		return n;
+	}
+
+	/**
+	 * Sets the number of outputs.
+	 *
+	 * @param n number of model outputs.
+	 */
+	public void setN(Integer n) {
+		this.n = n;
+	}
+
+	/**
+	 * Gets the streaming flag.
+	 *
+	 * @return stream
+	 */
+	public Boolean getStream() {
+		return stream;
+	}
+
+	/**
+	 * Sets the streaming flag.
+	 *
+	 * @param stream true to receive server-sent events.
+	 */
+	public void setStream(Boolean stream) {
+		this.stream = stream;
+	}
+
+	/**
+	 * Gets the streaming options.
+	 *
+	 * @return streamOptions
+	 */
+	public StreamOptions getStreamOptions() {
+		return streamOptions;
+	}
+
+	/**
+	 * Sets the streaming options.
+	 *
+	 * @param streamOptions the streaming options.
+	 */
+	public void setStreamOptions(StreamOptions streamOptions) {
+		this.streamOptions = streamOptions;
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.model;
+
+/**
+ *
+ * StreamListener receives the generated tokens of a streaming call as they arrive.
+ *
+ * The methods are called from the thread that reads the response, keep them short
+ * or hand the work to another executor.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public interface StreamListener {
+
+	/**
+	 * Called for every text delta received from the model.
+	 *
+	 * @param index the output index, zero unless multiple outputs requested.
+	 * @param token the new generated text.
+	 */
+	public void onToken(int index, String token);
+
+	/**
+	 * Called once after the last chunk with the full outputs and the usage.
+	 *
+	 * @param response the final stream response.
+	 */
+	public default void onComplete(StreamResponse response) {
+	}
+
+	/**
+	 * Called once if the stream failed or cancelled.
+	 *
+	 * @param error the failure reason.
+	 */
+	public default void onError(Throwable error) {
+	}
+}
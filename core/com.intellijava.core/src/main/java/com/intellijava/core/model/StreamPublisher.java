@@ -0,0 +1,79 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.model;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ *
+ * StreamPublisher adapts a streaming call to java.util.concurrent.Flow.
+ *
+ * Subscribe to receive the tokens of the first output, then pass the publisher as the
+ * StreamListener of the streaming call. The final response is available after the
+ * subscribers complete.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class StreamPublisher extends SubmissionPublisher<String> implements StreamListener {
+
+	private volatile StreamResponse response;
+
+	/**
+	 * StreamPublisher default constructor with the common pool executor.
+	 */
+	public StreamPublisher() {
+		super();
+	}
+
+	/**
+	 * StreamPublisher constructor with a custom executor and subscriber buffer.
+	 *
+	 * @param executor the executor to deliver the tokens.
+	 * @param maxBufferCapacity the maximum buffered tokens per subscriber.
+	 */
+	public StreamPublisher(Executor executor, int maxBufferCapacity) {
+		super(executor, maxBufferCapacity);
+	}
+
+	@Override
+	public void onToken(int index, String token) {
+		if (index == 0) {
+			submit(token);
+		}
+	}
+
+	@Override
+	public void onComplete(StreamResponse response) {
+		this.response = response;
+		close();
+	}
+
+	@Override
+	public void onError(Throwable error) {
+		closeExceptionally(error);
+	}
+
+	/**
+	 * Gets the final response with the finish reason and usage.
+	 *
+	 * @return the final response or null before the stream completes.
+	 */
+	public StreamResponse getResponse() {
+		return response;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * StreamResponse represents the final result of a streaming call after the last chunk.
+ *
+ * It holds the full text of every output, the finish reasons and the token usage
+ * when the provider sends it.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class StreamResponse extends BaseRemoteModel {
+
+	private String model;
+	private List<String> outputs = new ArrayList<>();
+	private List<String> finishReasons = new ArrayList<>();
+	private int promptTokens;
+	private int completionTokens;
+	private int totalTokens;
+
+	/**
+	 * StreamResponse default constructor.
+	 */
+	public StreamResponse() {
+	}
+
+	/**
+	 * Gets the name of the language model.
+	 *
+	 * @return the model name used to generate the response.
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * Sets the name of the language model.
+	 *
+	 * @param model the model name used to generate the response.
+	 */
+	public void setModel(String model) {
+		this.model = model;
+	}
+
+	/**
+	 * Gets the full text of the outputs ordered by the choice index.
+	 *
+	 * @return list of the model outputs.
+	 */
+	public List<String> getOutputs() {
+		return outputs;
+	}
+
+	/**
+	 * Sets the full text of the outputs.
+	 *
+	 * @param outputs list of the model outputs.
+	 */
+	public void setOutputs(List<String> outputs) {
+		this.outputs = outputs;
+	}
+
+	/**
+	 * Gets the finish reason of the outputs ordered by the choice index.
+	 *
+	 * @return list of finish reasons, like stop or length.
+	 */
+	public List<String> getFinishReasons() {
+		return finishReasons;
+	}
+
+	/**
+	 * Sets the finish reason of the outputs.
+	 *
+	 * @param finishReasons list of finish reasons.
+	 */
+	public void setFinishReasons(List<String> finishReasons) {
+		this.finishReasons = finishReasons;
+	}
+
+	/**
+	 * Gets the number of the prompt tokens.
+	 *
+	 * @return prompt tokens or zero if the provider did not send the usage.
+	 */
+	public int getPromptTokens() {
+		return promptTokens;
+	}
+
+	/**
+	 * Sets the number of the prompt tokens.
+	 *
+	 * @param promptTokens prompt tokens.
+	 */
+	public void setPromptTokens(int promptTokens) {
+		this.promptTokens = promptTokens;
+	}
+
+	/**
+	 * Gets the number of the generated tokens.
+	 *
+	 * @return completion tokens or zero if the provider did not send the usage.
+	 */
+	public int getCompletionTokens() {
+		return completionTokens;
+	}
+
+	/**
+	 * Sets the number of the generated tokens.
+	 *
+	 * @param completionTokens completion tokens.
+	 */
+	public void setCompletionTokens(int completionTokens) {
+		this.completionTokens = completionTokens;
+	}
+
+	/**
+	 * Gets the total number of tokens.
+	 *
+	 * @return total tokens or zero if the provider did not send the usage.
+	 */
+	public int getTotalTokens() {
+		return totalTokens;
+	}
+
+	/**
+	 * Sets the total number of tokens.
+	 *
+	 * @param totalTokens total tokens.
+	 */
+	public void setTotalTokens(int totalTokens) {
+		this.totalTokens = totalTokens;
+	}
+}
@@ -1,5 +1,6 @@
 package com.intellijava.core.model.input;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,6 +20,7 @@ public class ChatGPTInput extends ChatModelInput {
 	private float temperature = 1;
 	private int numberOfOutputs = 1;
 	private int maxTokens;
+	private Duration timeout;
 
 	/**
 	 * Create ChatGPT input object with the system instruction.
@@ -61,6 +63,7 @@ public class ChatGPTInput extends ChatModelInput {
 		this.numberOfOutputs = builder.numberOfOutputs;
 		this.maxTokens = builder.maxTokens;
 		this.model = builder.model;
+		this.timeout = builder.timeout;
 	}
 
 	/**
@@ -75,6 +78,7 @@ public class ChatGPTInput extends ChatModelInput {
 		private float temperature = 1;
 		private int numberOfOutputs = 1;
 		private int maxTokens;
+		private Duration timeout;
 
 		/**
 		 * Builder for ChatGPTInput with the system or chatbot instructions.
@@ -172,6 +176,18 @@ public class ChatGPTInput extends ChatModelInput {
 			return this;
 		}
 
+		/**
+		 * Sets the timeout.
+		 * 
+		 * @param timeout total time of the call, the call is cancelled and fails
+		 *                with HttpTimeoutException after it. Null for no deadline.
+		 * @return instance of Builder.
+		 */
+		public Builder setTimeout(Duration timeout) {
+			this.timeout = timeout;
+			return this;
+		}
+
 		/**
 		 * Build the final ChatGPTInput object.
 		 * 
@@ -317,4 +333,22 @@ public class ChatGPTInput extends ChatModelInput {
 		this.model = model;
 	}
 
+	/**
+	 * Gets the timeout.
+	 * 
+	 * @return timeout or null for no deadline.
+	 */
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Sets the timeout.
+	 * 
+	 * @param timeout total time of the call, null for no deadline.
+	 */
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
 }
@@ -15,6 +15,8 @@
  */
 package com.intellijava.core.model.input;
 
+import java.time.Duration;
+
 /**
  * 
  * ImageModelInput handle the input parameters for the majority of the remote image models.
@@ -27,6 +29,7 @@ public class ImageModelInput {
 	private String prompt;
     private int numberOfImages;
     private String imageSize;
+    private Duration timeout;
     
     /**
      * Private Constructor for the Builder.
@@ -36,6 +39,7 @@ public class ImageModelInput {
     	this.prompt = builder.prompt;
         this.numberOfImages = builder.numberOfImages;
         this.imageSize = builder.imageSize;
+        this.timeout = builder.timeout;
     }
     
     
@@ -63,6 +67,7 @@ public class ImageModelInput {
         private String prompt;
         private int numberOfImages;
         private String imageSize;
+        private Duration timeout;
         /**
          * Image input Constructor.
          * @param prompt : the text of the required action or the question.
@@ -101,6 +106,17 @@ public class ImageModelInput {
             return this;
         }
 
+        /**
+         *  Setter for timeout
+         * @param timeout : total time of the call, the call is cancelled and fails
+         *                  with HttpTimeoutException after it. Null for no deadline.
+         * @return instance of Builder
+         */
+        public Builder setTimeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
         /**
          * Build the final ImageModelInput object.
          * @return final ImageModelInput object
@@ -161,6 +177,22 @@ public class ImageModelInput {
 	public void setImageSize(String imageSize) {
 		this.imageSize = imageSize;
 	}
-    
-}
 
+	/**
+	 * Getter for timeout.
+	 * @return timeout or null for no deadline.
+	 */
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Setter for timeout.
+	 * 
+	 * @param timeout total time of the call, null for no deadline.
+	 */
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+}
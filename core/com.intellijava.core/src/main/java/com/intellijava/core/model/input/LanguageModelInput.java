@@ -1,5 +1,7 @@
 package com.intellijava.core.model.input;
 
+import java.time.Duration;
+
 /**
  * 
  * LanguageModelInput handle the input parameters for the majority of the remote language models.
@@ -18,6 +20,7 @@ public class LanguageModelInput {
 	private float temperature; 
 	private int maxTokens;
 	private int numberOfOutputs = 1;
+	private Duration timeout;
 	
     /**
      * Private Constructor for the Builder.
@@ -29,6 +32,7 @@ public class LanguageModelInput {
         this.temperature = builder.temperature;
         this.maxTokens = builder.maxTokens;
         this.numberOfOutputs = builder.numberOfOutputs;
+        this.timeout = builder.timeout;
     }
     
     
@@ -63,6 +67,7 @@ public class LanguageModelInput {
         private float temperature;
         private int maxTokens;
         private int numberOfOutputs = 1;
+        private Duration timeout;
 
         /**
          * Language input Constructor.
@@ -132,6 +137,17 @@ public class LanguageModelInput {
     		return this;
     	}
 
+        /**
+         *  Sets the timeout.
+         * @param timeout total time of the call, the call is cancelled and fails
+         *                with HttpTimeoutException after it. Null for no deadline.
+         * @return instance of Builder
+         */
+        public Builder setTimeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
         /**
          * Build the final LanguageModelInput object.
          * @return final LanguageModelInput object
@@ -226,6 +242,23 @@ public class LanguageModelInput {
 	public void setNumberOfOutputs(int numberOfOutputs) {
 		this.numberOfOutputs = numberOfOutputs;
 	}
-    
-}
 
+	/**
+	 * Gets the timeout.
+	 * 
+	 * @return timeout or null for no deadline.
+	 */
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Sets the timeout.
+	 * 
+	 * @param timeout total time of the call, null for no deadline.
+	 */
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.intellijava.core.model.input;
 
+import java.time.Duration;
+
 /**
  * SpeechTextInput class represents the speech input with the provided text and gender.
  * 
@@ -20,6 +22,11 @@ public class Text2SpeechInput {
      */
     private Gender gender;
 
+    /**
+     * The total time of the call, null for no deadline.
+     */
+    private Duration timeout;
+
     /**
      * Constructor to create a new SpeechInput object with provided text and gender.
      * 
@@ -39,6 +46,7 @@ public class Text2SpeechInput {
     private Text2SpeechInput(Builder builder) {
         this.text = builder.text;
         this.gender = builder.gender;
+        this.timeout = builder.timeout;
     }
     
     /**
@@ -57,6 +65,11 @@ public class Text2SpeechInput {
          */
         private Gender gender = Gender.FEMALE;
 
+        /**
+         * The total time of the call, null for no deadline.
+         */
+        private Duration timeout;
+
         /**
          * Constructor that creates a new Builder object with the provided text.
          * 
@@ -87,6 +100,17 @@ public class Text2SpeechInput {
             return this;
         }
 
+        /**
+         * Setter for the call timeout.
+         * @param timeout total time of the call, the call is cancelled and fails
+         *                with HttpTimeoutException after it. Null for no deadline.
+         * @return the current instance of the Builder.
+         */
+        public Builder setTimeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
         /**
          * Build a new instance of SpeechInput with the values set in the Builder.
          * @return a new instance of SpeechInput.
@@ -128,10 +152,27 @@ public class Text2SpeechInput {
         this.gender = gender;
     }
 
+    /**
+     * Getter for the call timeout.
+     * @return the timeout or null for no deadline.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Setter for the call timeout.
+     * @param timeout total time of the call, null for no deadline.
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
     /**
      * Enum for the speech input gender.
      */
     public enum Gender {
         /** female voice */FEMALE, /** male voice */MALE;
     }
+
 }
@@ -0,0 +1,349 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * AdaptiveConcurrencyTransport limits the concurrent calls of each provider host with an
+ * additive increase, multiplicative decrease (AIMD) limit.
+ *
+ * The limit grows by about one permit per limit successful calls while the latency is stable and the
+ * permits are used, and it is multiplied by the backoff ratio on 429, 503, connection errors, timeouts
+ * or when the latency exceeds the tolerance times the smoothed baseline. The calls above the limit
+ * wait in a queue without holding a thread, and are rejected with RequestRejectedException when the
+ * queue is full. For the streaming requests the permit is released when the headers arrive.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class AdaptiveConcurrencyTransport extends DelegatingTransport {
+
+	/** the baseline latency smoothing, a slow average that follows the lasting latency changes. */
+	private static final double BASELINE_SMOOTHING = 0.02;
+
+	private final int initialLimit;
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+	private final double latencyTolerance;
+	private final int maxQueueSize;
+	private final ConcurrentHashMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private AdaptiveConcurrencyTransport(Builder builder) {
+		super(builder.delegate);
+		this.initialLimit = builder.initialLimit;
+		this.minLimit = builder.minLimit;
+		this.maxLimit = builder.maxLimit;
+		this.backoffRatio = builder.backoffRatio;
+		this.latencyTolerance = builder.latencyTolerance;
+		this.maxQueueSize = builder.maxQueueSize;
+	}
+
+	/**
+	 *
+	 * Builder class for AdaptiveConcurrencyTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private int initialLimit = 10;
+		private int minLimit = 1;
+		private int maxLimit = 200;
+		private double backoffRatio = 0.9;
+		private double latencyTolerance = 2;
+		private int maxQueueSize = 1000;
+
+		/**
+		 * Builder constructor with the transport to send the requests.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 */
+		public Builder(HttpTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets the concurrent calls limit of a new provider, default is 10.
+		 *
+		 * @param initialLimit the first limit.
+		 * @return instance of Builder.
+		 */
+		public Builder setInitialLimit(int initialLimit) {
+			this.initialLimit = initialLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the lowest limit, default is 1.
+		 *
+		 * @param minLimit the minimum concurrent calls.
+		 * @return instance of Builder.
+		 */
+		public Builder setMinLimit(int minLimit) {
+			this.minLimit = minLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the highest limit, default is 200.
+		 *
+		 * @param maxLimit the maximum concurrent calls.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the limit multiplier on overload, default is 0.9.
+		 *
+		 * @param backoffRatio ratio from 0 to 1.
+		 * @return instance of Builder.
+		 */
+		public Builder setBackoffRatio(double backoffRatio) {
+			this.backoffRatio = backoffRatio;
+			return this;
+		}
+
+		/**
+		 * Sets the latency to the baseline ratio that counts as overload, default is 2.
+		 *
+		 * @param latencyTolerance the latency inflation ratio.
+		 * @return instance of Builder.
+		 */
+		public Builder setLatencyTolerance(double latencyTolerance) {
+			this.latencyTolerance = latencyTolerance;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum calls waiting for a permit per provider, default is 1000.
+		 *
+		 * @param maxQueueSize the queue size, zero to reject the calls above the limit.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxQueueSize(int maxQueueSize) {
+			this.maxQueueSize = maxQueueSize;
+			return this;
+		}
+
+		/**
+		 * Build the final AdaptiveConcurrencyTransport object.
+		 *
+		 * @return final AdaptiveConcurrencyTransport object.
+		 */
+		public AdaptiveConcurrencyTransport build() {
+			return new AdaptiveConcurrencyTransport(this);
+		}
+	}
+
+	/**
+	 * The limit, the calls in flight and the waiting calls of one provider.
+	 */
+	private class Limiter {
+		private final String host;
+		private final ArrayDeque<CompletableFuture<Void>> queue = new ArrayDeque<>();
+		private double limit = initialLimit;
+		private int inFlight;
+		private double baselineNanos = -1;
+
+		private Limiter(String host) {
+			this.host = host;
+		}
+
+		private CompletableFuture<Void> acquire() {
+			synchronized (this) {
+				if (inFlight < (int) limit) {
+					inFlight++;
+					return CompletableFuture.completedFuture(null);
+				}
+				if (queue.size() < maxQueueSize) {
+					CompletableFuture<Void> permit = new CompletableFuture<>();
+					queue.add(permit);
+					return permit;
+				}
+			}
+			return CompletableFuture.failedFuture(new RequestRejectedException(
+					"The concurrency queue is full for " + host));
+		}
+
+		/**
+		 * Remove a permit cancelled or timed out while queued.
+		 */
+		private synchronized void discard(CompletableFuture<Void> permit) {
+			queue.remove(permit);
+		}
+
+		/**
+		 * Adjust the limit from the call outcome, then pass the free permits to the waiting calls.
+		 *
+		 * @param latencyNanos the call latency, negative for the cancelled calls that keep the limit.
+		 * @param overload true for 429, 503, timeouts or connection errors.
+		 */
+		private void release(long latencyNanos, boolean overload) {
+
+			List<CompletableFuture<Void>> granted = new ArrayList<>();
+			synchronized (this) {
+				boolean saturated = inFlight >= limit / 2;
+				inFlight--;
+
+				if (latencyNanos >= 0) {
+					this.adjust(latencyNanos, overload, saturated);
+				}
+
+				while (inFlight < (int) limit && !queue.isEmpty()) {
+					CompletableFuture<Void> permit = queue.poll();
+					if (!permit.isDone()) {
+						inFlight++;
+						granted.add(permit);
+					}
+				}
+			}
+
+			for (CompletableFuture<Void> permit : granted) {
+				if (!permit.complete(null)) {
+					// cancelled while granted, return its permit
+					this.release(-1, false);
+				}
+			}
+		}
+
+		/**
+		 * Cut the limit on overload or latency inflation, or raise it when the permits are used.
+		 */
+		private void adjust(long latencyNanos, boolean overload, boolean saturated) {
+
+			if (!overload && baselineNanos > 0 && latencyNanos > baselineNanos * latencyTolerance) {
+				overload = true;
+			}
+
+			if (overload) {
+				limit = Math.max(minLimit, limit * backoffRatio);
+				return;
+			}
+
+			baselineNanos = baselineNanos < 0 ? latencyNanos
+					: baselineNanos + BASELINE_SMOOTHING * (latencyNanos - baselineNanos);
+			if (saturated) {
+				limit = Math.min(maxLimit, limit + 1 / limit);
+			}
+		}
+
+		private synchronized ConcurrencyStatus status() {
+			return new ConcurrencyStatus(host, (int) limit, inFlight, queue.size());
+		}
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		String host = Credentials.hostOf(request);
+		Limiter limiter = limiters.computeIfAbsent(host, Limiter::new);
+
+		CompletableFuture<Void> acquired = limiter.acquire();
+		if (!acquired.isDone()) {
+			// the deadline limits the queue wait, the delegate enforces it after the send
+			ConnHelper.failAtDeadline(acquired, request.getDeadline(),
+					"The request deadline exceeded in the concurrency queue");
+			acquired.whenComplete((granted, error) -> {
+				if (error != null) {
+					limiter.discard(acquired);
+				}
+			});
+		}
+
+		CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+		acquired.whenComplete((permit, failure) -> {
+			if (failure != null) {
+				result.completeExceptionally(failure);
+				return;
+			}
+			if (result.isDone()) {
+				// cancelled while the permit was granted
+				limiter.release(-1, false);
+				return;
+			}
+
+			long start = System.nanoTime();
+			CompletableFuture<TransportResponse> response;
+			try {
+				response = getDelegate().sendAsync(request);
+			} catch (RuntimeException e) {
+				response = CompletableFuture.failedFuture(e);
+			}
+			ConnHelper.propagateCancel(response, result);
+			response.whenComplete((res, error) -> {
+				if (error instanceof CancellationException) {
+					limiter.release(-1, false);
+				} else {
+					boolean overload = error != null || res.getStatusCode() == 429 || res.getStatusCode() == 503;
+					limiter.release(System.nanoTime() - start, overload);
+				}
+
+				if (error != null) {
+					result.completeExceptionally(error);
+				} else if (!result.complete(res)) {
+					closeQuietly(res);
+				}
+			});
+		});
+
+		// cancelling the result leaves the queue or aborts the call
+		result.whenComplete((res, error) -> {
+			if (error != null) {
+				acquired.cancel(false);
+			}
+		});
+		return result;
+	}
+
+	private static void closeQuietly(TransportResponse response) {
+		try {
+			response.close();
+		} catch (IOException e) {
+			// the caller cancelled the result
+		}
+	}
+
+	/**
+	 * Gets the current limit, calls in flight and queue of each provider host.
+	 *
+	 * @return list of ConcurrencyStatus.
+	 */
+	public List<ConcurrencyStatus> getStatus() {
+		List<ConcurrencyStatus> status = new ArrayList<>();
+		for (Limiter limiter : limiters.values()) {
+			status.add(limiter.status());
+		}
+		return status;
+	}
+}
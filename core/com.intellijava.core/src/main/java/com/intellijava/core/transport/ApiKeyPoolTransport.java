@@ -0,0 +1,313 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * ApiKeyPoolTransport sends each request with the least loaded key of a pool.
+ *
+ * The wrapper key header is replaced with the selected key, so the wrapper can be created with any
+ * of the pool keys. The keys are compared by the calls in flight and the remaining requests reported by
+ * the x-ratelimit response headers, starting from the next key in round robin order. A key that receives
+ * 429 is benched until the server wait hint, and a key that receives 401 or 403 is benched for the auth
+ * bench duration. Use it inside RetryingTransport to retry the rejected calls with another key,
+ * example: new RetryingTransport.Builder(new ApiKeyPoolTransport.Builder(null).addKeys(keys).build()).build().
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class ApiKeyPoolTransport extends DelegatingTransport {
+
+	private final List<PooledKey> keys;
+	private final long rateLimitBenchNanos;
+	private final long authBenchNanos;
+	private int next;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private ApiKeyPoolTransport(Builder builder) {
+		super(builder.delegate);
+		if (builder.keys.isEmpty()) {
+			throw new IllegalArgumentException("Add at least one key");
+		}
+		this.keys = new ArrayList<>();
+		for (String key : builder.keys) {
+			this.keys.add(new PooledKey(key));
+		}
+		this.rateLimitBenchNanos = builder.rateLimitBench.toNanos();
+		this.authBenchNanos = builder.authBench.toNanos();
+	}
+
+	/**
+	 *
+	 * Builder class for ApiKeyPoolTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private List<String> keys = new ArrayList<>();
+		private Duration rateLimitBench = Duration.ofSeconds(10);
+		private Duration authBench = Duration.ofMinutes(10);
+
+		/**
+		 * Builder constructor with the transport to send the requests.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 */
+		public Builder(HttpTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Add a key to the pool.
+		 *
+		 * @param key the API key.
+		 * @return instance of Builder.
+		 */
+		public Builder addKey(String key) {
+			this.keys.add(key);
+			return this;
+		}
+
+		/**
+		 * Add keys to the pool.
+		 *
+		 * @param keys the API keys.
+		 * @return instance of Builder.
+		 */
+		public Builder addKeys(List<String> keys) {
+			this.keys.addAll(keys);
+			return this;
+		}
+
+		/**
+		 * Sets the bench time after 429 without a wait hint, default is 10 seconds.
+		 *
+		 * @param rateLimitBench the bench duration.
+		 * @return instance of Builder.
+		 */
+		public Builder setRateLimitBench(Duration rateLimitBench) {
+			this.rateLimitBench = rateLimitBench;
+			return this;
+		}
+
+		/**
+		 * Sets the bench time after 401 or 403, default is 10 minutes.
+		 *
+		 * @param authBench the bench duration.
+		 * @return instance of Builder.
+		 */
+		public Builder setAuthBench(Duration authBench) {
+			this.authBench = authBench;
+			return this;
+		}
+
+		/**
+		 * Build the final ApiKeyPoolTransport object.
+		 *
+		 * @return final ApiKeyPoolTransport object.
+		 */
+		public ApiKeyPoolTransport build() {
+			return new ApiKeyPoolTransport(this);
+		}
+	}
+
+	/**
+	 * One key of the pool with its load and the last reported headroom.
+	 */
+	private static class PooledKey {
+		private final String key;
+		private int inFlight;
+		private long benchedUntil;
+		private boolean benched;
+		/** the last reported values, -1 when unknown. */
+		private long limitRequests = -1;
+		private long limitTokens = -1;
+		private long remainingRequests = -1;
+		private long remainingTokens = -1;
+		private long resetAt;
+
+		private PooledKey(String key) {
+			this.key = key;
+		}
+
+		private boolean isBenched(long now) {
+			return benched && now - benchedUntil < 0;
+		}
+
+		/**
+		 * Gets the smaller share left of the requests and tokens limits, 1 when unknown or after the reset.
+		 */
+		private double headroom(long now) {
+			if (now - resetAt >= 0) {
+				return 1;
+			}
+			return Math.min(share(remainingRequests, limitRequests), share(remainingTokens, limitTokens));
+		}
+
+		private static double share(long remaining, long limit) {
+			return remaining < 0 || limit <= 0 ? 1 : remaining / (double) limit;
+		}
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		PooledKey selected = this.acquire();
+		TransportRequest.Builder builder = request.toBuilder();
+		for (String name : Credentials.KEY_HEADERS) {
+			String value = request.getHeaders().get(name);
+			if (value != null) {
+				builder.addHeader(name, value.startsWith("Bearer ") ? "Bearer " + selected.key : selected.key);
+			}
+		}
+
+		CompletableFuture<TransportResponse> response;
+		try {
+			response = getDelegate().sendAsync(builder.build());
+		} catch (RuntimeException e) {
+			response = CompletableFuture.failedFuture(e);
+		}
+
+		// the key is released also when the caller cancels first
+		return ConnHelper.onCallComplete(response, (res, error) -> this.release(selected, res));
+	}
+
+	/**
+	 * Select the key with the fewest calls in flight, then the largest headroom.
+	 * When all the keys are benched, the key with the nearest bench end is used.
+	 *
+	 * @return the selected key.
+	 */
+	private synchronized PooledKey acquire() {
+
+		long now = System.nanoTime();
+		PooledKey selected = null;
+		int size = keys.size();
+
+		for (int i = 0; i < size; i++) {
+			PooledKey candidate = keys.get((next + i) % size);
+			if (candidate.isBenched(now)) {
+				continue;
+			}
+			if (selected == null || candidate.inFlight < selected.inFlight
+					|| (candidate.inFlight == selected.inFlight && candidate.headroom(now) > selected.headroom(now))) {
+				selected = candidate;
+			}
+		}
+
+		if (selected == null) {
+			for (PooledKey candidate : keys) {
+				if (selected == null || candidate.benchedUntil - selected.benchedUntil < 0) {
+					selected = candidate;
+				}
+			}
+		}
+
+		next = (next + 1) % size;
+		selected.inFlight++;
+		return selected;
+	}
+
+	/**
+	 * Update the key load, headroom and bench from the response.
+	 *
+	 * @param pooled the used key.
+	 * @param response the response or null if the call failed.
+	 */
+	private synchronized void release(PooledKey pooled, TransportResponse response) {
+
+		pooled.inFlight--;
+		if (response == null) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		int status = response.getStatusCode();
+		if (status == 429) {
+			Duration hint = RetryAfter.parse(response.getHeaders());
+			bench(pooled, now, hint == null ? rateLimitBenchNanos : hint.toNanos());
+		} else if (status == 401 || status == 403) {
+			bench(pooled, now, authBenchNanos);
+		}
+
+		pooled.limitRequests = readLong(response, "x-ratelimit-limit-requests", pooled.limitRequests);
+		pooled.limitTokens = readLong(response, "x-ratelimit-limit-tokens", pooled.limitTokens);
+		pooled.remainingRequests = readLong(response, "x-ratelimit-remaining-requests", pooled.remainingRequests);
+		pooled.remainingTokens = readLong(response, "x-ratelimit-remaining-tokens", pooled.remainingTokens);
+
+		if (response.getHeader("x-ratelimit-remaining-requests") != null) {
+			// without the reset header, the reported remaining is trusted for one minute
+			Duration reset = RetryAfter.parseReset(response.getHeader("x-ratelimit-reset-requests"));
+			pooled.resetAt = now + (reset == null ? Duration.ofMinutes(1) : reset).toNanos();
+		}
+	}
+
+	private static void bench(PooledKey pooled, long now, long nanos) {
+		pooled.benched = true;
+		pooled.benchedUntil = now + nanos;
+	}
+
+	private static long readLong(TransportResponse response, String name, long current) {
+		String value = response.getHeader(name);
+		if (value == null) {
+			return current;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return current;
+		}
+	}
+
+	/**
+	 * Gets the number of keys that are not benched.
+	 *
+	 * @return available keys count.
+	 */
+	public synchronized int getAvailableKeys() {
+		long now = System.nanoTime();
+		int available = 0;
+		for (PooledKey pooled : keys) {
+			available += pooled.isBenched(now) ? 0 : 1;
+		}
+		return available;
+	}
+
+	/**
+	 * Gets the last headroom reported by the provider for each key, -1 for the unknown values.
+	 *
+	 * @return list of RateLimitHeadroom.
+	 */
+	public synchronized List<RateLimitHeadroom> getHeadroom() {
+		List<RateLimitHeadroom> headroom = new ArrayList<>();
+		for (PooledKey pooled : keys) {
+			headroom.add(new RateLimitHeadroom(Credentials.label("pool", pooled.key), (int) pooled.limitRequests,
+					(int) pooled.limitTokens, pooled.remainingRequests, pooled.remainingTokens));
+		}
+		return headroom;
+	}
+}
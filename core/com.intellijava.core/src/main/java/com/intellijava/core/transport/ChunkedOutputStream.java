@@ -0,0 +1,104 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * ChunkedOutputStream collects the written bytes in a list of chunks.
+ *
+ * Unlike ByteArrayOutputStream the content is never copied to grow one big array,
+ * and the chunks are handed to HttpClient as they are.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class ChunkedOutputStream extends OutputStream {
+
+	private static final int FIRST_CHUNK_SIZE = 1024;
+	private static final int MAX_CHUNK_SIZE = 16 * 1024;
+
+	private final List<byte[]> chunks = new ArrayList<>();
+	private byte[] current = new byte[FIRST_CHUNK_SIZE];
+	private int position;
+	private long size;
+
+	/**
+	 * ChunkedOutputStream default constructor.
+	 */
+	ChunkedOutputStream() {
+	}
+
+	@Override
+	public void write(int b) {
+		if (position == current.length) {
+			nextChunk();
+		}
+		current[position++] = (byte) b;
+		size++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		while (len > 0) {
+			if (position == current.length) {
+				nextChunk();
+			}
+			int count = Math.min(len, current.length - position);
+			System.arraycopy(b, off, current, position, count);
+			position += count;
+			off += count;
+			len -= count;
+			size += count;
+		}
+	}
+
+	/**
+	 * Keep the full chunk and start a bigger one.
+	 */
+	private void nextChunk() {
+		chunks.add(current);
+		current = new byte[Math.min(current.length * 2, MAX_CHUNK_SIZE)];
+		position = 0;
+	}
+
+	/**
+	 * Gets the written chunks, only the last partial chunk is trimmed.
+	 *
+	 * @return list of the body chunks.
+	 */
+	List<byte[]> getChunks() {
+		List<byte[]> result = new ArrayList<>(chunks.size() + 1);
+		result.addAll(chunks);
+		if (position > 0) {
+			result.add(Arrays.copyOf(current, position));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the number of written bytes.
+	 *
+	 * @return size
+	 */
+	long size() {
+		return size;
+	}
+}
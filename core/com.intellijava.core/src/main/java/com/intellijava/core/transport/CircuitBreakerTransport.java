@@ -0,0 +1,398 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * CircuitBreakerTransport fails fast the calls to an endpoint that keeps failing or responding slowly.
+ *
+ * Each endpoint has its own breaker. The breaker is closed while the recent calls are healthy, it opens
+ * when the failure rate or the slow call rate of the sliding window reaches the threshold, and after the
+ * open duration it lets a few trial calls pass (half-open) to decide if it closes again.
+ * The connection errors, the server errors, status 5xx, and the rate limit responses, status 429, are
+ * counted as failures, with the connect and read timeouts. The cancelled calls, the timeouts at the caller
+ * deadline and the rejections of the other client side transports are not counted, they do not describe
+ * the endpoint health.
+ * The outcome of a call admitted before the last state change is ignored, so a slow call of the closed
+ * state can not open the breaker again after it closed, or decide the half-open trials.
+ * While open, the calls complete directly with CircuitOpenException.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class CircuitBreakerTransport extends DelegatingTransport {
+
+	/**
+	 * The breaker states.
+	 */
+	public enum State {
+		/** the calls pass and the outcomes are recorded. */
+		CLOSED,
+		/** the calls fail fast until the open duration ends. */
+		OPEN,
+		/** limited trial calls pass to test the endpoint. */
+		HALF_OPEN
+	}
+
+	private final int windowSize;
+	private final int minimumCalls;
+	private final double failureRateThreshold;
+	private final double slowCallRateThreshold;
+	private final long slowCallNanos;
+	private final long openNanos;
+	private final int halfOpenCalls;
+	private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private CircuitBreakerTransport(Builder builder) {
+		super(builder.delegate);
+		this.windowSize = builder.windowSize;
+		this.minimumCalls = Math.min(builder.minimumCalls, builder.windowSize);
+		this.failureRateThreshold = builder.failureRateThreshold;
+		this.slowCallRateThreshold = builder.slowCallRateThreshold;
+		this.slowCallNanos = builder.slowCallDuration.toNanos();
+		this.openNanos = builder.openDuration.toNanos();
+		this.halfOpenCalls = builder.halfOpenCalls;
+	}
+
+	/**
+	 *
+	 * Builder class for CircuitBreakerTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private int windowSize = 20;
+		private int minimumCalls = 10;
+		private double failureRateThreshold = 0.5;
+		private double slowCallRateThreshold = 0.8;
+		private Duration slowCallDuration = Duration.ofSeconds(30);
+		private Duration openDuration = Duration.ofSeconds(30);
+		private int halfOpenCalls = 3;
+
+		/**
+		 * Builder constructor with the transport to send the requests.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 */
+		public Builder(HttpTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets the number of recent calls to compute the rates, default is 20.
+		 *
+		 * @param windowSize the sliding window size.
+		 * @return instance of Builder.
+		 */
+		public Builder setWindowSize(int windowSize) {
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		/**
+		 * Sets the minimum recorded calls before the breaker can open, default is 10.
+		 *
+		 * @param minimumCalls the minimum calls.
+		 * @return instance of Builder.
+		 */
+		public Builder setMinimumCalls(int minimumCalls) {
+			this.minimumCalls = minimumCalls;
+			return this;
+		}
+
+		/**
+		 * Sets the failure rate to open the breaker, default is 0.5.
+		 *
+		 * @param failureRateThreshold rate from 0 to 1.
+		 * @return instance of Builder.
+		 */
+		public Builder setFailureRateThreshold(double failureRateThreshold) {
+			this.failureRateThreshold = failureRateThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets the slow call rate to open the breaker, default is 0.8.
+		 *
+		 * @param slowCallRateThreshold rate from 0 to 1.
+		 * @return instance of Builder.
+		 */
+		public Builder setSlowCallRateThreshold(double slowCallRateThreshold) {
+			this.slowCallRateThreshold = slowCallRateThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets the time to the response headers that counts the call as slow, default is 30 seconds.
+		 *
+		 * @param slowCallDuration the slow call duration.
+		 * @return instance of Builder.
+		 */
+		public Builder setSlowCallDuration(Duration slowCallDuration) {
+			this.slowCallDuration = slowCallDuration;
+			return this;
+		}
+
+		/**
+		 * Sets the time to fail fast before the trial calls, default is 30 seconds.
+		 *
+		 * @param openDuration the open state duration.
+		 * @return instance of Builder.
+		 */
+		public Builder setOpenDuration(Duration openDuration) {
+			this.openDuration = openDuration;
+			return this;
+		}
+
+		/**
+		 * Sets the number of trial calls in the half-open state, default is 3.
+		 *
+		 * @param halfOpenCalls the trial calls, all must succeed to close the breaker.
+		 * @return instance of Builder.
+		 */
+		public Builder setHalfOpenCalls(int halfOpenCalls) {
+			this.halfOpenCalls = halfOpenCalls;
+			return this;
+		}
+
+		/**
+		 * Build the final CircuitBreakerTransport object.
+		 *
+		 * @return final CircuitBreakerTransport object.
+		 */
+		public CircuitBreakerTransport build() {
+			return new CircuitBreakerTransport(this);
+		}
+	}
+
+	/**
+	 * The breaker of one endpoint with the sliding window of the recent outcomes.
+	 */
+	private class Breaker {
+		private final boolean[] failed = new boolean[windowSize];
+		private final boolean[] slow = new boolean[windowSize];
+		private int position;
+		private int recorded;
+		private int failures;
+		private int slowCalls;
+
+		private State state = State.CLOSED;
+		/** incremented on each state change, the calls keep the generation that admitted them. */
+		private long generation;
+		private long openUntil;
+		private int trialsStarted;
+		private int trialsSucceeded;
+
+		/**
+		 * Check if a call can pass now.
+		 *
+		 * @return the generation of the admitted call, or -1 to fail fast.
+		 */
+		private synchronized long tryAcquire(long now) {
+
+			if (state == State.OPEN) {
+				if (now - openUntil < 0) {
+					return -1;
+				}
+				moveTo(State.HALF_OPEN);
+				trialsStarted = 0;
+				trialsSucceeded = 0;
+			}
+
+			if (state == State.HALF_OPEN) {
+				if (trialsStarted >= halfOpenCalls) {
+					return -1;
+				}
+				trialsStarted++;
+			}
+
+			return generation;
+		}
+
+		/**
+		 * Gets the time until the half-open trials.
+		 *
+		 * @return the remaining open time, at least 1 nanosecond.
+		 */
+		private synchronized long openRemaining(long now) {
+			return state == State.OPEN ? Math.max(1, openUntil - now) : 1;
+		}
+
+		/**
+		 * Record the call outcome and move the state.
+		 *
+		 * @param callGeneration the generation that admitted the call.
+		 * @param isCounted false for the outcomes that do not describe the endpoint.
+		 * @param isFailed true for the failed calls.
+		 * @param isSlow true for the slow calls.
+		 * @param now the nano time.
+		 */
+		private synchronized void onResult(long callGeneration, boolean isCounted, boolean isFailed,
+				boolean isSlow, long now) {
+
+			if (callGeneration != generation) {
+				// admitted before the last state change
+				return;
+			}
+
+			if (state == State.HALF_OPEN) {
+				if (!isCounted) {
+					// free the trial for another call
+					trialsStarted--;
+				} else if (isFailed || isSlow) {
+					open(now);
+				} else if (++trialsSucceeded >= halfOpenCalls) {
+					moveTo(State.CLOSED);
+					resetWindow();
+				}
+				return;
+			} else if (state == State.OPEN || !isCounted) {
+				return;
+			}
+
+			if (recorded == windowSize) {
+				failures -= failed[position] ? 1 : 0;
+				slowCalls -= slow[position] ? 1 : 0;
+			} else {
+				recorded++;
+			}
+			failed[position] = isFailed;
+			slow[position] = isSlow;
+			failures += isFailed ? 1 : 0;
+			slowCalls += isSlow ? 1 : 0;
+			position = (position + 1) % windowSize;
+
+			if (recorded >= minimumCalls && ((double) failures / recorded >= failureRateThreshold
+					|| (double) slowCalls / recorded >= slowCallRateThreshold)) {
+				open(now);
+			}
+		}
+
+		private void open(long now) {
+			moveTo(State.OPEN);
+			openUntil = now + openNanos;
+			resetWindow();
+		}
+
+		private void moveTo(State next) {
+			state = next;
+			generation++;
+		}
+
+		private void resetWindow() {
+			position = 0;
+			recorded = 0;
+			failures = 0;
+			slowCalls = 0;
+		}
+
+		private synchronized State getState() {
+			return state;
+		}
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		String endpoint = Credentials.endpointOf(request.getUrl());
+		Breaker breaker = breakers.computeIfAbsent(endpoint, key -> new Breaker());
+
+		long start = System.nanoTime();
+		long generation = breaker.tryAcquire(start);
+		if (generation < 0) {
+			return CompletableFuture.failedFuture(new CircuitOpenException("The circuit is open for " + endpoint,
+					endpoint, Duration.ofNanos(breaker.openRemaining(start))));
+		}
+
+		CompletableFuture<TransportResponse> call;
+		try {
+			call = getDelegate().sendAsync(request);
+		} catch (RuntimeException e) {
+			call = CompletableFuture.failedFuture(e);
+		}
+
+		// the breaker receives the outcome also when the caller cancels first, to free a half-open trial
+		return ConnHelper.onCallComplete(call, (response, error) -> {
+			long end = System.nanoTime();
+			Throwable cause = error == null ? null : ConnHelper.unwrap(error);
+			boolean isCounted = cause == null || isEndpointFailure(cause, request);
+			boolean isFailed = cause != null || response.getStatusCode() >= 500 || response.getStatusCode() == 429;
+			breaker.onResult(generation, isCounted, isFailed, end - start >= slowCallNanos, end);
+		});
+	}
+
+	/**
+	 * Check if the call error describes the endpoint: the connection errors and timeouts.
+	 * The cancels, the caller deadlines and the client side rejections are not counted.
+	 *
+	 * @param error the unwrapped error.
+	 * @param request the failed request.
+	 * @return true to count the error as a failure.
+	 */
+	private static boolean isEndpointFailure(Throwable error, TransportRequest request) {
+		if (!(error instanceof IOException)) {
+			return false;
+		}
+		if (error instanceof HttpTimeoutException && !(error instanceof HttpConnectTimeoutException)) {
+			// the read timeout of a hanging endpoint is a failure, the timeout at the caller deadline is not
+			return request.getDeadline() == null || Instant.now().isBefore(request.getDeadline());
+		}
+		return !(error instanceof RateLimitExceededException) && !(error instanceof RequestRejectedException)
+				&& !(error instanceof CircuitOpenException) && !(error instanceof InterruptedIOException
+						&& !(error instanceof SocketTimeoutException));
+	}
+
+	/**
+	 * Gets the state of the endpoint breaker.
+	 *
+	 * @param url the endpoint url.
+	 * @return the state, CLOSED if the endpoint is not called yet.
+	 */
+	public State getState(String url) {
+		Breaker breaker = breakers.get(Credentials.endpointOf(url));
+		return breaker == null ? State.CLOSED : breaker.getState();
+	}
+
+	/**
+	 * Gets the state of all the called endpoints.
+	 *
+	 * @return map of the endpoint and its state.
+	 */
+	public Map<String, State> getStates() {
+		Map<String, State> states = new LinkedHashMap<>();
+		breakers.forEach((endpoint, breaker) -> states.put(endpoint, breaker.getState()));
+		return states;
+	}
+}
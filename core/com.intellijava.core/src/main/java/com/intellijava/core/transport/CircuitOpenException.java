@@ -0,0 +1,65 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ *
+ * CircuitOpenException is thrown without calling the endpoint while its circuit breaker is open.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class CircuitOpenException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String endpoint;
+	private final Duration retryAfter;
+
+	/**
+	 * CircuitOpenException constructor.
+	 *
+	 * @param message the error details.
+	 * @param endpoint the failing endpoint.
+	 * @param retryAfter the time until the trial calls are allowed.
+	 */
+	public CircuitOpenException(String message, String endpoint, Duration retryAfter) {
+		super(message);
+		this.endpoint = endpoint;
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Gets the failing endpoint.
+	 *
+	 * @return endpoint
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Gets the time until the trial calls are allowed.
+	 *
+	 * @return retryAfter
+	 */
+	public Duration getRetryAfter() {
+		return retryAfter;
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+/**
+ *
+ * ConcurrencyStatus is a snapshot of the adaptive concurrency limit of one provider.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class ConcurrencyStatus {
+
+	private final String host;
+	private final int limit;
+	private final int inFlight;
+	private final int queued;
+
+	/**
+	 * ConcurrencyStatus constructor.
+	 *
+	 * @param host the provider host.
+	 * @param limit the current concurrent calls limit.
+	 * @param inFlight the calls sent and not completed.
+	 * @param queued the calls waiting for a permit.
+	 */
+	public ConcurrencyStatus(String host, int limit, int inFlight, int queued) {
+		this.host = host;
+		this.limit = limit;
+		this.inFlight = inFlight;
+		this.queued = queued;
+	}
+
+	/**
+	 * Gets the provider host.
+	 *
+	 * @return host
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * Gets the current concurrent calls limit.
+	 *
+	 * @return limit
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Gets the calls sent and not completed.
+	 *
+	 * @return inFlight
+	 */
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * Gets the calls waiting for a permit.
+	 *
+	 * @return queued
+	 */
+	public int getQueued() {
+		return queued;
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrencyStatus [" + host + ", limit=" + limit + ", inFlight=" + inFlight
+				+ ", queued=" + queued + "]";
+	}
+}
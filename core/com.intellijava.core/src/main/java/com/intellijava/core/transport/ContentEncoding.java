@@ -0,0 +1,124 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ *
+ * ContentEncoding holds the gzip and deflate helpers for the transport bodies.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class ContentEncoding {
+
+	/**
+	 * The accepted response encodings.
+	 */
+	static final String ACCEPTED = "gzip, deflate";
+
+	/**
+	 * ContentEncoding has static helpers only.
+	 */
+	private ContentEncoding() {
+	}
+
+	/**
+	 * Wrap the response body with the decoder of the Content-Encoding header.
+	 *
+	 * @param body the raw response body.
+	 * @param encoding the Content-Encoding value or null.
+	 * @return the decoded body stream.
+	 * @throws IOException if the gzip header is not valid.
+	 */
+	static InputStream decode(InputStream body, String encoding) throws IOException {
+
+		if (encoding == null) {
+			return body;
+		}
+
+		encoding = encoding.trim().toLowerCase();
+		boolean gzip = encoding.equals("gzip") || encoding.equals("x-gzip");
+		if (!gzip && !encoding.equals("deflate")) {
+			return body;
+		}
+
+		// an empty body has no header to decode, like the response of HEAD or 204 with the encoding header
+		PushbackInputStream in = new PushbackInputStream(body, 2);
+		byte[] header = new byte[2];
+		int count = in.readNBytes(header, 0, 2);
+		if (count == 0) {
+			return in;
+		}
+		in.unread(header, 0, count);
+
+		return gzip ? new GZIPInputStream(in) : inflate(in, header, count);
+	}
+
+	/**
+	 * Decode deflate body, the standard zlib format or the raw deflate sent by some servers.
+	 *
+	 * @param in the raw response body.
+	 * @param header the first bytes of the body, already pushed back to the stream.
+	 * @param count the number of the header bytes.
+	 * @return the inflated body stream.
+	 */
+	private static InputStream inflate(InputStream in, byte[] header, int count) {
+
+		// zlib header: compression method 8 and the check bits
+		boolean zlib = count == 2 && (header[0] & 0x0f) == 8
+				&& (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+
+		Inflater inflater = new Inflater(!zlib);
+		return new InflaterInputStream(in, inflater) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					// a stream with its own inflater does not end it, release the native memory
+					inflater.end();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Compress the written body to gzip chunks.
+	 *
+	 * @param body the written body.
+	 * @return the compressed body.
+	 * @throws IOException if there is an issue compressing the body.
+	 */
+	static ChunkedOutputStream gzip(ChunkedOutputStream body) throws IOException {
+
+		ChunkedOutputStream compressed = new ChunkedOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed, 8192)) {
+			for (byte[] chunk : body.getChunks()) {
+				out.write(chunk);
+			}
+		}
+
+		return compressed;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.net.URI;
+
+/**
+ *
+ * Credentials finds the provider and the API key of a request, to account the limits per provider and key.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class Credentials {
+
+	/**
+	 * The headers used by the wrappers to send the API key.
+	 */
+	static final String[] KEY_HEADERS = {"Authorization", "X-Goog-Api-Key"};
+
+	/**
+	 * Credentials has static helpers only.
+	 */
+	private Credentials() {
+	}
+
+	/**
+	 * Gets the provider host of the request.
+	 *
+	 * @param request the transport request.
+	 * @return the url host.
+	 */
+	static String hostOf(TransportRequest request) {
+		String host = URI.create(request.getUrl()).getHost();
+		return host == null ? "" : host;
+	}
+
+	/**
+	 * Gets the endpoint of the url, the scheme, the host and the path without the query.
+	 *
+	 * @param url the request url.
+	 * @return endpoint, example: https://api.openai.com/v1/chat/completions
+	 */
+	static String endpointOf(String url) {
+		URI uri = URI.create(url);
+		return uri.getScheme() + "://" + uri.getAuthority() + (uri.getPath() == null ? "" : uri.getPath());
+	}
+
+	/**
+	 * Gets the API key header value of the request.
+	 *
+	 * @param request the transport request.
+	 * @return the key header value or empty string.
+	 */
+	static String keyOf(TransportRequest request) {
+		for (String name : KEY_HEADERS) {
+			String value = request.getHeaders().get(name);
+			if (value != null) {
+				return value;
+			}
+		}
+		return "";
+	}
+
+	/**
+	 * Create a readable label of the provider and key, without exposing the key.
+	 *
+	 * @param host the provider host.
+	 * @param key the key header value.
+	 * @return label, example: api.openai.com ...a1b2
+	 */
+	static String label(String host, String key) {
+		String suffix = key.length() > 4 ? key.substring(key.length() - 4) : "";
+		return host + " ..." + suffix;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * DelegatingTransport is the base of the transports that add a behavior around another transport.
+ *
+ * The decorators are composed through the constructors and passed to the wrappers or the controllers,
+ * example: new RateLimitedTransport.Builder(HttpClientTransport.getDefault()).build().
+ * The sub classes implement sendAsync, the blocking send waits for it.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public abstract class DelegatingTransport implements HttpTransport {
+
+	private final HttpTransport delegate;
+
+	/**
+	 * DelegatingTransport constructor.
+	 *
+	 * @param delegate the transport to send the requests, null for the default shared transport.
+	 */
+	protected DelegatingTransport(HttpTransport delegate) {
+		this.delegate = delegate == null ? HttpClientTransport.getDefault() : delegate;
+	}
+
+	/**
+	 * Gets the wrapped transport.
+	 *
+	 * @return delegate
+	 */
+	public HttpTransport getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public TransportResponse send(TransportRequest request) throws IOException {
+		return ConnHelper.await(sendAsync(request));
+	}
+
+	@Override
+	public abstract CompletableFuture<TransportResponse> sendAsync(TransportRequest request);
+}
@@ -0,0 +1,384 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * HedgingTransport sends a duplicate of the slow requests and returns the first response.
+ *
+ * When a request has no response after the configured percentile of the endpoint latency, a hedge
+ * request is sent and the slower call is cancelled. For the streaming requests the latency is the
+ * time to the response headers, which the providers send with the first tokens.
+ * The hedges are limited to a ratio of the requests, to keep the extra traffic inside the rate limits.
+ *
+ * Example: new Chatbot(key, SupportedChatModels.openai, new HedgingTransport.Builder(null).build()).
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class HedgingTransport extends DelegatingTransport {
+
+	/** the recent latencies kept per endpoint. */
+	private static final int WINDOW_SIZE = 200;
+
+	private final double percentile;
+	private final double maxHedgeRatio;
+	private final int minSamples;
+	private final long initialDelayNanos;
+	private final long minDelayNanos;
+	private final ConcurrentHashMap<String, Latencies> latencies = new ConcurrentHashMap<>();
+
+	private final Object budgetLock = new Object();
+	private double budget;
+	private long requests;
+	private long hedges;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private HedgingTransport(Builder builder) {
+		super(builder.delegate);
+		this.percentile = builder.percentile;
+		this.maxHedgeRatio = builder.maxHedgeRatio;
+		this.minSamples = Math.min(builder.minSamples, WINDOW_SIZE);
+		this.initialDelayNanos = builder.initialDelay.toNanos();
+		this.minDelayNanos = builder.minDelay.toNanos();
+	}
+
+	/**
+	 *
+	 * Builder class for HedgingTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private double percentile = 0.95;
+		private double maxHedgeRatio = 0.05;
+		private int minSamples = 20;
+		private Duration initialDelay = Duration.ofSeconds(10);
+		private Duration minDelay = Duration.ofMillis(100);
+
+		/**
+		 * Builder constructor with the transport to send the requests.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 */
+		public Builder(HttpTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets the latency percentile to send the hedge request, default is 0.95.
+		 *
+		 * @param percentile percentile from 0 to 1.
+		 * @return instance of Builder.
+		 */
+		public Builder setPercentile(double percentile) {
+			this.percentile = percentile;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum hedge requests as a ratio of the requests, default is 0.05 (5%).
+		 *
+		 * @param maxHedgeRatio ratio from 0 to 1.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxHedgeRatio(double maxHedgeRatio) {
+			this.maxHedgeRatio = maxHedgeRatio;
+			return this;
+		}
+
+		/**
+		 * Sets the observed responses before the percentile is used, default is 20.
+		 *
+		 * @param minSamples minimum latency samples per endpoint.
+		 * @return instance of Builder.
+		 */
+		public Builder setMinSamples(int minSamples) {
+			this.minSamples = minSamples;
+			return this;
+		}
+
+		/**
+		 * Sets the hedge delay until enough latencies are observed, default is 10 seconds.
+		 *
+		 * @param initialDelay the delay without samples.
+		 * @return instance of Builder.
+		 */
+		public Builder setInitialDelay(Duration initialDelay) {
+			this.initialDelay = initialDelay;
+			return this;
+		}
+
+		/**
+		 * Sets the lowest hedge delay, default is 100 milliseconds.
+		 *
+		 * @param minDelay the minimum delay.
+		 * @return instance of Builder.
+		 */
+		public Builder setMinDelay(Duration minDelay) {
+			this.minDelay = minDelay;
+			return this;
+		}
+
+		/**
+		 * Build the final HedgingTransport object.
+		 *
+		 * @return final HedgingTransport object.
+		 */
+		public HedgingTransport build() {
+			return new HedgingTransport(this);
+		}
+	}
+
+	/**
+	 * The recent response latencies of one endpoint.
+	 */
+	private static class Latencies {
+		private final long[] samples = new long[WINDOW_SIZE];
+		private int position;
+		private int recorded;
+		private int added;
+		private long cached = -1;
+
+		private synchronized void add(long nanos) {
+			samples[position] = nanos;
+			position = (position + 1) % WINDOW_SIZE;
+			recorded = Math.min(recorded + 1, WINDOW_SIZE);
+			added++;
+		}
+
+		/**
+		 * Gets the percentile, sorted again after every 10 new samples.
+		 */
+		private synchronized long percentile(double percentile, int minSamples) {
+			if (recorded < minSamples) {
+				return -1;
+			}
+			if (cached < 0 || added >= 10) {
+				long[] sorted = Arrays.copyOf(samples, recorded);
+				Arrays.sort(sorted);
+				cached = sorted[Math.min(recorded - 1, (int) Math.ceil(percentile * recorded) - 1)];
+				added = 0;
+			}
+			return cached;
+		}
+	}
+
+	/**
+	 * The primary and the hedge calls of one request, the first response completes the result.
+	 */
+	private static class Race {
+		private final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+		private CompletableFuture<TransportResponse> primary;
+		private CompletableFuture<TransportResponse> hedge;
+		private int pending;
+		private Throwable lastError;
+
+		/**
+		 * Add a call to the race.
+		 *
+		 * @return false if the result is already complete.
+		 */
+		private synchronized boolean start() {
+			if (result.isDone()) {
+				return false;
+			}
+			pending++;
+			return true;
+		}
+
+		private void onComplete(CompletableFuture<TransportResponse> call, TransportResponse response,
+				Throwable error) {
+
+			CompletableFuture<TransportResponse> loser = null;
+			synchronized (this) {
+				pending--;
+				if (result.isDone()) {
+					// the other call won, release this response
+					closeQuietly(response);
+					return;
+				}
+				if (error != null) {
+					lastError = error;
+					if (pending > 0) {
+						// wait for the other call
+						return;
+					}
+				}
+				loser = call == primary ? hedge : primary;
+			}
+
+			if (error != null) {
+				result.completeExceptionally(lastError);
+			} else if (!result.complete(response)) {
+				closeQuietly(response);
+			}
+			if (loser != null) {
+				loser.cancel(true);
+			}
+		}
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		Latencies endpoint = latencies.computeIfAbsent(Credentials.endpointOf(request.getUrl()),
+				key -> new Latencies());
+		allowHedge(false);
+
+		// write the body once, to send it twice
+		TransportRequest sent;
+		try {
+			sent = request.toBuilder().setBody(RequestBody.toByteArray(request.getBody())).build();
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		Race race = new Race();
+		synchronized (race) {
+			race.primary = call(sent, race, endpoint);
+		}
+
+		long delay = endpoint.percentile(percentile, minSamples);
+		delay = delay < 0 ? initialDelayNanos : Math.max(minDelayNanos, delay);
+
+		// the hedge timer is removed when the race ends first
+		CompletableFuture<Void> hedgeTimer = ConnHelper.delay(delay, TimeUnit.NANOSECONDS);
+		hedgeTimer.thenRun(() -> {
+			if (!race.result.isDone() && allowHedge(true)) {
+				synchronized (race) {
+					race.hedge = call(sent, race, endpoint);
+				}
+			}
+		});
+		race.result.whenComplete((response, error) -> hedgeTimer.cancel(false));
+
+		// cancelling the result cancels the calls
+		race.result.whenComplete((response, error) -> {
+			if (race.result.isCancelled()) {
+				synchronized (race) {
+					race.primary.cancel(true);
+					if (race.hedge != null) {
+						race.hedge.cancel(true);
+					}
+				}
+			}
+		});
+
+		return race.result;
+	}
+
+	/**
+	 * Start one call of the race and record its latency.
+	 */
+	private CompletableFuture<TransportResponse> call(TransportRequest request, Race race, Latencies endpoint) {
+
+		if (!race.start()) {
+			return CompletableFuture.failedFuture(new IOException("The request is already complete"));
+		}
+
+		long start = System.nanoTime();
+		CompletableFuture<TransportResponse> call;
+		try {
+			call = getDelegate().sendAsync(request);
+		} catch (RuntimeException e) {
+			// the race counts the call, so the failure must reach it
+			call = CompletableFuture.failedFuture(e);
+		}
+		CompletableFuture<TransportResponse> sent = call;
+		sent.whenComplete((response, error) -> {
+			if (error == null && response.getStatusCode() < 500) {
+				endpoint.add(System.nanoTime() - start);
+			}
+			race.onComplete(sent, response, error);
+		});
+
+		return sent;
+	}
+
+	/**
+	 * Count a request, or take a hedge from the budget.
+	 *
+	 * Each request adds the hedge ratio to the budget, capped to avoid bursts after a quiet period.
+	 *
+	 * @param isHedge true to take a hedge.
+	 * @return true if the hedge is allowed.
+	 */
+	private boolean allowHedge(boolean isHedge) {
+		synchronized (budgetLock) {
+			if (!isHedge) {
+				requests++;
+				budget = Math.min(Math.max(1, maxHedgeRatio * 100), budget + maxHedgeRatio);
+				return false;
+			}
+			if (budget < 1) {
+				return false;
+			}
+			budget -= 1;
+			hedges++;
+			return true;
+		}
+	}
+
+	/**
+	 * Gets the number of the sent hedge requests.
+	 *
+	 * @return hedges
+	 */
+	public long getHedgeCount() {
+		synchronized (budgetLock) {
+			return hedges;
+		}
+	}
+
+	/**
+	 * Gets the number of the requests.
+	 *
+	 * @return requests
+	 */
+	public long getRequestCount() {
+		synchronized (budgetLock) {
+			return requests;
+		}
+	}
+
+	/**
+	 * Close the discarded response to release the connection.
+	 */
+	private static void closeQuietly(TransportResponse response) {
+		if (response == null) {
+			return;
+		}
+		try {
+			response.close();
+		} catch (IOException e) {
+			// the response is discarded
+		}
+	}
+}
@@ -0,0 +1,476 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * HttpClientTransport is the default transport based on java.net.http.HttpClient.
+ *
+ * One HttpClient keeps a connection pool, so the TCP and TLS setup is paid once per host
+ * and HTTP/2 multiplexes the concurrent calls on the same connection when the server supports it.
+ * Share one instance between the wrappers, or use the default shared instance.
+ *
+ * The idle time of the pooled connections is a JVM setting of the JDK client, set it with
+ * -Djdk.httpclient.keepalive.timeout=seconds before the first request (the JDK default is 1200).
+ *
+ * Cancelling a returned future aborts the exchange on JDK 16 and later. On JDK 11 to 15 the client
+ * ignores the cancel, so the transport cancels the response body subscription once the headers arrive,
+ * which closes the connection; a call cancelled before its headers still waits for them.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class HttpClientTransport implements HttpTransport {
+
+	/** the default maximum wait for the response headers. */
+	private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofMinutes(10);
+
+	private final HttpClient client;
+	private final boolean responseCompression;
+	private final int requestCompressionThreshold;
+	private final Duration readTimeout;
+
+	/**
+	 * Holder for the lazy shared transport.
+	 */
+	private static class DefaultHolder {
+		private static final HttpClientTransport INSTANCE = new Builder().build();
+	}
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private HttpClientTransport(Builder builder) {
+
+		HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+				.version(builder.version)
+				.connectTimeout(builder.connectTimeout)
+				.followRedirects(HttpClient.Redirect.NORMAL);
+
+		if (builder.executor != null) {
+			clientBuilder.executor(builder.executor);
+		}
+
+		this.client = clientBuilder.build();
+		this.responseCompression = builder.responseCompression;
+		this.requestCompressionThreshold = builder.requestCompressionThreshold;
+		this.readTimeout = builder.readTimeout;
+	}
+
+	/**
+	 * HttpClientTransport constructor with your own configured client, the read timeout is 10 minutes.
+	 *
+	 * @param client java.net.http.HttpClient instance.
+	 */
+	public HttpClientTransport(HttpClient client) {
+		this.client = client;
+		this.responseCompression = true;
+		this.requestCompressionThreshold = -1;
+		this.readTimeout = DEFAULT_READ_TIMEOUT;
+	}
+
+	/**
+	 * Get the shared transport used by the wrappers when no transport is provided.
+	 *
+	 * @return the shared HttpClientTransport.
+	 */
+	public static HttpClientTransport getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/**
+	 *
+	 * Builder class for HttpClientTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpClient.Version version = HttpClient.Version.HTTP_2;
+		private Duration connectTimeout = Duration.ofSeconds(10);
+		private Executor executor;
+		private boolean responseCompression = true;
+		private int requestCompressionThreshold = -1;
+		private Duration readTimeout = DEFAULT_READ_TIMEOUT;
+
+		/**
+		 * Builder default constructor.
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the HTTP version, default is HTTP_2 with fallback to HTTP/1.1.
+		 *
+		 * @param version HttpClient.Version.
+		 * @return instance of Builder.
+		 */
+		public Builder setVersion(HttpClient.Version version) {
+			this.version = version;
+			return this;
+		}
+
+		/**
+		 * Sets the connect timeout, default is 10 seconds.
+		 *
+		 * @param connectTimeout maximum time to open a new connection.
+		 * @return instance of Builder.
+		 */
+		public Builder setConnectTimeout(Duration connectTimeout) {
+			this.connectTimeout = connectTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum wait for the response headers after sending the request, default is 10 minutes.
+		 *
+		 * The requests with a deadline use the shorter of the read timeout and the remaining time.
+		 * The streaming body is not limited by the read timeout, use the call deadline for it.
+		 *
+		 * @param readTimeout the response wait, or null for no limit.
+		 * @return instance of Builder.
+		 */
+		public Builder setReadTimeout(Duration readTimeout) {
+			this.readTimeout = readTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets the executor used by the client for the asynchronous tasks.
+		 *
+		 * @param executor the client executor.
+		 * @return instance of Builder.
+		 */
+		public Builder setExecutor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Sets the response compression, default is true.
+		 *
+		 * When enabled the requests accept gzip and deflate and the body is decoded transparently.
+		 * Streaming requests do not ask for compression, so the events are not held by the encoder.
+		 *
+		 * @param responseCompression true to accept compressed responses.
+		 * @return instance of Builder.
+		 */
+		public Builder setResponseCompression(boolean responseCompression) {
+			this.responseCompression = responseCompression;
+			return this;
+		}
+
+		/**
+		 * Sets the minimum body size to compress the request with gzip, default is -1 to disable.
+		 *
+		 * Use it with a server or a proxy that accepts Content-Encoding gzip requests,
+		 * large prompts and long chat histories compress well.
+		 *
+		 * @param requestCompressionThreshold minimum body size in bytes, or -1 to disable.
+		 * @return instance of Builder.
+		 */
+		public Builder setRequestCompressionThreshold(int requestCompressionThreshold) {
+			this.requestCompressionThreshold = requestCompressionThreshold;
+			return this;
+		}
+
+		/**
+		 * Build the final HttpClientTransport object.
+		 *
+		 * @return final HttpClientTransport object.
+		 */
+		public HttpClientTransport build() {
+			return new HttpClientTransport(this);
+		}
+	}
+
+	/**
+	 * Gets the underlying HttpClient.
+	 *
+	 * @return client
+	 */
+	public HttpClient getClient() {
+		return client;
+	}
+
+	@Override
+	public TransportResponse send(TransportRequest request) throws IOException {
+
+		PhaseClock clock = new PhaseClock();
+		HttpResponse<InputStream> response;
+		try {
+			response = client.send(toHttpRequest(request, clock),
+					clock.onHeaders(HttpResponse.BodyHandlers.ofInputStream()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("The request interrupted: " + request.getUrl());
+		}
+
+		// the body is read by the caller, so the download is not measured
+		return toTransportResponse(response, response.body(), clock.toTimings(-1));
+	}
+
+	/**
+	 * Send the request using the client non-blocking API.
+	 *
+	 * The body is collected without holding a thread, then exposed as a stream.
+	 * For streaming requests the future completes with the headers and the body
+	 * stream is filled while the server sends it.
+	 */
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		PhaseClock clock = new PhaseClock();
+		HttpRequest httpRequest;
+		try {
+			httpRequest = toHttpRequest(request, clock);
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		if (request.isStreaming()) {
+			CompletableFuture<HttpResponse<InputStream>> call = client.sendAsync(httpRequest,
+					clock.onHeaders(HttpResponse.BodyHandlers.ofInputStream()));
+			return clock.cancelOnAbort(ConnHelper.propagateCancel(call, call.thenApply(response -> new TransportResponse(
+					response.statusCode(), response.headers().map(), response.body(), 1, clock.toTimings(-1)))));
+		}
+
+		CompletableFuture<HttpResponse<byte[]>> call = client.sendAsync(httpRequest,
+				clock.onHeaders(HttpResponse.BodyHandlers.ofByteArray()));
+		// the body is read by the client, so the deadline limits the full response
+		return ConnHelper.withDeadline(clock.cancelOnAbort(ConnHelper.propagateCancel(call, call.thenApply(response -> {
+			TransportTimings timings = clock.toTimings(System.nanoTime());
+			try {
+				return toTransportResponse(response, new ByteArrayInputStream(response.body()), timings);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}))), request.getDeadline());
+	}
+
+	/**
+	 * PhaseClock keeps the time of each phase of one exchange.
+	 *
+	 * The request is written when the client completes the body subscription,
+	 * and the headers are received when the client asks the body handler for the body subscriber.
+	 * The clock also keeps the response body subscription, to close the connection of an aborted call.
+	 */
+	private static class PhaseClock {
+		private final long start = System.nanoTime();
+		private volatile long serialized = -1;
+		private volatile long written = -1;
+		private volatile long headers = -1;
+		private volatile Flow.Subscription body;
+		private volatile boolean aborted;
+
+		/**
+		 * Cancel the response body when the call fails, is cancelled or passes its deadline,
+		 * the JDK before 16 does not abort the exchange on the future cancel.
+		 */
+		private <T> CompletableFuture<T> cancelOnAbort(CompletableFuture<T> future) {
+			future.whenComplete((result, error) -> {
+				if (error != null) {
+					aborted = true;
+					Flow.Subscription subscription = body;
+					if (subscription != null) {
+						subscription.cancel();
+					}
+				}
+			});
+			return future;
+		}
+
+		/**
+		 * Mark the request as written when the client consumes the last body chunk.
+		 */
+		private Flow.Publisher<ByteBuffer> onWritten(Flow.Publisher<ByteBuffer> publisher) {
+			return subscriber -> publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+				@Override
+				public void onSubscribe(Flow.Subscription subscription) {
+					subscriber.onSubscribe(subscription);
+				}
+
+				@Override
+				public void onNext(ByteBuffer item) {
+					subscriber.onNext(item);
+				}
+
+				@Override
+				public void onError(Throwable throwable) {
+					subscriber.onError(throwable);
+				}
+
+				@Override
+				public void onComplete() {
+					written = System.nanoTime();
+					subscriber.onComplete();
+				}
+			});
+		}
+
+		/**
+		 * Mark the headers as received before the body handler is applied.
+		 */
+		private <T> HttpResponse.BodyHandler<T> onHeaders(HttpResponse.BodyHandler<T> handler) {
+			return responseInfo -> {
+				headers = System.nanoTime();
+				HttpResponse.BodySubscriber<T> subscriber = handler.apply(responseInfo);
+				return new HttpResponse.BodySubscriber<T>() {
+					@Override
+					public CompletionStage<T> getBody() {
+						return subscriber.getBody();
+					}
+
+					@Override
+					public void onSubscribe(Flow.Subscription subscription) {
+						body = subscription;
+						subscriber.onSubscribe(subscription);
+						if (aborted) {
+							subscription.cancel();
+						}
+					}
+
+					@Override
+					public void onNext(List<ByteBuffer> item) {
+						subscriber.onNext(item);
+					}
+
+					@Override
+					public void onError(Throwable throwable) {
+						subscriber.onError(throwable);
+					}
+
+					@Override
+					public void onComplete() {
+						subscriber.onComplete();
+					}
+				};
+			};
+		}
+
+		/**
+		 * Create the timings, a phase without both ends is -1, like the send of an empty body.
+		 *
+		 * @param end the time of the last body byte, or -1.
+		 */
+		private TransportTimings toTimings(long end) {
+			return new TransportTimings(between(start, serialized), between(serialized, written),
+					between(written, headers), between(headers, end));
+		}
+
+		private static long between(long from, long to) {
+			return from < 0 || to < 0 ? -1 : Math.max(0, to - from);
+		}
+	}
+
+	/**
+	 * Create the transport response and decode the compressed body.
+	 *
+	 * @param response the client response.
+	 * @param body the response body stream.
+	 * @param timings the exchange phases.
+	 * @return TransportResponse
+	 * @throws IOException if the compressed body is not valid.
+	 */
+	private TransportResponse toTransportResponse(HttpResponse<?> response, InputStream body,
+			TransportTimings timings) throws IOException {
+
+		String encoding = response.headers().firstValue("Content-Encoding").orElse(null);
+
+		return new TransportResponse(response.statusCode(), response.headers().map(),
+				ContentEncoding.decode(body, encoding), 1, timings);
+	}
+
+	/**
+	 * Convert the transport request to HttpRequest.
+	 *
+	 * The body is written once into chunks that the client publishes as they are,
+	 * without joining them to one array. The length is known, so no chunked encoding is used.
+	 * The large bodies are compressed when the request compression is enabled.
+	 *
+	 * @param request the transport request.
+	 * @param clock measures the body serialization and write.
+	 * @return HttpRequest
+	 * @throws IOException if there is an issue writing the body.
+	 */
+	private HttpRequest toHttpRequest(TransportRequest request, PhaseClock clock) throws IOException {
+
+		ChunkedOutputStream body = new ChunkedOutputStream();
+		request.getBody().writeTo(body);
+
+		boolean compressed = requestCompressionThreshold >= 0 && body.size() >= requestCompressionThreshold
+				&& !request.getHeaders().containsKey("Content-Encoding");
+		if (compressed) {
+			body = ContentEncoding.gzip(body);
+		}
+		clock.serialized = System.nanoTime();
+
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()))
+				.POST(body.size() == 0 ? HttpRequest.BodyPublishers.noBody()
+						: HttpRequest.BodyPublishers.fromPublisher(
+								clock.onWritten(HttpRequest.BodyPublishers.ofByteArrays(body.getChunks())),
+								body.size()));
+
+		for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			builder.header(header.getKey(), header.getValue());
+		}
+
+		if (compressed) {
+			builder.header("Content-Encoding", "gzip");
+		}
+
+		Duration timeout = readTimeout;
+		if (request.getDeadline() != null) {
+			Duration remaining = Duration.between(Instant.now(), request.getDeadline());
+			if (remaining.isNegative() || remaining.isZero()) {
+				throw new HttpTimeoutException("The call deadline exceeded before sending: " + request.getUrl());
+			}
+			timeout = timeout == null || remaining.compareTo(timeout) < 0 ? remaining : timeout;
+		}
+		if (timeout != null) {
+			builder.timeout(timeout);
+		}
+
+		if (responseCompression && !request.isStreaming()
+				&& !request.getHeaders().containsKey("Accept-Encoding")) {
+			builder.header("Accept-Encoding", ContentEncoding.ACCEPTED);
+		}
+
+		return builder.build();
+	}
+}
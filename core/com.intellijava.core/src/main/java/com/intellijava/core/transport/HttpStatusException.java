@@ -0,0 +1,95 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * HttpStatusException is thrown when the remote model returns a non-success status code.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class HttpStatusException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int statusCode;
+	private final transient Map<String, List<String>> headers;
+
+	/**
+	 * HttpStatusException constructor.
+	 *
+	 * @param message the error details.
+	 * @param statusCode the HTTP status code.
+	 * @param headers the response headers.
+	 */
+	public HttpStatusException(String message, int statusCode, Map<String, List<String>> headers) {
+		super(message);
+		this.statusCode = statusCode;
+		this.headers = headers == null ? Collections.emptyMap() : headers;
+	}
+
+	/**
+	 * Gets the HTTP status code.
+	 *
+	 * @return statusCode
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Gets the response headers.
+	 *
+	 * @return headers
+	 */
+	public Map<String, List<String>> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Check if the request was rejected by the rate limit, status 429.
+	 *
+	 * @return true for 429.
+	 */
+	public boolean isRateLimited() {
+		return statusCode == 429;
+	}
+
+	/**
+	 * Check if the failure is from the server side, status 5xx.
+	 *
+	 * @return true for 5xx.
+	 */
+	public boolean isServerError() {
+		return statusCode >= 500;
+	}
+
+	/**
+	 * Gets the server wait hint from Retry-After or the rate limit reset headers.
+	 *
+	 * @return the wait or null if the response has no hint.
+	 */
+	public Duration getRetryAfter() {
+		return RetryAfter.parse(headers);
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *
+ * HttpTransport represents the standard methods to send a request to the remote models.
+ *
+ * All the wrappers go through a transport instance, so one pooled transport can be shared
+ * between OpenAI, Cohere and Google calls. Implementations must be thread safe.
+ *
+ * The wrappers do not time the calls, the transport that sends the request enforces its deadline:
+ * the future fails with HttpTimeoutException when the deadline passes before the response,
+ * or before the response headers for the streaming requests. The decorators pass the deadline
+ * to their delegate and only limit the time a request waits in their own queue.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public interface HttpTransport {
+
+	/**
+	 *
+	 * Send the request and wait for the response headers.
+	 *
+	 * The caller is responsible to close the returned response.
+	 *
+	 * @param request the remote request details.
+	 * @return TransportResponse with the status code, headers and body stream.
+	 * @throws IOException if there is an error when connecting to the server.
+	 */
+	public TransportResponse send(TransportRequest request) throws IOException;
+	
+	/**
+	 *
+	 * Send the request without blocking the caller thread.
+	 *
+	 * The default implementation calls send in the caller thread, override it to provide
+	 * a non-blocking transport.
+	 *
+	 * @param request the remote request details.
+	 * @return future of the TransportResponse, completed exceptionally with IOException on connection error.
+	 */
+	public default CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+		CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+		try {
+			future.complete(send(request));
+		} catch (IOException | RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * LoadSheddingTransport rejects the requests that cannot complete before their deadline.
+ *
+ * The expected latency of a request is the smoothed latency of its endpoint and model, multiplied by
+ * the waves of calls ahead of it: the calls in flight divided by the concurrent calls the provider
+ * serves. When the expected latency passes the request deadline, or the max wait for the requests
+ * without a deadline, the request fails at once with RequestRejectedException instead of waiting in
+ * the queues. Place it above the queueing transports, like PriorityScheduler or
+ * AdaptiveConcurrencyTransport, so the measured latency includes the queue wait. RoutingLanguageModel
+ * fails over on the rejection, to degrade the call to another provider or a smaller model.
+ *
+ * The shed requests add no latency samples, so after the probe interval without a sample one request
+ * is admitted as a probe, and its latency replaces the old estimate. The endpoint recovers as soon as
+ * the provider is fast again instead of staying on the latency of the overload.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class LoadSheddingTransport extends DelegatingTransport {
+
+	/** the latency smoothing, close to the last calls to follow the load changes. */
+	private static final double LATENCY_SMOOTHING = 0.2;
+
+	private final int concurrency;
+	private final long maxWaitNanos;
+	private final int minSamples;
+	private final long probeIntervalNanos;
+	private final ConcurrentHashMap<String, Load> loads = new ConcurrentHashMap<>();
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private LoadSheddingTransport(Builder builder) {
+		super(builder.delegate);
+		if (builder.concurrency < 1) {
+			throw new IllegalArgumentException("The concurrency should be at least 1");
+		}
+		this.concurrency = builder.concurrency;
+		this.maxWaitNanos = builder.maxWait == null ? -1 : builder.maxWait.toNanos();
+		this.minSamples = builder.minSamples;
+		this.probeIntervalNanos = builder.probeInterval.toNanos();
+	}
+
+	/**
+	 *
+	 * Builder class for LoadSheddingTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private int concurrency = 16;
+		private Duration maxWait;
+		private int minSamples = 10;
+		private Duration probeInterval = Duration.ofSeconds(1);
+
+		/**
+		 * Builder constructor with the transport to send the requests.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 */
+		public Builder(HttpTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets the concurrent calls served by each endpoint before the calls wait, default is 16.
+		 * Use the max concurrent calls of the scheduler or the limiter below this transport.
+		 *
+		 * @param concurrency the concurrent calls.
+		 * @return instance of Builder.
+		 */
+		public Builder setConcurrency(int concurrency) {
+			this.concurrency = concurrency;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum expected latency of the requests without a deadline, default is null
+		 * to admit all of them.
+		 *
+		 * @param maxWait the maximum expected latency or null.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxWait(Duration maxWait) {
+			this.maxWait = maxWait;
+			return this;
+		}
+
+		/**
+		 * Sets the observed responses before the requests are shed, default is 10.
+		 *
+		 * @param minSamples minimum latency samples per endpoint and model.
+		 * @return instance of Builder.
+		 */
+		public Builder setMinSamples(int minSamples) {
+			this.minSamples = minSamples;
+			return this;
+		}
+
+		/**
+		 * Sets the time without a latency sample before one request is admitted as a probe, default is 1 second.
+		 *
+		 * @param probeInterval the time between the probes of a shedding endpoint.
+		 * @return instance of Builder.
+		 */
+		public Builder setProbeInterval(Duration probeInterval) {
+			this.probeInterval = probeInterval;
+			return this;
+		}
+
+		/**
+		 * Build the final LoadSheddingTransport object.
+		 *
+		 * @return final LoadSheddingTransport object.
+		 */
+		public LoadSheddingTransport build() {
+			return new LoadSheddingTransport(this);
+		}
+	}
+
+	/**
+	 * The calls in flight and the smoothed latency of one endpoint and model.
+	 */
+	private static class Load {
+		private int inFlight;
+		private double latencyNanos;
+		private int samples;
+		private long sampledAt;
+		private boolean probing;
+		private long admitted;
+		private long shed;
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		Load load = loads.computeIfAbsent(keyOf(request), key -> new Load());
+
+		boolean probe = false;
+		synchronized (load) {
+			long expected = this.expectedNanos(load);
+			long allowed = this.allowedNanos(request);
+			if (expected >= 0 && allowed >= 0 && expected > allowed) {
+				if (load.probing || System.nanoTime() - load.sampledAt < probeIntervalNanos) {
+					load.shed++;
+					return CompletableFuture.failedFuture(new RequestRejectedException("The expected latency "
+							+ expected / 1_000_000 + "ms exceeds the deadline of " + keyOf(request)));
+				}
+				// no sample for the probe interval, send one request to measure the endpoint again
+				load.probing = true;
+				probe = true;
+			}
+			load.inFlight++;
+			load.admitted++;
+		}
+
+		boolean isProbe = probe;
+		long start = System.nanoTime();
+		CompletableFuture<TransportResponse> response;
+		try {
+			response = getDelegate().sendAsync(request);
+		} catch (RuntimeException e) {
+			response = CompletableFuture.failedFuture(e);
+		}
+
+		// the call leaves the in flight count also when the caller cancels first
+		return ConnHelper.onCallComplete(response, (res, error) -> {
+			synchronized (load) {
+				load.inFlight--;
+				if (isProbe) {
+					load.probing = false;
+				}
+				// the failed and cancelled calls do not describe the provider latency
+				if (error == null && res.getStatusCode() < 500) {
+					long now = System.nanoTime();
+					long latency = now - start;
+					// an estimate older than the probe interval is replaced, not smoothed
+					boolean stale = now - load.sampledAt >= probeIntervalNanos;
+					load.latencyNanos = load.samples == 0 || stale ? latency
+							: load.latencyNanos + LATENCY_SMOOTHING * (latency - load.latencyNanos);
+					load.samples++;
+					load.sampledAt = now;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gets the expected latency of a new call, the latency times the waves of calls ahead and its own.
+	 *
+	 * @return the expected nanos, or -1 before enough samples.
+	 */
+	private long expectedNanos(Load load) {
+		if (load.samples < minSamples) {
+			return -1;
+		}
+		return (long) (load.latencyNanos * (load.inFlight / concurrency + 1));
+	}
+
+	/**
+	 * Gets the time left to the request deadline, or the max wait without a deadline.
+	 *
+	 * @return the allowed nanos, or -1 to admit without a limit.
+	 */
+	private long allowedNanos(TransportRequest request) {
+		if (request.getDeadline() == null) {
+			return maxWaitNanos;
+		}
+		return Math.max(0, Duration.between(Instant.now(), request.getDeadline()).toNanos());
+	}
+
+	private static String keyOf(TransportRequest request) {
+		String endpoint = Credentials.endpointOf(request.getUrl());
+		return request.getModel() == null ? endpoint : endpoint + " " + request.getModel();
+	}
+
+	/**
+	 * Gets the expected latency of a request sent now.
+	 *
+	 * @param request the transport request.
+	 * @return the expected latency, or null before enough samples.
+	 */
+	public Duration getExpectedLatency(TransportRequest request) {
+		Load load = loads.get(keyOf(request));
+		if (load == null) {
+			return null;
+		}
+		synchronized (load) {
+			long expected = this.expectedNanos(load);
+			return expected < 0 ? null : Duration.ofNanos(expected);
+		}
+	}
+
+	/**
+	 * Gets the number of the rejected requests.
+	 *
+	 * @return shed requests count.
+	 */
+	public long getShedCount() {
+		long shed = 0;
+		for (Load load : loads.values()) {
+			synchronized (load) {
+				shed += load.shed;
+			}
+		}
+		return shed;
+	}
+
+	/**
+	 * Gets the number of the sent requests.
+	 *
+	 * @return admitted requests count.
+	 */
+	public long getAdmittedCount() {
+		long admitted = 0;
+		for (Load load : loads.values()) {
+			synchronized (load) {
+				admitted += load.admitted;
+			}
+		}
+		return admitted;
+	}
+}
@@ -0,0 +1,340 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * PriorityScheduler shares the concurrent calls of a transport between the priority classes and the tenants.
+ *
+ * Each wrapper or controller receives its own transport from transport(priority, tenant), and all of them
+ * send through the same delegate with at most maxConcurrent calls in flight. When a call slot is free, the
+ * waiting requests of the highest priority class are sent first, so the interactive calls jump ahead of the
+ * queued bulk work, and the bulk requests use the remaining capacity. Inside a class, the tenants share
+ * the slots by weighted fair queueing. The queue wait of each class is measured by getStats().
+ *
+ * Example:
+ * PriorityScheduler scheduler = new PriorityScheduler.Builder(rateLimitedTransport).setMaxConcurrent(20).build();
+ * new Chatbot(key, SupportedChatModels.openai, scheduler.transport(RequestPriority.INTERACTIVE, "web"));
+ * new RemoteLanguageModel(key, SupportedLangModels.openai, scheduler.transport(RequestPriority.BULK, "jobs"));
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class PriorityScheduler {
+
+	private static final Comparator<Pending> FAIR_ORDER = Comparator.<Pending>comparingDouble(pending -> pending.finish)
+			.thenComparingLong(pending -> pending.sequence);
+
+	private final HttpTransport delegate;
+	private final int maxConcurrent;
+	private final Map<String, Double> tenantWeights;
+
+	private final ClassQueue[] queues = new ClassQueue[RequestPriority.values().length];
+	private int inFlight;
+	private long sequence;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private PriorityScheduler(Builder builder) {
+		this.delegate = builder.delegate == null ? HttpClientTransport.getDefault() : builder.delegate;
+		this.maxConcurrent = builder.maxConcurrent;
+		this.tenantWeights = new HashMap<>(builder.tenantWeights);
+		for (RequestPriority priority : RequestPriority.values()) {
+			queues[priority.ordinal()] = new ClassQueue(priority);
+		}
+	}
+
+	/**
+	 *
+	 * Builder class for PriorityScheduler.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private int maxConcurrent = 16;
+		private Map<String, Double> tenantWeights = new HashMap<>();
+
+		/**
+		 * Builder constructor with the transport to send the requests.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 */
+		public Builder(HttpTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets the maximum calls in flight of all the classes, default is 16.
+		 *
+		 * @param maxConcurrent the concurrent calls.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxConcurrent(int maxConcurrent) {
+			this.maxConcurrent = maxConcurrent;
+			return this;
+		}
+
+		/**
+		 * Sets the share of a tenant inside its class, the tenants without weight have 1.
+		 *
+		 * @param tenant the tenant name.
+		 * @param weight the relative share.
+		 * @return instance of Builder.
+		 */
+		public Builder setTenantWeight(String tenant, double weight) {
+			if (weight <= 0) {
+				throw new IllegalArgumentException("The tenant weight should be positive");
+			}
+			this.tenantWeights.put(tenant, weight);
+			return this;
+		}
+
+		/**
+		 * Build the final PriorityScheduler object.
+		 *
+		 * @return final PriorityScheduler object.
+		 */
+		public PriorityScheduler build() {
+			return new PriorityScheduler(this);
+		}
+	}
+
+	/**
+	 * A queued request with its fair queueing tag.
+	 */
+	private static class Pending {
+		private final TransportRequest request;
+		private final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+		private final double start;
+		private final double finish;
+		private final long sequence;
+		private final long queuedAt = System.nanoTime();
+		private Future<?> timer;
+
+		private Pending(TransportRequest request, double start, double finish, long sequence) {
+			this.request = request;
+			this.start = start;
+			this.finish = finish;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * The queue of one priority class, ordered by the finish tag of the start-time fair queueing.
+	 */
+	private static class ClassQueue {
+		private final RequestPriority priority;
+		private final PriorityQueue<Pending> pending = new PriorityQueue<>(FAIR_ORDER);
+		private final Map<String, Double> lastFinish = new HashMap<>();
+		private double virtualTime;
+		private long started;
+		private long totalWaitNanos;
+		private long maxWaitNanos;
+
+		private ClassQueue(RequestPriority priority) {
+			this.priority = priority;
+		}
+	}
+
+	/**
+	 * Create the transport of one priority class and tenant, to pass to a wrapper or a controller.
+	 *
+	 * @param priority the priority class.
+	 * @param tenant the tenant name, used for the fair share inside the class.
+	 * @return the scheduled transport.
+	 */
+	public HttpTransport transport(RequestPriority priority, String tenant) {
+		return new DelegatingTransport(delegate) {
+			@Override
+			public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+				return submit(request, priority, tenant);
+			}
+		};
+	}
+
+	/**
+	 * Send the request now if a slot is free and nothing waits, or queue it.
+	 */
+	private CompletableFuture<TransportResponse> submit(TransportRequest request, RequestPriority priority,
+			String tenant) {
+
+		ClassQueue queue = queues[priority.ordinal()];
+		Pending pending;
+
+		synchronized (this) {
+			String key = tenant == null ? "" : tenant;
+			double weight = tenantWeights.getOrDefault(key, 1.0);
+			double start = Math.max(queue.virtualTime, queue.lastFinish.getOrDefault(key, 0.0));
+			pending = new Pending(request, start, start + 1 / weight, sequence++);
+			queue.lastFinish.put(key, pending.finish);
+
+			if (inFlight >= maxConcurrent || hasQueued()) {
+				queue.pending.add(pending);
+				// the deadline limits the queue wait, the delegate enforces it after the send
+				pending.timer = ConnHelper.failAtDeadline(pending.result, request.getDeadline(),
+						"The request deadline exceeded in the scheduler queue");
+				pending.result.whenComplete((res, error) -> {
+					if (error != null) {
+						this.discard(queue, pending);
+					}
+				});
+				return pending.result;
+			}
+
+			inFlight++;
+			record(queue, pending);
+		}
+
+		this.send(pending);
+		return pending.result;
+	}
+
+	/**
+	 * Send the request and start the next queued request when it completes.
+	 */
+	private void send(Pending pending) {
+
+		if (pending.timer != null) {
+			pending.timer.cancel(false);
+		}
+
+		CompletableFuture<TransportResponse> response;
+		try {
+			response = delegate.sendAsync(pending.request);
+		} catch (RuntimeException e) {
+			response = CompletableFuture.failedFuture(e);
+		}
+		// cancelling the result aborts the call, the slot is freed when it completes
+		ConnHelper.propagateCancel(response, pending.result);
+
+		response.whenComplete((res, error) -> {
+			this.release();
+			if (error != null) {
+				pending.result.completeExceptionally(error);
+			} else if (!pending.result.complete(res)) {
+				try {
+					res.close();
+				} catch (IOException e) {
+					// the caller cancelled the result
+				}
+			}
+		});
+	}
+
+	/**
+	 * Free the slot and send the next request of the highest class.
+	 */
+	private void release() {
+
+		List<Pending> next = new ArrayList<>();
+		synchronized (this) {
+			inFlight--;
+			while (inFlight < maxConcurrent) {
+				Pending pending = this.poll();
+				if (pending == null) {
+					break;
+				}
+				if (pending.result.isDone()) {
+					// cancelled or timed out while queued
+					continue;
+				}
+				inFlight++;
+				next.add(pending);
+			}
+		}
+
+		for (Pending pending : next) {
+			this.send(pending);
+		}
+	}
+
+	/**
+	 * Remove a request cancelled or timed out while queued.
+	 */
+	private synchronized void discard(ClassQueue queue, Pending pending) {
+		queue.pending.remove(pending);
+	}
+
+	private Pending poll() {
+		for (ClassQueue queue : queues) {
+			Pending pending = queue.pending.poll();
+			if (pending != null) {
+				record(queue, pending);
+				return pending;
+			}
+		}
+		return null;
+	}
+
+	private boolean hasQueued() {
+		for (ClassQueue queue : queues) {
+			if (!queue.pending.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Advance the class virtual time and record the queue wait.
+	 */
+	private static void record(ClassQueue queue, Pending pending) {
+		long wait = System.nanoTime() - pending.queuedAt;
+		queue.virtualTime = Math.max(queue.virtualTime, pending.start);
+		queue.started++;
+		queue.totalWaitNanos += wait;
+		queue.maxWaitNanos = Math.max(queue.maxWaitNanos, wait);
+	}
+
+	/**
+	 * Gets the queue wait of each priority class.
+	 *
+	 * @return list of QueueStats, from the highest class.
+	 */
+	public synchronized List<QueueStats> getStats() {
+		List<QueueStats> stats = new ArrayList<>();
+		for (ClassQueue queue : queues) {
+			double average = queue.started == 0 ? 0 : queue.totalWaitNanos / (double) queue.started / 1e6;
+			stats.add(new QueueStats(queue.priority, queue.started, queue.pending.size(), average,
+					queue.maxWaitNanos / 1e6));
+		}
+		return stats;
+	}
+
+	/**
+	 * Gets the calls in flight of all the classes.
+	 *
+	 * @return inFlight
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+/**
+ *
+ * QueueStats is a snapshot of the queue wait of one priority class.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class QueueStats {
+
+	private final RequestPriority priority;
+	private final long started;
+	private final int queued;
+	private final double averageWaitMillis;
+	private final double maxWaitMillis;
+
+	/**
+	 * QueueStats constructor.
+	 *
+	 * @param priority the priority class.
+	 * @param started the requests sent after the queue.
+	 * @param queued the requests waiting now.
+	 * @param averageWaitMillis the average queue wait of the sent requests.
+	 * @param maxWaitMillis the longest queue wait of the sent requests.
+	 */
+	public QueueStats(RequestPriority priority, long started, int queued, double averageWaitMillis,
+			double maxWaitMillis) {
+		this.priority = priority;
+		this.started = started;
+		this.queued = queued;
+		this.averageWaitMillis = averageWaitMillis;
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	/**
+	 * Gets the priority class.
+	 *
+	 * @return priority
+	 */
+	public RequestPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Gets the requests sent after the queue.
+	 *
+	 * @return started
+	 */
+	public long getStarted() {
+		return started;
+	}
+
+	/**
+	 * Gets the requests waiting now.
+	 *
+	 * @return queued
+	 */
+	public int getQueued() {
+		return queued;
+	}
+
+	/**
+	 * Gets the average queue wait of the sent requests.
+	 *
+	 * @return averageWaitMillis
+	 */
+	public double getAverageWaitMillis() {
+		return averageWaitMillis;
+	}
+
+	/**
+	 * Gets the longest queue wait of the sent requests.
+	 *
+	 * @return maxWaitMillis
+	 */
+	public double getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("QueueStats [%s, started=%d, queued=%d, averageWait=%.1fms, maxWait=%.1fms]",
+				priority, started, queued, averageWaitMillis, maxWaitMillis);
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ *
+ * RateLimitExceededException is thrown when a request is rejected on the client side
+ * because the budget will not be available within the maximum wait.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class RateLimitExceededException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Duration retryAfter;
+
+	/**
+	 * RateLimitExceededException constructor.
+	 *
+	 * @param message the error details.
+	 * @param retryAfter the time until the budget is available.
+	 */
+	public RateLimitExceededException(String message, Duration retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Gets the time until the budget is available.
+	 *
+	 * @return retryAfter
+	 */
+	public Duration getRetryAfter() {
+		return retryAfter;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+/**
+ *
+ * RateLimitHeadroom is a snapshot of the remaining budget of one provider and API key.
+ *
+ * The available values are negative when the callers are queued for the next refill.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class RateLimitHeadroom {
+
+	private final String label;
+	private final int requestsPerMinute;
+	private final int tokensPerMinute;
+	private final long availableRequests;
+	private final long availableTokens;
+
+	/**
+	 * RateLimitHeadroom constructor.
+	 *
+	 * @param label the provider host and the last key characters.
+	 * @param requestsPerMinute the requests limit.
+	 * @param tokensPerMinute the tokens limit, zero if not limited.
+	 * @param availableRequests the requests that can be sent now.
+	 * @param availableTokens the tokens that can be sent now.
+	 */
+	public RateLimitHeadroom(String label, int requestsPerMinute, int tokensPerMinute,
+			long availableRequests, long availableTokens) {
+		this.label = label;
+		this.requestsPerMinute = requestsPerMinute;
+		this.tokensPerMinute = tokensPerMinute;
+		this.availableRequests = availableRequests;
+		this.availableTokens = availableTokens;
+	}
+
+	/**
+	 * Gets the provider host and the last key characters.
+	 *
+	 * @return label
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Gets the requests per minute limit.
+	 *
+	 * @return requestsPerMinute
+	 */
+	public int getRequestsPerMinute() {
+		return requestsPerMinute;
+	}
+
+	/**
+	 * Gets the tokens per minute limit.
+	 *
+	 * @return tokensPerMinute
+	 */
+	public int getTokensPerMinute() {
+		return tokensPerMinute;
+	}
+
+	/**
+	 * Gets the requests that can be sent now.
+	 *
+	 * @return availableRequests
+	 */
+	public long getAvailableRequests() {
+		return availableRequests;
+	}
+
+	/**
+	 * Gets the tokens that can be sent now.
+	 *
+	 * @return availableTokens
+	 */
+	public long getAvailableTokens() {
+		return availableTokens;
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimitHeadroom [" + label + ", requests=" + availableRequests + "/" + requestsPerMinute
+				+ ", tokens=" + availableTokens + "/" + tokensPerMinute + "]";
+	}
+}
@@ -0,0 +1,390 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * RateLimitedTransport keeps the requests under the requests per minute and tokens per minute limits.
+ *
+ * Each provider host and API key has its own budget. The request tokens are the estimate of the wrapper,
+ * or without it the body size and max_tokens, then corrected from the response usage. The tokens of the
+ * failed and cancelled calls are returned to the budget. When the budget is exhausted the request waits
+ * for the refill without holding a thread, or it is rejected with RateLimitExceededException if the wait
+ * is longer than the maximum wait or than the time left to the request deadline.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class RateLimitedTransport extends DelegatingTransport {
+
+	private final Map<String, Limits> limits;
+	private final Limits defaultLimits;
+	private final long maxWaitNanos;
+	private final ConcurrentHashMap<String, Budget> budgets = new ConcurrentHashMap<>();
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private RateLimitedTransport(Builder builder) {
+		super(builder.delegate);
+		this.limits = new HashMap<>(builder.limits);
+		this.defaultLimits = builder.defaultLimits;
+		this.maxWaitNanos = builder.maxWait.toNanos();
+	}
+
+	/**
+	 *
+	 * Builder class for RateLimitedTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private Map<String, Limits> limits = new HashMap<>();
+		private Limits defaultLimits;
+		private Duration maxWait = Duration.ofSeconds(30);
+
+		/**
+		 * Builder constructor with the transport to send the requests.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 */
+		public Builder(HttpTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets the limits of one provider, applied to each API key.
+		 *
+		 * @param host the provider host, example: api.openai.com.
+		 * @param requestsPerMinute the requests limit.
+		 * @param tokensPerMinute the tokens limit, zero to account the requests only.
+		 * @return instance of Builder.
+		 */
+		public Builder setLimits(String host, int requestsPerMinute, int tokensPerMinute) {
+			this.limits.put(host, new Limits(requestsPerMinute, tokensPerMinute));
+			return this;
+		}
+
+		/**
+		 * Sets the limits of the hosts without own limits, default is no limit.
+		 *
+		 * @param requestsPerMinute the requests limit.
+		 * @param tokensPerMinute the tokens limit, zero to account the requests only.
+		 * @return instance of Builder.
+		 */
+		public Builder setDefaultLimits(int requestsPerMinute, int tokensPerMinute) {
+			this.defaultLimits = new Limits(requestsPerMinute, tokensPerMinute);
+			return this;
+		}
+
+		/**
+		 * Sets the maximum time to queue a request, default is 30 seconds.
+		 *
+		 * @param maxWait maximum wait, zero to reject when the budget is exhausted.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxWait(Duration maxWait) {
+			this.maxWait = maxWait;
+			return this;
+		}
+
+		/**
+		 * Build the final RateLimitedTransport object.
+		 *
+		 * @return final RateLimitedTransport object.
+		 */
+		public RateLimitedTransport build() {
+			return new RateLimitedTransport(this);
+		}
+	}
+
+	/**
+	 * The per minute limits.
+	 */
+	private static class Limits {
+		private final int requestsPerMinute;
+		private final int tokensPerMinute;
+
+		private Limits(int requestsPerMinute, int tokensPerMinute) {
+			if (requestsPerMinute < 1 || tokensPerMinute < 0) {
+				throw new IllegalArgumentException("The requests limit should be at least 1 and the tokens limit positive");
+			}
+			this.requestsPerMinute = requestsPerMinute;
+			this.tokensPerMinute = tokensPerMinute;
+		}
+	}
+
+	/**
+	 * Token bucket that refills continuously to the per minute limit.
+	 *
+	 * The available amount goes below zero when the callers reserve ahead of the refill,
+	 * so the waiting callers are served in order.
+	 */
+	private static class TokenBucket {
+		private final double capacity;
+		private final double perNano;
+		private double available;
+		private long last;
+
+		private TokenBucket(int perMinute, long now) {
+			this.capacity = perMinute;
+			this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+			this.available = perMinute;
+			this.last = now;
+		}
+
+		private void refill(long now) {
+			available = Math.min(capacity, available + (now - last) * perNano);
+			last = now;
+		}
+
+		private long reserve(double amount, long now) {
+			refill(now);
+			available -= amount;
+			return available >= 0 ? 0 : (long) Math.ceil(-available / perNano);
+		}
+	}
+
+	/**
+	 * The requests and tokens budget of one provider and API key.
+	 */
+	private static class Budget {
+		private final String label;
+		private final Limits limits;
+		private final TokenBucket requests;
+		private final TokenBucket tokens;
+
+		private Budget(String label, Limits limits) {
+			long now = System.nanoTime();
+			this.label = label;
+			this.limits = limits;
+			this.requests = new TokenBucket(limits.requestsPerMinute, now);
+			this.tokens = limits.tokensPerMinute > 0 ? new TokenBucket(limits.tokensPerMinute, now) : null;
+		}
+
+		/**
+		 * Reserve one request and the tokens.
+		 *
+		 * @return the wait in nanoseconds until the reservation is covered.
+		 */
+		private synchronized long reserve(long amount) {
+			long now = System.nanoTime();
+			long wait = requests.reserve(1, now);
+			if (tokens != null) {
+				wait = Math.max(wait, tokens.reserve(amount, now));
+			}
+			return wait;
+		}
+
+		private synchronized void release(long amount) {
+			requests.available += 1;
+			if (tokens != null) {
+				tokens.available += amount;
+			}
+		}
+
+		private synchronized void adjustTokens(long delta) {
+			if (tokens != null) {
+				tokens.available -= delta;
+			}
+		}
+
+		private synchronized RateLimitHeadroom headroom() {
+			long now = System.nanoTime();
+			requests.refill(now);
+			long availableTokens = 0;
+			if (tokens != null) {
+				tokens.refill(now);
+				availableTokens = (long) Math.floor(tokens.available);
+			}
+			return new RateLimitHeadroom(label, limits.requestsPerMinute, limits.tokensPerMinute,
+					(long) Math.floor(requests.available), availableTokens);
+		}
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		String host = Credentials.hostOf(request);
+		Limits hostLimits = limits.getOrDefault(host, defaultLimits);
+		if (hostLimits == null) {
+			return getDelegate().sendAsync(request);
+		}
+
+		String key = Credentials.keyOf(request);
+		Budget budget = budgets.computeIfAbsent(host + "\n" + key,
+				id -> new Budget(Credentials.label(host, key), hostLimits));
+
+		TransportRequest sent = request;
+		long estimate = 0;
+		if (budget.tokens != null && request.getEstimatedTokens() >= 0) {
+			// the wrappers estimate from the request model, the body is still written to the connection
+			estimate = request.getEstimatedTokens();
+		} else if (budget.tokens != null) {
+			// write the body once, to estimate the tokens and to send it
+			try {
+				byte[] body = RequestBody.toByteArray(request.getBody());
+				estimate = TokenUsage.estimate(body);
+				sent = request.toBuilder().setBody(body).build();
+			} catch (IOException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+
+		long reserved = estimate;
+		long wait = budget.reserve(reserved);
+		if (wait > maxWaitNanos) {
+			budget.release(reserved);
+			return CompletableFuture.failedFuture(new RateLimitExceededException(
+					"The rate limit budget is exhausted for " + budget.label, Duration.ofNanos(wait)));
+		}
+		if (request.getDeadline() != null
+				&& wait > Duration.between(Instant.now(), request.getDeadline()).toNanos()) {
+			budget.release(reserved);
+			return CompletableFuture.failedFuture(new RateLimitExceededException(
+					"The rate limit wait passes the request deadline for " + budget.label, Duration.ofNanos(wait)));
+		}
+
+		TransportRequest finalRequest = sent;
+		AtomicBoolean isSent = new AtomicBoolean(wait == 0);
+		CompletableFuture<TransportResponse> call;
+		if (wait == 0) {
+			call = getDelegate().sendAsync(finalRequest);
+		} else {
+			call = this.sendAfter(wait, finalRequest, isSent);
+		}
+
+		// return the budget the call did not use, also when the caller cancels
+		CompletableFuture<TransportResponse> response = ConnHelper.onCallComplete(call, (res, error) -> {
+			if (!isSent.get()) {
+				budget.release(reserved);
+			} else if (error != null || res.getStatusCode() != 200) {
+				// the request is counted by the provider, the tokens are not
+				budget.adjustTokens(-reserved);
+			}
+		});
+
+		if (budget.tokens == null || finalRequest.isStreaming()) {
+			return response;
+		}
+
+		return ConnHelper.propagateCancel(response, response.thenApply(res -> reconcile(res, budget, reserved)));
+	}
+
+	/**
+	 * Send the request after the budget wait.
+	 *
+	 * Cancelling the result during the wait removes the timer, and after the wait it cancels the call.
+	 *
+	 * @param wait the budget wait in nanoseconds.
+	 * @param request the request to send.
+	 * @param isSent set when the request is passed to the delegate.
+	 * @return future of the response.
+	 */
+	private CompletableFuture<TransportResponse> sendAfter(long wait, TransportRequest request,
+			AtomicBoolean isSent) {
+
+		CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+		CompletableFuture<Void> delay = ConnHelper.delay(wait, TimeUnit.NANOSECONDS);
+		ConnHelper.propagateCancel(delay, result);
+
+		delay.whenComplete((ignored, failure) -> {
+			if (failure != null || result.isDone()) {
+				result.completeExceptionally(failure != null ? failure : new CancellationException());
+				return;
+			}
+			isSent.set(true);
+			CompletableFuture<TransportResponse> call;
+			try {
+				call = getDelegate().sendAsync(request);
+			} catch (RuntimeException e) {
+				call = CompletableFuture.failedFuture(e);
+			}
+			ConnHelper.propagateCancel(call, result);
+			call.whenComplete((response, error) -> {
+				if (error != null) {
+					result.completeExceptionally(error);
+				} else if (!result.complete(response)) {
+					try {
+						response.close();
+					} catch (IOException e) {
+						// the caller cancelled the result
+					}
+				}
+			});
+		});
+		return result;
+	}
+
+	/**
+	 * Correct the tokens budget from the response usage.
+	 *
+	 * @param response the transport response.
+	 * @param budget the request budget.
+	 * @param estimate the reserved tokens.
+	 * @return the response with the same body.
+	 */
+	private TransportResponse reconcile(TransportResponse response, Budget budget, long estimate) {
+
+		if (response.getStatusCode() != 200) {
+			return response;
+		}
+
+		try (TransportResponse res = response) {
+			byte[] body = res.getBody().readAllBytes();
+			long actual = TokenUsage.readTotalTokens(body);
+			if (actual >= 0) {
+				budget.adjustTokens(actual - estimate);
+			}
+			return new TransportResponse(res.getStatusCode(), res.getHeaders(), new ByteArrayInputStream(body),
+					res.getAttempts(), res.getTimings());
+		} catch (IOException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * Gets the current headroom of each provider and API key that sent a request.
+	 *
+	 * @return list of RateLimitHeadroom.
+	 */
+	public List<RateLimitHeadroom> getHeadroom() {
+		List<RateLimitHeadroom> headroom = new ArrayList<>();
+		for (Budget budget : budgets.values()) {
+			headroom.add(budget.headroom());
+		}
+		return headroom;
+	}
+}
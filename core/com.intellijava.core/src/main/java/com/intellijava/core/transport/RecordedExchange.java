@@ -0,0 +1,250 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ *
+ * RecordedExchange is one request and response pair of a recording file, with the response timing.
+ *
+ * The file is gzip compressed: the magic and the version, then one record per exchange.
+ * A record has the url, the request body, the status, the response headers, the time to the
+ * headers and the body chunks, each with its time after the headers. The API keys and the other
+ * request headers are not written.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class RecordedExchange {
+
+	/** the file magic, IJRR. */
+	static final int MAGIC = 0x494A5252;
+	static final int VERSION = 1;
+
+	/** the marker before each record, the file ends after the last record. */
+	private static final int RECORD = 1;
+
+	private final String url;
+	private final byte[] requestBody;
+	private final boolean streaming;
+	private final int statusCode;
+	private final Map<String, String> headers;
+	private final long headersNanos;
+	private final long[] chunkNanos;
+	private final List<byte[]> chunks;
+
+	/**
+	 * RecordedExchange constructor.
+	 *
+	 * @param url the endpoint url.
+	 * @param requestBody the sent body.
+	 * @param streaming true for the streaming requests.
+	 * @param statusCode the response status.
+	 * @param headers the first value of each response header.
+	 * @param headersNanos the time from the send to the response headers.
+	 * @param chunkNanos the time of each body chunk after the headers.
+	 * @param chunks the body chunks.
+	 */
+	RecordedExchange(String url, byte[] requestBody, boolean streaming, int statusCode, Map<String, String> headers,
+			long headersNanos, long[] chunkNanos, List<byte[]> chunks) {
+		this.url = url;
+		this.requestBody = requestBody;
+		this.streaming = streaming;
+		this.statusCode = statusCode;
+		this.headers = headers;
+		this.headersNanos = headersNanos;
+		this.chunkNanos = chunkNanos;
+		this.chunks = chunks;
+	}
+
+	String getUrl() {
+		return url;
+	}
+
+	byte[] getRequestBody() {
+		return requestBody;
+	}
+
+	boolean isStreaming() {
+		return streaming;
+	}
+
+	int getStatusCode() {
+		return statusCode;
+	}
+
+	Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	long getHeadersNanos() {
+		return headersNanos;
+	}
+
+	long[] getChunkNanos() {
+		return chunkNanos;
+	}
+
+	List<byte[]> getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * Gets the replay key of the exchange.
+	 *
+	 * @return the key of the endpoint path and the request body.
+	 */
+	String getKey() {
+		return keyOf(url, requestBody);
+	}
+
+	/**
+	 * Create the replay key: the path and the query of the url with the body digest,
+	 * so a recording can be replayed with another base url.
+	 *
+	 * @param url the endpoint url.
+	 * @param body the request body.
+	 * @return the key.
+	 */
+	static String keyOf(String url, byte[] body) {
+		URI uri = URI.create(url);
+		StringBuilder key = new StringBuilder(uri.getRawPath() == null ? "" : uri.getRawPath());
+		if (uri.getRawQuery() != null) {
+			key.append('?').append(uri.getRawQuery());
+		}
+		key.append('#');
+		try {
+			for (byte b : MessageDigest.getInstance("SHA-256").digest(body)) {
+				key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Write the file header.
+	 *
+	 * @param out the file stream.
+	 * @throws IOException if the write fails.
+	 */
+	static void writeHeader(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+	}
+
+	/**
+	 * Write the record.
+	 *
+	 * @param out the file stream.
+	 * @throws IOException if the write fails.
+	 */
+	void writeTo(DataOutputStream out) throws IOException {
+		out.writeByte(RECORD);
+		out.writeUTF(url);
+		out.writeInt(requestBody.length);
+		out.write(requestBody);
+		out.writeBoolean(streaming);
+		out.writeShort(statusCode);
+		out.writeShort(headers.size());
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			out.writeUTF(header.getKey());
+			out.writeUTF(header.getValue());
+		}
+		out.writeLong(headersNanos);
+		out.writeInt(chunks.size());
+		for (int index = 0; index < chunks.size(); index++) {
+			out.writeLong(chunkNanos[index]);
+			out.writeInt(chunks.get(index).length);
+			out.write(chunks.get(index));
+		}
+	}
+
+	/**
+	 * Read all the records of a recording file.
+	 *
+	 * A file cut after the last complete record, like the recording of a killed process, is read until the cut.
+	 *
+	 * @param file the recording file.
+	 * @return the records in the recorded order.
+	 * @throws IOException if the file is missing or not a recording.
+	 */
+	static List<RecordedExchange> readAll(Path file) throws IOException {
+
+		List<RecordedExchange> exchanges = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(
+				new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))))) {
+
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a recording file: " + file);
+			}
+			int version = in.readUnsignedShort();
+			if (version != VERSION) {
+				throw new IOException("Unsupported recording version " + version + ": " + file);
+			}
+
+			try {
+				while (in.read() == RECORD) {
+					exchanges.add(readFrom(in));
+				}
+			} catch (EOFException e) {
+				// the last record is incomplete
+			}
+		}
+		return exchanges;
+	}
+
+	private static RecordedExchange readFrom(DataInputStream in) throws IOException {
+		String url = in.readUTF();
+		byte[] requestBody = new byte[in.readInt()];
+		in.readFully(requestBody);
+		boolean streaming = in.readBoolean();
+		int statusCode = in.readUnsignedShort();
+		int headerCount = in.readUnsignedShort();
+		Map<String, String> headers = new LinkedHashMap<>();
+		for (int index = 0; index < headerCount; index++) {
+			headers.put(in.readUTF(), in.readUTF());
+		}
+		long headersNanos = in.readLong();
+		int chunkCount = in.readInt();
+		long[] chunkNanos = new long[chunkCount];
+		List<byte[]> chunks = new ArrayList<>(chunkCount);
+		for (int index = 0; index < chunkCount; index++) {
+			chunkNanos[index] = in.readLong();
+			byte[] chunk = new byte[in.readInt()];
+			in.readFully(chunk);
+			chunks.add(chunk);
+		}
+		return new RecordedExchange(url, requestBody, streaming, statusCode, headers, headersNanos, chunkNanos,
+				chunks);
+	}
+}
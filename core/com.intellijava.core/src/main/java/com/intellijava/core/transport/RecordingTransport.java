@@ -0,0 +1,326 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * RecordingTransport writes the successful exchanges of the wrappers to a recording file,
+ * to replay them later with ReplayTransport.
+ *
+ * The file keeps the request url and body, the response status, headers and body, and the response timing:
+ * the time to the headers and, for the streaming requests, the time of each received chunk.
+ * The request headers are not written, so the API keys stay out of the file.
+ * A failed write does not fail the call, the exchange is only missing from the recording.
+ *
+ * Example: new RemoteLanguageModel(key, "openai", new RecordingTransport.Builder(null, path).build()).
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class RecordingTransport extends DelegatingTransport implements Closeable {
+
+	/** the reads closer than this are kept as one chunk. */
+	private static final long COALESCE_NANOS = 1_000_000L;
+
+	/** the last server sent event of the completion streams. */
+	private static final String STREAM_END = "[DONE]";
+
+	private final DataOutputStream out;
+	private final AtomicLong records = new AtomicLong();
+	private boolean closed;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 * @param out the opened recording file.
+	 */
+	private RecordingTransport(Builder builder, DataOutputStream out) {
+		super(builder.delegate);
+		this.out = out;
+	}
+
+	/**
+	 *
+	 * Builder class for RecordingTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private Path file;
+
+		/**
+		 * Builder constructor with the transport to send the requests and the recording file.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 * @param file the recording file, replaced if it exists.
+		 */
+		public Builder(HttpTransport delegate, Path file) {
+			this.delegate = delegate;
+			this.file = file;
+		}
+
+		/**
+		 * Build the final RecordingTransport object and open the recording file.
+		 *
+		 * @return final RecordingTransport object.
+		 * @throws IOException if the file can not be created.
+		 */
+		public RecordingTransport build() throws IOException {
+			DataOutputStream out = new DataOutputStream(
+					new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), 8192, true));
+			RecordedExchange.writeHeader(out);
+			out.flush();
+			return new RecordingTransport(this, out);
+		}
+	}
+
+	/**
+	 * Gets the exchanges written to the file.
+	 *
+	 * @return records
+	 */
+	public long getRecordCount() {
+		return records.get();
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		byte[] body;
+		try {
+			body = request.getBody() == null ? new byte[0] : RequestBody.toByteArray(request.getBody());
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		long start = System.nanoTime();
+		CompletableFuture<TransportResponse> call = getDelegate()
+				.sendAsync(request.toBuilder().setBody(body).build());
+
+		return ConnHelper.propagateCancel(call, call.thenApply(response -> {
+			if (response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
+				return response;
+			}
+			try {
+				return request.isStreaming() ? recordStream(request, body, response, start)
+						: record(request, body, response, start);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}));
+	}
+
+	/**
+	 * Read the full body and write the exchange.
+	 *
+	 * The transports that measure the download return after the body, so its time is moved after the headers.
+	 */
+	private TransportResponse record(TransportRequest request, byte[] body, TransportResponse response, long start)
+			throws IOException {
+
+		byte[] content;
+		try (InputStream in = response.getBody()) {
+			content = in == null ? new byte[0] : in.readAllBytes();
+		}
+		long elapsed = System.nanoTime() - start;
+		TransportTimings timings = response.getTimings();
+		long download = timings == null || timings.getDownloadNanos() < 0 ? 0
+				: Math.min(timings.getDownloadNanos(), elapsed);
+
+		write(new RecordedExchange(request.getUrl(), body, false, response.getStatusCode(),
+				headersOf(response), elapsed - download, new long[] { download }, List.of(content)));
+
+		return new TransportResponse(response.getStatusCode(), response.getHeaders(),
+				new ByteArrayInputStream(content), response.getAttempts(), timings);
+	}
+
+	/**
+	 * Capture the chunks while the caller reads the stream, the exchange is written at the end of the stream.
+	 */
+	private TransportResponse recordStream(TransportRequest request, byte[] body, TransportResponse response,
+			long start) {
+
+		long headersAt = System.nanoTime();
+		RecordedExchange head = new RecordedExchange(request.getUrl(), body, true, response.getStatusCode(),
+				headersOf(response), headersAt - start, null, null);
+
+		return new TransportResponse(response.getStatusCode(), response.getHeaders(),
+				new CapturingInputStream(response.getBody(), head, headersAt), response.getAttempts(),
+				response.getTimings());
+	}
+
+	/**
+	 * Gets the first value of the response headers, without the encoding of the original body.
+	 */
+	private static Map<String, String> headersOf(TransportResponse response) {
+		Map<String, String> headers = new LinkedHashMap<>();
+		for (Map.Entry<String, List<String>> entry : response.getHeaders().entrySet()) {
+			if (entry.getKey() == null || entry.getValue().isEmpty()) {
+				continue;
+			}
+			String name = entry.getKey().toLowerCase(Locale.ROOT);
+			if (!name.equals("content-encoding") && !name.equals("content-length") && !name.startsWith(":")) {
+				headers.put(name, entry.getValue().get(0));
+			}
+		}
+		return headers;
+	}
+
+	private void write(RecordedExchange exchange) {
+		synchronized (out) {
+			if (closed) {
+				return;
+			}
+			try {
+				exchange.writeTo(out);
+				out.flush();
+				records.incrementAndGet();
+			} catch (IOException e) {
+				// the recording must not fail the call
+			}
+		}
+	}
+
+	/**
+	 * Finish and close the recording file, the later exchanges are not written.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (out) {
+			if (!closed) {
+				closed = true;
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Keeps a copy of each read with its time after the response headers.
+	 * The exchange is written at the end of the stream, or when it is closed after the [DONE] event.
+	 * A stream closed before its end is not written, it can not be replayed as received.
+	 */
+	private class CapturingInputStream extends FilterInputStream {
+		private final RecordedExchange head;
+		private final long headersAt;
+		private final List<byte[]> chunks = new ArrayList<>();
+		private long[] chunkNanos = new long[16];
+		private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+		private long pendingAt = -1;
+		private boolean done;
+
+		private CapturingInputStream(InputStream in, RecordedExchange head, long headersAt) {
+			super(in);
+			this.head = head;
+			this.headersAt = headersAt;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int value = super.read();
+			if (value < 0) {
+				finish();
+			} else {
+				capture(new byte[] { (byte) value }, 0, 1);
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count = super.read(b, off, len);
+			if (count < 0) {
+				finish();
+			} else if (count > 0) {
+				capture(b, off, count);
+			}
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!done && endsWithDone()) {
+				finish();
+			}
+			super.close();
+		}
+
+		private boolean endsWithDone() {
+			byte[] last = pendingAt >= 0 ? pending.toByteArray()
+					: chunks.isEmpty() ? new byte[0] : chunks.get(chunks.size() - 1);
+			String tail = new String(last, Math.max(0, last.length - 32), Math.min(32, last.length),
+					StandardCharsets.UTF_8);
+			return tail.trim().endsWith(STREAM_END);
+		}
+
+		private void capture(byte[] b, int off, int len) {
+			long now = System.nanoTime() - headersAt;
+			if (pendingAt >= 0 && now - pendingAt >= COALESCE_NANOS) {
+				flushPending();
+			}
+			if (pendingAt < 0) {
+				pendingAt = now;
+			}
+			pending.write(b, off, len);
+		}
+
+		private void flushPending() {
+			if (chunks.size() == chunkNanos.length) {
+				chunkNanos = Arrays.copyOf(chunkNanos, chunkNanos.length * 2);
+			}
+			chunkNanos[chunks.size()] = pendingAt;
+			chunks.add(pending.toByteArray());
+			pending.reset();
+			pendingAt = -1;
+		}
+
+		private void finish() {
+			if (done) {
+				return;
+			}
+			done = true;
+			if (pendingAt >= 0) {
+				flushPending();
+			}
+			write(new RecordedExchange(head.getUrl(), head.getRequestBody(), true, head.getStatusCode(),
+					head.getHeaders(), head.getHeadersNanos(), Arrays.copyOf(chunkNanos, chunks.size()), chunks));
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * ReplayTransport serves the responses of a RecordingTransport file without a network call.
+ *
+ * A request matches a recorded exchange with the same url path, query and body, the base url
+ * and the API key are not compared. The same request recorded many times is replayed in the
+ * recorded order, then from the first one again.
+ * The responses keep the recorded timing multiplied by the latency scale: 1 for the original
+ * latency, 0 to return immediately. The streaming responses release each chunk at its recorded time.
+ *
+ * Example: new Chatbot(key, SupportedChatModels.openai, new ReplayTransport.Builder(path).setLatencyScale(0).build()).
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class ReplayTransport implements HttpTransport {
+
+	/** the longest sleep before the stream checks if it is closed. */
+	private static final long SLEEP_SLICE_NANOS = 50_000_000L;
+
+	private final Map<String, Recorded> exchanges;
+	private final double latencyScale;
+	private final HttpTransport fallback;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 * @param exchanges the recorded exchanges by key.
+	 */
+	private ReplayTransport(Builder builder, Map<String, Recorded> exchanges) {
+		this.exchanges = exchanges;
+		this.latencyScale = builder.latencyScale;
+		this.fallback = builder.fallback;
+	}
+
+	/**
+	 *
+	 * Builder class for ReplayTransport.
+	 *
+	 */
+	public static class Builder {
+		private Path file;
+		private double latencyScale = 1.0;
+		private HttpTransport fallback;
+
+		/**
+		 * Builder constructor with the recording file.
+		 *
+		 * @param file the file written by RecordingTransport.
+		 */
+		public Builder(Path file) {
+			this.file = file;
+		}
+
+		/**
+		 * Sets the multiplier of the recorded latency, default is 1 for the original latency.
+		 *
+		 * @param latencyScale 0 for no delay, 0.5 for two times faster responses.
+		 * @return instance of Builder.
+		 */
+		public Builder setLatencyScale(double latencyScale) {
+			if (latencyScale < 0) {
+				throw new IllegalArgumentException("The latency scale can not be negative");
+			}
+			this.latencyScale = latencyScale;
+			return this;
+		}
+
+		/**
+		 * Sets the transport for the requests without a recorded exchange, default is null to fail them.
+		 *
+		 * @param fallback the transport to send the missed requests.
+		 * @return instance of Builder.
+		 */
+		public Builder setFallback(HttpTransport fallback) {
+			this.fallback = fallback;
+			return this;
+		}
+
+		/**
+		 * Build the final ReplayTransport object and load the recording file.
+		 *
+		 * @return final ReplayTransport object.
+		 * @throws IOException if the file is missing or not a recording.
+		 */
+		public ReplayTransport build() throws IOException {
+			Map<String, Recorded> exchanges = new HashMap<>();
+			for (RecordedExchange exchange : RecordedExchange.readAll(file)) {
+				exchanges.computeIfAbsent(exchange.getKey(), key -> new Recorded()).list.add(exchange);
+			}
+			return new ReplayTransport(this, exchanges);
+		}
+	}
+
+	/**
+	 * Gets the requests served from the recording.
+	 *
+	 * @return hits
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the requests without a recorded exchange.
+	 *
+	 * @return misses
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	@Override
+	public TransportResponse send(TransportRequest request) throws IOException {
+		return ConnHelper.await(sendAsync(request));
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+
+		RecordedExchange exchange;
+		try {
+			byte[] body = request.getBody() == null ? new byte[0] : RequestBody.toByteArray(request.getBody());
+			Recorded recorded = exchanges.get(RecordedExchange.keyOf(request.getUrl(), body));
+			exchange = recorded == null ? null : recorded.next();
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		if (exchange == null) {
+			misses.incrementAndGet();
+			if (fallback != null) {
+				return fallback.sendAsync(request);
+			}
+			return CompletableFuture.failedFuture(
+					new IOException("No recorded response for " + request.getUrl()));
+		}
+		hits.incrementAndGet();
+
+		long[] chunkNanos = exchange.getChunkNanos();
+		long lastChunk = chunkNanos.length == 0 ? 0 : chunkNanos[chunkNanos.length - 1];
+		long delay = scaled(exchange.isStreaming() ? exchange.getHeadersNanos()
+				: exchange.getHeadersNanos() + lastChunk);
+
+		CompletableFuture<TransportResponse> response = new CompletableFuture<>();
+		Runnable reply = () -> response.complete(new TransportResponse(exchange.getStatusCode(),
+				headersOf(exchange), exchange.isStreaming() ? new ReplayInputStream(exchange) : bodyOf(exchange)));
+
+		if (delay <= 0) {
+			reply.run();
+		} else {
+			CompletableFuture<Void> timer = ConnHelper.delay(delay, TimeUnit.NANOSECONDS);
+			timer.thenRun(reply);
+			response.whenComplete((res, error) -> timer.cancel(false));
+		}
+		return ConnHelper.withDeadline(response, request.getDeadline());
+	}
+
+	private long scaled(long nanos) {
+		return (long) (nanos * latencyScale);
+	}
+
+	private static Map<String, List<String>> headersOf(RecordedExchange exchange) {
+		Map<String, List<String>> headers = new HashMap<>();
+		for (Map.Entry<String, String> header : exchange.getHeaders().entrySet()) {
+			headers.put(header.getKey(), List.of(header.getValue()));
+		}
+		return headers;
+	}
+
+	private static InputStream bodyOf(RecordedExchange exchange) {
+		if (exchange.getChunks().size() == 1) {
+			return new ByteArrayInputStream(exchange.getChunks().get(0));
+		}
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		for (byte[] chunk : exchange.getChunks()) {
+			body.write(chunk, 0, chunk.length);
+		}
+		return new ByteArrayInputStream(body.toByteArray());
+	}
+
+	/**
+	 * The recorded exchanges of one key, replayed in a cycle.
+	 */
+	private static class Recorded {
+		private final List<RecordedExchange> list = new ArrayList<>(1);
+		private final AtomicInteger cursor = new AtomicInteger();
+
+		private RecordedExchange next() {
+			return list.get(Math.floorMod(cursor.getAndIncrement(), list.size()));
+		}
+	}
+
+	/**
+	 * Releases each recorded chunk at its scaled time after the response headers.
+	 */
+	private class ReplayInputStream extends InputStream {
+		private final RecordedExchange exchange;
+		private final long start = System.nanoTime();
+		private int chunk;
+		private int position;
+		private volatile boolean closed;
+
+		private ReplayInputStream(RecordedExchange exchange) {
+			this.exchange = exchange;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			List<byte[]> chunks = exchange.getChunks();
+			while (chunk < chunks.size() && position == chunks.get(chunk).length) {
+				chunk++;
+				position = 0;
+			}
+			if (closed) {
+				throw new IOException("The stream is closed");
+			}
+			if (chunk == chunks.size()) {
+				return -1;
+			}
+			if (position == 0) {
+				awaitChunk(start + scaled(exchange.getChunkNanos()[chunk]));
+			}
+			byte[] current = chunks.get(chunk);
+			int count = Math.min(len, current.length - position);
+			System.arraycopy(current, position, b, off, count);
+			position += count;
+			return count;
+		}
+
+		@Override
+		public int available() {
+			if (chunk >= exchange.getChunks().size() || position == 0) {
+				return 0;
+			}
+			return exchange.getChunks().get(chunk).length - position;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+
+		private void awaitChunk(long releaseAt) throws IOException {
+			long remaining;
+			while ((remaining = releaseAt - System.nanoTime()) > 0) {
+				if (closed) {
+					throw new IOException("The stream is closed");
+				}
+				try {
+					long slice = Math.min(remaining, SLEEP_SLICE_NANOS);
+					TimeUnit.NANOSECONDS.sleep(slice);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("The replay interrupted while waiting for the stream");
+				}
+			}
+		}
+	}
+}
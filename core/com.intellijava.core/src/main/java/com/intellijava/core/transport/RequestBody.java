@@ -0,0 +1,64 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ *
+ * RequestBody writes the request content directly to the transport stream.
+ *
+ * The body is written when the request is sent, so the json models are encoded
+ * once without an intermediate string. It can be written again for a retry.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public interface RequestBody {
+
+	/**
+	 * Write the body to the output stream.
+	 *
+	 * @param out the transport stream, do not close it.
+	 * @throws IOException if there is an issue writing the body.
+	 */
+	public void writeTo(OutputStream out) throws IOException;
+
+	/**
+	 * Create a body from encoded bytes.
+	 *
+	 * @param bytes the body content.
+	 * @return RequestBody
+	 */
+	public static RequestBody of(byte[] bytes) {
+		return out -> out.write(bytes);
+	}
+
+	/**
+	 * Write the body to a byte array, for the transports that need the full content.
+	 *
+	 * @param body the request body.
+	 * @return the body bytes.
+	 * @throws IOException if there is an issue writing the body.
+	 */
+	public static byte[] toByteArray(RequestBody body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		body.writeTo(out);
+		return out.toByteArray();
+	}
+}
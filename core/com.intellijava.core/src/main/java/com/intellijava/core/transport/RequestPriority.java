@@ -0,0 +1,32 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+/**
+ *
+ * RequestPriority is the scheduling class of the requests, the higher classes are sent first.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public enum RequestPriority {
+	/** user facing calls, sent before all the other classes. */
+	INTERACTIVE,
+	/** the default class. */
+	NORMAL,
+	/** offline work that uses the remaining capacity. */
+	BULK
+}
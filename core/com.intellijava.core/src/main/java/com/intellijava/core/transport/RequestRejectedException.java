@@ -0,0 +1,41 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+
+/**
+ *
+ * RequestRejectedException is thrown when a request is rejected on the client side
+ * without calling the provider, because the waiting queue is full or the expected
+ * latency exceeds the request deadline.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class RequestRejectedException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * RequestRejectedException constructor.
+	 *
+	 * @param message the error details.
+	 */
+	public RequestRejectedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * RetryAfter reads the server wait hint from the Retry-After and the rate limit reset headers.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class RetryAfter {
+
+	private static final Pattern RESET_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+
+	/**
+	 * RetryAfter has static helpers only.
+	 */
+	private RetryAfter() {
+	}
+
+	/**
+	 * Parse the wait hint of the response headers.
+	 *
+	 * Retry-After-Ms and Retry-After are used first. Without them, the rate limit reset of the
+	 * exhausted requests or tokens budget is used, example: x-ratelimit-reset-tokens: 6m0s.
+	 *
+	 * @param headers the response headers.
+	 * @return the wait or null if the response has no hint.
+	 */
+	static Duration parse(Map<String, List<String>> headers) {
+
+		String value = header(headers, "retry-after-ms");
+		if (value != null) {
+			try {
+				return Duration.ofMillis((long) Double.parseDouble(value));
+			} catch (NumberFormatException e) {
+				// try the other headers
+			}
+		}
+
+		value = header(headers, "retry-after");
+		if (value != null) {
+			try {
+				return Duration.ofSeconds(Long.parseLong(value));
+			} catch (NumberFormatException e) {
+				try {
+					ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+					Duration wait = Duration.between(ZonedDateTime.now(date.getZone()), date);
+					return wait.isNegative() ? Duration.ZERO : wait;
+				} catch (DateTimeParseException ignored) {
+					// try the reset headers
+				}
+			}
+		}
+
+		Duration wait = null;
+		for (String budget : new String[] {"requests", "tokens"}) {
+			if ("0".equals(header(headers, "x-ratelimit-remaining-" + budget))) {
+				Duration reset = parseReset(header(headers, "x-ratelimit-reset-" + budget));
+				if (reset != null && (wait == null || reset.compareTo(wait) > 0)) {
+					wait = reset;
+				}
+			}
+		}
+
+		return wait;
+	}
+
+	/**
+	 * Parse the reset duration format, example: 1s, 20ms or 6m0s.
+	 *
+	 * @param value the header value.
+	 * @return the duration or null.
+	 */
+	static Duration parseReset(String value) {
+
+		if (value == null) {
+			return null;
+		}
+
+		Matcher matcher = RESET_PART.matcher(value);
+		double millis = 0;
+		boolean found = false;
+		while (matcher.find()) {
+			found = true;
+			double amount = Double.parseDouble(matcher.group(1));
+			switch (matcher.group(2)) {
+			case "ms":
+				millis += amount;
+				break;
+			case "s":
+				millis += amount * 1000;
+				break;
+			case "m":
+				millis += amount * 60_000;
+				break;
+			default:
+				millis += amount * 3_600_000;
+			}
+		}
+
+		return found ? Duration.ofMillis((long) Math.ceil(millis)) : null;
+	}
+
+	/**
+	 * Gets the first header value, case-insensitive.
+	 */
+	private static String header(Map<String, List<String>> headers, String name) {
+		for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+			if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty()) {
+				return entry.getValue().get(0).trim();
+			}
+		}
+		return null;
+	}
+}
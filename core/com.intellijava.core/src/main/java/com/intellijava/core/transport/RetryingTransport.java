@@ -0,0 +1,357 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * RetryingTransport sends the failed requests again with jittered exponential backoff.
+ *
+ * The responses are classified by the status code: 429, 408 and the server errors are retried,
+ * the other client errors are returned directly. The server wait hint from Retry-After or the
+ * rate limit reset headers is respected, and all the attempts stop at the total deadline or the request deadline.
+ * When the retries end, the last response is returned and the wrapper raises HttpStatusException.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class RetryingTransport extends DelegatingTransport {
+
+	private final int maxAttempts;
+	private final long initialBackoffNanos;
+	private final long maxBackoffNanos;
+	private final double multiplier;
+	private final long deadlineNanos;
+	private final Set<Integer> retryableStatuses;
+	private final boolean retryConnectionErrors;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private RetryingTransport(Builder builder) {
+		super(builder.delegate);
+		this.maxAttempts = builder.maxAttempts;
+		this.initialBackoffNanos = builder.initialBackoff.toNanos();
+		this.maxBackoffNanos = builder.maxBackoff.toNanos();
+		this.multiplier = builder.multiplier;
+		this.deadlineNanos = builder.deadline.toNanos();
+		this.retryableStatuses = Set.copyOf(builder.retryableStatuses);
+		this.retryConnectionErrors = builder.retryConnectionErrors;
+	}
+
+	/**
+	 *
+	 * Builder class for RetryingTransport.
+	 *
+	 */
+	public static class Builder {
+		private HttpTransport delegate;
+		private int maxAttempts = 4;
+		private Duration initialBackoff = Duration.ofMillis(500);
+		private Duration maxBackoff = Duration.ofSeconds(30);
+		private double multiplier = 2;
+		private Duration deadline = Duration.ofSeconds(120);
+		private Set<Integer> retryableStatuses = Set.of(408, 429, 500, 502, 503, 504);
+		private boolean retryConnectionErrors = true;
+
+		/**
+		 * Builder constructor with the transport to send the requests.
+		 *
+		 * @param delegate the wrapped transport, null for the default shared transport.
+		 */
+		public Builder(HttpTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets the maximum attempts including the first call, default is 4.
+		 *
+		 * @param maxAttempts maximum attempts.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		/**
+		 * Sets the backoff of the first retry, default is 500 milliseconds.
+		 *
+		 * @param initialBackoff the first backoff.
+		 * @return instance of Builder.
+		 */
+		public Builder setInitialBackoff(Duration initialBackoff) {
+			this.initialBackoff = initialBackoff;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum backoff, default is 30 seconds.
+		 *
+		 * @param maxBackoff the backoff cap.
+		 * @return instance of Builder.
+		 */
+		public Builder setMaxBackoff(Duration maxBackoff) {
+			this.maxBackoff = maxBackoff;
+			return this;
+		}
+
+		/**
+		 * Sets the backoff growth per attempt, default is 2.
+		 *
+		 * @param multiplier the backoff multiplier.
+		 * @return instance of Builder.
+		 */
+		public Builder setMultiplier(double multiplier) {
+			this.multiplier = multiplier;
+			return this;
+		}
+
+		/**
+		 * Sets the total time of all the attempts and waits, default is 120 seconds.
+		 *
+		 * @param deadline the total deadline.
+		 * @return instance of Builder.
+		 */
+		public Builder setDeadline(Duration deadline) {
+			this.deadline = deadline;
+			return this;
+		}
+
+		/**
+		 * Sets the status codes to retry, default is 408, 429, 500, 502, 503 and 504.
+		 *
+		 * @param retryableStatuses the retryable status codes.
+		 * @return instance of Builder.
+		 */
+		public Builder setRetryableStatuses(Set<Integer> retryableStatuses) {
+			this.retryableStatuses = retryableStatuses;
+			return this;
+		}
+
+		/**
+		 * Sets if the connection errors and timeouts are retried, default is true.
+		 *
+		 * @param retryConnectionErrors true to retry the connection errors.
+		 * @return instance of Builder.
+		 */
+		public Builder setRetryConnectionErrors(boolean retryConnectionErrors) {
+			this.retryConnectionErrors = retryConnectionErrors;
+			return this;
+		}
+
+		/**
+		 * Build the final RetryingTransport object.
+		 *
+		 * @return final RetryingTransport object.
+		 */
+		public RetryingTransport build() {
+			return new RetryingTransport(this);
+		}
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+		long deadline = System.nanoTime() + deadlineNanos;
+		if (request.getDeadline() != null) {
+			// the call deadline stops the retries earlier
+			deadline = Math.min(deadline, System.nanoTime()
+					+ Duration.between(Instant.now(), request.getDeadline()).toNanos());
+		}
+		Attempts attempts = new Attempts(request, deadline);
+		attempts.send(1);
+		return attempts.result;
+	}
+
+	/**
+	 * The attempts of one request.
+	 *
+	 * Cancelling the result aborts the attempt in flight or the backoff wait, and no later attempt is sent.
+	 */
+	private class Attempts {
+		private final TransportRequest request;
+		private final long deadline;
+		private final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+		/** the attempt in flight or the backoff wait. */
+		private volatile CompletableFuture<?> pending;
+
+		/**
+		 * Attempts constructor.
+		 *
+		 * @param request the transport request.
+		 * @param deadline the nano time to stop the retries.
+		 */
+		private Attempts(TransportRequest request, long deadline) {
+			this.request = request;
+			this.deadline = deadline;
+			result.whenComplete((response, error) -> {
+				CompletableFuture<?> current = pending;
+				if (error != null && current != null) {
+					current.cancel(true);
+				}
+			});
+		}
+
+		/**
+		 * Send one attempt, unless the result is already cancelled.
+		 *
+		 * @param attempt the attempt number, starts from 1.
+		 */
+		private void send(int attempt) {
+
+			if (result.isDone()) {
+				return;
+			}
+
+			CompletableFuture<TransportResponse> call;
+			try {
+				call = getDelegate().sendAsync(request);
+			} catch (RuntimeException e) {
+				call = CompletableFuture.failedFuture(e);
+			}
+			pending = call;
+			if (result.isDone()) {
+				// cancelled while sending
+				call.cancel(true);
+				return;
+			}
+			call.whenComplete((response, error) -> this.onResult(attempt, response, error));
+		}
+
+		/**
+		 * Complete the result, or wait the backoff and send the next attempt when the result is retryable.
+		 */
+		private void onResult(int attempt, TransportResponse response, Throwable error) {
+
+			if (result.isDone()) {
+				if (response != null) {
+					closeQuietly(response);
+				}
+				return;
+			}
+
+			// unwrap without throwing, a throw in the callback would leave the result incomplete
+			Throwable cause = error == null ? null : ConnHelper.unwrap(error);
+			long delay;
+
+			if (error != null) {
+				if (!isRetryable(cause) || attempt >= maxAttempts) {
+					result.completeExceptionally(cause);
+					return;
+				}
+				delay = backoff(attempt);
+			} else if (!retryableStatuses.contains(response.getStatusCode()) || attempt >= maxAttempts) {
+				this.complete(response, attempt);
+				return;
+			} else {
+				Duration hint = RetryAfter.parse(response.getHeaders());
+				delay = Math.max(backoff(attempt), hint == null ? 0 : hint.toNanos());
+			}
+
+			if (System.nanoTime() + delay >= deadline) {
+				// no time for another attempt, return the last result
+				if (error == null) {
+					this.complete(response, attempt);
+				} else {
+					result.completeExceptionally(cause);
+				}
+				return;
+			}
+
+			if (response != null) {
+				closeQuietly(response);
+			}
+
+			CompletableFuture<Void> wait = ConnHelper.delay(delay, TimeUnit.NANOSECONDS);
+			pending = wait;
+			if (result.isDone()) {
+				wait.cancel(false);
+				return;
+			}
+			wait.thenRun(() -> this.send(attempt + 1));
+		}
+
+		private void complete(TransportResponse response, int attempt) {
+			if (!result.complete(withAttempts(response, attempt))) {
+				closeQuietly(response);
+			}
+		}
+	}
+
+	/**
+	 * Stamp the response with the attempts, for the metrics.
+	 */
+	private static TransportResponse withAttempts(TransportResponse response, int attempt) {
+		if (attempt == 1) {
+			return response;
+		}
+		return new TransportResponse(response.getStatusCode(), response.getHeaders(), response.getBody(), attempt,
+				response.getTimings());
+	}
+
+	/**
+	 * Check if the connection error can be retried.
+	 *
+	 * @param error the unwrapped error.
+	 * @return true to retry.
+	 */
+	private boolean isRetryable(Throwable error) {
+
+		if (!retryConnectionErrors || !(error instanceof IOException)) {
+			return false;
+		}
+
+		// the client side rejections and the interrupts are final
+		return !(error instanceof RateLimitExceededException) && !(error instanceof CircuitOpenException)
+				&& !(error instanceof RequestRejectedException)
+				&& !(error instanceof InterruptedIOException && !(error instanceof SocketTimeoutException));
+	}
+
+	/**
+	 * Full jitter backoff, a random wait up to the exponential cap to spread the retries of the callers.
+	 *
+	 * @param attempt the failed attempt number.
+	 * @return the wait in nanoseconds.
+	 */
+	private long backoff(int attempt) {
+		double cap = Math.min(maxBackoffNanos, initialBackoffNanos * Math.pow(multiplier, attempt - 1));
+		return (long) (ThreadLocalRandom.current().nextDouble() * cap);
+	}
+
+	/**
+	 * Close the discarded response to release the connection.
+	 */
+	private static void closeQuietly(TransportResponse response) {
+		try {
+			response.close();
+		} catch (IOException e) {
+			// the response is discarded
+		}
+	}
+}
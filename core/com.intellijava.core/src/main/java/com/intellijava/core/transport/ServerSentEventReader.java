@@ -0,0 +1,90 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * ServerSentEventReader reads the data of text/event-stream responses one event at a time.
+ *
+ * Comment lines and the event name are ignored, multiple data lines of the same event
+ * are joined with a new line as defined by the SSE specification.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class ServerSentEventReader implements Closeable {
+
+	private final BufferedReader reader;
+
+	/**
+	 * ServerSentEventReader constructor with the response body stream.
+	 *
+	 * @param stream the event stream.
+	 */
+	public ServerSentEventReader(InputStream stream) {
+		this.reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Read the next event data, blocks until the event is complete.
+	 *
+	 * @return the event data or null when the stream ends.
+	 * @throws IOException if there is an issue reading the stream.
+	 */
+	public String nextData() throws IOException {
+
+		StringBuilder data = null;
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+
+			if (line.isEmpty()) {
+				// blank line dispatch the event
+				if (data != null) {
+					return data.toString();
+				}
+				continue;
+			}
+
+			if (line.startsWith("data:")) {
+				String value = line.substring(5);
+				if (value.startsWith(" ")) {
+					value = value.substring(1);
+				}
+
+				if (data == null) {
+					data = new StringBuilder(value);
+				} else {
+					data.append('\n').append(value);
+				}
+			}
+		}
+
+		return data == null ? null : data.toString();
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
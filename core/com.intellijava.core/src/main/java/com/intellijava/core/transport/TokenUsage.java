@@ -0,0 +1,123 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ *
+ * TokenUsage reads the token counts from the json bodies without building the models.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class TokenUsage {
+
+	/** average characters per token for the english text. */
+	private static final int CHARS_PER_TOKEN = 4;
+
+	/**
+	 * TokenUsage has static helpers only.
+	 */
+	private TokenUsage() {
+	}
+
+	/**
+	 * Estimate the tokens of the request, the prompt from the body size and the completion
+	 * from max_tokens multiplied by n or num_generations.
+	 *
+	 * @param body the json request body.
+	 * @return estimated tokens.
+	 */
+	static long estimate(byte[] body) {
+
+		long maxTokens = 0;
+		long outputs = 1;
+
+		try (JsonReader reader = reader(body)) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				return body.length / CHARS_PER_TOKEN;
+			}
+
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (name.equals("max_tokens") && reader.peek() == JsonToken.NUMBER) {
+					maxTokens = reader.nextLong();
+				} else if ((name.equals("n") || name.equals("num_generations")) && reader.peek() == JsonToken.NUMBER) {
+					outputs = Math.max(1, reader.nextLong());
+				} else {
+					reader.skipValue();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// not a json object, count the size only
+		}
+
+		return body.length / CHARS_PER_TOKEN + maxTokens * outputs;
+	}
+
+	/**
+	 * Read the usage total_tokens of the response.
+	 *
+	 * @param body the json response body.
+	 * @return total tokens or -1 if the response has no usage.
+	 */
+	static long readTotalTokens(byte[] body) {
+
+		try (JsonReader reader = reader(body)) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				return -1;
+			}
+
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (!reader.nextName().equals("usage") || reader.peek() != JsonToken.BEGIN_OBJECT) {
+					reader.skipValue();
+					continue;
+				}
+
+				reader.beginObject();
+				while (reader.hasNext()) {
+					if (reader.nextName().equals("total_tokens") && reader.peek() == JsonToken.NUMBER) {
+						return reader.nextLong();
+					}
+					reader.skipValue();
+				}
+				return -1;
+			}
+		} catch (IOException | RuntimeException e) {
+			// not a json object
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Create a lenient json reader over the body.
+	 */
+	private static JsonReader reader(byte[] body) {
+		JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+		reader.setLenient(true);
+		return reader;
+	}
+}
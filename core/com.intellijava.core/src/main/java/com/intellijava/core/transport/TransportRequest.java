@@ -0,0 +1,243 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * TransportRequest represents a single POST call to a remote model.
+ *
+ * Use the Builder to create the request.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class TransportRequest {
+
+	private final String url;
+	private final Map<String, String> headers;
+	private final RequestBody body;
+	private final boolean streaming;
+	private final Instant deadline;
+	private final String model;
+	private final long estimatedTokens;
+
+	/**
+	 * Private constructor for the Builder.
+	 *
+	 * @param builder instance of Builder
+	 */
+	private TransportRequest(Builder builder) {
+		this.url = builder.url;
+		this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.headers));
+		this.body = builder.body;
+		this.streaming = builder.streaming;
+		this.deadline = builder.deadline;
+		this.model = builder.model;
+		this.estimatedTokens = builder.estimatedTokens;
+	}
+
+	/**
+	 *
+	 * Builder class for TransportRequest.
+	 *
+	 */
+	public static class Builder {
+		private String url;
+		private Map<String, String> headers = new LinkedHashMap<>();
+		private RequestBody body = RequestBody.of(new byte[0]);
+		private boolean streaming;
+		private Instant deadline;
+		private String model;
+		private long estimatedTokens = -1;
+
+		/**
+		 * Builder constructor with the full endpoint url.
+		 *
+		 * @param url the remote endpoint.
+		 */
+		public Builder(String url) {
+			this.url = url;
+		}
+
+		/**
+		 * Add request header.
+		 *
+		 * @param name header name.
+		 * @param value header value.
+		 * @return instance of Builder.
+		 */
+		public Builder addHeader(String name, String value) {
+			this.headers.put(name, value);
+			return this;
+		}
+
+		/**
+		 * Sets the request body.
+		 *
+		 * @param body encoded request body.
+		 * @return instance of Builder.
+		 */
+		public Builder setBody(byte[] body) {
+			this.body = RequestBody.of(body);
+			return this;
+		}
+
+		/**
+		 * Sets the request body writer, the content is written when the request is sent.
+		 *
+		 * @param body the request body writer.
+		 * @return instance of Builder.
+		 */
+		public Builder setBody(RequestBody body) {
+			this.body = body;
+			return this;
+		}
+
+		/**
+		 * Sets the streaming mode, the response is returned after the headers
+		 * and the body is read while it arrives.
+		 *
+		 * @param streaming true for server-sent events or any long response.
+		 * @return instance of Builder.
+		 */
+		public Builder setStreaming(boolean streaming) {
+			this.streaming = streaming;
+			return this;
+		}
+
+		/**
+		 * Sets the call deadline, the transports do not start or wait for the response after it.
+		 *
+		 * @param deadline the deadline or null for no deadline.
+		 * @return instance of Builder.
+		 */
+		public Builder setDeadline(Instant deadline) {
+			this.deadline = deadline;
+			return this;
+		}
+
+		/**
+		 * Sets the model name, used to account the latency and the load per model.
+		 *
+		 * @param model the model name or null if unknown.
+		 * @return instance of Builder.
+		 */
+		public Builder setModel(String model) {
+			this.model = model;
+			return this;
+		}
+
+		/**
+		 * Sets the estimated prompt and completion tokens, used by the rate limiters without reading the body.
+		 *
+		 * @param estimatedTokens the estimate, or -1 if unknown.
+		 * @return instance of Builder.
+		 */
+		public Builder setEstimatedTokens(long estimatedTokens) {
+			this.estimatedTokens = estimatedTokens;
+			return this;
+		}
+
+		/**
+		 * Build the final TransportRequest object.
+		 *
+		 * @return final TransportRequest object.
+		 */
+		public TransportRequest build() {
+			return new TransportRequest(this);
+		}
+	}
+
+	/**
+	 * Create a builder with the request details, to send a modified copy of the request.
+	 *
+	 * @return instance of Builder.
+	 */
+	public Builder toBuilder() {
+		Builder builder = new Builder(url).setBody(body).setStreaming(streaming).setDeadline(deadline)
+				.setModel(model).setEstimatedTokens(estimatedTokens);
+		builder.headers.putAll(headers);
+		return builder;
+	}
+
+	/**
+	 * Gets the endpoint url.
+	 *
+	 * @return url
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Gets the request headers.
+	 *
+	 * @return read only map of the headers.
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Gets the request body.
+	 *
+	 * @return body writer.
+	 */
+	public RequestBody getBody() {
+		return body;
+	}
+
+	/**
+	 * Check if the response body should be streamed.
+	 *
+	 * @return true for streaming request.
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * Gets the call deadline.
+	 *
+	 * @return deadline or null for no deadline.
+	 */
+	public Instant getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Gets the model name.
+	 *
+	 * @return model or null if unknown.
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * Gets the estimated tokens.
+	 *
+	 * @return estimatedTokens or -1 if unknown.
+	 */
+	public long getEstimatedTokens() {
+		return estimatedTokens;
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * TransportResponse represents the remote model response: status code, headers and body stream.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class TransportResponse implements Closeable {
+
+	private final int statusCode;
+	private final Map<String, List<String>> headers;
+	private final InputStream body;
+	private final int attempts;
+	private final TransportTimings timings;
+
+	/**
+	 * TransportResponse constructor.
+	 *
+	 * @param statusCode the HTTP status code.
+	 * @param headers the response headers, the names are lower case.
+	 * @param body the response body stream.
+	 */
+	public TransportResponse(int statusCode, Map<String, List<String>> headers, InputStream body) {
+		this(statusCode, headers, body, 1);
+	}
+
+	/**
+	 * TransportResponse constructor with the number of attempts.
+	 *
+	 * @param statusCode the HTTP status code.
+	 * @param headers the response headers, the names are lower case.
+	 * @param body the response body stream.
+	 * @param attempts the sent attempts to receive this response.
+	 */
+	public TransportResponse(int statusCode, Map<String, List<String>> headers, InputStream body, int attempts) {
+		this(statusCode, headers, body, attempts, null);
+	}
+
+	/**
+	 * TransportResponse constructor with the number of attempts and the exchange timings.
+	 *
+	 * @param statusCode the HTTP status code.
+	 * @param headers the response headers, the names are lower case.
+	 * @param body the response body stream.
+	 * @param attempts the sent attempts to receive this response.
+	 * @param timings the phases of the last attempt, or null if not measured.
+	 */
+	public TransportResponse(int statusCode, Map<String, List<String>> headers, InputStream body, int attempts,
+			TransportTimings timings) {
+		this.statusCode = statusCode;
+		this.headers = headers == null ? Collections.emptyMap() : headers;
+		this.body = body;
+		this.attempts = attempts;
+		this.timings = timings;
+	}
+
+	/**
+	 * Gets the HTTP status code.
+	 *
+	 * @return statusCode
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Gets all the response headers.
+	 *
+	 * @return map of header name and values.
+	 */
+	public Map<String, List<String>> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Gets the first value of a response header.
+	 *
+	 * @param name the header name, not case sensitive.
+	 * @return header value or null if missing.
+	 */
+	public String getHeader(String name) {
+		for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+			if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name)
+					&& !entry.getValue().isEmpty()) {
+				return entry.getValue().get(0);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the response body stream.
+	 *
+	 * @return body stream.
+	 */
+	public InputStream getBody() {
+		return body;
+	}
+
+	/**
+	 * Gets the sent attempts to receive this response, more than 1 after the retries.
+	 *
+	 * @return attempts
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * Gets the phases of the exchange that returned this response.
+	 *
+	 * @return timings or null if the transport does not measure them.
+	 */
+	public TransportTimings getTimings() {
+		return timings;
+	}
+
+	/**
+	 * Close the body stream and release the connection to the pool.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (body != null) {
+			body.close();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.transport;
+
+/**
+ *
+ * TransportTimings holds the phases of one HTTP exchange, in nanoseconds.
+ *
+ * HttpClient does not expose the DNS, the connect and the TLS handshake, so they are part of
+ * the send phase together with the connection acquisition from the pool and the request write.
+ * A send phase close to zero means a reused connection, a long one a new connection or a large body.
+ *
+ * The phases that are not measured are -1.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public class TransportTimings {
+
+	private final long serializeNanos;
+	private final long sendNanos;
+	private final long waitNanos;
+	private final long downloadNanos;
+
+	/**
+	 * TransportTimings constructor.
+	 *
+	 * @param serializeNanos the time to write the request body, including the compression.
+	 * @param sendNanos the time from the send to the last request byte handed to the connection.
+	 * @param waitNanos the time from the request written to the response headers.
+	 * @param downloadNanos the time from the response headers to the last body byte, -1 for the streams.
+	 */
+	public TransportTimings(long serializeNanos, long sendNanos, long waitNanos, long downloadNanos) {
+		this.serializeNanos = serializeNanos;
+		this.sendNanos = sendNanos;
+		this.waitNanos = waitNanos;
+		this.downloadNanos = downloadNanos;
+	}
+
+	/**
+	 * Gets the time to write the request body.
+	 *
+	 * @return serializeNanos or -1 if unknown.
+	 */
+	public long getSerializeNanos() {
+		return serializeNanos;
+	}
+
+	/**
+	 * Gets the time to acquire the connection and write the request.
+	 *
+	 * @return sendNanos or -1 if unknown.
+	 */
+	public long getSendNanos() {
+		return sendNanos;
+	}
+
+	/**
+	 * Gets the time from the request written to the response headers.
+	 *
+	 * @return waitNanos or -1 if unknown.
+	 */
+	public long getWaitNanos() {
+		return waitNanos;
+	}
+
+	/**
+	 * Gets the time to read the response body.
+	 *
+	 * @return downloadNanos or -1 if unknown.
+	 */
+	public long getDownloadNanos() {
+		return downloadNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "TransportTimings [serialize=" + serializeNanos / 1000 + "us, send=" + sendNanos / 1000
+				+ "us, wait=" + waitNanos / 1000 + "us, download=" + downloadNanos / 1000 + "us]";
+	}
+}
@@ -19,13 +19,28 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.net.HttpURLConnection;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import com.google.gson.Gson;
-import com.intellijava.core.model.OpenaiLanguageResponse;
+import com.google.gson.JsonElement;
+import com.intellijava.core.transport.TransportResponse;
 
 /**
  * ConnHelper is a class that contains common helper functions to call remote services.
@@ -54,6 +69,22 @@ public class ConnHelper {
 		return gson.toJson(params);
 	}
 	
+	/**
+	 * Write the json of a map or a request model directly to the output stream as UTF-8.
+	 * 
+	 * Unlike convertMaptToJson, no intermediate string is created.
+	 * 
+	 * @param src the map or the request model.
+	 * @param out the output stream, it is flushed but not closed.
+	 * @throws IOException if there is an issue writing the json.
+	 */
+	public static void writeJson(Object src, OutputStream out) throws IOException {
+		
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		gson.toJson(src, writer);
+		writer.flush();
+	}
+	
 	/**
 	 * Convert API input stream to the relevant class model.
 	 * 
@@ -71,6 +102,32 @@ public class ConnHelper {
 	}
 	
 	
+	/**
+	 * Convert json string, like a streaming chunk, to the relevant class model.
+	 * 
+	 * @param <T> the type of the response model.
+	 * @param json the json text.
+	 * @param classOfT the class type of the response model.
+	 * @return an instance of the provided class type, T.
+	 */
+	public static <T> T convertJsonToModel(String json, Class<T> classOfT) {
+		
+		return gson.fromJson(json, classOfT);
+	}
+	
+	/**
+	 * Convert parsed json, like a checked streaming chunk, to the relevant class model.
+	 * 
+	 * @param <T> the type of the response model.
+	 * @param json the parsed json.
+	 * @param classOfT the class type of the response model.
+	 * @return an instance of the provided class type, T.
+	 */
+	public static <T> T convertJsonToModel(JsonElement json, Class<T> classOfT) {
+		
+		return gson.fromJson(json, classOfT);
+	}
+	
 	/**
 	 * Get the error message from an HttpURLConnection.
 	 * 
@@ -92,6 +149,30 @@ public class ConnHelper {
 		return errorMessage;
 	}
 	
+	/**
+	 * Get the error message from a transport response.
+	 * 
+	 * @param response the TransportResponse from which to get the error message.
+	 * @return the error message as a string.
+	 * @throws IOException if there is an issue reading the error body.
+	 */
+	public static String getErrorMessage(TransportResponse response) throws IOException {
+		
+		String apiErrorMessage = null;
+		if (response.getBody() != null) {
+			apiErrorMessage = readStream(response.getBody());
+		}
+		
+		String errorMessage = "Unexpected HTTP response: " + response.getStatusCode();
+		
+		// add extra error details - if any
+		if (apiErrorMessage != null) {
+			errorMessage += " Error details:"+apiErrorMessage;
+		}
+		
+		return errorMessage;
+	}
+	
 	/**
 	 * Read an input stream and return its contents as a string.
 	 * 
@@ -109,4 +190,217 @@ public class ConnHelper {
 		  }
 		  return result.toString();
 	}
+	
+	/**
+	 * Wait for an asynchronous call and return its result.
+	 * 
+	 * The failure cause is thrown as is when it is IOException or unchecked exception.
+	 * 
+	 * @param <T> the type of the result.
+	 * @param future the asynchronous call.
+	 * @return the call result.
+	 * @throws IOException if the call failed with IOException or the thread interrupted.
+	 */
+	public static <T> T await(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("The call interrupted while waiting for the response");
+		} catch (ExecutionException e) {
+			throw toIOException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Cancel the source call when the dependent future is cancelled or fails before it, 
+	 * so the cancel of a converted result reaches the connection.
+	 * 
+	 * @param <T> the type of the dependent result.
+	 * @param source the call future.
+	 * @param dependent the future derived from the call.
+	 * @return dependent
+	 */
+	public static <T> CompletableFuture<T> propagateCancel(CompletableFuture<?> source, CompletableFuture<T> dependent) {
+		dependent.whenComplete((result, error) -> {
+			if (error != null && !source.isDone()) {
+				source.cancel(true);
+			}
+		});
+		return dependent;
+	}
+	
+	/**
+	 * Run the action when the call completes, then complete the returned future with the call result.
+	 * 
+	 * A stage from whenComplete skips its action when the stage is cancelled first, so a decorator
+	 * that frees a permit or a slot in it would leak on cancel. Here the action always runs on the call,
+	 * cancelling the returned future cancels the call, and a response that arrives after the cancel is closed.
+	 * 
+	 * @param <T> the type of the result.
+	 * @param call the call future.
+	 * @param action the action with the call result or failure.
+	 * @return future that completes after the action.
+	 */
+	public static <T> CompletableFuture<T> onCallComplete(CompletableFuture<T> call, 
+			BiConsumer<? super T, ? super Throwable> action) {
+		
+		CompletableFuture<T> result = new CompletableFuture<>();
+		call.whenComplete((value, error) -> {
+			try {
+				action.accept(value, error);
+			} finally {
+				completeOrClose(result, value, error);
+			}
+		});
+		return propagateCancel(call, result);
+	}
+	
+	/**
+	 * Complete the future with the result, or close the result when the future is already done.
+	 */
+	private static <T> void completeOrClose(CompletableFuture<T> future, T result, Throwable error) {
+		if (error != null) {
+			future.completeExceptionally(error);
+		} else if (!future.complete(result) && result instanceof AutoCloseable) {
+			// the future is cancelled or timed out, release the late response
+			try {
+				((AutoCloseable) result).close();
+			} catch (Exception e) {
+				// the result is discarded
+			}
+		}
+	}
+	
+	/**
+	 * Gets the deadline of a call that starts now.
+	 * 
+	 * @param timeout the total call time, or null.
+	 * @return the deadline or null for no deadline.
+	 */
+	public static Instant deadlineOf(Duration timeout) {
+		return timeout == null ? null : Instant.now().plus(timeout);
+	}
+	
+	/**
+	 * Fail the call with HttpTimeoutException at the deadline, and cancel it.
+	 * 
+	 * The timer is removed when the call completes first.
+	 * 
+	 * @param <T> the type of the result.
+	 * @param future the call future.
+	 * @param deadline the call deadline, or null for no deadline.
+	 * @return future that completes with the call or with the timeout.
+	 */
+	public static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Instant deadline) {
+		
+		if (deadline == null || future.isDone()) {
+			return future;
+		}
+		
+		CompletableFuture<T> limited = new CompletableFuture<>();
+		future.whenComplete((result, error) -> completeOrClose(limited, result, error));
+		
+		failAtDeadline(limited, deadline, "The call deadline exceeded");
+		return propagateCancel(future, limited);
+	}
+	
+	/**
+	 * Fail the future with HttpTimeoutException at the deadline if it is not done.
+	 * 
+	 * The timer is removed when the future completes first, so a finished call does not keep
+	 * a task in the timer queue until its deadline.
+	 * 
+	 * @param future the future to fail.
+	 * @param deadline the deadline, or null for no deadline.
+	 * @param message the timeout message.
+	 * @return the timer to cancel when the deadline stops applying, or null when no timer is set.
+	 */
+	public static Future<?> failAtDeadline(CompletableFuture<?> future, Instant deadline, String message) {
+		
+		if (deadline == null || future.isDone()) {
+			return null;
+		}
+		
+		long remaining = Math.max(0, Duration.between(Instant.now(), deadline).toNanos());
+		Future<?> timer = Timer.EXECUTOR.schedule(() -> CompletableFuture.runAsync(() -> 
+				future.completeExceptionally(new HttpTimeoutException(message))), remaining, TimeUnit.NANOSECONDS);
+		future.whenComplete((result, error) -> timer.cancel(false));
+		return timer;
+	}
+	
+	/**
+	 * Gets a future that completes after the delay.
+	 * 
+	 * Cancelling the future removes its timer. The dependent stages run on the common pool, not on the timer thread.
+	 * 
+	 * @param delay the delay.
+	 * @param unit the delay unit.
+	 * @return future that completes with null after the delay.
+	 */
+	public static CompletableFuture<Void> delay(long delay, TimeUnit unit) {
+		
+		CompletableFuture<Void> delayed = new CompletableFuture<>();
+		if (delay <= 0) {
+			delayed.complete(null);
+			return delayed;
+		}
+		
+		Future<?> timer = Timer.EXECUTOR.schedule(() -> CompletableFuture.runAsync(() -> delayed.complete(null)), 
+				delay, unit);
+		delayed.whenComplete((result, error) -> timer.cancel(false));
+		return delayed;
+	}
+	
+	/**
+	 * The shared timer of the deadlines and the delays, created on the first use.
+	 */
+	private static class Timer {
+		private static final ScheduledThreadPoolExecutor EXECUTOR = create();
+		
+		private static ScheduledThreadPoolExecutor create() {
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+				Thread thread = new Thread(task, "intellijava-timer");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			return executor;
+		}
+	}
+	
+	/**
+	 * Unwrap the asynchronous failure to the original exception.
+	 * 
+	 * @param error the failure from CompletableFuture.
+	 * @return IOException to throw, unchecked exceptions are thrown directly.
+	 */
+	public static IOException toIOException(Throwable error) {
+		error = unwrap(error);
+		
+		if (error instanceof IOException) {
+			return (IOException) error;
+		} else if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error instanceof Error) {
+			throw (Error) error;
+		}
+		return new IOException(error);
+	}
+	
+	/**
+	 * Unwrap the asynchronous failure to the original exception without throwing it, 
+	 * for the callbacks that complete another future with the failure.
+	 * 
+	 * @param error the failure from CompletableFuture.
+	 * @return the original exception.
+	 */
+	public static Throwable unwrap(Throwable error) {
+		while ((error instanceof CompletionException || error instanceof ExecutionException)
+				&& error.getCause() != null) {
+			error = error.getCause();
+		}
+		return error;
+	}
 }
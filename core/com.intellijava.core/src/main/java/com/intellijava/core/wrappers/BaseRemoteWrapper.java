@@ -0,0 +1,461 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.wrappers;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.intellijava.core.metrics.MetricsRecorder;
+import com.intellijava.core.metrics.ModelCallEvent;
+import com.intellijava.core.model.CohereLanguageRequest;
+import com.intellijava.core.model.OpenaiChatRequest;
+import com.intellijava.core.model.OpenaiLanguageRequest;
+import com.intellijava.core.model.input.ChatMessage;
+import com.intellijava.core.transport.HttpClientTransport;
+import com.intellijava.core.transport.HttpStatusException;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.RequestBody;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * BaseRemoteWrapper is an abstract class that holds the common connection flow for all the wrappers.
+ *
+ * The sub classes define the provider headers, and the calls go through the shared HttpTransport.
+ * Every call is asynchronous internally, the blocking methods wait for the same flow.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+public abstract class BaseRemoteWrapper {
+
+	/** the average characters of one token, for the rate limit estimate. */
+	private static final int CHARS_PER_TOKEN = 4;
+
+	private final HttpTransport transport;
+	private Executor executor;
+	private volatile MetricsRecorder metrics;
+	private volatile String baseUrl;
+
+	/**
+	 * BaseRemoteWrapper constructor with the transport.
+	 *
+	 * @param transport the transport to send the requests, null for the default shared transport.
+	 */
+	protected BaseRemoteWrapper(HttpTransport transport) {
+		this(transport, null);
+	}
+
+	/**
+	 * BaseRemoteWrapper constructor with the transport and the default base url.
+	 *
+	 * @param transport the transport to send the requests, null for the default shared transport.
+	 * @param baseUrl the provider base url from the config.properties.
+	 */
+	protected BaseRemoteWrapper(HttpTransport transport, String baseUrl) {
+		this.transport = transport == null ? HttpClientTransport.getDefault() : transport;
+		this.baseUrl = baseUrl;
+	}
+
+	/**
+	 * Gets the base url of the provider, the endpoint paths are appended to it.
+	 *
+	 * @return baseUrl
+	 */
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	/**
+	 * Sets the base url of this wrapper instead of the config.properties value,
+	 * example: a proxy, a regional endpoint or a local mock server.
+	 *
+	 * @param baseUrl the base url with the same form as the config.properties value.
+	 */
+	public void setBaseUrl(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	/**
+	 * Gets the transport used by the wrapper.
+	 *
+	 * @return transport
+	 */
+	public HttpTransport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Gets the executor used to convert the responses.
+	 *
+	 * @return executor or null to convert in the transport thread.
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the executor used to convert the responses to models for the asynchronous calls and to read the streams.
+	 *
+	 * @param executor the executor or null to convert in the transport thread.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Gets the metrics recorder of the calls.
+	 *
+	 * @return metrics or null if the calls are not measured.
+	 */
+	public MetricsRecorder getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics recorder, to measure the latency, the status, the payload sizes,
+	 * the retries and the token usage of each call.
+	 *
+	 * @param metrics the recorder, example: InMemoryMetrics, or null to disable.
+	 */
+	public void setMetrics(MetricsRecorder metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Add the provider headers, like the content type and the authorization key.
+	 *
+	 * @param builder the request builder.
+	 */
+	protected abstract void addHeaders(TransportRequest.Builder builder);
+
+	/**
+	 *
+	 * Post the json input to the remote model and convert the response to the model class.
+	 *
+	 * @param <T> the type of the response model.
+	 * @param url the full endpoint url.
+	 * @param body the request map or model, written as json.
+	 * @param classOfT the class type of the response model.
+	 * @return an instance of the response model.
+	 * @throws IOException if there is an error when connecting to the API.
+	 */
+	protected <T> T post(String url, Object body, Class<? extends T> classOfT) throws IOException {
+		return ConnHelper.await(postAsync(url, body, classOfT));
+	}
+
+	/**
+	 *
+	 * Post the json input to the remote model without blocking the caller thread.
+	 *
+	 * @param <T> the type of the response model.
+	 * @param url the full endpoint url.
+	 * @param body the request map or model, written as json.
+	 * @param classOfT the class type of the response model.
+	 * @return future of the response model, completed exceptionally with IOException on connection error,
+	 *         or HttpStatusException with the status code on API error.
+	 */
+	protected <T> CompletableFuture<T> postAsync(String url, Object body, Class<? extends T> classOfT) {
+		return postAsync(url, body, classOfT, null);
+	}
+
+	/**
+	 *
+	 * Post the json input to the remote model with a call deadline.
+	 *
+	 * The future fails with HttpTimeoutException when the deadline passes, and cancelling
+	 * the future aborts the connection.
+	 *
+	 * @param <T> the type of the response model.
+	 * @param url the full endpoint url.
+	 * @param body the request map or model, written as json.
+	 * @param classOfT the class type of the response model.
+	 * @param deadline the time to complete the call including the retries, null for no deadline.
+	 * @return future of the response model, completed exceptionally with IOException on connection error,
+	 *         or HttpStatusException with the status code on API error.
+	 */
+	protected <T> CompletableFuture<T> postAsync(String url, Object body, Class<? extends T> classOfT,
+			Instant deadline) {
+
+		CallMeasure measure = startMeasure(url, body, false);
+		TransportRequest.Builder builder = new TransportRequest.Builder(url)
+				.setBody(jsonBody(body, measure))
+				.setDeadline(deadline)
+				.setModel(modelOf(body))
+				.setEstimatedTokens(estimatedTokensOf(body));
+		addHeaders(builder);
+
+		CompletableFuture<TransportResponse> future = transport.sendAsync(builder.build());
+
+		CompletableFuture<T> result;
+		if (executor == null) {
+			result = future.thenApply(response -> readResponse(response, classOfT, measure));
+		} else {
+			result = future.thenApplyAsync(response -> readResponse(response, classOfT, measure), executor);
+		}
+		// the transport enforces the deadline, once for the whole call
+		ConnHelper.propagateCancel(future, result);
+
+		if (measure != null) {
+			result.whenComplete(measure::finish);
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * Post the json input in streaming mode, the future completes when the response headers arrive.
+	 *
+	 * @param url the full endpoint url.
+	 * @param body the request map or model, written as json.
+	 * @return future of the response with the open body stream, completed exceptionally
+	 *         with IOException if the API returned an error.
+	 */
+	protected CompletableFuture<TransportResponse> postStreamAsync(String url, Object body) {
+		return postStreamAsync(url, body, null);
+	}
+
+	/**
+	 *
+	 * Post the json input in streaming mode with a deadline for the response headers.
+	 *
+	 * @param url the full endpoint url.
+	 * @param body the request map or model, written as json.
+	 * @param deadline the time to receive the response headers, null for no deadline.
+	 * @return future of the response with the open body stream, completed exceptionally
+	 *         with IOException if the API returned an error.
+	 */
+	protected CompletableFuture<TransportResponse> postStreamAsync(String url, Object body, Instant deadline) {
+		return postStreamAsync(url, body, deadline, null);
+	}
+
+	/**
+	 * Post the json input in streaming mode and count the stream bytes in the measure.
+	 *
+	 * @param url the full endpoint url.
+	 * @param body the request map or model, written as json.
+	 * @param deadline the time to receive the response headers, null for no deadline.
+	 * @param measure the call measure to finish by the caller, or null.
+	 * @return future of the response with the open body stream.
+	 */
+	CompletableFuture<TransportResponse> postStreamAsync(String url, Object body, Instant deadline,
+			CallMeasure measure) {
+
+		TransportRequest.Builder builder = new TransportRequest.Builder(url)
+				.setBody(jsonBody(body, measure))
+				.setStreaming(true)
+				.setDeadline(deadline)
+				.setModel(modelOf(body))
+				.setEstimatedTokens(estimatedTokensOf(body));
+		addHeaders(builder);
+
+		CompletableFuture<TransportResponse> future = transport.sendAsync(builder.build());
+		CompletableFuture<TransportResponse> result = future.thenApply(response -> {
+
+			if (measure != null) {
+				measure.onResponse(response);
+			}
+
+			if (response.getStatusCode() != 200) {
+				try (TransportResponse res = response) {
+					throw new CompletionException(toStatusException(res));
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}
+
+			if (measure == null) {
+				return response;
+			}
+			return new TransportResponse(response.getStatusCode(), response.getHeaders(),
+					measure.countReceived(response.getBody()), response.getAttempts(), response.getTimings());
+		});
+		return ConnHelper.propagateCancel(future, result);
+	}
+
+	/**
+	 * Create the status exception with the error details, the status code and the headers.
+	 *
+	 * @param response the failed response.
+	 * @return HttpStatusException
+	 * @throws IOException if there is an issue reading the error details.
+	 */
+	private static HttpStatusException toStatusException(TransportResponse response) throws IOException {
+		return new HttpStatusException(ConnHelper.getErrorMessage(response), 
+				response.getStatusCode(), response.getHeaders());
+	}
+
+	/**
+	 * Gets the model name of the request map or model.
+	 *
+	 * @param body the request map or model.
+	 * @return the model name or null if the request has no model.
+	 */
+	private static String modelOf(Object body) {
+		Object model = null;
+		if (body instanceof Map) {
+			model = ((Map<?, ?>) body).get("model");
+		} else if (body instanceof OpenaiLanguageRequest) {
+			model = ((OpenaiLanguageRequest) body).getModel();
+		} else if (body instanceof OpenaiChatRequest) {
+			model = ((OpenaiChatRequest) body).getModel();
+		} else if (body instanceof CohereLanguageRequest) {
+			model = ((CohereLanguageRequest) body).getModel();
+		}
+		return model == null ? null : model.toString();
+	}
+
+	/**
+	 * Estimate the tokens of the request map or model for the rate limiters, so the body is not
+	 * written twice: the prompt or messages characters divided by 4, and max_tokens for each output.
+	 *
+	 * @param body the request map or model.
+	 * @return the estimated tokens, 0 for the requests without a prompt like images and speech.
+	 */
+	private static long estimatedTokensOf(Object body) {
+		Object prompt;
+		Object maxTokens;
+		Object outputs;
+		if (body instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) body;
+			prompt = map.containsKey("messages") ? map.get("messages") : map.get("prompt");
+			maxTokens = map.get("max_tokens");
+			outputs = map.containsKey("n") ? map.get("n") : map.get("num_generations");
+		} else if (body instanceof OpenaiLanguageRequest) {
+			OpenaiLanguageRequest request = (OpenaiLanguageRequest) body;
+			prompt = request.getPrompt();
+			maxTokens = request.getMaxTokens();
+			outputs = request.getN();
+		} else if (body instanceof OpenaiChatRequest) {
+			OpenaiChatRequest request = (OpenaiChatRequest) body;
+			prompt = request.getMessages();
+			maxTokens = request.getMaxTokens();
+			outputs = request.getN();
+		} else if (body instanceof CohereLanguageRequest) {
+			CohereLanguageRequest request = (CohereLanguageRequest) body;
+			prompt = request.getPrompt();
+			maxTokens = request.getMaxTokens();
+			outputs = request.getNumGenerations();
+		} else {
+			return 0;
+		}
+
+		long completion = maxTokens instanceof Number ? ((Number) maxTokens).longValue() : 0;
+		long count = outputs instanceof Number ? Math.max(1, ((Number) outputs).longValue()) : 1;
+		return charsOf(prompt) / CHARS_PER_TOKEN + completion * count;
+	}
+
+	/**
+	 * Count the characters of a prompt, a list of prompts or the chat messages.
+	 */
+	private static long charsOf(Object value) {
+		if (value == null) {
+			return 0;
+		} else if (value instanceof CharSequence) {
+			return ((CharSequence) value).length();
+		} else if (value instanceof ChatMessage) {
+			return charsOf(((ChatMessage) value).getContent());
+		} else if (value instanceof Map) {
+			return charsOf(((Map<?, ?>) value).get("content"));
+		} else if (value instanceof Iterable) {
+			long chars = 0;
+			for (Object item : (Iterable<?>) value) {
+				chars += charsOf(item);
+			}
+			return chars;
+		} else if (value instanceof Object[]) {
+			long chars = 0;
+			for (Object item : (Object[]) value) {
+				chars += charsOf(item);
+			}
+			return chars;
+		}
+		return value.toString().length();
+	}
+
+	/**
+	 * Start the measure of a call when the metrics or the JFR event are enabled.
+	 *
+	 * @param url the full endpoint url.
+	 * @param body the request map or model.
+	 * @param streaming true for the streaming calls.
+	 * @return the measure or null without metrics and JFR recording.
+	 */
+	CallMeasure startMeasure(String url, Object body, boolean streaming) {
+		MetricsRecorder recorder = this.metrics;
+		ModelCallEvent event = new ModelCallEvent();
+		if (!event.isEnabled()) {
+			if (recorder == null) {
+				return null;
+			}
+			event = null;
+		}
+		return new CallMeasure(recorder, event, url, modelOf(body), streaming);
+	}
+
+	/**
+	 * Create a body that writes the json of the input directly to the transport stream.
+	 *
+	 * @param body the request map or model.
+	 * @param measure counts the written bytes, or null.
+	 * @return RequestBody
+	 */
+	private static RequestBody jsonBody(Object body, CallMeasure measure) {
+		if (measure == null) {
+			return out -> ConnHelper.writeJson(body, out);
+		}
+		return out -> ConnHelper.writeJson(body, measure.countSent(out));
+	}
+
+	/**
+	 * Validate the response status and convert the body to the model class.
+	 *
+	 * @param <T> the type of the response model.
+	 * @param response the transport response.
+	 * @param classOfT the class type of the response model.
+	 * @param measure counts the read bytes, or null.
+	 * @return an instance of the response model.
+	 */
+	private <T> T readResponse(TransportResponse response, Class<? extends T> classOfT, CallMeasure measure) {
+
+		try (TransportResponse res = response) {
+
+			if (measure != null) {
+				measure.onResponse(res);
+			}
+
+			if (res.getStatusCode() != 200) {
+				throw toStatusException(res);
+			}
+
+			// get the response and convert to model
+			if (measure == null) {
+				return ConnHelper.convertSteamToModel(res.getBody(), classOfT);
+			}
+			T model = ConnHelper.convertSteamToModel(measure.countReceived(res.getBody()), classOfT);
+			measure.onParsed();
+			return model;
+		} catch (IOException e) {
+			throw new CompletionException(e);
+		}
+	}
+}
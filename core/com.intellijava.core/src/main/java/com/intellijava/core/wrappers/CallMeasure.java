@@ -0,0 +1,245 @@
+/**
+ * Copyright 2023 Github.com/Barqawiz/IntelliJava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellijava.core.wrappers;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.intellijava.core.metrics.CallMetrics;
+import com.intellijava.core.metrics.CallPhase;
+import com.intellijava.core.metrics.MetricsRecorder;
+import com.intellijava.core.metrics.ModelCallEvent;
+import com.intellijava.core.model.OpenaiChatResponse;
+import com.intellijava.core.model.OpenaiLanguageResponse;
+import com.intellijava.core.model.StreamResponse;
+import com.intellijava.core.transport.HttpStatusException;
+import com.intellijava.core.transport.TransportResponse;
+import com.intellijava.core.transport.TransportTimings;
+
+/**
+ *
+ * CallMeasure collects the measures of one wrapper call while it runs, then records them
+ * to the metrics recorder and commits them as a JFR ModelCallEvent.
+ *
+ * @author github.com/Barqawiz
+ *
+ */
+class CallMeasure {
+
+	private final MetricsRecorder recorder;
+	private final ModelCallEvent event;
+	private final String url;
+	private final String model;
+	private final boolean streaming;
+	private final long start = System.nanoTime();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong firstByte = new AtomicLong(-1);
+	private volatile int statusCode;
+	private volatile int attempts = 1;
+	private volatile TransportTimings timings;
+	private volatile long responseAt = -1;
+	private volatile long parsedAt = -1;
+
+	/**
+	 * CallMeasure constructor.
+	 *
+	 * @param recorder receives the measures, or null.
+	 * @param event the enabled JFR event, or null.
+	 * @param url the endpoint url.
+	 * @param model the model name or null.
+	 * @param streaming true for the streaming calls.
+	 */
+	CallMeasure(MetricsRecorder recorder, ModelCallEvent event, String url, String model, boolean streaming) {
+		this.recorder = recorder;
+		this.event = event;
+		if (event != null) {
+			event.begin();
+		}
+		this.url = url;
+		this.model = model;
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Count the bytes written to the request stream.
+	 */
+	OutputStream countSent(OutputStream out) {
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytesSent.incrementAndGet();
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				bytesSent.addAndGet(len);
+			}
+		};
+	}
+
+	/**
+	 * Count the bytes read from the response stream and keep the time of the first byte.
+	 */
+	InputStream countReceived(InputStream in) {
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int b = in.read();
+				if (b >= 0) {
+					received(1);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = in.read(b, off, len);
+				if (read > 0) {
+					received(read);
+				}
+				return read;
+			}
+		};
+	}
+
+	private void received(int bytes) {
+		if (bytesReceived.getAndAdd(bytes) == 0) {
+			firstByte.compareAndSet(-1, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Keep the status code, the attempts and the transport phases of the response.
+	 */
+	void onResponse(TransportResponse response) {
+		this.responseAt = System.nanoTime();
+		this.statusCode = response.getStatusCode();
+		this.attempts = response.getAttempts();
+		this.timings = response.getTimings();
+	}
+
+	/**
+	 * Mark the end of the response conversion to the model.
+	 */
+	void onParsed() {
+		this.parsedAt = System.nanoTime();
+	}
+
+	/**
+	 * Gets the time to the first response byte.
+	 *
+	 * The buffered responses are read after the transport downloaded the full body, so their first read
+	 * is close to the end of the call. For them the first byte is the response time without the download
+	 * phase measured by the transport. Without a measured download the body is read from the connection,
+	 * and the first read is the first byte.
+	 */
+	private long timeToFirstByte() {
+		TransportTimings exchange = timings;
+		if (streaming || exchange == null || exchange.getDownloadNanos() < 0 || responseAt < 0) {
+			return firstByte.get();
+		}
+		return Math.max(0, responseAt - start - exchange.getDownloadNanos());
+	}
+
+	/**
+	 * Record the call with the tokens of the result model.
+	 *
+	 * @param result the response model, or null if the call failed.
+	 * @param error the failure or null.
+	 */
+	void finish(Object result, Throwable error) {
+
+		long end = System.nanoTime();
+		Throwable cause = error == null ? null : unwrap(error);
+		int status = cause instanceof HttpStatusException ? ((HttpStatusException) cause).getStatusCode()
+				: statusCode;
+
+		URI uri = URI.create(url);
+		CallMetrics.Builder metrics = new CallMetrics.Builder(uri.getHost(),
+				uri.getScheme() + "://" + uri.getAuthority() + uri.getPath())
+				.setModel(model)
+				.setStreaming(streaming)
+				.setStatusCode(status)
+				.setError(cause)
+				.setDurationNanos(end - start)
+				.setTimeToFirstByteNanos(this.timeToFirstByte())
+				.setBytesSent(bytesSent.get())
+				.setBytesReceived(bytesReceived.get())
+				.setRetries(attempts - 1);
+
+		TransportTimings exchange = timings;
+		if (exchange != null) {
+			metrics.setPhaseNanos(CallPhase.SERIALIZE, exchange.getSerializeNanos())
+					.setPhaseNanos(CallPhase.SEND, exchange.getSendNanos())
+					.setPhaseNanos(CallPhase.WAIT, exchange.getWaitNanos())
+					.setPhaseNanos(CallPhase.DOWNLOAD, exchange.getDownloadNanos());
+		}
+		if (streaming && responseAt >= 0) {
+			// the stream is read and parsed together until the end of the call
+			metrics.setPhaseNanos(CallPhase.DOWNLOAD, end - responseAt);
+		} else if (parsedAt >= 0) {
+			metrics.setPhaseNanos(CallPhase.PARSE, parsedAt - responseAt);
+		}
+
+		if (result instanceof OpenaiLanguageResponse && ((OpenaiLanguageResponse) result).getUsage() != null) {
+			OpenaiLanguageResponse.Usage usage = ((OpenaiLanguageResponse) result).getUsage();
+			metrics.setTokens(usage.getPrompt_tokens(), usage.getCompletion_tokens());
+		} else if (result instanceof OpenaiChatResponse && ((OpenaiChatResponse) result).getUsage() != null) {
+			OpenaiChatResponse.Usage usage = ((OpenaiChatResponse) result).getUsage();
+			metrics.setTokens(usage.getPrompt_tokens(), usage.getCompletion_tokens());
+		} else if (result instanceof StreamResponse && ((StreamResponse) result).getTotalTokens() > 0) {
+			StreamResponse stream = (StreamResponse) result;
+			metrics.setTokens(stream.getPromptTokens(), stream.getCompletionTokens());
+		}
+
+		CallMetrics call = metrics.build();
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.setCall(call);
+				event.commit();
+			}
+		}
+		if (recorder != null) {
+			try {
+				recorder.record(call);
+			} catch (RuntimeException e) {
+				// the metrics do not fail the call
+			}
+		}
+	}
+
+	/**
+	 * Unwrap the completion exceptions to the original failure.
+	 */
+	private static Throwable unwrap(Throwable error) {
+		while ((error instanceof CompletionException || error instanceof ExecutionException)
+				&& error.getCause() != null) {
+			error = error.getCause();
+		}
+		return error;
+	}
+}
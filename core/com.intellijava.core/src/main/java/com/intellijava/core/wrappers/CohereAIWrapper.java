@@ -1,17 +1,16 @@
 package com.intellijava.core.wrappers;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.intellijava.core.model.BaseRemoteModel;
+import com.intellijava.core.model.CohereLanguageRequest;
 import com.intellijava.core.model.CohereLanguageResponse;
-import com.intellijava.core.model.OpenaiLanguageResponse;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.TransportRequest;
 import com.intellijava.core.utils.Config2;
-import com.intellijava.core.utils.ConnHelper;
 
 /**
  * 
@@ -20,9 +19,8 @@ import com.intellijava.core.utils.ConnHelper;
  * @author github.com/Barqawiz
  *
  */
-public class CohereAIWrapper implements LanguageModelInterface{
+public class CohereAIWrapper extends BaseRemoteWrapper implements LanguageModelInterface{
 
-	private final String API_BASE_URL = Config2.getInstance().getProperty("url.cohere.base");
 	private final String COHERE_VERSION = Config2.getInstance().getProperty("url.cohere.version");
     private String API_KEY;
 
@@ -32,8 +30,26 @@ public class CohereAIWrapper implements LanguageModelInterface{
      * @param apiKey cohere API key, generate if from your account.
      */
     public CohereAIWrapper(String apiKey) {
+    	this(apiKey, null);
+    }
+    
+    /**
+     * CohereAIWrapper constructor with the API key and a shared transport.
+     * 
+     * @param apiKey cohere API key, generate if from your account.
+     * @param transport the transport to send the requests, null for the default shared transport.
+     */
+    public CohereAIWrapper(String apiKey, HttpTransport transport) {
+    	super(transport, Config2.getInstance().getProperty("url.cohere.base"));
     	this.API_KEY = apiKey;
     }
+    
+    @Override
+    protected void addHeaders(TransportRequest.Builder builder) {
+    	builder.addHeader("Content-Type", "application/json");
+    	builder.addHeader("Authorization", "Bearer " + API_KEY);
+    	builder.addHeader("Cohere-Version", COHERE_VERSION);
+    }
 
     /**
 	 * 
@@ -50,29 +66,51 @@ public class CohereAIWrapper implements LanguageModelInterface{
 	@Override
 	public BaseRemoteModel generateText(Map<String, Object> params) throws IOException {
 		
-		String url = API_BASE_URL + Config2.getInstance().getProperty("url.cohere.completions");
-
-        String json = ConnHelper.convertMaptToJson(params);
-
-        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Authorization", "Bearer " + API_KEY);
-        connection.setRequestProperty("Cohere-Version", COHERE_VERSION);
-        connection.setDoOutput(true);
-
-        try (OutputStream outputStream = connection.getOutputStream()) {
-            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
-        }
+		String url = getBaseUrl() + Config2.getInstance().getProperty("url.cohere.completions");
 
-        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-        	String errorMessage = ConnHelper.getErrorMessage(connection);
-            throw new IOException(errorMessage);
-        }
-
-        // get the response and convert to model 
-        CohereLanguageResponse resModel = ConnHelper.convertSteamToModel(connection.getInputStream(), CohereLanguageResponse.class);
+        // get the response and convert to model
+        CohereLanguageResponse resModel = post(url, params, CohereLanguageResponse.class);
         return resModel;
 	}
+	
+	/**
+	 * 
+	 * Generate text from remote large language model without blocking the caller thread.
+	 * 
+	 * @param params key and value for the API parameters, same as generateText.
+	 * @return future of BaseRemoteModel, completed exceptionally with IOException if there is an error when connecting to the API.
+	 */
+	@Override
+	public CompletableFuture<BaseRemoteModel> generateTextAsync(Map<String, Object> params) {
+		
+		String url = getBaseUrl() + Config2.getInstance().getProperty("url.cohere.completions");
+		
+		return postAsync(url, params, CohereLanguageResponse.class);
+	}
+	
+	/**
+	 * 
+	 * Typed version to generate text, the request model is written to the connection without a map or a json string.
+	 * 
+	 * @param request the request model.
+	 * @return future of CohereLanguageResponse, completed exceptionally with IOException if there is an error when connecting to the API.
+	 */
+	public CompletableFuture<CohereLanguageResponse> generateTextAsync(CohereLanguageRequest request) {
+		return generateTextAsync(request, null);
+	}
+	
+	/**
+	 * Same as generateTextAsync(request) with a call deadline, cancelling the future aborts the connection.
+	 * 
+	 * @param request the request model.
+	 * @param deadline the time to complete the call, null for no deadline.
+	 * @return future of CohereLanguageResponse, completed exceptionally with HttpTimeoutException when the deadline passes.
+	 */
+	public CompletableFuture<CohereLanguageResponse> generateTextAsync(CohereLanguageRequest request, Instant deadline) {
+		
+		String url = getBaseUrl() + Config2.getInstance().getProperty("url.cohere.completions");
+		
+		return postAsync(url, request, CohereLanguageResponse.class, deadline);
+	}
     
 }
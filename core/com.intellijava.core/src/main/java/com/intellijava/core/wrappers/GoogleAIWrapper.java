@@ -16,17 +16,15 @@
 package com.intellijava.core.wrappers;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.time.Instant;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 import com.intellijava.core.model.AudioResponse;
 import com.intellijava.core.model.BaseRemoteModel;
+import com.intellijava.core.model.GoogleSpeechRequest;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.TransportRequest;
 import com.intellijava.core.utils.Config2;
-import com.intellijava.core.utils.ConnHelper;
-import java.nio.charset.StandardCharsets;
 
 /**
  * 
@@ -40,9 +38,8 @@ import java.nio.charset.StandardCharsets;
  * @author github.com/Barqawiz
  *
  */
-public class GoogleAIWrapper implements SpeechModelInterface {
+public class GoogleAIWrapper extends BaseRemoteWrapper implements SpeechModelInterface {
 
-	private final String API_SPEECH_URL;
 	private String API_KEY;
 	
 	/**
@@ -51,10 +48,26 @@ public class GoogleAIWrapper implements SpeechModelInterface {
 	 * @param apiKey the key generated from google console Credentials page
 	 */
 	public GoogleAIWrapper(String apiKey) {
-		this.API_KEY = apiKey;
-		this.API_SPEECH_URL = Config2.getInstance().getProperty("url.google.base").
+		this(apiKey, null);
+	}
+	
+	/**
+	 * Constructs a new GoogleAIWrapper object with the API key and a shared transport.
+	 * 
+	 * @param apiKey the key generated from google console Credentials page
+	 * @param transport the transport to send the requests, null for the default shared transport.
+	 */
+	public GoogleAIWrapper(String apiKey, HttpTransport transport) {
+		super(transport, Config2.getInstance().getProperty("url.google.base").
 				toString().replace("{1}", 
-						Config2.getInstance().getProperty("url.google.speech.prefix"));
+						Config2.getInstance().getProperty("url.google.speech.prefix")));
+		this.API_KEY = apiKey;
+	}
+
+	@Override
+	protected void addHeaders(TransportRequest.Builder builder) {
+		builder.addHeader("Content-Type", "application/json; charset=utf-8");
+		builder.addHeader("X-Goog-Api-Key", API_KEY);
 	}
 
 	/**
@@ -67,45 +80,71 @@ public class GoogleAIWrapper implements SpeechModelInterface {
 	@Override
 	public BaseRemoteModel generateSpeech(Map<String, Object> params) throws IOException {
 		
-		String url = API_SPEECH_URL + Config2.getInstance().getProperty("url.google.synthesize.postfix");
-		String json = getSynthesizeInput(params);
+		String url = getBaseUrl() + Config2.getInstance().getProperty("url.google.synthesize.postfix");
 		
-		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
-        connection.setRequestProperty("X-Goog-Api-Key", API_KEY);
-        connection.setDoOutput(true);
-		
-        try (OutputStream outputStream = connection.getOutputStream()) {
-            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
-        }
-
-        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-        	String errorMessage = ConnHelper.getErrorMessage(connection);
-            throw new IOException(errorMessage);
-        }
-        
         // get the response and convert to model
-        AudioResponse resModel = ConnHelper.convertSteamToModel(connection.getInputStream(), AudioResponse.class);
+        AudioResponse resModel = post(url, getSynthesizeInput(params), AudioResponse.class);
         
 		return resModel;
 	}
 	
 	/**
+	 * Generates speech from text without blocking the caller thread.
 	 * 
-	 * Prepare the synthesize service input.
+	 * @param params speech model input parameters.
+	 * @return future of BaseRemoteModel, completed exceptionally with IOException in case of communication errors.
+	 */
+	@Override
+	public CompletableFuture<BaseRemoteModel> generateSpeechAsync(Map<String, Object> params) {
+		return generateSpeechAsync(params, null);
+	}
+	
+	/**
+	 * Same as generateSpeechAsync(params) with a call deadline, cancelling the future aborts the connection.
 	 * 
-	 * @param params
-	 * @return String
-	 * @throws IOException
+	 * @param params speech model input parameters.
+	 * @param deadline the time to complete the call, null for no deadline.
+	 * @return future of BaseRemoteModel, completed exceptionally with HttpTimeoutException when the deadline passes.
 	 */
-	private String getSynthesizeInput(Map<String, Object> params) throws IOException {
-		String modelInput = "";
+	public CompletableFuture<BaseRemoteModel> generateSpeechAsync(Map<String, Object> params, Instant deadline) {
 		
-		// read model input template
-		InputStream inputStream = getClass().getClassLoader().getResourceAsStream("google-synthesize-input.txt");
-		Scanner scanner = new Scanner(inputStream).useDelimiter("\\A");
-		modelInput = scanner.hasNext() ? scanner.next() : "";
+		String url = getBaseUrl() + Config2.getInstance().getProperty("url.google.synthesize.postfix");
+		
+		return postAsync(url, getSynthesizeInput(params), AudioResponse.class, deadline);
+	}
+	
+	/**
+	 * Typed version to generate speech, the request model is written to the connection without a map or a json string.
+	 * 
+	 * @param request the synthesize request model.
+	 * @return future of AudioResponse, completed exceptionally with IOException in case of communication errors.
+	 */
+	public CompletableFuture<AudioResponse> generateSpeechAsync(GoogleSpeechRequest request) {
+		return generateSpeechAsync(request, null);
+	}
+	
+	/**
+	 * Same as generateSpeechAsync(request) with a call deadline, cancelling the future aborts the connection.
+	 * 
+	 * @param request the request model.
+	 * @param deadline the time to complete the call, null for no deadline.
+	 * @return future of AudioResponse, completed exceptionally with HttpTimeoutException when the deadline passes.
+	 */
+	public CompletableFuture<AudioResponse> generateSpeechAsync(GoogleSpeechRequest request, Instant deadline) {
+		
+		String url = getBaseUrl() + Config2.getInstance().getProperty("url.google.synthesize.postfix");
+		
+		return postAsync(url, request, AudioResponse.class, deadline);
+	}
+	
+	/**
+	 * 
+	 * Prepare the synthesize service input.
+	 * 
+	 * @param params text, languageCode, name and ssmlGender.
+	 * @return GoogleSpeechRequest
+	 */
+	private GoogleSpeechRequest getSynthesizeInput(Map<String, Object> params) {
 		
 		// fill the details
 		String text = (String) params.get("text");
@@ -113,8 +152,6 @@ public class GoogleAIWrapper implements SpeechModelInterface {
         String name = (String) params.get("name");
         String ssmlGender = (String) params.get("ssmlGender");
         
-        modelInput =  String.format(modelInput, text, languageCode, name, ssmlGender);
-		
-		return modelInput;
+		return new GoogleSpeechRequest(text, languageCode, name, ssmlGender);
 	}
 }
@@ -2,6 +2,7 @@ package com.intellijava.core.wrappers;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.intellijava.core.model.BaseRemoteModel;
 
@@ -23,4 +24,13 @@ public interface ImageModelInterface {
 	 * @throws IOException if there is an error when connecting to the server.
 	 */
 	public BaseRemoteModel generateImages(Map<String, Object> params) throws IOException;
+	
+	/**
+	 * 
+	 * Generate image from remote model without blocking the caller thread.
+	 * 
+	 * @param params key and value for the API parameters.
+	 * @return future of BaseRemoteModel or any sub class, completed exceptionally with IOException on error.
+	 */
+	public CompletableFuture<BaseRemoteModel> generateImagesAsync(Map<String, Object> params);
 }
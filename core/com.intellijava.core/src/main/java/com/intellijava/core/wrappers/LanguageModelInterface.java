@@ -17,6 +17,7 @@ package com.intellijava.core.wrappers;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.intellijava.core.model.BaseRemoteModel;
 
@@ -38,4 +39,13 @@ public interface LanguageModelInterface {
 	 * @throws IOException if there is an error when connecting to the server.
 	 */
 	public BaseRemoteModel generateText(Map<String, Object> params) throws IOException;
+	
+	/**
+	 * 
+	 * Generate text from remote large language model without blocking the caller thread.
+	 * 
+	 * @param params key and value for the API parameters.
+	 * @return future of BaseRemoteModel or any sub class, completed exceptionally with IOException on error.
+	 */
+	public CompletableFuture<BaseRemoteModel> generateTextAsync(Map<String, Object> params);
 }
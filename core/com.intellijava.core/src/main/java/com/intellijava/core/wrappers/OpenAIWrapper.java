@@ -17,15 +17,31 @@ package com.intellijava.core.wrappers;
 
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import com.intellijava.core.model.BaseRemoteModel;
+import com.intellijava.core.model.OpenaiChatRequest;
 import com.intellijava.core.model.OpenaiChatResponse;
+import com.intellijava.core.model.OpenaiImageRequest;
 import com.intellijava.core.model.OpenaiImageResponse;
+import com.intellijava.core.model.OpenaiLanguageRequest;
 import com.intellijava.core.model.OpenaiLanguageResponse;
+import com.intellijava.core.model.StreamListener;
+import com.intellijava.core.model.StreamResponse;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.ServerSentEventReader;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
 import com.intellijava.core.utils.Config2;
 import com.intellijava.core.utils.ConnHelper;
 
@@ -36,9 +52,8 @@ import com.intellijava.core.utils.ConnHelper;
  * @author github.com/Barqawiz
  * 
  */
-public class OpenAIWrapper implements LanguageModelInterface, ImageModelInterface {
+public class OpenAIWrapper extends BaseRemoteWrapper implements LanguageModelInterface, ImageModelInterface {
 	
-    private final String API_BASE_URL = Config2.getInstance().getProperty("url.openai.base");
     private String API_KEY;
 
     /**
@@ -47,9 +62,26 @@ public class OpenAIWrapper implements LanguageModelInterface, ImageModelInterfac
      * @param apiKey openai API key, generate if from your account.
      */
     public OpenAIWrapper(String apiKey) {
+    	this(apiKey, null);
+    }
+    
+    /**
+     * OpenAIWrapper constructor with the API key and a shared transport.
+     * 
+     * @param apiKey openai API key, generate if from your account.
+     * @param transport the transport to send the requests, null for the default shared transport.
+     */
+    public OpenAIWrapper(String apiKey, HttpTransport transport) {
+    	super(transport, Config2.getInstance().getProperty("url.openai.base"));
     	this.API_KEY = apiKey;
     }
     
+    @Override
+    protected void addHeaders(TransportRequest.Builder builder) {
+    	builder.addHeader("Content-Type", "application/json");
+    	builder.addHeader("Authorization", "Bearer " + API_KEY);
+    }
+    
     /**
 	 * 
 	 * Generate text from remote large language model based on the received prompt.
@@ -67,30 +99,54 @@ public class OpenAIWrapper implements LanguageModelInterface, ImageModelInterfac
 	 */
     public BaseRemoteModel generateText(Map<String, Object> params) throws IOException {
     	
-        String url = API_BASE_URL + Config2.getInstance().getProperty("url.openai.completions");
-
-        String json = ConnHelper.convertMaptToJson(params);
-        
-        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Authorization", "Bearer " + API_KEY);
-        connection.setDoOutput(true);
+        String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.completions");
 
-        try (OutputStream outputStream = connection.getOutputStream()) {
-            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
-        }
-
-        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-        	String errorMessage = ConnHelper.getErrorMessage(connection);
-            throw new IOException(errorMessage);
-        }
-
-        // get the response and convert to model 
-        OpenaiLanguageResponse resModel = ConnHelper.convertSteamToModel(connection.getInputStream(), OpenaiLanguageResponse.class);
+        // get the response and convert to model
+        OpenaiLanguageResponse resModel = post(url, params, OpenaiLanguageResponse.class);
         return resModel;
     }
     
+    /**
+     * 
+     * Generate text from remote large language model without blocking the caller thread.
+     * 
+     * @param params key and value for the API parameters, same as generateText.
+     * @return future of BaseRemoteModel, completed exceptionally with IOException if there is an error when connecting to the OpenAI API.
+     */
+    @Override
+    public CompletableFuture<BaseRemoteModel> generateTextAsync(Map<String, Object> params) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.completions");
+    	
+    	return postAsync(url, params, OpenaiLanguageResponse.class);
+    }
+    
+    /**
+     * 
+     * Typed version to generate text from remote large language model, the request model is written to the connection without a map or a json string.
+     * 
+     * @param request the request model.
+     * @return future of OpenaiLanguageResponse, completed exceptionally with IOException if there is an error when connecting to the OpenAI API.
+     */
+    public CompletableFuture<OpenaiLanguageResponse> generateTextAsync(OpenaiLanguageRequest request) {
+    	return generateTextAsync(request, null);
+    }
+    
+    /**
+     * 
+     * Same as generateTextAsync(request) with a call deadline, cancelling the future aborts the connection.
+     * 
+     * @param request the request model.
+     * @param deadline the time to complete the call, null for no deadline.
+     * @return future of OpenaiLanguageResponse, completed exceptionally with HttpTimeoutException when the deadline passes.
+     */
+    public CompletableFuture<OpenaiLanguageResponse> generateTextAsync(OpenaiLanguageRequest request, Instant deadline) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.completions");
+    	
+    	return postAsync(url, request, OpenaiLanguageResponse.class, deadline);
+    }
+    
     /**
 	 * 
 	 * Generate text from remote large language model based on the chat history.
@@ -108,30 +164,53 @@ public class OpenAIWrapper implements LanguageModelInterface, ImageModelInterfac
 	 */
     public BaseRemoteModel generateChatText(Map<String, Object> params) throws IOException {
     	
-        String url = API_BASE_URL + Config2.getInstance().getProperty("url.openai.chatgpt");
-
-        String json = ConnHelper.convertMaptToJson(params);
-        
-        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Authorization", "Bearer " + API_KEY);
-        connection.setDoOutput(true);
-
-        try (OutputStream outputStream = connection.getOutputStream()) {
-            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
-        }
+        String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.chatgpt");
 
-        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-        	String errorMessage = ConnHelper.getErrorMessage(connection);
-            throw new IOException(errorMessage);
-        }
-
-        // get the response and convert to model 
-        OpenaiChatResponse resModel = ConnHelper.convertSteamToModel(connection.getInputStream(), OpenaiChatResponse.class);
+        // get the response and convert to model
+        OpenaiChatResponse resModel = post(url, params, OpenaiChatResponse.class);
         return resModel;
     }
     
+    /**
+     * 
+     * Generate text from the chat history without blocking the caller thread.
+     * 
+     * @param params key and value for the API parameters, same as generateChatText.
+     * @return future of BaseRemoteModel, completed exceptionally with IOException if there is an error when connecting to the OpenAI API.
+     */
+    public CompletableFuture<BaseRemoteModel> generateChatTextAsync(Map<String, Object> params) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.chatgpt");
+    	
+    	return postAsync(url, params, OpenaiChatResponse.class);
+    }
+    
+    /**
+     * 
+     * Typed version to generate text from the chat history, the request model is written to the connection without a map or a json string.
+     * 
+     * @param request the request model.
+     * @return future of OpenaiChatResponse, completed exceptionally with IOException if there is an error when connecting to the OpenAI API.
+     */
+    public CompletableFuture<OpenaiChatResponse> generateChatTextAsync(OpenaiChatRequest request) {
+    	return generateChatTextAsync(request, null);
+    }
+    
+    /**
+     * 
+     * Same as generateChatTextAsync(request) with a call deadline, cancelling the future aborts the connection.
+     * 
+     * @param request the request model.
+     * @param deadline the time to complete the call, null for no deadline.
+     * @return future of OpenaiChatResponse, completed exceptionally with HttpTimeoutException when the deadline passes.
+     */
+    public CompletableFuture<OpenaiChatResponse> generateChatTextAsync(OpenaiChatRequest request, Instant deadline) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.chatgpt");
+    	
+    	return postAsync(url, request, OpenaiChatResponse.class, deadline);
+    }
+    
     /**
      * 
      * Generate image from openai image model.
@@ -145,27 +224,377 @@ public class OpenAIWrapper implements LanguageModelInterface, ImageModelInterfac
      */
     public BaseRemoteModel generateImages(Map<String, Object> params) throws IOException {
     	
-        String url = API_BASE_URL + Config2.getInstance().getProperty("url.openai.imagegenerate");
-
-        String json = ConnHelper.convertMaptToJson(params);
-
-        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Authorization", "Bearer " + API_KEY);
-        connection.setDoOutput(true);
-
-        try (OutputStream outputStream = connection.getOutputStream()) {
-            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
-        }
-
-        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-        	String errorMessage = ConnHelper.getErrorMessage(connection);
-            throw new IOException(errorMessage);
-        }
+        String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.imagegenerate");
 
         // get the response and convert to model
-        OpenaiImageResponse resModel = ConnHelper.convertSteamToModel(connection.getInputStream(), OpenaiImageResponse.class);
+        OpenaiImageResponse resModel = post(url, params, OpenaiImageResponse.class);
         return resModel;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 
+     * Generate image from openai image model without blocking the caller thread.
+     * 
+     * @param params key and value for the API parameters, same as generateImages.
+     * @return future of BaseRemoteModel, completed exceptionally with IOException if there is an error when connecting to the OpenAI API.
+     */
+    @Override
+    public CompletableFuture<BaseRemoteModel> generateImagesAsync(Map<String, Object> params) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.imagegenerate");
+    	
+    	return postAsync(url, params, OpenaiImageResponse.class);
+    }
+    
+    /**
+     * 
+     * Typed version to generate images from openai image model, the request model is written to the connection without a map or a json string.
+     * 
+     * @param request the request model.
+     * @return future of OpenaiImageResponse, completed exceptionally with IOException if there is an error when connecting to the OpenAI API.
+     */
+    public CompletableFuture<OpenaiImageResponse> generateImagesAsync(OpenaiImageRequest request) {
+    	return generateImagesAsync(request, null);
+    }
+    
+    /**
+     * 
+     * Same as generateImagesAsync(request) with a call deadline, cancelling the future aborts the connection.
+     * 
+     * @param request the request model.
+     * @param deadline the time to complete the call, null for no deadline.
+     * @return future of OpenaiImageResponse, completed exceptionally with HttpTimeoutException when the deadline passes.
+     */
+    public CompletableFuture<OpenaiImageResponse> generateImagesAsync(OpenaiImageRequest request, Instant deadline) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.imagegenerate");
+    	
+    	return postAsync(url, request, OpenaiImageResponse.class, deadline);
+    }
+    
+    /**
+     * 
+     * Generate text from remote large language model and receive the tokens as they are generated.
+     * 
+     * The stream and stream_options parameters are added to the received params.
+     * 
+     * @param params key and value for the API parameters, same as generateText.
+     * @param listener receives the tokens, then the final response.
+     * @return future of the final StreamResponse, cancel it to stop reading the stream.
+     */
+    public CompletableFuture<StreamResponse> generateTextStream(Map<String, Object> params, StreamListener listener) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.completions");
+    	
+    	return stream(url, withStreamParams(params), listener, false, null);
+    }
+    
+    /**
+     * 
+     * Typed version to stream the text generation, the stream and stream_options fields are set on a copy
+     * of the request, the received request is not changed.
+     * 
+     * @param request the request model.
+     * @param listener receives the tokens, then the final response.
+     * @return future of the final StreamResponse, cancel it to stop reading the stream.
+     */
+    public CompletableFuture<StreamResponse> generateTextStream(OpenaiLanguageRequest request, StreamListener listener) {
+    	return generateTextStream(request, listener, null);
+    }
+    
+    /**
+     * 
+     * Same as generateTextStream(request, listener) with a deadline for the whole stream, the stream is closed
+     * and the listener receives HttpTimeoutException when the deadline passes.
+     * 
+     * @param request the request model.
+     * @param listener receives the tokens, then the final response.
+     * @param deadline the time to complete the stream, null for no deadline.
+     * @return future of the final StreamResponse, cancel it to stop reading the stream.
+     */
+    public CompletableFuture<StreamResponse> generateTextStream(OpenaiLanguageRequest request, StreamListener listener, 
+    		Instant deadline) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.completions");
+    	
+    	OpenaiLanguageRequest streamRequest = new OpenaiLanguageRequest(request);
+    	streamRequest.setStream(true);
+    	streamRequest.setStreamOptions(new OpenaiLanguageRequest.StreamOptions(true));
+    	
+    	return stream(url, streamRequest, listener, false, deadline);
+    }
+    
+    /**
+     * 
+     * Generate text from the chat history and receive the tokens as they are generated.
+     * 
+     * The stream and stream_options parameters are added to the received params.
+     * 
+     * @param params key and value for the API parameters, same as generateChatText.
+     * @param listener receives the tokens, then the final response.
+     * @return future of the final StreamResponse, cancel it to stop reading the stream.
+     */
+    public CompletableFuture<StreamResponse> generateChatTextStream(Map<String, Object> params, StreamListener listener) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.chatgpt");
+    	
+    	return stream(url, withStreamParams(params), listener, true, null);
+    }
+    
+    /**
+     * 
+     * Typed version to stream the chat generation, the stream and stream_options fields are set on a copy
+     * of the request, the received request is not changed.
+     * 
+     * @param request the request model.
+     * @param listener receives the tokens, then the final response.
+     * @return future of the final StreamResponse, cancel it to stop reading the stream.
+     */
+    public CompletableFuture<StreamResponse> generateChatTextStream(OpenaiChatRequest request, StreamListener listener) {
+    	return generateChatTextStream(request, listener, null);
+    }
+    
+    /**
+     * 
+     * Same as generateChatTextStream(request, listener) with a deadline for the whole stream, the stream is closed
+     * and the listener receives HttpTimeoutException when the deadline passes.
+     * 
+     * @param request the request model.
+     * @param listener receives the tokens, then the final response.
+     * @param deadline the time to complete the stream, null for no deadline.
+     * @return future of the final StreamResponse, cancel it to stop reading the stream.
+     */
+    public CompletableFuture<StreamResponse> generateChatTextStream(OpenaiChatRequest request, StreamListener listener, 
+    		Instant deadline) {
+    	
+    	String url = getBaseUrl() + Config2.getInstance().getProperty("url.openai.chatgpt");
+    	
+    	OpenaiChatRequest streamRequest = new OpenaiChatRequest(request);
+    	streamRequest.setStream(true);
+    	streamRequest.setStreamOptions(new OpenaiChatRequest.StreamOptions(true));
+    	
+    	return stream(url, streamRequest, listener, true, deadline);
+    }
+    
+    /**
+     * Copy the params with the stream flag and the usage option.
+     * 
+     * @param params key and value for the API parameters.
+     * @return streaming params.
+     */
+    private Map<String, Object> withStreamParams(Map<String, Object> params) {
+    	
+    	Map<String, Object> streamParams = new HashMap<>(params);
+    	streamParams.put("stream", true);
+    	streamParams.put("stream_options", Map.of("include_usage", true));
+    	
+    	return streamParams;
+    }
+    
+    /**
+     * Send the streaming request and read the server-sent events in the executor, or in the
+     * shared stream reader threads when no executor is set.
+     * The read blocks until the last event, so it never runs in the transport or the caller thread.
+     * 
+     * Cancelling the result or passing the deadline aborts the request, or closes the open stream
+     * to stop the blocked read.
+     * 
+     * @param url the full endpoint url.
+     * @param body the streaming params or request model.
+     * @param listener receives the tokens.
+     * @param isChat true for chat completion chunks.
+     * @param deadline the time to complete the stream, or null.
+     * @return future of the final StreamResponse.
+     */
+    private CompletableFuture<StreamResponse> stream(String url, Object body, 
+    		StreamListener listener, boolean isChat, Instant deadline) {
+    	
+    	CompletableFuture<StreamResponse> result = new CompletableFuture<>();
+    	CallMeasure measure = startMeasure(url, body, true);
+    	CompletableFuture<TransportResponse> call = postStreamAsync(url, body, deadline, measure);
+    	ConnHelper.propagateCancel(call, result);
+    	if (measure != null) {
+    		result.whenComplete(measure::finish);
+    	}
+    	
+    	ConnHelper.failAtDeadline(result, deadline, "The stream deadline exceeded");
+    	
+    	call.whenCompleteAsync((response, error) -> {
+    		if (error != null) {
+    			Throwable cause = error instanceof CompletionException && error.getCause() != null ? 
+    					error.getCause() : error;
+    			if (result.completeExceptionally(cause)) {
+    				listener.onError(cause);
+    			}
+    			return;
+    		}
+    		
+    		// close the stream when the result is cancelled or timed out
+    		result.whenComplete((streamRes, failure) -> {
+    			if (failure != null) {
+    				try {
+    					response.close();
+    				} catch (IOException e) {
+    					// the stream is discarded
+    				}
+    			}
+    		});
+    		
+    		readEvents(response, listener, isChat, result);
+    	}, getExecutor() == null ? StreamReaders.EXECUTOR : getExecutor());
+    	
+    	return result;
+    }
+    
+    /**
+     * Read the events until [DONE] and complete the result, closing the stream 
+     * aborts the connection when the result is cancelled.
+     * 
+     * @param response the open streaming response.
+     * @param listener receives the tokens.
+     * @param isChat true for chat completion chunks.
+     * @param result the future to complete.
+     */
+    private void readEvents(TransportResponse response, StreamListener listener, 
+    		boolean isChat, CompletableFuture<StreamResponse> result) {
+    	
+    	StreamResponse streamRes = new StreamResponse();
+    	List<StringBuilder> texts = new ArrayList<>();
+    	
+    	try (ServerSentEventReader reader = new ServerSentEventReader(response.getBody())) {
+    		
+    		String data;
+    		while (!result.isDone() && (data = reader.nextData()) != null) {
+    			
+    			if (data.equals("[DONE]")) {
+    				break;
+    			}
+    			
+    			JsonElement chunk = JsonParser.parseString(data);
+    			if (chunk.isJsonObject() && chunk.getAsJsonObject().has("error")) {
+    				throw new IOException("Stream error details:" + data);
+    			}
+    			
+    			if (isChat) {
+    				readChatChunk(ConnHelper.convertJsonToModel(chunk, OpenaiChatResponse.class), 
+    						streamRes, texts, listener);
+    			} else {
+    				readTextChunk(ConnHelper.convertJsonToModel(chunk, OpenaiLanguageResponse.class), 
+    						streamRes, texts, listener);
+    			}
+    		}
+    	} catch (IOException | RuntimeException e) {
+    		if (result.completeExceptionally(e)) {
+    			listener.onError(e);
+    		} else {
+    			// the read failed because the stream was closed
+    			listener.onError(failureOf(result));
+    		}
+    		return;
+    	}
+    	
+    	if (result.isDone()) {
+    		listener.onError(failureOf(result));
+    		return;
+    	}
+    	
+    	for (StringBuilder text : texts) {
+    		streamRes.getOutputs().add(text.toString());
+    	}
+    	
+    	listener.onComplete(streamRes);
+    	result.complete(streamRes);
+    }
+    
+    /**
+     * Holder for the shared threads that read the streams without an executor, 
+     * each open stream holds one thread until its end.
+     */
+    private static class StreamReaders {
+    	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(task -> {
+    		Thread thread = new Thread(task, "intellijava-stream-reader");
+    		thread.setDaemon(true);
+    		return thread;
+    	});
+    }
+    
+    /**
+     * Gets the reason of the stopped stream, the cancel or the deadline.
+     */
+    private static Throwable failureOf(CompletableFuture<StreamResponse> result) {
+    	try {
+    		result.join();
+    		return new CancellationException("The stream cancelled");
+    	} catch (CancellationException e) {
+    		return new CancellationException("The stream cancelled");
+    	} catch (CompletionException e) {
+    		return e.getCause();
+    	}
+    }
+    
+    /**
+     * Add the chat chunk deltas to the stream response.
+     */
+    private void readChatChunk(OpenaiChatResponse chunk, StreamResponse streamRes, 
+    		List<StringBuilder> texts, StreamListener listener) {
+    	
+    	streamRes.setId(chunk.getId());
+    	streamRes.setModel(chunk.getModel());
+    	
+    	if (chunk.getChoices() != null) {
+    		for (OpenaiChatResponse.Choice choice : chunk.getChoices()) {
+    			String token = choice.getDelta() == null ? null : choice.getDelta().getContent();
+    			addToken(choice.getIndex(), token, choice.getFinish_reason(), streamRes, texts, listener);
+    		}
+    	}
+    	
+    	if (chunk.getUsage() != null) {
+    		streamRes.setPromptTokens(chunk.getUsage().getPrompt_tokens());
+    		streamRes.setCompletionTokens(chunk.getUsage().getCompletion_tokens());
+    		streamRes.setTotalTokens(chunk.getUsage().getTotal_tokens());
+    	}
+    }
+    
+    /**
+     * Add the completion chunk text to the stream response.
+     */
+    private void readTextChunk(OpenaiLanguageResponse chunk, StreamResponse streamRes, 
+    		List<StringBuilder> texts, StreamListener listener) {
+    	
+    	streamRes.setId(chunk.getId());
+    	streamRes.setModel(chunk.getModel());
+    	
+    	if (chunk.getChoices() != null) {
+    		for (OpenaiLanguageResponse.Choice choice : chunk.getChoices()) {
+    			addToken(choice.getIndex(), choice.getText(), choice.getFinish_reason(), streamRes, texts, listener);
+    		}
+    	}
+    	
+    	if (chunk.getUsage() != null) {
+    		streamRes.setPromptTokens(chunk.getUsage().getPrompt_tokens());
+    		streamRes.setCompletionTokens(chunk.getUsage().getCompletion_tokens());
+    		streamRes.setTotalTokens(chunk.getUsage().getTotal_tokens());
+    	}
+    }
+    
+    /**
+     * Append the token to the output text and notify the listener.
+     */
+    private void addToken(int index, String token, String finishReason, StreamResponse streamRes, 
+    		List<StringBuilder> texts, StreamListener listener) {
+    	
+    	while (texts.size() <= index) {
+    		texts.add(new StringBuilder());
+    		streamRes.getFinishReasons().add(null);
+    	}
+    	
+    	if (token != null && !token.isEmpty()) {
+    		texts.get(index).append(token);
+    		listener.onToken(index, token);
+    	}
+    	
+    	if (finishReason != null) {
+    		streamRes.getFinishReasons().set(index, finishReason);
+    	}
+    }
+}
@@ -2,6 +2,7 @@ package com.intellijava.core.wrappers;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.intellijava.core.model.BaseRemoteModel;
 
@@ -21,4 +22,13 @@ public interface SpeechModelInterface {
 	 * @throws IOException in case of error.
 	 */
 	public BaseRemoteModel generateSpeech(Map<String, Object> params) throws IOException;
+	
+	/**
+	 * 
+	 * Generate speech from text without blocking the caller thread.
+	 * 
+	 * @param params key and value for the API parameters.
+	 * @return future of BaseRemoteModel or any sub class, completed exceptionally with IOException on error.
+	 */
+	public CompletableFuture<BaseRemoteModel> generateSpeechAsync(Map<String, Object> params);
 }
@@ -0,0 +1,103 @@
+package com.intellijava.core;
+
+import static com.intellijava.core.StubTransport.REQUEST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.AdaptiveConcurrencyTransport;
+import com.intellijava.core.transport.ConcurrencyStatus;
+import com.intellijava.core.transport.RequestRejectedException;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the adaptive concurrency limit
+ */
+public class AdaptiveConcurrencyTransportTest {
+
+	private final StubTransport stub = new StubTransport();
+
+	private static ConcurrencyStatus status(AdaptiveConcurrencyTransport transport) {
+		return transport.getStatus().get(0);
+	}
+
+	private static Throwable causeOf(CompletableFuture<TransportResponse> result) throws InterruptedException {
+		try {
+			result.get();
+			fail("the call should fail");
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+
+	@Test
+	public void testBackoffAndIncrease() throws Exception {
+
+		AdaptiveConcurrencyTransport transport = new AdaptiveConcurrencyTransport.Builder(stub).setInitialLimit(2)
+				.setMaxLimit(10).setBackoffRatio(0.5).setMaxQueueSize(1).build();
+
+		transport.sendAsync(REQUEST);
+		transport.sendAsync(REQUEST);
+		CompletableFuture<TransportResponse> queued = transport.sendAsync(REQUEST);
+		assertTrue(causeOf(transport.sendAsync(REQUEST)) instanceof RequestRejectedException);
+		assertEquals(2, stub.calls.size());
+
+		// 429 cuts the limit, the queued call keeps waiting
+		stub.complete(0, 429);
+		assertEquals(1, status(transport).getLimit());
+		assertEquals(1, status(transport).getQueued());
+
+		// a success with the permits in use raises the limit and grants the queued call
+		stub.complete(1, 200);
+		assertEquals(2, status(transport).getLimit());
+		assertEquals(3, stub.calls.size());
+
+		stub.complete(2, 200);
+		assertEquals(200, queued.get().getStatusCode());
+		assertEquals(0, status(transport).getInFlight());
+	}
+
+	@Test
+	public void testCancelLeavesQueueAndReleasesPermit() throws Exception {
+
+		AdaptiveConcurrencyTransport transport = new AdaptiveConcurrencyTransport.Builder(stub).setInitialLimit(1)
+				.build();
+
+		CompletableFuture<TransportResponse> inFlight = transport.sendAsync(REQUEST);
+		CompletableFuture<TransportResponse> queued = transport.sendAsync(REQUEST);
+		assertEquals(1, status(transport).getQueued());
+
+		assertTrue(queued.cancel(true));
+		assertEquals(0, status(transport).getQueued());
+
+		assertTrue(inFlight.cancel(true));
+		assertTrue(stub.call(0).isCancelled());
+		assertEquals(0, status(transport).getInFlight());
+		assertEquals(1, stub.calls.size());
+	}
+
+	@Test
+	public void testDeadlineInQueue() throws Exception {
+
+		AdaptiveConcurrencyTransport transport = new AdaptiveConcurrencyTransport.Builder(stub).setInitialLimit(1)
+				.build();
+
+		transport.sendAsync(REQUEST);
+		TransportRequest request = REQUEST.toBuilder().setDeadline(Instant.now().plusMillis(30)).build();
+		Throwable cause = causeOf(transport.sendAsync(request));
+
+		assertTrue(cause instanceof HttpTimeoutException);
+		assertEquals(0, status(transport).getQueued());
+		assertEquals(1, stub.calls.size());
+	}
+}
@@ -0,0 +1,60 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.ApiKeyPoolTransport;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the API key pool
+ */
+public class ApiKeyPoolTransportTest {
+
+	private static final TransportRequest REQUEST = new TransportRequest.Builder("http://localhost/v1/completions")
+			.addHeader("Authorization", "Bearer wrapper-key").setBody(new byte[0]).build();
+
+	/** the Authorization header of each sent request. */
+	private final List<String> sentKeys = new CopyOnWriteArrayList<>();
+
+	private final HttpTransport stub = request -> {
+		String key = request.getHeaders().get("Authorization");
+		sentKeys.add(key);
+		if (key.equals("Bearer key-a")) {
+			return new TransportResponse(429, Map.of("retry-after", List.of("60")),
+					new ByteArrayInputStream(new byte[0]));
+		}
+		return new TransportResponse(200, null, new ByteArrayInputStream(new byte[0]));
+	};
+
+	@Test
+	public void testRotationAndRateLimitBench() throws Exception {
+
+		ApiKeyPoolTransport transport = new ApiKeyPoolTransport.Builder(stub).addKey("key-a").addKey("key-b")
+				.addKey("key-c").build();
+
+		for (int i = 0; i < 3; i++) {
+			transport.send(REQUEST).close();
+		}
+		assertEquals(List.of("Bearer key-a", "Bearer key-b", "Bearer key-c"), sentKeys);
+
+		// the key that received 429 is benched until the Retry-After wait
+		assertEquals(2, transport.getAvailableKeys());
+		sentKeys.clear();
+		for (int i = 0; i < 4; i++) {
+			transport.send(REQUEST).close();
+		}
+		assertFalse(sentKeys.contains("Bearer key-a"));
+		assertEquals(4, sentKeys.size());
+	}
+}
@@ -0,0 +1,132 @@
+package com.intellijava.core;
+
+import static com.intellijava.core.StubTransport.REQUEST;
+import static com.intellijava.core.StubTransport.URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.CircuitBreakerTransport;
+import com.intellijava.core.transport.CircuitBreakerTransport.State;
+import com.intellijava.core.transport.CircuitOpenException;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the circuit breaker states
+ */
+public class CircuitBreakerTransportTest {
+
+	private final StubTransport stub = new StubTransport();
+
+	private CircuitBreakerTransport breaker() {
+		return new CircuitBreakerTransport.Builder(stub).setWindowSize(2).setMinimumCalls(2)
+				.setFailureRateThreshold(0.5).setOpenDuration(Duration.ofMillis(50)).setHalfOpenCalls(1).build();
+	}
+
+	private static void assertOpen(CompletableFuture<TransportResponse> result) throws InterruptedException {
+		try {
+			result.get();
+			fail("the call should fail fast");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof CircuitOpenException);
+		}
+	}
+
+	@Test
+	public void testOpenAndCloseAfterTrial() throws Exception {
+
+		CircuitBreakerTransport transport = breaker();
+		transport.sendAsync(REQUEST);
+		transport.sendAsync(REQUEST);
+		stub.complete(0, 500);
+		stub.complete(1, 503);
+		assertEquals(State.OPEN, transport.getState(URL));
+
+		assertOpen(transport.sendAsync(REQUEST));
+		assertEquals(2, stub.calls.size());
+
+		Thread.sleep(80);
+		CompletableFuture<TransportResponse> trial = transport.sendAsync(REQUEST);
+		assertEquals(State.HALF_OPEN, transport.getState(URL));
+		assertOpen(transport.sendAsync(REQUEST));
+
+		stub.complete(2, 200);
+		assertEquals(200, trial.get().getStatusCode());
+		assertEquals(State.CLOSED, transport.getState(URL));
+	}
+
+	@Test
+	public void testDeadlinesAndCancelsAreNotFailures() throws Exception {
+
+		CircuitBreakerTransport transport = breaker();
+		transport.sendAsync(REQUEST.toBuilder().setDeadline(Instant.now()).build());
+		transport.sendAsync(REQUEST).cancel(true);
+		stub.call(0).completeExceptionally(new HttpTimeoutException("The call deadline exceeded"));
+
+		assertTrue(stub.call(1).isCancelled());
+		assertEquals(State.CLOSED, transport.getState(URL));
+	}
+
+	@Test
+	public void testReadTimeoutsOpen() throws Exception {
+
+		// the endpoint accepts the connections then hangs until the read timeout
+		CircuitBreakerTransport transport = breaker();
+		transport.sendAsync(REQUEST);
+		transport.sendAsync(REQUEST.toBuilder().setDeadline(Instant.now().plusSeconds(60)).build());
+		stub.call(0).completeExceptionally(new HttpTimeoutException("request timed out"));
+		stub.call(1).completeExceptionally(new HttpTimeoutException("request timed out"));
+
+		assertEquals(State.OPEN, transport.getState(URL));
+	}
+
+	@Test
+	public void testCancelledTrialFreesTheSlot() throws Exception {
+
+		CircuitBreakerTransport transport = breaker();
+		transport.sendAsync(REQUEST);
+		transport.sendAsync(REQUEST);
+		stub.complete(0, 429);
+		stub.complete(1, 500);
+
+		Thread.sleep(80);
+		transport.sendAsync(REQUEST).cancel(true);
+		assertEquals(State.HALF_OPEN, transport.getState(URL));
+
+		CompletableFuture<TransportResponse> trial = transport.sendAsync(REQUEST);
+		assertEquals(4, stub.calls.size());
+		stub.complete(3, 200);
+		assertEquals(200, trial.get().getStatusCode());
+		assertEquals(State.CLOSED, transport.getState(URL));
+	}
+
+	@Test
+	public void testOutcomeOfOlderStateIsIgnored() throws Exception {
+
+		CircuitBreakerTransport transport = breaker();
+		// admitted while closed, completes during the half-open trial
+		transport.sendAsync(REQUEST);
+		transport.sendAsync(REQUEST);
+		transport.sendAsync(REQUEST);
+		stub.complete(1, 500);
+		stub.complete(2, 500);
+		assertEquals(State.OPEN, transport.getState(URL));
+
+		Thread.sleep(80);
+		transport.sendAsync(REQUEST);
+		stub.complete(0, 500);
+		assertEquals(State.HALF_OPEN, transport.getState(URL));
+
+		stub.complete(3, 200);
+		assertEquals(State.CLOSED, transport.getState(URL));
+	}
+}
@@ -0,0 +1,134 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.intellijava.core.transport.HttpClientTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ *
+ * Unit test for the compressed request and response bodies
+ */
+public class ContentEncodingTest {
+
+	private static final String TEXT = "{\"choices\": [{\"text\": \"hello hello hello hello\", \"index\": 0}]}";
+
+	private HttpServer server;
+
+	/** the Content-Encoding of the last echoed request. */
+	private volatile String requestEncoding;
+
+	@Before
+	public void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	@After
+	public void stop() {
+		server.stop(0);
+	}
+
+	/**
+	 * Sends the text with the encoding of the path, or echoes the decoded request body.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+
+		String path = exchange.getRequestURI().getPath();
+		byte[] text = TEXT.getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		if (path.equals("/echo")) {
+			InputStream in = exchange.getRequestBody();
+			requestEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+			if ("gzip".equals(requestEncoding)) {
+				in = new GZIPInputStream(in);
+			}
+			body.write(in.readAllBytes());
+		} else if (path.equals("/gzip") || path.equals("/x-gzip")) {
+			try (OutputStream out = new GZIPOutputStream(body)) {
+				out.write(text);
+			}
+		} else if (path.equals("/deflate")) {
+			try (OutputStream out = new DeflaterOutputStream(body)) {
+				out.write(text);
+			}
+		} else if (path.equals("/raw-deflate")) {
+			try (OutputStream out = new DeflaterOutputStream(body, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+				out.write(text);
+			}
+		}
+
+		String encoding = path.equals("/raw-deflate") ? "deflate" : path.equals("/empty") ? "gzip" : path.substring(1);
+		if (!path.equals("/echo")) {
+			exchange.getResponseHeaders().add("Content-Encoding", encoding);
+		}
+		exchange.sendResponseHeaders(200, body.size() == 0 ? -1 : body.size());
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body.toByteArray());
+		}
+	}
+
+	private String send(HttpClientTransport transport, String path, String body) throws IOException {
+
+		String url = "http://localhost:" + server.getAddress().getPort() + path;
+		TransportRequest request = new TransportRequest.Builder(url)
+				.setBody(body.getBytes(StandardCharsets.UTF_8)).build();
+		TransportResponse response = transport.send(request);
+		assertEquals(200, response.getStatusCode());
+		try (InputStream in = response.getBody()) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	public void testResponseDecoding() throws Exception {
+
+		HttpClientTransport transport = new HttpClientTransport.Builder().build();
+		assertEquals(TEXT, send(transport, "/gzip", "{}"));
+		assertEquals(TEXT, send(transport, "/x-gzip", "{}"));
+		assertEquals(TEXT, send(transport, "/deflate", "{}"));
+		assertEquals(TEXT, send(transport, "/raw-deflate", "{}"));
+	}
+
+	@Test
+	public void testEmptyEncodedBody() throws Exception {
+
+		// the empty body has no gzip header to read
+		HttpClientTransport transport = new HttpClientTransport.Builder().build();
+		assertEquals("", send(transport, "/empty", "{}"));
+	}
+
+	@Test
+	public void testRequestCompression() throws Exception {
+
+		HttpClientTransport transport = new HttpClientTransport.Builder().setRequestCompressionThreshold(16).build();
+		assertEquals(TEXT, send(transport, "/echo", TEXT));
+		assertEquals("gzip", requestEncoding);
+
+		// the small bodies are sent as they are
+		assertEquals("{}", send(transport, "/echo", "{}"));
+		assertNull(requestEncoding);
+	}
+}
@@ -0,0 +1,102 @@
+package com.intellijava.core;
+
+import static com.intellijava.core.StubTransport.REQUEST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.HedgingTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the hedged requests
+ */
+public class HedgingTransportTest {
+
+	/** true to throw from the sends after the first one. */
+	private volatile boolean isBroken;
+
+	private final StubTransport stub = new StubTransport() {
+		@Override
+		public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+			if (isBroken && !calls.isEmpty()) {
+				throw new IllegalStateException("The hedge send failed");
+			}
+			return super.sendAsync(request);
+		}
+	};
+
+	private HedgingTransport hedging() {
+		return new HedgingTransport.Builder(stub).setMaxHedgeRatio(0.5).setMinSamples(100)
+				.setInitialDelay(Duration.ofMillis(20)).setMinDelay(Duration.ofMillis(1)).build();
+	}
+
+	@Test
+	public void testHedgeWithinBudget() throws Exception {
+
+		HedgingTransport transport = hedging();
+
+		// the first request adds half a hedge to the budget
+		CompletableFuture<TransportResponse> first = transport.sendAsync(REQUEST);
+		Thread.sleep(80);
+		assertEquals(1, stub.calls.size());
+		stub.complete(0, 200);
+		assertEquals(200, first.get().getStatusCode());
+
+		// the second request completes the budget, the hedge wins the race
+		CompletableFuture<TransportResponse> second = transport.sendAsync(REQUEST);
+		Thread.sleep(80);
+		assertEquals(3, stub.calls.size());
+		stub.complete(2, 200);
+
+		assertEquals(200, second.get().getStatusCode());
+		assertTrue(stub.call(1).isCancelled());
+		assertEquals(1, transport.getHedgeCount());
+		assertEquals(2, transport.getRequestCount());
+	}
+
+	@Test
+	public void testCancelStopsTheHedge() throws Exception {
+
+		HedgingTransport transport = new HedgingTransport.Builder(stub).setMaxHedgeRatio(1).setMinSamples(100)
+				.setInitialDelay(Duration.ofMillis(20)).build();
+
+		CompletableFuture<TransportResponse> result = transport.sendAsync(REQUEST);
+		assertTrue(result.cancel(true));
+		Thread.sleep(80);
+
+		assertEquals(1, stub.calls.size());
+		assertTrue(stub.call(0).isCancelled());
+		assertEquals(0, transport.getHedgeCount());
+	}
+
+	@Test(timeout = 5000)
+	public void testHedgeSendFailure() throws Exception {
+
+		isBroken = true;
+		HedgingTransport transport = new HedgingTransport.Builder(stub).setMaxHedgeRatio(1).setMinSamples(100)
+				.setInitialDelay(Duration.ofMillis(20)).build();
+
+		CompletableFuture<TransportResponse> result = transport.sendAsync(REQUEST);
+		Thread.sleep(80);
+		assertEquals(1, transport.getHedgeCount());
+
+		// the failed hedge leaves the race, the primary failure completes it
+		stub.call(0).completeExceptionally(new IOException("Connection reset"));
+		try {
+			result.get();
+			fail("the race should fail");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.intellijava.core.metrics.CallMetrics;
+import com.intellijava.core.metrics.CallPhase;
+import com.intellijava.core.metrics.InMemoryMetrics;
+import com.intellijava.core.metrics.LatencyHistogram;
+import com.intellijava.core.metrics.MetricsSnapshot;
+
+/**
+ *
+ * Unit test for the in-memory metrics
+ */
+public class InMemoryMetricsTest {
+
+	@Test
+	public void testHistogramPercentiles() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int millis = 1; millis <= 1000; millis++) {
+			histogram.record(millis * 1_000_000L);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500, histogram.getPercentile(0.5) / 1e6, 500 * 0.04);
+		assertEquals(990, histogram.getPercentile(0.99) / 1e6, 990 * 0.04);
+		assertEquals(1000, histogram.getMax() / 1_000_000);
+	}
+
+	@Test
+	public void testAggregatePerProviderAndModel() {
+
+		InMemoryMetrics metrics = new InMemoryMetrics();
+
+		metrics.record(new CallMetrics.Builder("api.openai.com", "https://api.openai.com/v1/chat/completions")
+				.setModel("gpt-3.5-turbo").setStatusCode(200).setDurationNanos(20_000_000)
+				.setBytesSent(100).setBytesReceived(400).setTokens(10, 30)
+				.setPhaseNanos(CallPhase.WAIT, 15_000_000).build());
+		metrics.record(new CallMetrics.Builder("api.openai.com", "https://api.openai.com/v1/chat/completions")
+				.setModel("gpt-3.5-turbo").setStatusCode(429).setError(new Exception("rate limit"))
+				.setDurationNanos(5_000_000).setRetries(2).build());
+		metrics.record(new CallMetrics.Builder("api.cohere.ai", "https://api.cohere.ai/generate")
+				.setModel("xlarge").setStatusCode(200).setDurationNanos(40_000_000).build());
+
+		List<MetricsSnapshot> snapshots = metrics.getSnapshots();
+		assertEquals(2, snapshots.size());
+
+		MetricsSnapshot openai = snapshots.stream().filter(snapshot -> snapshot.getModel().equals("gpt-3.5-turbo"))
+				.findFirst().get();
+		assertEquals(2, openai.getCalls());
+		assertEquals(1, openai.getErrors());
+		assertEquals(Long.valueOf(1), openai.getStatusCodes().get(429));
+		assertEquals(2, openai.getRetries());
+		assertEquals(10, openai.getPromptTokens());
+		assertEquals(30, openai.getCompletionTokens());
+		assertEquals(400, openai.getBytesReceived());
+		assertTrue(openai.getMaxMillis() >= 19);
+		assertEquals(15, openai.getPhaseMeanMillis().get(CallPhase.WAIT), 15 * 0.04);
+		assertTrue(!openai.getPhaseMeanMillis().containsKey(CallPhase.PARSE));
+	}
+}
@@ -0,0 +1,71 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.LoadSheddingTransport;
+import com.intellijava.core.transport.RequestRejectedException;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the deadline load shedding
+ */
+public class LoadSheddingTransportTest {
+
+	private volatile long latencyMillis;
+
+	private final HttpTransport stub = request -> {
+		try {
+			Thread.sleep(latencyMillis);
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		}
+		return new TransportResponse(200, null, new ByteArrayInputStream(new byte[0]));
+	};
+
+	private static TransportRequest request(Duration deadline) {
+		return new TransportRequest.Builder("http://localhost/v1/completions").setBody(new byte[0])
+				.setDeadline(deadline == null ? null : Instant.now().plus(deadline)).build();
+	}
+
+	@Test
+	public void testShedAndRecoverWithProbe() throws Exception {
+
+		LoadSheddingTransport transport = new LoadSheddingTransport.Builder(stub).setConcurrency(1)
+				.setMinSamples(2).setProbeInterval(Duration.ofMillis(200)).build();
+
+		latencyMillis = 100;
+		assertNull(transport.getExpectedLatency(request(null)));
+		transport.send(request(null)).close();
+		transport.send(request(null)).close();
+		assertNotNull(transport.getExpectedLatency(request(null)));
+
+		try {
+			transport.send(request(Duration.ofMillis(30)));
+			fail("the request should be shed");
+		} catch (RequestRejectedException e) {
+			assertEquals(1, transport.getShedCount());
+		}
+
+		// the provider is fast again, the probe after the interval replaces the old latency
+		latencyMillis = 1;
+		Thread.sleep(250);
+		transport.send(request(Duration.ofMillis(30))).close();
+		transport.send(request(Duration.ofMillis(30))).close();
+
+		assertEquals(1, transport.getShedCount());
+		assertEquals(4, transport.getAdmittedCount());
+	}
+}
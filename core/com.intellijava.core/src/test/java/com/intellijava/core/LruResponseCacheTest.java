@@ -0,0 +1,75 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.intellijava.core.cache.CacheStats;
+import com.intellijava.core.cache.LruResponseCache;
+import com.intellijava.core.cache.ResponseCache;
+import com.intellijava.core.model.OpenaiLanguageRequest;
+
+/**
+ * 
+ * Unit test for the in-memory response cache
+ */
+public class LruResponseCacheTest {
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		
+		LruResponseCache cache = new LruResponseCache.Builder().setMaxEntries(2).build();
+		
+		cache.put("a", List.of("output a"));
+		cache.put("b", List.of("output b"));
+		cache.get("a");
+		cache.put("c", List.of("output c"));
+		
+		assertEquals(List.of("output a"), cache.get("a"));
+		assertNull(cache.get("b"));
+		
+		CacheStats stats = cache.getStats();
+		assertEquals(2, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		assertEquals(1, stats.getEvictions());
+		assertEquals(2, stats.getEntries());
+	}
+	
+	@Test
+	public void testTtlAndTemperature() throws InterruptedException {
+		
+		LruResponseCache cache = new LruResponseCache.Builder().setTtl(Duration.ofMillis(1)).build();
+		
+		cache.put("a", List.of("output a"));
+		Thread.sleep(5);
+		
+		assertNull(cache.get("a"));
+		assertEquals(1, cache.getStats().getExpirations());
+		assertEquals(0, cache.getStats().getBytes());
+		
+		assert cache.isCacheable(0);
+		assert !cache.isCacheable(0.7f);
+	}
+	
+	@Test
+	public void testCanonicalKey() {
+		
+		OpenaiLanguageRequest first = new OpenaiLanguageRequest();
+		first.setModel("text-davinci-003");
+		first.setPrompt("hello");
+		
+		OpenaiLanguageRequest second = new OpenaiLanguageRequest();
+		second.setPrompt("hello");
+		second.setModel("text-davinci-003");
+		
+		assertEquals(ResponseCache.createKey("openai", first), ResponseCache.createKey("openai", second));
+		
+		second.setMaxTokens(10);
+		assertNotEquals(ResponseCache.createKey("openai", first), ResponseCache.createKey("openai", second));
+	}
+}
@@ -19,6 +19,7 @@ package com.intellijava.core;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +29,7 @@ import com.intellijava.core.controller.RemoteLanguageModel;
 import com.intellijava.core.function.Chatbot;
 import com.intellijava.core.model.OpenaiImageResponse;
 import com.intellijava.core.model.OpenaiImageResponse.Data;
+import com.intellijava.core.model.StreamResponse;
 import com.intellijava.core.model.SupportedChatModels;
 import com.intellijava.core.model.SupportedLangModels;
 import com.intellijava.core.model.input.ChatGPTInput;
@@ -37,6 +39,7 @@ import com.intellijava.core.model.input.ImageModelInput;
 import com.intellijava.core.model.input.LanguageModelInput;
 import com.intellijava.core.model.input.ChatGPTMessage.Role;
 import com.intellijava.core.utils.Config2;
+import com.intellijava.core.utils.ConnHelper;
 import com.intellijava.core.wrappers.OpenAIWrapper;
 
 
@@ -113,6 +116,40 @@ public class OpenaiModelConnectionTest {
 		}
 	}
 	
+	@Test
+	public void testOpenaiBatchCompletionRemoteModel() {
+		
+		try {
+			
+			RemoteLanguageModel wrapper = new RemoteLanguageModel(openaiKey, SupportedLangModels.openai);
+			
+			List<LanguageModelInput> inputs = new ArrayList<>();
+			for (String language : new String[] {"java", "python", "go"}) {
+				inputs.add(new LanguageModelInput.Builder("return a " + language + " code that print hello world")
+	                .setModel("text-davinci-003").setTemperature(0.7f).setMaxTokens(50).build());
+			}
+			
+			if (openaiKey.isBlank()) return;
+			
+			List<List<String>> resValues = wrapper.generateTextBatch(inputs);
+			
+			System.out.print(resValues);
+			
+			assert resValues.size() == inputs.size();
+			for (List<String> outputs : resValues) {
+				assert outputs.get(0).toLowerCase().contains("world");
+			}
+
+		} catch (IOException e) {
+			if (openaiKey.isBlank()) {
+				System.out.print("testOpenaiBatchCompletion: set the API key to run the test case.");
+			} else {
+				fail("Test case failed with exception: " + e.getMessage());
+			}
+			
+		}
+	}
+	
 	@Test
 	public void testImageWrapper() {
 		
@@ -236,4 +273,28 @@ public class OpenaiModelConnectionTest {
 		}
 		
 	}
+	
+	@Test
+	public void testOpenaiChatGPTStream() { 
+		
+		Chatbot bot = new Chatbot(openaiKey, SupportedChatModels.openai);
+		String mode = "You are a helpful astronomy assistant.";
+		ChatModelInput input = new ChatGPTInput.Builder(mode)
+								.addUserMessage("what is the space between moon and earth").build();
+		
+		if (openaiKey.isBlank()) return;
+		
+		try {
+			
+			StreamResponse response = ConnHelper.await(bot.chatStream(input, 
+					(index, token) -> System.out.print(token)));
+			
+			assert response.getOutputs().get(0).length() > 0;
+			assert response.getFinishReasons().get(0) != null;
+			
+		} catch (IOException e) {
+			fail("Test case failed with exception: " + e.getMessage());
+		}
+		
+	}
 }
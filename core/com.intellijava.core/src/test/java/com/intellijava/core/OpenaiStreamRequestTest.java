@@ -0,0 +1,62 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellijava.core.model.OpenaiChatRequest;
+import com.intellijava.core.model.OpenaiLanguageRequest;
+import com.intellijava.core.model.StreamListener;
+import com.intellijava.core.transport.RequestBody;
+import com.intellijava.core.wrappers.OpenAIWrapper;
+
+/**
+ *
+ * Unit test for the typed streaming requests
+ */
+public class OpenaiStreamRequestTest {
+
+	private final StubTransport stub = new StubTransport();
+
+	private final OpenAIWrapper wrapper = new OpenAIWrapper("key", stub);
+
+	private final StreamListener listener = (index, token) -> {
+	};
+
+	private JsonObject sentBody(int index) throws Exception {
+		byte[] body = RequestBody.toByteArray(stub.requests.get(index).getBody());
+		return JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+	}
+
+	@Test
+	public void testRequestNotChanged() throws Exception {
+
+		OpenaiLanguageRequest text = new OpenaiLanguageRequest();
+		text.setModel("text-davinci-003");
+		text.setPrompt("Say hi");
+		wrapper.generateTextStream(text, listener).cancel(true);
+
+		OpenaiChatRequest chat = new OpenaiChatRequest();
+		chat.setModel("gpt-3.5-turbo");
+		chat.setMessages(List.of());
+		wrapper.generateChatTextStream(chat, listener).cancel(true);
+
+		// the sent bodies have the stream fields, the received requests can be sent again without streaming
+		for (int i = 0; i < 2; i++) {
+			JsonObject body = sentBody(i);
+			assertEquals(true, body.get("stream").getAsBoolean());
+			assertEquals(true, body.getAsJsonObject("stream_options").get("include_usage").getAsBoolean());
+		}
+		assertEquals("Say hi", sentBody(0).get("prompt").getAsString());
+		assertNull(text.getStream());
+		assertNull(text.getStreamOptions());
+		assertNull(chat.getStream());
+		assertNull(chat.getStreamOptions());
+	}
+}
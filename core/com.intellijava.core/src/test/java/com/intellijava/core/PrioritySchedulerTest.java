@@ -0,0 +1,111 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.PriorityScheduler;
+import com.intellijava.core.transport.RequestPriority;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the priority and tenant scheduling
+ */
+public class PrioritySchedulerTest {
+
+	private final StubTransport stub = new StubTransport();
+
+	private static TransportRequest request(String path) {
+		return new TransportRequest.Builder("http://localhost" + path).setBody(new byte[0]).build();
+	}
+
+	/** gets the path of each sent request, in the send order. */
+	private List<String> sent() {
+		List<String> paths = new ArrayList<>();
+		for (TransportRequest request : stub.requests) {
+			paths.add(request.getUrl().substring("http://localhost".length()));
+		}
+		return paths;
+	}
+
+	/** complete the calls one at a time, each completion sends the next queued request. */
+	private void drain() {
+		for (int i = 0; i < stub.calls.size(); i++) {
+			stub.complete(i, 200);
+		}
+	}
+
+	@Test
+	public void testHigherPriorityFirst() throws Exception {
+
+		PriorityScheduler scheduler = new PriorityScheduler.Builder(stub).setMaxConcurrent(1).build();
+		HttpTransport interactive = scheduler.transport(RequestPriority.INTERACTIVE, "web");
+		HttpTransport bulk = scheduler.transport(RequestPriority.BULK, "jobs");
+
+		bulk.sendAsync(request("/bulk-1"));
+		bulk.sendAsync(request("/bulk-2"));
+		interactive.sendAsync(request("/interactive"));
+		assertEquals(1, scheduler.getInFlight());
+		assertEquals(1, scheduler.getStats().get(RequestPriority.BULK.ordinal()).getQueued());
+
+		drain();
+		assertEquals(List.of("/bulk-1", "/interactive", "/bulk-2"), sent());
+		assertEquals(0, scheduler.getInFlight());
+		assertEquals(2, scheduler.getStats().get(RequestPriority.BULK.ordinal()).getStarted());
+	}
+
+	@Test
+	public void testTenantWeights() throws Exception {
+
+		PriorityScheduler scheduler = new PriorityScheduler.Builder(stub).setMaxConcurrent(1)
+				.setTenantWeight("a", 2).build();
+		HttpTransport tenantA = scheduler.transport(RequestPriority.NORMAL, "a");
+		HttpTransport tenantB = scheduler.transport(RequestPriority.NORMAL, "b");
+
+		scheduler.transport(RequestPriority.NORMAL, "other").sendAsync(request("/busy"));
+		tenantA.sendAsync(request("/a-1"));
+		tenantA.sendAsync(request("/a-2"));
+		tenantA.sendAsync(request("/a-3"));
+		tenantB.sendAsync(request("/b-1"));
+		tenantB.sendAsync(request("/b-2"));
+
+		// tenant a has twice the share of tenant b
+		drain();
+		assertEquals(List.of("/busy", "/a-1", "/a-2", "/b-1", "/a-3", "/b-2"), sent());
+	}
+
+	@Test
+	public void testDeadlineAndCancel() throws Exception {
+
+		PriorityScheduler scheduler = new PriorityScheduler.Builder(stub).setMaxConcurrent(1).build();
+		HttpTransport transport = scheduler.transport(RequestPriority.NORMAL, null);
+
+		CompletableFuture<TransportResponse> inFlight = transport.sendAsync(request("/first"));
+		TransportRequest late = request("/late").toBuilder().setDeadline(Instant.now().plusMillis(30)).build();
+		try {
+			transport.sendAsync(late).get();
+			fail("the queued request should time out");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof HttpTimeoutException);
+		}
+		assertEquals(0, scheduler.getStats().get(RequestPriority.NORMAL.ordinal()).getQueued());
+
+		// cancelling the result aborts the call and frees the slot
+		assertTrue(inFlight.cancel(true));
+		assertTrue(stub.call(0).isCancelled());
+		assertEquals(0, scheduler.getInFlight());
+		assertEquals(List.of("/first"), sent());
+	}
+}
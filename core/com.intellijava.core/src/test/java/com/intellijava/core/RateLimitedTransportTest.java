@@ -0,0 +1,87 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.RateLimitHeadroom;
+import com.intellijava.core.transport.RateLimitedTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the requests and tokens budgets
+ */
+public class RateLimitedTransportTest {
+
+	private final AtomicInteger sends = new AtomicInteger();
+
+	private volatile int status = 200;
+
+	private final HttpTransport stub = request -> {
+		sends.incrementAndGet();
+		byte[] body = "{\"usage\": {\"total_tokens\": 40}}".getBytes(StandardCharsets.UTF_8);
+		return new TransportResponse(status, null, new ByteArrayInputStream(body));
+	};
+
+	/** a request with the wrapper estimate and a body that fails if the limiter reads it. */
+	private static TransportRequest request() {
+		return new TransportRequest.Builder("http://localhost/v1/completions")
+				.setBody(out -> {
+					throw new AssertionError("the body should not be read by the limiter");
+				})
+				.setEstimatedTokens(100).build();
+	}
+
+	private static RateLimitHeadroom headroom(RateLimitedTransport transport) {
+		return transport.getHeadroom().get(0);
+	}
+
+	@Test
+	public void testEstimateAndUsage() throws Exception {
+
+		RateLimitedTransport transport = new RateLimitedTransport.Builder(stub).setDefaultLimits(60, 1000).build();
+		transport.send(request()).close();
+
+		// the estimate of 100 is corrected to the used 40 tokens
+		long tokens = headroom(transport).getAvailableTokens();
+		assertTrue(String.valueOf(tokens), tokens >= 960 && tokens < 1000);
+		assertEquals(1, sends.get());
+	}
+
+	@Test
+	public void testFailedCallReturnsTokens() throws Exception {
+
+		status = 500;
+		RateLimitedTransport transport = new RateLimitedTransport.Builder(stub).setDefaultLimits(60, 1000).build();
+		transport.send(request()).close();
+
+		assertEquals(1000, headroom(transport).getAvailableTokens());
+		assertTrue(headroom(transport).getAvailableRequests() < 60);
+	}
+
+	@Test
+	public void testCancelDuringWaitReturnsBudget() throws Exception {
+
+		RateLimitedTransport transport = new RateLimitedTransport.Builder(stub).setDefaultLimits(1, 1000)
+				.setMaxWait(Duration.ofMinutes(5)).build();
+		transport.send(request()).close();
+
+		CompletableFuture<TransportResponse> waiting = transport.sendAsync(request());
+		assertTrue(waiting.cancel(true));
+		Thread.sleep(50);
+
+		assertEquals(1, sends.get());
+		long tokens = headroom(transport).getAvailableTokens();
+		assertTrue(String.valueOf(tokens), tokens >= 960);
+	}
+}
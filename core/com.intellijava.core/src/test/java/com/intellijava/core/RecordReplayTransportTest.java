@@ -0,0 +1,86 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.RecordingTransport;
+import com.intellijava.core.transport.ReplayTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the recording and the replay of the exchanges
+ */
+public class RecordReplayTransportTest {
+
+	private static final String URL = "http://localhost/v1/chat/completions";
+
+	private static final String COMPLETION = "{\"choices\": [{\"message\": {\"content\": \"hello\"}}]}";
+
+	private static final String EVENTS = "data: {\"delta\": \"hel\"}\n\ndata: {\"delta\": \"lo\"}\n\ndata: [DONE]\n\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final HttpTransport stub = request -> {
+		String body = request.isStreaming() ? EVENTS : COMPLETION;
+		return new TransportResponse(200, Map.of("content-type", List.of("application/json")),
+				new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+	};
+
+	private static TransportRequest request(String prompt, boolean streaming) {
+		return new TransportRequest.Builder(URL).addHeader("Authorization", "Bearer secret")
+				.setBody(("{\"prompt\": \"" + prompt + "\"}").getBytes(StandardCharsets.UTF_8))
+				.setStreaming(streaming).build();
+	}
+
+	private static String read(TransportResponse response) throws IOException {
+		try (InputStream in = response.getBody()) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	public void testRecordAndReplay() throws Exception {
+
+		Path file = folder.newFile("exchanges.rec").toPath();
+		try (RecordingTransport recorder = new RecordingTransport.Builder(stub, file).build()) {
+			assertEquals(COMPLETION, read(recorder.send(request("hi", false))));
+			// the stream is written when the caller reads it to the end
+			assertEquals(EVENTS, read(recorder.send(request("hi", true))));
+			assertEquals(2, recorder.getRecordCount());
+		}
+
+		ReplayTransport replay = new ReplayTransport.Builder(file).setLatencyScale(0).build();
+
+		TransportResponse response = replay.send(request("hi", false));
+		assertEquals(200, response.getStatusCode());
+		assertEquals("application/json", response.getHeader("content-type"));
+		assertEquals(COMPLETION, read(response));
+		assertEquals(EVENTS, read(replay.send(request("hi", true))));
+
+		try {
+			replay.send(request("other", false));
+			fail("the request was not recorded");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("No recorded response"));
+		}
+		assertEquals(2, replay.getHitCount());
+		assertEquals(1, replay.getMissCount());
+	}
+}
@@ -0,0 +1,186 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.RequestRejectedException;
+import com.intellijava.core.transport.RetryingTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the retries
+ */
+public class RetryingTransportTest {
+
+	private static final TransportRequest REQUEST = new TransportRequest.Builder("http://localhost/v1/completions")
+			.setBody("{}".getBytes()).build();
+
+	private static TransportResponse response(int status, Map<String, List<String>> headers) {
+		return new TransportResponse(status, headers, new ByteArrayInputStream(new byte[0]));
+	}
+
+	@Test
+	public void testRetryServerErrors() throws Exception {
+
+		AtomicInteger sends = new AtomicInteger();
+		HttpTransport stub = request -> response(sends.incrementAndGet() < 3 ? 503 : 200, null);
+
+		RetryingTransport transport = new RetryingTransport.Builder(stub).setMaxAttempts(3)
+				.setInitialBackoff(Duration.ofMillis(1)).build();
+
+		TransportResponse response = transport.send(REQUEST);
+		assertEquals(200, response.getStatusCode());
+		assertEquals(3, response.getAttempts());
+		assertEquals(3, sends.get());
+	}
+
+	@Test
+	public void testClientErrorIsFinal() throws Exception {
+
+		AtomicInteger sends = new AtomicInteger();
+		HttpTransport stub = request -> {
+			sends.incrementAndGet();
+			return response(400, null);
+		};
+
+		TransportResponse response = new RetryingTransport.Builder(stub).build().send(REQUEST);
+		assertEquals(400, response.getStatusCode());
+		assertEquals(1, sends.get());
+	}
+
+	@Test
+	public void testLastResponseWhenAttemptsEnd() throws Exception {
+
+		AtomicInteger sends = new AtomicInteger();
+		HttpTransport stub = request -> {
+			sends.incrementAndGet();
+			return response(429, null);
+		};
+
+		TransportResponse response = new RetryingTransport.Builder(stub).setMaxAttempts(2)
+				.setInitialBackoff(Duration.ofMillis(1)).build().send(REQUEST);
+		assertEquals(429, response.getStatusCode());
+		assertEquals(2, response.getAttempts());
+		assertEquals(2, sends.get());
+	}
+
+	@Test
+	public void testCancelDuringBackoff() throws Exception {
+
+		AtomicInteger sends = new AtomicInteger();
+		// the server hint keeps the retry in the backoff wait
+		HttpTransport stub = request -> {
+			sends.incrementAndGet();
+			return response(503, Map.of("retry-after", List.of("1")));
+		};
+
+		RetryingTransport transport = new RetryingTransport.Builder(stub).setMaxAttempts(3)
+				.setInitialBackoff(Duration.ofMillis(1)).setDeadline(Duration.ofMinutes(1)).build();
+
+		CompletableFuture<TransportResponse> result = transport.sendAsync(REQUEST);
+		assertTrue(result.cancel(true));
+
+		Thread.sleep(1500);
+		assertEquals(1, sends.get());
+		assertTrue(result.isCancelled());
+	}
+
+	@Test
+	public void testRetryAfterHint() throws Exception {
+
+		AtomicInteger sends = new AtomicInteger();
+		HttpTransport stub = request -> response(sends.incrementAndGet() < 2 ? 429 : 200,
+				Map.of("retry-after-ms", List.of("100")));
+
+		RetryingTransport transport = new RetryingTransport.Builder(stub).setInitialBackoff(Duration.ofMillis(1))
+				.build();
+
+		long start = System.nanoTime();
+		assertEquals(200, transport.send(REQUEST).getStatusCode());
+		// the server wait is longer than the backoff
+		assertTrue(System.nanoTime() - start >= Duration.ofMillis(100).toNanos());
+		assertEquals(2, sends.get());
+	}
+
+	@Test
+	public void testRetryAfterPastDeadline() throws Exception {
+
+		AtomicInteger sends = new AtomicInteger();
+		HttpTransport stub = request -> {
+			sends.incrementAndGet();
+			return response(503, Map.of("retry-after", List.of("60")));
+		};
+
+		TransportResponse response = new RetryingTransport.Builder(stub).setDeadline(Duration.ofSeconds(5)).build()
+				.send(REQUEST);
+		assertEquals(503, response.getStatusCode());
+		assertEquals(1, sends.get());
+	}
+
+	@Test
+	public void testConnectionErrors() throws Exception {
+
+		AtomicInteger sends = new AtomicInteger();
+		HttpTransport refused = request -> {
+			if (sends.incrementAndGet() < 2) {
+				throw new ConnectException("Connection refused");
+			}
+			return response(200, null);
+		};
+		assertEquals(200, new RetryingTransport.Builder(refused).setInitialBackoff(Duration.ofMillis(1)).build()
+				.send(REQUEST).getStatusCode());
+		assertEquals(2, sends.get());
+
+		// the client side rejection is final
+		sends.set(0);
+		HttpTransport rejected = request -> {
+			sends.incrementAndGet();
+			throw new RequestRejectedException("The queue is full");
+		};
+		try {
+			new RetryingTransport.Builder(rejected).setInitialBackoff(Duration.ofMillis(1)).build().send(REQUEST);
+			fail("the rejection should not be retried");
+		} catch (IOException e) {
+			assertTrue(e instanceof RequestRejectedException);
+		}
+		assertEquals(1, sends.get());
+	}
+
+	@Test(timeout = 5000)
+	public void testUncheckedFailureCompletes() throws Exception {
+
+		HttpTransport broken = request -> {
+			throw new IllegalStateException("The stub is broken");
+		};
+		try {
+			new RetryingTransport.Builder(broken).build().send(REQUEST);
+			fail("the failure should reach the caller");
+		} catch (IllegalStateException e) {
+			assertEquals("The stub is broken", e.getMessage());
+		}
+
+		// the default transport rejects the url before the send
+		TransportRequest badUrl = new TransportRequest.Builder("bad url").setBody("{}".getBytes()).build();
+		try {
+			new RetryingTransport.Builder(null).build().send(badUrl);
+			fail("the bad url should reach the caller");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
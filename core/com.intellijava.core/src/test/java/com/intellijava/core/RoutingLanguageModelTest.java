@@ -0,0 +1,137 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.intellijava.core.controller.RemoteLanguageModel;
+import com.intellijava.core.controller.RoutingLanguageModel;
+import com.intellijava.core.model.SupportedLangModels;
+import com.intellijava.core.model.input.LanguageModelInput;
+import com.intellijava.core.transport.HttpStatusException;
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+
+/**
+ *
+ * Unit test for the weighted routes and the failover
+ */
+public class RoutingLanguageModelTest {
+
+	/**
+	 * A provider that returns its name as the completion, or fails with the status.
+	 */
+	private static class Provider implements HttpTransport {
+		private final String name;
+		private final AtomicInteger sends = new AtomicInteger();
+		private volatile int status = 200;
+
+		private Provider(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public TransportResponse send(TransportRequest request) {
+			sends.incrementAndGet();
+			String body = status == 200 ? "{\"choices\": [{\"text\": \"" + name + "\", \"index\": 0}]}"
+					: "{\"error\": {\"message\": \"failed\"}}";
+			return new TransportResponse(status, null,
+					new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+		}
+	}
+
+	private static RemoteLanguageModel model(HttpTransport transport) {
+		return new RemoteLanguageModel("key", SupportedLangModels.openai, transport);
+	}
+
+	private static LanguageModelInput input() {
+		return new LanguageModelInput.Builder("Say hi").setMaxTokens(10).build();
+	}
+
+	@Test
+	public void testWeightedRoundRobin() throws Exception {
+
+		RoutingLanguageModel routing = new RoutingLanguageModel.Builder().addRoute(model(new Provider("a")), 2)
+				.addRoute(model(new Provider("b")), 1).build();
+
+		List<String> outputs = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			outputs.add(routing.generateText(input()));
+		}
+		assertEquals(List.of("a", "b", "a", "a", "b", "a"), outputs);
+	}
+
+	@Test
+	public void testFailoverAndEject() throws Exception {
+
+		Provider failing = new Provider("a");
+		failing.status = 503;
+		Provider healthy = new Provider("b");
+		RoutingLanguageModel routing = new RoutingLanguageModel.Builder().addRoute(model(failing), 1)
+				.addRoute(model(healthy), 1).setMaxFailures(2).setEjectDuration(Duration.ofMinutes(1)).build();
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals("b", routing.generateText(input()));
+		}
+		// the failing route is skipped after two failures
+		assertEquals(2, failing.sends.get());
+		assertEquals(5, healthy.sends.get());
+		assertEquals(1, routing.getHealthyRoutes());
+	}
+
+	@Test
+	public void testInvalidRequestDoesNotFailOver() throws Exception {
+
+		Provider invalid = new Provider("a");
+		invalid.status = 400;
+		Provider other = new Provider("b");
+		RoutingLanguageModel routing = new RoutingLanguageModel.Builder().addRoute(model(invalid), 1)
+				.addRoute(model(other), 1).build();
+
+		try {
+			routing.generateText(input());
+			fail("the invalid request should fail");
+		} catch (HttpStatusException e) {
+			assertEquals(400, e.getStatusCode());
+		}
+		assertEquals(0, other.sends.get());
+	}
+
+	@Test(timeout = 5000)
+	public void testUncheckedFailureFailsOver() throws Exception {
+
+		HttpTransport broken = request -> {
+			throw new IllegalStateException("The provider is broken");
+		};
+		RoutingLanguageModel routing = new RoutingLanguageModel.Builder().addRoute(model(broken), 1)
+				.addRoute(model(new Provider("b")), 1).build();
+
+		assertEquals("b", routing.generateText(input()));
+	}
+
+	@Test
+	public void testCancelReachesTheRoute() throws Exception {
+
+		StubTransport pending = new StubTransport();
+		Provider other = new Provider("b");
+		RoutingLanguageModel routing = new RoutingLanguageModel.Builder().addRoute(model(pending), 1)
+				.addRoute(model(other), 1).build();
+
+		CompletableFuture<String> result = routing.generateTextAsync(input());
+		assertTrue(result.cancel(true));
+
+		assertTrue(pending.call(0).isCancelled());
+		assertEquals(0, other.sends.get());
+	}
+}
@@ -0,0 +1,49 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.intellijava.core.transport.ServerSentEventReader;
+
+/**
+ *
+ * Unit test for the event stream parser
+ */
+public class ServerSentEventReaderTest {
+
+	private static ServerSentEventReader reader(String stream) {
+		return new ServerSentEventReader(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testEvents() throws Exception {
+
+		String stream = ": keep-alive\n\n"
+				+ "event: completion\ndata: {\"text\": \"hel\"}\n\n"
+				+ "data:{\"text\": \"lo\"}\r\n\r\n"
+				+ "data: first line\ndata: second line\n\n"
+				+ "data: [DONE]";
+
+		try (ServerSentEventReader reader = reader(stream)) {
+			assertEquals("{\"text\": \"hel\"}", reader.nextData());
+			assertEquals("{\"text\": \"lo\"}", reader.nextData());
+			assertEquals("first line\nsecond line", reader.nextData());
+			// the last event ends with the stream, without a blank line
+			assertEquals("[DONE]", reader.nextData());
+			assertNull(reader.nextData());
+		}
+	}
+
+	@Test
+	public void testEmptyStream() throws Exception {
+
+		try (ServerSentEventReader reader = reader(": comment only\n\n\n")) {
+			assertNull(reader.nextData());
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.intellijava.core.controller.RemoteLanguageModel;
+import com.intellijava.core.model.SupportedLangModels;
+import com.intellijava.core.model.input.LanguageModelInput;
+
+/**
+ *
+ * Unit test for the shared in-flight calls of identical requests
+ */
+public class SingleFlightTest {
+
+	private static final String COMPLETION = "{\"choices\": [{\"text\": \"hello\", \"index\": 0}]}";
+
+	private final StubTransport stub = new StubTransport();
+
+	private RemoteLanguageModel model() {
+		RemoteLanguageModel model = new RemoteLanguageModel("key", SupportedLangModels.openai, stub);
+		model.setSingleFlight(true);
+		return model;
+	}
+
+	private static LanguageModelInput input(Duration timeout) {
+		return new LanguageModelInput.Builder("Say hi").setMaxTokens(10).setTimeout(timeout).build();
+	}
+
+	@Test
+	public void testSharedCallAndRelease() throws Exception {
+
+		RemoteLanguageModel model = model();
+		CompletableFuture<List<String>> first = model.generateMultiTextAsync(input(null));
+		CompletableFuture<List<String>> second = model.generateMultiTextAsync(input(null));
+		assertEquals(1, stub.calls.size());
+
+		stub.complete(0, COMPLETION);
+		assertEquals(List.of("hello"), first.get());
+		assertEquals(List.of("hello"), second.get());
+		assertNotSame(first.get(), second.get());
+
+		// the completed call is released, the next caller sends a new request
+		model.generateMultiTextAsync(input(null));
+		assertEquals(2, stub.calls.size());
+	}
+
+	@Test
+	public void testLastCallerCancels() throws Exception {
+
+		RemoteLanguageModel model = model();
+		CompletableFuture<List<String>> first = model.generateMultiTextAsync(input(null));
+		CompletableFuture<List<String>> second = model.generateMultiTextAsync(input(null));
+
+		assertTrue(first.cancel(true));
+		assertFalse(stub.call(0).isDone());
+
+		assertTrue(second.cancel(true));
+		assertTrue(stub.call(0).isCancelled());
+
+		model.generateMultiTextAsync(input(null));
+		assertEquals(2, stub.calls.size());
+	}
+
+	@Test
+	public void testLatestDeadline() throws Exception {
+
+		RemoteLanguageModel model = model();
+		// a first call to load the classes before the deadlines start
+		CompletableFuture<List<String>> warmup = model.generateMultiTextAsync(input(null));
+		stub.complete(0, COMPLETION);
+		warmup.get();
+
+		CompletableFuture<List<String>> early = model.generateMultiTextAsync(input(Duration.ofMillis(100)));
+		CompletableFuture<List<String>> late = model.generateMultiTextAsync(input(Duration.ofMillis(400)));
+		assertEquals(2, stub.calls.size());
+
+		try {
+			early.get();
+			fail("the first caller should time out");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof HttpTimeoutException);
+		}
+		// the later caller keeps the call running until its own deadline
+		assertFalse(stub.call(1).isDone());
+
+		try {
+			late.get();
+			fail("the second caller should time out");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof HttpTimeoutException);
+		}
+		assertTrue(stub.call(1).isCancelled());
+	}
+}
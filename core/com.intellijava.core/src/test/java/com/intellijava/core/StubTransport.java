@@ -0,0 +1,63 @@
+package com.intellijava.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.intellijava.core.transport.HttpTransport;
+import com.intellijava.core.transport.TransportRequest;
+import com.intellijava.core.transport.TransportResponse;
+import com.intellijava.core.utils.ConnHelper;
+
+/**
+ *
+ * Transport for the offline tests, each call waits until the test completes it.
+ */
+class StubTransport implements HttpTransport {
+
+	static final String URL = "http://localhost/v1/completions";
+
+	static final TransportRequest REQUEST = new TransportRequest.Builder(URL).setBody(new byte[0]).build();
+
+	/** the calls in the send order. */
+	final List<CompletableFuture<TransportResponse>> calls = new CopyOnWriteArrayList<>();
+
+	/** the sent requests, in the same order of the calls. */
+	final List<TransportRequest> requests = new CopyOnWriteArrayList<>();
+
+	static TransportResponse response(int status) {
+		return response(status, "");
+	}
+
+	static TransportResponse response(int status, String body) {
+		return new TransportResponse(status, null, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Override
+	public TransportResponse send(TransportRequest request) throws IOException {
+		return ConnHelper.await(sendAsync(request));
+	}
+
+	@Override
+	public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+		CompletableFuture<TransportResponse> call = new CompletableFuture<>();
+		requests.add(request);
+		calls.add(call);
+		return call;
+	}
+
+	CompletableFuture<TransportResponse> call(int index) {
+		return calls.get(index);
+	}
+
+	void complete(int index, int status) {
+		calls.get(index).complete(response(status));
+	}
+
+	void complete(int index, String body) {
+		calls.get(index).complete(response(200, body));
+	}
+}
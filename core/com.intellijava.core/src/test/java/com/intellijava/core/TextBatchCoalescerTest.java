@@ -0,0 +1,115 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.intellijava.core.controller.RemoteLanguageModel;
+import com.intellijava.core.model.SupportedLangModels;
+import com.intellijava.core.model.input.LanguageModelInput;
+
+/**
+ *
+ * Unit test for the coalescing of the concurrent text calls
+ */
+public class TextBatchCoalescerTest {
+
+	private final StubTransport stub = new StubTransport();
+
+	private final RemoteLanguageModel model = new RemoteLanguageModel("key", SupportedLangModels.openai, stub);
+
+	private static LanguageModelInput input(String prompt, Duration timeout) {
+		return new LanguageModelInput.Builder(prompt).setMaxTokens(10).setTimeout(timeout).build();
+	}
+
+	/**
+	 * Waits until the stub receives the given number of requests.
+	 */
+	private void awaitCalls(int count) throws InterruptedException {
+		for (int i = 0; i < 200 && stub.calls.size() < count; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, stub.calls.size());
+	}
+
+	@Test
+	public void testFlushOnSize() throws Exception {
+
+		model.enableCoalescing(60_000, 2);
+		CompletableFuture<String> first = model.generateTextAsync(input("first", null));
+		assertEquals(0, stub.calls.size());
+
+		// the max queued calls sends the batch without waiting for the delay
+		CompletableFuture<String> second = model.generateTextAsync(input("second", null));
+		assertEquals(1, stub.calls.size());
+		assertEquals(List.of("first", "second"), TextBatchTest.promptsOf(stub, 0));
+
+		stub.complete(0, TextBatchTest.choices(new int[] { 1, 0 }, "second-out", "first-out"));
+		assertEquals("first-out", first.get());
+		assertEquals("second-out", second.get());
+	}
+
+	@Test
+	public void testFlushOnDelay() throws Exception {
+
+		model.enableCoalescing(50, 10);
+		CompletableFuture<String> result = model.generateTextAsync(input("single", null));
+		assertEquals(0, stub.calls.size());
+
+		awaitCalls(1);
+		assertEquals(List.of("single"), TextBatchTest.promptsOf(stub, 0));
+
+		stub.complete(0, TextBatchTest.choices(new int[] { 0 }, "single-out"));
+		assertEquals("single-out", result.get());
+	}
+
+	@Test
+	public void testQueuedCancelAndDeadline() throws Exception {
+
+		model.enableCoalescing(300, 10);
+		CompletableFuture<String> cancelled = model.generateTextAsync(input("cancelled", null));
+		CompletableFuture<String> late = model.generateTextAsync(input("late", Duration.ofMillis(50)));
+		CompletableFuture<String> sent = model.generateTextAsync(input("sent", null));
+
+		// the queued call fails at its own deadline, before the flush
+		try {
+			late.get();
+			fail("the queued call should time out");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof HttpTimeoutException);
+		}
+		assertEquals(0, stub.calls.size());
+		assertTrue(cancelled.cancel(true));
+
+		// the calls that left the queue are not sent
+		awaitCalls(1);
+		assertEquals(List.of("sent"), TextBatchTest.promptsOf(stub, 0));
+		stub.complete(0, TextBatchTest.choices(new int[] { 0 }, "sent-out"));
+		assertEquals("sent-out", sent.get());
+	}
+
+	@Test
+	public void testLastCallerCancels() throws Exception {
+
+		model.enableCoalescing(60_000, 2);
+		CompletableFuture<String> first = model.generateTextAsync(input("first", null));
+		CompletableFuture<String> second = model.generateTextAsync(input("second", null));
+		assertEquals(1, stub.calls.size());
+
+		assertTrue(first.cancel(true));
+		assertFalse(stub.call(0).isDone());
+
+		// the request is cancelled when all its callers left
+		assertTrue(second.cancel(true));
+		assertTrue(stub.call(0).isCancelled());
+	}
+}
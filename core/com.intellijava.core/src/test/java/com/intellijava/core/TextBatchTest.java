@@ -0,0 +1,91 @@
+package com.intellijava.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.intellijava.core.controller.RemoteLanguageModel;
+import com.intellijava.core.model.SupportedLangModels;
+import com.intellijava.core.model.input.LanguageModelInput;
+import com.intellijava.core.transport.RequestBody;
+
+/**
+ *
+ * Unit test for the multi-prompt completion batches
+ */
+public class TextBatchTest {
+
+	private final StubTransport stub = new StubTransport();
+
+	private final RemoteLanguageModel model = new RemoteLanguageModel("key", SupportedLangModels.openai, stub);
+
+	private static LanguageModelInput input(String prompt, float temperature, int numberOfOutputs) {
+		return new LanguageModelInput.Builder(prompt).setTemperature(temperature).setMaxTokens(10)
+				.setNumberOfOutputs(numberOfOutputs).build();
+	}
+
+	/**
+	 * Gets the completion response with the texts at the given choice indexes.
+	 */
+	static String choices(int[] indexes, String... texts) {
+		StringBuilder json = new StringBuilder("{\"choices\": [");
+		for (int i = 0; i < texts.length; i++) {
+			json.append(i == 0 ? "" : ", ").append("{\"text\": \"").append(texts[i]).append("\", \"index\": ")
+					.append(indexes[i]).append('}');
+		}
+		return json.append("]}").toString();
+	}
+
+	/**
+	 * Gets the prompts of the sent request.
+	 */
+	static List<String> promptsOf(StubTransport stub, int index) throws Exception {
+		byte[] body = RequestBody.toByteArray(stub.requests.get(index).getBody());
+		List<String> prompts = new ArrayList<>();
+		for (JsonElement prompt : JsonParser.parseString(new String(body, StandardCharsets.UTF_8))
+				.getAsJsonObject().getAsJsonArray("prompt")) {
+			prompts.add(prompt.getAsString());
+		}
+		return prompts;
+	}
+
+	@Test
+	public void testChoicesToPrompts() throws Exception {
+
+		CompletableFuture<List<List<String>>> result = model
+				.generateTextBatchAsync(List.of(input("first", 0.5f, 2), input("second", 0.5f, 2)));
+		assertEquals(1, stub.calls.size());
+		assertEquals(List.of("first", "second"), promptsOf(stub, 0));
+
+		// the choices of the prompt i are i * n to i * n + n - 1, in any order
+		stub.complete(0, choices(new int[] { 3, 0, 2, 1 }, "second-b", "first-a", "second-a", "first-b"));
+		assertEquals(List.of(List.of("first-a", "first-b"), List.of("second-a", "second-b")), result.get());
+	}
+
+	@Test
+	public void testGroupsAndSplit() throws Exception {
+
+		model.setMaxBatchSize(2);
+		CompletableFuture<List<List<String>>> result = model.generateTextBatchAsync(List.of(input("a0", 0.5f, 1),
+				input("b0", 0.9f, 1), input("a1", 0.5f, 1), input("a2", 0.5f, 1)));
+
+		// the inputs with other parameters are sent apart, and the large groups are split
+		assertEquals(3, stub.calls.size());
+		assertEquals(List.of("a0", "a1"), promptsOf(stub, 0));
+		assertEquals(List.of("a2"), promptsOf(stub, 1));
+		assertEquals(List.of("b0"), promptsOf(stub, 2));
+
+		stub.complete(2, choices(new int[] { 0 }, "b0-out"));
+		stub.complete(1, choices(new int[] { 0 }, "a2-out"));
+		stub.complete(0, choices(new int[] { 1, 0 }, "a1-out", "a0-out"));
+		assertEquals(List.of(List.of("a0-out"), List.of("b0-out"), List.of("a1-out"), List.of("a2-out")),
+				result.get());
+	}
+}